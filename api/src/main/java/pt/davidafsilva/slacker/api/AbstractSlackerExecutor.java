@@ -26,11 +26,19 @@ package pt.davidafsilva.slacker.api;
  * #L%
  */
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import io.vertx.core.Context;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.ServiceHelper;
 import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.DeliveryOptions;
@@ -47,6 +55,23 @@ import io.vertx.core.spi.FutureFactory;
  * It includes the communication protocol for registering the executor for the supported command
  * as well as utility methods for creating the sending the execution results.
  *
+ * Once registered, the executor keeps its registration lease alive by sending periodic heartbeats
+ * to the slacker-server, registering itself again whenever the lease is lost. Upon stop, the
+ * executor explicitly unregisters itself.
+ *
+ * The requests that arrive past their deadline (see {@link SlackerDeadline}) are dropped without
+ * being executed, while the executors may check the time left for the ongoing requests with
+ * {@link #remainingTime(SlackerRequest)}.
+ *
+ * The requests are executed according to the executor {@link #executionMode()}, whose pool
+ * utilisation and queue wait are available with {@link #executionStats()}. The requests of the
+ * {@link BatchingSlackerExecutor} implementations are collected and executed in batches.
+ *
+ * Every execution on the event loop (see {@link ExecutionMode#eventLoop()}) is tagged with the
+ * executor command at the shared {@link ExecutionTracker}, which also samples the lag of the
+ * executor event loop, such that the stalls are attributed to the executors and requests that
+ * caused them. The executions on worker or pool threads may block at will, hence aren't tagged.
+ *
  * @author david
  * @since 1.0
  */
@@ -65,7 +90,32 @@ public abstract class AbstractSlackerExecutor implements SlackerExecutor {
   private FutureFactory futureFactory;
 
   // the executor slacker requests consumer
-  private Optional<MessageConsumer<SlackerRequest>> consumer;
+  private Optional<MessageConsumer<SlackerRequest>> consumer = Optional.empty();
+
+  // the address assigned by the slacker-server
+  private Optional<String> address = Optional.empty();
+
+  // the lease heartbeat timer
+  private Optional<Long> heartbeatTimer = Optional.empty();
+
+  // whether or not the executor is registering again, after losing its lease
+  private boolean reRegistering;
+
+  // the event loop lag sampling timer
+  private Optional<Long> lagTimer = Optional.empty();
+
+  // the tracker of the executions
+  private final ExecutionTracker tracker = ExecutionTracker.shared();
+
+  // the dispatcher of the requests to the execution threads
+  private ExecutionDispatcher dispatcher;
+
+  // the batcher of the requests, only for batching executors
+  private Optional<RequestBatcher<Message<SlackerRequest>>> batcher = Optional.empty();
+
+  // the deadlines of the requests being executed
+  private final Map<SlackerRequest, Long> deadlines =
+      Collections.synchronizedMap(new IdentityHashMap<>());
 
   @Override
   public void init(final Vertx vertx, final Context context) {
@@ -98,32 +148,101 @@ public abstract class AbstractSlackerExecutor implements SlackerExecutor {
   @Override
   public void start(final Future<Void> startFuture) throws Exception {
     LOGGER.info("starting {0}..", identifier());
+    dispatcher = new ExecutionDispatcher(executionMode(), context);
+    lagTimer = Optional.of(tracker.monitor(vertx));
+    if (this instanceof BatchingSlackerExecutor) {
+      final BatchingSlackerExecutor executor = (BatchingSlackerExecutor) this;
+      batcher = Optional.of(new RequestBatcher<>(vertx, executor.maxBatchSize(),
+          executor.batchLinger(), this::handleBatch));
+    }
+    register(v -> startFuture.complete(), reason -> failStart(startFuture, reason));
+  }
 
+  /**
+   * Registers this executor at the slacker-server (HELLO protocol), binding the listener to the
+   * assigned address and starting the lease heartbeats, if a lease was granted.
+   *
+   * @param success the handler to be called once the executor is registered
+   * @param failure the handler to be called with the failure reason, if the register fails
+   */
+  private void register(final Handler<Void> success, final Handler<String> failure) {
     // start the HELLO slacker protocol
     final JsonObject helloMessage = new JsonObject()
         .put("i", identifier())
         .put("d", description())
-        .put("v", version());
+        .put("v", version())
+        .put("m", deferred() ? "deferred" : "sync");
+    if (cacheTtl() > 0) {
+      helloMessage.put("c", new JsonObject()
+          .put("t", cacheTtl())
+          .put("s", cacheScope().name()));
+    }
+    coalescing().ifPresent(scope -> helloMessage.put("k", scope.name()));
     vertx.eventBus().send("reg.slacker-server", helloMessage, result -> {
       if (result.succeeded() && JsonObject.class.isInstance(result.result().body())) {
         final JsonObject response = (JsonObject) result.result().body();
         if (response.containsKey("a")) {
           // everything went smoothly - register the listener and complete the startup
           registerListener(response.getString("a"));
+          Optional.ofNullable(response.getLong("l")).ifPresent(this::startHeartbeat);
           LOGGER.info("successfully registered {0} executor", identifier());
-          startFuture.complete();
+          success.handle(null);
         } else {
-          failStart(startFuture, "no address to bind was received");
+          failure.handle("no address to bind was received");
         }
       } else {
         // something unexpected happened
-        failStart(startFuture, Optional.ofNullable(result.cause())
+        failure.handle(Optional.ofNullable(result.cause())
             .map(Throwable::getMessage)
             .orElse("invalid response"));
       }
     });
   }
 
+  /**
+   * Starts sending the heartbeats that renew the lease of this executor, at a third of the lease
+   * duration.
+   *
+   * @param lease the lease duration, in milliseconds
+   */
+  private void startHeartbeat(final long lease) {
+    final long interval = Math.max(1, lease / 3);
+    heartbeatTimer.ifPresent(vertx::cancelTimer);
+    heartbeatTimer = Optional.of(vertx.setPeriodic(interval, t -> heartbeat(interval)));
+  }
+
+  /**
+   * Sends an heartbeat to the slacker-server. Whenever the lease is lost, the executor is
+   * registered again - if that fails, the register is retried upon the next heartbeat. The
+   * heartbeats are suspended while registering again, such that a single registration is ever
+   * in progress.
+   *
+   * @param timeout the heartbeat reply timeout, in milliseconds
+   */
+  private void heartbeat(final long timeout) {
+    if (reRegistering) {
+      return;
+    }
+    address.ifPresent(a -> vertx.eventBus().send("hbt.slacker-server", new JsonObject()
+        .put("i", identifier())
+        .put("a", a), new DeliveryOptions().setSendTimeout(timeout), result -> {
+      // ignore the late replies of the heartbeats of a former registration
+      if (result.failed() && heartbeatTimer.isPresent() && !reRegistering &&
+          address.equals(Optional.of(a))) {
+        LOGGER.warn("lost lease of {0} executor, registering again..", result.cause(),
+            identifier());
+        reRegistering = true;
+        consumer.ifPresent(MessageConsumer::unregister);
+        consumer = Optional.empty();
+        // the heartbeats are re-armed with the new lease, once registered
+        register(v -> reRegistering = false, reason -> {
+          reRegistering = false;
+          LOGGER.error("unable to register {0} executor again: {1}", identifier(), reason);
+        });
+      }
+    }));
+  }
+
   /**
    * Registers the listener for for this executor on the underlying event bus, so that this
    * executor can successfully receive slacker command requests.
@@ -134,9 +253,20 @@ public abstract class AbstractSlackerExecutor implements SlackerExecutor {
    * @param address the address assigned by slacker-server
    */
   protected void registerListener(final String address) {
+    this.address = Optional.of(address);
     consumer = Optional.of(vertx.eventBus().consumer(address, this::handleExecutorEvent));
   }
 
+  /**
+   * Stops both the heartbeats and the listener of this executor
+   */
+  private void unregisterListener() {
+    heartbeatTimer.ifPresent(vertx::cancelTimer);
+    heartbeatTimer = Optional.empty();
+    consumer.ifPresent(MessageConsumer::unregister);
+    consumer = Optional.empty();
+  }
+
   /**
    * Creates a success response with the result code equal to {@link ResultCode#OK} and no
    * message as reply.
@@ -193,6 +323,29 @@ public abstract class AbstractSlackerExecutor implements SlackerExecutor {
         Objects.requireNonNull(message, "message")));
   }
 
+  /**
+   * Returns the time left to handle the given request, before its deadline is exceeded. The
+   * remaining time is only available for the requests being executed by this executor which
+   * carry a deadline.
+   *
+   * @param request the request being executed
+   * @return the optional with remaining time (negative if the deadline was already exceeded)
+   */
+  protected Optional<Duration> remainingTime(final SlackerRequest request) {
+    return Optional.ofNullable(deadlines.get(request)).map(SlackerDeadline::remaining);
+  }
+
+  /**
+   * Returns the execution statistics of this executor, namely the number of requests being
+   * executed, the pool utilisation (for dedicated pools) and the time the requests wait to be
+   * executed.
+   *
+   * @return the execution statistics
+   */
+  public JsonObject executionStats() {
+    return dispatcher.stats();
+  }
+
   /**
    * Handles an incoming request from the event bus
    *
@@ -202,22 +355,132 @@ public abstract class AbstractSlackerExecutor implements SlackerExecutor {
     LOGGER.info("<=<= receiving incoming request <=<=");
     LOGGER.debug(request);
 
-    // execute the request handling asynchronously
-    context.runOnContext(a -> {
+    // collect the request into a batch, if batching
+    if (batcher.isPresent()) {
+      batcher.get().add(request);
+      return;
+    }
+
+    // execute the request handling asynchronously, according to the execution mode
+    dispatcher.dispatch(() -> {
+      // drop the late requests, no one is waiting for them anymore
+      if (isLate(request)) {
+        return;
+      }
+
+      final SlackerRequest body = request.body();
+      SlackerDeadline.of(request.headers()).ifPresent(d -> deadlines.put(body, d));
       final Future<SlackerResponse> future = futureFactory.future();
-      execute(request.body(), future);
-      future.setHandler(handler -> {
+      // only the event loop executions may stall their thread, blocking is fine elsewhere
+      final boolean tracked = dispatcher.isEventLoop();
+      final long start = tracked ? tracker.enter(identifier(), body) : 0L;
+      try {
+        execute(body, future);
+      } finally {
+        if (tracked) {
+          tracker.exit(start);
+        }
+      }
+      future.setHandler(handler -> dispatcher.complete(() -> {
+        deadlines.remove(body);
         if (handler.succeeded()) {
-          LOGGER.info("=>=> successfully handled request =>=>");
-          LOGGER.debug(handler.result());
-          request.reply(handler.result(), new DeliveryOptions()
-              .setCodecName(SlackerResponseMessageCodec.NAME));
+          reply(request, handler.result());
         } else {
           request.fail(ResultCode.ERROR.ordinal(), handler.cause().getMessage());
           LOGGER.error("failed to handle request", handler.cause());
         }
+      }));
+    }, reason -> reject(Collections.singletonList(request), reason));
+  }
+
+  /**
+   * Handles a batch of incoming requests, replying to each of them with the respective response
+   * of the batch.
+   *
+   * @param batch the request messages to be handled
+   */
+  private void handleBatch(final List<Message<SlackerRequest>> batch) {
+    final BatchingSlackerExecutor executor = (BatchingSlackerExecutor) this;
+    dispatcher.dispatch(() -> {
+      // drop the late requests, no one is waiting for them anymore
+      final List<Message<SlackerRequest>> messages = batch.stream()
+          .filter(m -> !isLate(m))
+          .collect(Collectors.toList());
+      if (messages.isEmpty()) {
+        return;
+      }
+
+      final List<SlackerRequest> requests = new ArrayList<>(messages.size());
+      messages.forEach(m -> {
+        requests.add(m.body());
+        SlackerDeadline.of(m.headers()).ifPresent(d -> deadlines.put(m.body(), d));
       });
-    });
+      final Future<List<SlackerResponse>> future = futureFactory.future();
+      final boolean tracked = dispatcher.isEventLoop();
+      final long start = tracked ? tracker.enter(identifier(), null) : 0L;
+      try {
+        executor.executeBatch(Collections.unmodifiableList(requests), future);
+      } finally {
+        if (tracked) {
+          tracker.exit(start);
+        }
+      }
+      future.setHandler(handler -> dispatcher.complete(() -> {
+        requests.forEach(deadlines::remove);
+        if (handler.succeeded() && handler.result() != null &&
+            handler.result().size() == messages.size()) {
+          for (int i = 0; i < messages.size(); i++) {
+            reply(messages.get(i), handler.result().get(i));
+          }
+        } else {
+          final String reason = handler.failed() ? handler.cause().getMessage() :
+              "invalid batch responses";
+          messages.forEach(m -> m.fail(ResultCode.ERROR.ordinal(), reason));
+          LOGGER.error("failed to handle batch: {0}", reason);
+        }
+      }));
+    }, reason -> reject(batch, reason));
+  }
+
+  /**
+   * Checks whether or not the given request arrived past its deadline, failing it if so
+   *
+   * @param request the request message
+   * @return {@code true} if the request is late, {@code false} otherwise
+   */
+  private static boolean isLate(final Message<SlackerRequest> request) {
+    final Optional<Long> deadline = SlackerDeadline.of(request.headers());
+    if (deadline.isPresent() && SlackerDeadline.remaining(deadline.get()).isNegative()) {
+      LOGGER.warn("dropped request past its deadline");
+      request.fail(ResultCode.ERROR.ordinal(), "deadline exceeded");
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Replies to the given request with the response of its successful handling
+   *
+   * @param request  the request message
+   * @param response the response
+   */
+  private static void reply(final Message<SlackerRequest> request,
+      final SlackerResponse response) {
+    LOGGER.info("=>=> successfully handled request =>=>");
+    LOGGER.debug(response);
+    request.reply(response, new DeliveryOptions()
+        .setCodecName(SlackerResponseMessageCodec.NAME));
+  }
+
+  /**
+   * Rejects the given requests, which weren't accepted by the execution threads
+   *
+   * @param requests the request messages
+   * @param reason   the rejection reason
+   */
+  private static void reject(final List<Message<SlackerRequest>> requests, final String reason) {
+    LOGGER.warn("rejected {0} request(s): {1}", requests.size(), reason);
+    requests.forEach(r -> r.fail(ResultCode.BUSY.ordinal(), reason));
   }
 
   /**
@@ -236,7 +499,22 @@ public abstract class AbstractSlackerExecutor implements SlackerExecutor {
   @Override
   public void stop(final Future<Void> stopFuture) throws Exception {
     LOGGER.info("stopping {0}..", identifier());
-    consumer.ifPresent(MessageConsumer::unregister);
-    stopFuture.complete();
+    unregisterListener();
+    lagTimer.ifPresent(vertx::cancelTimer);
+    lagTimer = Optional.empty();
+    batcher.ifPresent(RequestBatcher::flush);
+    dispatcher.close();
+
+    // let the slacker-server know that this executor is gone
+    if (address.isPresent()) {
+      vertx.eventBus().send("unr.slacker-server", new JsonObject()
+          .put("i", identifier())
+          .put("a", address.get()), result -> {
+        LOGGER.info("unregistered {0} executor: {1}", identifier(), result.succeeded());
+        stopFuture.complete();
+      });
+    } else {
+      stopFuture.complete();
+    }
   }
 }
@@ -0,0 +1,97 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.Collections;
+import java.util.List;
+
+import io.vertx.core.Future;
+
+/**
+ * The slacker executor that benefits from handling the requests in batches, e.g. by replacing
+ * one back-end call per request with a single call per batch.
+ *
+ * The {@link AbstractSlackerExecutor} implementations of this interface have the incoming
+ * requests collected into batches, up to {@link #maxBatchSize()} requests or for as long as
+ * {@link #batchLinger()}, whichever comes first. Each batch is then handled by
+ * {@link #executeBatch(List, Future)} and its responses are replied to the respective requests.
+ *
+ * @author david
+ * @since 1.0
+ */
+public interface BatchingSlackerExecutor extends SlackerExecutor {
+
+  /**
+   * Returns the maximum number of requests of each batch
+   *
+   * @return the maximum batch size
+   */
+  default int maxBatchSize() {
+    return 64;
+  }
+
+  /**
+   * Returns for how long the first request of a batch may wait for the following ones, in
+   * milliseconds
+   *
+   * @return the batch linger time
+   */
+  default long batchLinger() {
+    return 5;
+  }
+
+  /**
+   * Invoke and handles the incoming batch of requests, posting the execution results
+   * asynchronously to the specified future. The results must be ordered as the requests, i.e. the
+   * n-th result is the response of the n-th request.
+   *
+   * @param requests the incoming slacker requests
+   * @param result   the outgoing result with the responses of the requests
+   */
+  void executeBatch(List<SlackerRequest> requests, Future<List<SlackerResponse>> result);
+
+  /**
+   * Handles a single request as a batch of its own.
+   *
+   * @param request the incoming slacker request
+   * @param result  the outgoing result with the actual execution result
+   */
+  @Override
+  default void execute(final SlackerRequest request, final Future<SlackerResponse> result) {
+    final Future<List<SlackerResponse>> batch = Future.future();
+    batch.setHandler(r -> {
+      if (r.failed()) {
+        result.fail(r.cause());
+      } else if (r.result() == null || r.result().size() != 1) {
+        result.fail("invalid batch responses");
+      } else {
+        result.complete(r.result().get(0));
+      }
+    });
+    executeBatch(Collections.singletonList(request), batch);
+  }
+}
@@ -0,0 +1,48 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+/**
+ * The scope of the cached responses of a cacheable executor (see {@link
+ * SlackerExecutor#cacheTtl()}), which determines which requests share the same cached response:
+ * the requests for the same command and arguments sharing the same
+ * <ul>
+ * <li>{@link #COMMAND}: nothing else, i.e. the response is global</li>
+ * <li>{@link #TEAM}: team</li>
+ * <li>{@link #CHANNEL}: team and channel</li>
+ * <li>{@link #USER}: team and user</li>
+ * </ul>
+ *
+ * @author david
+ * @since 1.0
+ */
+public enum CacheScope {
+  COMMAND,
+  TEAM,
+  CHANNEL,
+  USER
+}
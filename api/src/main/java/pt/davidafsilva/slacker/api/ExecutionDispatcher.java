@@ -0,0 +1,201 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The dispatcher of the executor requests to the threads of the executor {@link ExecutionMode},
+ * which keeps track of the pool utilisation and of the time the requests wait to be executed.
+ *
+ * @author david
+ * @since 1.0
+ */
+final class ExecutionDispatcher {
+
+  // the execution mode
+  private final ExecutionMode mode;
+
+  // the executor verticle context
+  private final Context context;
+
+  // the dedicated pool, only for the pool execution mode
+  private final ThreadPoolExecutor pool;
+
+  // the number of requests being executed
+  private final AtomicInteger active = new AtomicInteger();
+
+  // the execution counters
+  private final LongAdder executions = new LongAdder();
+  private final LongAdder rejections = new LongAdder();
+
+  // the total and maximum queue wait (in nanoseconds)
+  private final LongAdder queueWait = new LongAdder();
+  private final LongAccumulator maxQueueWait = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Constructs the dispatcher for the given execution mode
+   *
+   * @param mode    the execution mode
+   * @param context the executor verticle context
+   */
+  ExecutionDispatcher(final ExecutionMode mode, final Context context) {
+    this.mode = mode;
+    this.context = context;
+    this.pool = mode.getKind() == ExecutionMode.Kind.POOL ? createPool(mode) : null;
+  }
+
+  /**
+   * Creates the dedicated pool of the given execution mode
+   *
+   * @param mode the pool execution mode
+   * @return the pool
+   */
+  private static ThreadPoolExecutor createPool(final ExecutionMode mode) {
+    final AtomicInteger threads = new AtomicInteger();
+    final ThreadFactory factory = r -> {
+      final Thread thread = new Thread(r, mode.getName() + "-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+    final BlockingQueue<Runnable> queue = mode.getQueueSize() > 0 ?
+        new ArrayBlockingQueue<>(mode.getQueueSize()) : new SynchronousQueue<>();
+    return new ThreadPoolExecutor(mode.getSize(), mode.getSize(), 0, TimeUnit.MILLISECONDS,
+        queue, factory, new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  /**
+   * Dispatches the given task to the threads of the execution mode
+   *
+   * @param task     the task to be executed
+   * @param rejected the handler to be called with the rejection reason, if the task was rejected
+   */
+  void dispatch(final Runnable task, final Handler<String> rejected) {
+    final long queued = System.nanoTime();
+    final Runnable measured = () -> {
+      final long wait = System.nanoTime() - queued;
+      queueWait.add(wait);
+      maxQueueWait.accumulate(wait);
+      executions.increment();
+      active.incrementAndGet();
+      try {
+        task.run();
+      } finally {
+        active.decrementAndGet();
+      }
+    };
+
+    switch (mode.getKind()) {
+      case WORKER:
+        context.executeBlocking(f -> {
+          measured.run();
+          f.complete();
+        }, false, r -> {});
+        break;
+      case POOL:
+        try {
+          pool.execute(measured);
+        } catch (final RejectedExecutionException e) {
+          rejections.increment();
+          rejected.handle(String.format("%s pool is saturated", mode.getName()));
+        }
+        break;
+      default:
+        context.runOnContext(v -> measured.run());
+        break;
+    }
+  }
+
+  /**
+   * Checks whether or not the tasks are dispatched to the event loop of the executor verticle
+   *
+   * @return {@code true} for the event loop execution mode, {@code false} otherwise
+   */
+  boolean isEventLoop() {
+    return mode.getKind() == ExecutionMode.Kind.EVENT_LOOP;
+  }
+
+  /**
+   * Runs the given completion of a dispatched task on the executor verticle context, such that
+   * the requests are replied from the context they were received on, whatever the threads that
+   * executed them
+   *
+   * @param completion the task completion
+   */
+  void complete(final Runnable completion) {
+    if (isEventLoop()) {
+      completion.run();
+    } else {
+      context.runOnContext(v -> completion.run());
+    }
+  }
+
+  /**
+   * Returns the execution statistics: the number of requests being executed (along with the
+   * pool utilisation, for the pool execution mode), the number of executed and rejected requests
+   * and both the average and maximum time the requests waited to be executed (in milliseconds).
+   *
+   * @return the execution statistics
+   */
+  JsonObject stats() {
+    final long count = executions.sum();
+    final JsonObject stats = new JsonObject()
+        .put("mode", mode.toString())
+        .put("active", active.get())
+        .put("executions", count)
+        .put("rejections", rejections.sum())
+        .put("queueWaitAvg", count == 0 ? 0d : queueWait.sum() / (double) count / 1_000_000)
+        .put("queueWaitMax", maxQueueWait.get() / 1_000_000d);
+    if (pool != null) {
+      stats.put("queued", pool.getQueue().size())
+          .put("utilisation", active.get() / (double) mode.getSize());
+    }
+    return stats;
+  }
+
+  /**
+   * Closes the dispatcher, shutting down the dedicated pool, if any
+   */
+  void close() {
+    if (pool != null) {
+      pool.shutdown();
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.Objects;
+
+/**
+ * The execution mode of a slacker executor (see {@link SlackerExecutor#executionMode()}), which
+ * determines the threads on which the requests are executed:
+ * <ul>
+ * <li>{@link Kind#EVENT_LOOP}: the executor verticle context, for the non-blocking executors</li>
+ * <li>{@link Kind#WORKER}: the shared vertx worker pool, for the blocking executors</li>
+ * <li>{@link Kind#POOL}: a dedicated named worker pool, with its own size and queue bound, for
+ * the blocking executors that must not compete with the others for the shared workers</li>
+ * </ul>
+ *
+ * @author david
+ * @since 1.0
+ */
+public final class ExecutionMode {
+
+  // the event-loop and worker modes
+  private static final ExecutionMode EVENT_LOOP = new ExecutionMode(Kind.EVENT_LOOP, null, 0, 0);
+  private static final ExecutionMode WORKER = new ExecutionMode(Kind.WORKER, null, 0, 0);
+
+  // the execution kind
+  private final Kind kind;
+
+  // the dedicated pool settings
+  private final String name;
+  private final int size;
+  private final int queueSize;
+
+  /**
+   * Constructs the execution mode with the given settings
+   *
+   * @param kind      the execution kind
+   * @param name      the dedicated pool name
+   * @param size      the dedicated pool size
+   * @param queueSize the dedicated pool queue bound
+   */
+  private ExecutionMode(final Kind kind, final String name, final int size,
+      final int queueSize) {
+    this.kind = kind;
+    this.name = name;
+    this.size = size;
+    this.queueSize = queueSize;
+  }
+
+  /**
+   * Returns the event-loop execution mode, at which the requests are executed at the executor
+   * verticle context. This is the default execution mode.
+   *
+   * @return the event-loop execution mode
+   */
+  public static ExecutionMode eventLoop() {
+    return EVENT_LOOP;
+  }
+
+  /**
+   * Returns the worker execution mode, at which the requests are executed at the shared vertx
+   * worker pool.
+   *
+   * @return the worker execution mode
+   */
+  public static ExecutionMode worker() {
+    return WORKER;
+  }
+
+  /**
+   * Returns the dedicated pool execution mode, at which the requests are executed at a pool of
+   * its own. The requests exceeding the pool queue bound are rejected with
+   * {@link ResultCode#BUSY}.
+   *
+   * @param name      the pool name, used to name its threads
+   * @param size      the number of threads of the pool
+   * @param queueSize the maximum number of requests waiting for a thread
+   * @return the dedicated pool execution mode
+   * @throws IllegalArgumentException if either the size or the queue bound are invalid
+   */
+  public static ExecutionMode pool(final String name, final int size, final int queueSize) {
+    if (size <= 0 || queueSize < 0) {
+      throw new IllegalArgumentException(String.format("invalid pool: %d/%d", size, queueSize));
+    }
+    return new ExecutionMode(Kind.POOL, Objects.requireNonNull(name, "name"), size, queueSize);
+  }
+
+  /**
+   * Returns the execution kind
+   *
+   * @return the execution kind
+   */
+  public Kind getKind() {
+    return kind;
+  }
+
+  /**
+   * Returns the name of the dedicated pool
+   *
+   * @return the pool name, {@code null} unless the kind is {@link Kind#POOL}
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the number of threads of the dedicated pool
+   *
+   * @return the pool size, zero unless the kind is {@link Kind#POOL}
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Returns the maximum number of requests waiting for a thread of the dedicated pool
+   *
+   * @return the pool queue bound, zero unless the kind is {@link Kind#POOL}
+   */
+  public int getQueueSize() {
+    return queueSize;
+  }
+
+  @Override
+  public String toString() {
+    return kind == Kind.POOL ? String.format("%s[%s/%d/%d]", kind, name, size, queueSize) :
+        kind.name();
+  }
+
+  /**
+   * The kinds of execution
+   */
+  public enum Kind {
+    EVENT_LOOP,
+    WORKER,
+    POOL
+  }
+}
@@ -0,0 +1,489 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The tracker of the executions of the executor requests, which attributes the stalls of the
+ * execution threads - and the resulting event loop lag - to the commands and requests that caused
+ * them.
+ *
+ * Each execution is tagged with its command while it runs (see {@link #enter(String,
+ * SlackerRequest)}), being the executions that hold their thread past the stall threshold recorded
+ * as offenders of their command. Likewise, the lag of the event loops is sampled by periodic timers
+ * (see {@link #monitor(Vertx)}), whose delay past their schedule is the time the event loop was
+ * unable to run them, along with the command of the latest stall of the same thread.
+ *
+ * The stalls and the lag are kept for a rolling window, being reported (see {@link #report()}) as
+ * the top offender commands, the lag of each event loop and the executions currently stalled.
+ * The tagging takes a few volatile writes, while everything else happens only upon the stalls,
+ * the timers and the reports.
+ *
+ * @author david
+ * @since 1.0
+ */
+public final class ExecutionTracker {
+
+  // the default stall threshold (in milliseconds)
+  static final long DEFAULT_THRESHOLD = 50;
+
+  // the default interval of the lag sampling timers (in milliseconds)
+  static final long DEFAULT_INTERVAL = 100;
+
+  // the default length of each rolling window (in milliseconds)
+  static final long DEFAULT_WINDOW = 60000;
+
+  // the maximum number of reported offenders
+  static final int MAX_OFFENDERS = 10;
+
+  // the shared tracker
+  private static final ExecutionTracker SHARED = new ExecutionTracker(DEFAULT_THRESHOLD,
+      DEFAULT_INTERVAL, DEFAULT_WINDOW);
+
+  // the stall threshold (in nanoseconds)
+  private final long threshold;
+
+  // the interval of the lag sampling timers (in milliseconds)
+  private final long interval;
+
+  // the length of each rolling window (in nanoseconds)
+  private final long window;
+
+  // the monotonic clock (in nanoseconds)
+  private final LongSupplier clock;
+
+  // the execution slot of each thread
+  private final ThreadLocal<Slot> slot = ThreadLocal.withInitial(this::newSlot);
+
+  // every execution slot, for the reports
+  private final Queue<Slot> slots = new ConcurrentLinkedQueue<>();
+
+  // the current rolling window
+  private final AtomicReference<Window> current;
+
+  /**
+   * Constructs the tracker with the given thresholds
+   *
+   * @param threshold the stall threshold, in milliseconds
+   * @param interval  the interval of the lag sampling timers, in milliseconds
+   * @param window    the length of each rolling window, in milliseconds
+   */
+  public ExecutionTracker(final long threshold, final long interval, final long window) {
+    this(threshold, interval, window, System::nanoTime);
+  }
+
+  /**
+   * Constructs the tracker with the given thresholds and clock
+   *
+   * @param threshold the stall threshold, in milliseconds
+   * @param interval  the interval of the lag sampling timers, in milliseconds
+   * @param window    the length of each rolling window, in milliseconds
+   * @param clock     the monotonic clock, in nanoseconds
+   */
+  ExecutionTracker(final long threshold, final long interval, final long window,
+      final LongSupplier clock) {
+    this.threshold = TimeUnit.MILLISECONDS.toNanos(threshold);
+    this.interval = interval;
+    this.window = TimeUnit.MILLISECONDS.toNanos(window);
+    this.clock = clock;
+    this.current = new AtomicReference<>(new Window(clock.getAsLong(), null));
+  }
+
+  /**
+   * Returns the tracker shared by the executors
+   *
+   * @return the shared tracker
+   */
+  public static ExecutionTracker shared() {
+    return SHARED;
+  }
+
+  /**
+   * Marks the start of an execution at the current thread
+   *
+   * @param command the command being executed
+   * @param request the request being executed, {@code null} for batches
+   * @return the start timestamp of the execution, to be supplied to {@link #exit(long)}
+   */
+  public long enter(final String command, final SlackerRequest request) {
+    final Slot s = slot.get();
+    final long start = clock.getAsLong();
+    s.request = request;
+    s.since = start;
+    s.command = command;
+    return start;
+  }
+
+  /**
+   * Marks the end of the execution of the current thread, previously started with {@link
+   * #enter(String, SlackerRequest)}, recording it as a stall if it held the thread past the
+   * threshold
+   *
+   * @param start the start timestamp of the execution
+   */
+  public void exit(final long start) {
+    final Slot s = slot.get();
+    final String command = s.command;
+    final SlackerRequest request = s.request;
+    s.command = null;
+    s.request = null;
+    final long elapsed = clock.getAsLong() - start;
+    if (command != null && elapsed >= threshold) {
+      s.lastStall = command;
+      window().offenders.computeIfAbsent(command, c -> new Stats())
+          .record(elapsed, describe(request));
+    }
+  }
+
+  /**
+   * Starts sampling the lag of the event loop of the current context, with a periodic timer
+   *
+   * @param vertx the vertx instance
+   * @return the timer identifier, to be canceled once the sampling is no longer required
+   */
+  public long monitor(final Vertx vertx) {
+    final long period = TimeUnit.MILLISECONDS.toNanos(interval);
+    final long[] expected = {clock.getAsLong() + period};
+    return vertx.setPeriodic(interval, t -> {
+      final long now = clock.getAsLong();
+      lag(now - expected[0]);
+      expected[0] = now + period;
+    });
+  }
+
+  /**
+   * Records a lag sample of the event loop of the current thread
+   *
+   * @param lag the lag, in nanoseconds
+   */
+  void lag(final long lag) {
+    final Stats stats = window().loops.computeIfAbsent(Thread.currentThread().getName(),
+        t -> new Stats());
+    if (lag >= threshold) {
+      stats.record(lag, slot.get().lastStall);
+    } else {
+      stats.observe(Math.max(0, lag));
+    }
+  }
+
+  /**
+   * Returns the maximum lag of the event loops within the rolling window
+   *
+   * @return the maximum lag, in nanoseconds
+   */
+  public long maxLag() {
+    return merge(w -> w.loops).values().stream().mapToLong(s -> s.max).max().orElse(0);
+  }
+
+  /**
+   * Returns the number of stalls within the rolling window
+   *
+   * @return the number of stalls
+   */
+  public long stalls() {
+    return merge(w -> w.offenders).values().stream().mapToLong(s -> s.count).sum();
+  }
+
+  /**
+   * Returns the report of the rolling window: the top offender commands, by their total stall
+   * time, the lag of each event loop and the executions currently stalled. Every duration is
+   * reported in milliseconds.
+   *
+   * @return the report
+   */
+  public JsonObject report() {
+    final List<Map.Entry<String, Snapshot>> offenders = new ArrayList<>(
+        merge(w -> w.offenders).entrySet());
+    offenders.sort(Comparator.comparingLong(e -> -e.getValue().total));
+    final JsonArray topOffenders = new JsonArray();
+    offenders.stream().limit(MAX_OFFENDERS).forEach(e -> topOffenders.add(new JsonObject()
+        .put("command", e.getKey())
+        .put("stalls", e.getValue().count)
+        .put("total", millis(e.getValue().total))
+        .put("max", millis(e.getValue().max))
+        .put("request", e.getValue().last)));
+
+    final List<Map.Entry<String, Snapshot>> loops = new ArrayList<>(
+        merge(w -> w.loops).entrySet());
+    loops.sort(Comparator.comparingLong(e -> -e.getValue().max));
+    final JsonArray eventLoops = new JsonArray();
+    loops.forEach(e -> eventLoops.add(new JsonObject()
+        .put("thread", e.getKey())
+        .put("maxLag", millis(e.getValue().max))
+        .put("stalls", e.getValue().count)
+        .put("lastOffender", e.getValue().last)));
+
+    final JsonArray running = new JsonArray();
+    final long now = clock.getAsLong();
+    for (final Iterator<Slot> it = slots.iterator(); it.hasNext(); ) {
+      final Slot s = it.next();
+      if (!s.thread.isAlive()) {
+        it.remove();
+        continue;
+      }
+      final String command = s.command;
+      final SlackerRequest request = s.request;
+      final long elapsed = now - s.since;
+      if (command != null && elapsed >= threshold) {
+        running.add(new JsonObject()
+            .put("thread", s.thread.getName())
+            .put("command", command)
+            .put("elapsed", millis(elapsed))
+            .put("request", describe(request)));
+      }
+    }
+
+    return new JsonObject()
+        .put("threshold", millis(threshold))
+        .put("offenders", topOffenders)
+        .put("eventLoops", eventLoops)
+        .put("running", running);
+  }
+
+  /**
+   * Creates and registers the execution slot of the current thread
+   *
+   * @return the execution slot
+   */
+  private Slot newSlot() {
+    final Slot s = new Slot(Thread.currentThread());
+    slots.add(s);
+    return s;
+  }
+
+  /**
+   * Returns the current rolling window, rotating it whenever it's over
+   *
+   * @return the current window
+   */
+  private Window window() {
+    final long now = clock.getAsLong();
+    Window w = current.get();
+    while (now - w.start >= window) {
+      // the expired windows are no longer reported
+      final Window rotated = new Window(now, now - w.start < 2 * window ? w : null);
+      if (current.compareAndSet(w, rotated)) {
+        // only the previous window is kept, not its own previous one
+        w.previous = null;
+        return rotated;
+      }
+      w = current.get();
+    }
+    return w;
+  }
+
+  /**
+   * Merges the statistics of both the current and previous windows
+   *
+   * @param stats the statistics of a window
+   * @return the merged statistics, by key
+   */
+  private Map<String, Snapshot> merge(final Function<Window, Map<String, Stats>> stats) {
+    final Window w = window();
+    final Window previous = w.previous;
+    final Map<String, Snapshot> merged = new HashMap<>();
+    if (previous != null) {
+      stats.apply(previous).forEach((key, s) -> merged.put(key, s.snapshot()));
+    }
+    stats.apply(w).forEach((key, s) -> merged.merge(key, s.snapshot(), Snapshot::merge));
+    return merged;
+  }
+
+  /**
+   * Describes the given request by its command and timestamp only, such that the reports never
+   * disclose who issued the request nor where
+   *
+   * @param request the request, {@code null} for batches
+   * @return the request description
+   */
+  private static String describe(final SlackerRequest request) {
+    return request == null ? "batch" : String.format("%s (%s)", request.getCommand(),
+        request.getTimestamp());
+  }
+
+  /**
+   * Converts the given nanoseconds to milliseconds
+   *
+   * @param nanos the nanoseconds
+   * @return the milliseconds
+   */
+  private static double millis(final long nanos) {
+    return nanos / 1_000_000d;
+  }
+
+  /**
+   * The execution slot of a thread, with the execution it's currently running
+   */
+  private static final class Slot {
+
+    // the thread
+    private final Thread thread;
+
+    // the command being executed, if any
+    private volatile String command;
+
+    // the request being executed, if any
+    private volatile SlackerRequest request;
+
+    // the start timestamp of the current execution (in nanoseconds)
+    private volatile long since;
+
+    // the command of the latest stall of the thread
+    private volatile String lastStall;
+
+    private Slot(final Thread thread) {
+      this.thread = thread;
+    }
+  }
+
+  /**
+   * A rolling window, with the offenders and event loops statistics
+   */
+  private static final class Window {
+
+    // the start timestamp of the window (in nanoseconds)
+    private final long start;
+
+    // the stall statistics, by command
+    private final Map<String, Stats> offenders = new ConcurrentHashMap<>();
+
+    // the lag statistics, by event loop thread
+    private final Map<String, Stats> loops = new ConcurrentHashMap<>();
+
+    // the previous window, if still reported
+    private volatile Window previous;
+
+    private Window(final long start, final Window previous) {
+      this.start = start;
+      this.previous = previous;
+    }
+  }
+
+  /**
+   * The (lock-free) statistics of the stalls or lag samples
+   */
+  private static final class Stats {
+
+    // the number of stalls
+    private final LongAdder count = new LongAdder();
+
+    // the total stall time (in nanoseconds)
+    private final LongAdder total = new LongAdder();
+
+    // the maximum stall time or lag sample (in nanoseconds)
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    // the description of the latest stall
+    private volatile String last;
+
+    /**
+     * Records a stall
+     *
+     * @param duration    the stall duration, in nanoseconds
+     * @param description the stall description
+     */
+    private void record(final long duration, final String description) {
+      count.increment();
+      total.add(duration);
+      max.accumulate(duration);
+      last = description;
+    }
+
+    /**
+     * Observes a sample below the stall threshold
+     *
+     * @param duration the sample duration, in nanoseconds
+     */
+    private void observe(final long duration) {
+      max.accumulate(duration);
+    }
+
+    /**
+     * Takes a snapshot of the statistics
+     *
+     * @return the statistics snapshot
+     */
+    private Snapshot snapshot() {
+      return new Snapshot(count.sum(), total.sum(), max.get(), last);
+    }
+  }
+
+  /**
+   * A snapshot of the statistics, possibly of both windows
+   */
+  private static final class Snapshot {
+
+    // the number of stalls
+    private final long count;
+
+    // the total stall time (in nanoseconds)
+    private final long total;
+
+    // the maximum stall time or lag sample (in nanoseconds)
+    private final long max;
+
+    // the description of the latest stall
+    private final String last;
+
+    private Snapshot(final long count, final long total, final long max, final String last) {
+      this.count = count;
+      this.total = total;
+      this.max = max;
+      this.last = last;
+    }
+
+    /**
+     * Merges this snapshot with the given (more recent) one
+     *
+     * @param other the more recent snapshot
+     * @return the merged snapshot
+     */
+    private Snapshot merge(final Snapshot other) {
+      return new Snapshot(count + other.count, total + other.total, Math.max(max, other.max),
+          other.last != null ? other.last : last);
+    }
+  }
+}
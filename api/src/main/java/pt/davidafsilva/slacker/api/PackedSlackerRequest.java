@@ -0,0 +1,283 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Optional;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+
+/**
+ * A compact {@link SlackerRequest}, backed by the wire encoded request bytes (see {@link
+ * SlackerRequestMessageCodec}) along with the offsets of each of its fields, whose values are
+ * only decoded when accessed. The identifiers - teams, channels, users and commands - are
+ * resolved through the shared {@link StringInterner}, while the remaining values are decoded
+ * upon each access.
+ *
+ * The packed requests are meant to be held in bulk - queued, batched, cached or journaled - as
+ * they take a fraction of the memory of the regular requests, and are encoded again by a plain
+ * copy of their bytes.
+ *
+ * @author david
+ * @since 1.0
+ */
+public final class PackedSlackerRequest implements SlackerRequest {
+
+  // the indexes of the fields at the offsets table
+  private static final int TEAM_ID = 0;
+  private static final int TEAM_DOMAIN = 1;
+  private static final int CHANNEL_ID = 2;
+  private static final int CHANNEL_NAME = 3;
+  private static final int USER_ID = 4;
+  private static final int USER_NAME = 5;
+  private static final int COMMAND = 6;
+  private static final int ARGS = 7;
+  private static final int RESPONSE_URL = 8;
+  private static final int END = 9;
+
+  // the offset of the timestamp, past the format and presence bytes
+  private static final int TIMESTAMP_OFFSET = 2;
+
+  // the encoded request bytes
+  private final byte[] data;
+
+  // the offset of the request within the bytes
+  private final int start;
+
+  // the offsets of the (length prefixed) fields, -1 for the absent ones, and the request end
+  private final int[] offsets;
+
+  /**
+   * Default constructor
+   *
+   * @param data    the encoded request bytes
+   * @param start   the offset of the request within the bytes
+   * @param offsets the offsets of the fields and the request end
+   */
+  private PackedSlackerRequest(final byte[] data, final int start, final int[] offsets) {
+    this.data = data;
+    this.start = start;
+    this.offsets = offsets;
+  }
+
+  /**
+   * Packs the given request
+   *
+   * @param request the request to be packed
+   * @return the packed request, the given one if it is packed already
+   */
+  public static PackedSlackerRequest pack(final SlackerRequest request) {
+    if (request instanceof PackedSlackerRequest) {
+      return (PackedSlackerRequest) request;
+    }
+    final Buffer buffer = Buffer.buffer(128);
+    SlackerRequestMessageCodec.encode(buffer, request);
+    final byte[] bytes = buffer.getBytes();
+    return wrap(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Wraps the request encoded within the given bytes, without copying them. The bytes must not
+   * be modified afterwards.
+   *
+   * @param data  the bytes
+   * @param start the offset of the (wire format) request
+   * @param limit the limit of the request bytes, exclusive
+   * @return the packed request
+   * @throws IllegalStateException if the request is malformed
+   */
+  static PackedSlackerRequest wrap(final byte[] data, final int start, final int limit) {
+    if (limit - start < TIMESTAMP_OFFSET || data[start] != SlackerRequestMessageCodec.FORMAT_V1) {
+      throw new IllegalStateException("malformed packed request");
+    }
+    final int presence = data[start + 1];
+    final int[] offsets = new int[END + 1];
+    // skip the timestamp seconds and nanoseconds
+    int offset = skipVarLong(data, skipVarLong(data, start + TIMESTAMP_OFFSET, limit), limit);
+    for (int field = TEAM_ID; field < END; field++) {
+      if (field == ARGS && (presence & SlackerRequestMessageCodec.ARGS_BIT) == 0 ||
+          field == RESPONSE_URL && (presence & SlackerRequestMessageCodec.RESPONSE_URL_BIT) == 0) {
+        offsets[field] = -1;
+        continue;
+      }
+      offsets[field] = offset;
+      final long length = readVarLong(data, offset, limit);
+      offset = skipVarLong(data, offset, limit);
+      if (length > limit - offset) {
+        throw new IllegalStateException("malformed packed request");
+      }
+      offset += (int) length;
+    }
+    offsets[END] = offset;
+    return new PackedSlackerRequest(data, start, offsets);
+  }
+
+  /**
+   * Writes the encoded request to the given buffer, as is
+   *
+   * @param buffer the buffer
+   */
+  void writeTo(final Buffer buffer) {
+    buffer.appendBytes(data, start, offsets[END] - start);
+  }
+
+  /**
+   * Returns the number of bytes of the encoded request
+   *
+   * @return the encoded request length
+   */
+  public int length() {
+    return offsets[END] - start;
+  }
+
+  @Override
+  public Instant getTimestamp() {
+    final int offset = start + TIMESTAMP_OFFSET;
+    final int limit = offsets[END];
+    return Instant.ofEpochSecond(readVarLong(data, offset, limit),
+        readVarLong(data, skipVarLong(data, offset, limit), limit));
+  }
+
+  @Override
+  public String getTeamIdentifier() {
+    return interned(TEAM_ID);
+  }
+
+  @Override
+  public String getTeamDomain() {
+    return interned(TEAM_DOMAIN);
+  }
+
+  @Override
+  public String getChannelId() {
+    return interned(CHANNEL_ID);
+  }
+
+  @Override
+  public String getChannelName() {
+    return interned(CHANNEL_NAME);
+  }
+
+  @Override
+  public String getUserId() {
+    return interned(USER_ID);
+  }
+
+  @Override
+  public String getUserName() {
+    return interned(USER_NAME);
+  }
+
+  @Override
+  public String getCommand() {
+    return interned(COMMAND);
+  }
+
+  @Override
+  public Optional<String> getArguments() {
+    return optional(ARGS);
+  }
+
+  @Override
+  public Optional<String> getResponseUrl() {
+    return optional(RESPONSE_URL);
+  }
+
+  @Override
+  public String toString() {
+    return Json.encodePrettily(this);
+  }
+
+  /**
+   * Decodes the given field through the shared interner
+   *
+   * @param field the index of the field
+   * @return the field value
+   */
+  private String interned(final int field) {
+    final int offset = offsets[field];
+    final int length = (int) readVarLong(data, offset, offsets[END]);
+    return StringInterner.shared().intern(data, skipVarLong(data, offset, offsets[END]), length);
+  }
+
+  /**
+   * Decodes the given optional field
+   *
+   * @param field the index of the field
+   * @return the field value, if present
+   */
+  private Optional<String> optional(final int field) {
+    final int offset = offsets[field];
+    if (offset < 0) {
+      return Optional.empty();
+    }
+    final int length = (int) readVarLong(data, offset, offsets[END]);
+    return Optional.of(new String(data, skipVarLong(data, offset, offsets[END]), length,
+        StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Reads the variable-length long at the given offset
+   *
+   * @param data   the bytes
+   * @param offset the offset of the value
+   * @param limit  the limit of the bytes, exclusive
+   * @return the read value
+   * @throws IllegalStateException if the value is malformed
+   */
+  private static long readVarLong(final byte[] data, final int offset, final int limit) {
+    long value = 0;
+    for (int shift = 0, i = offset; shift < 64 && i < limit; shift += 7, i++) {
+      final byte b = data[i];
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IllegalStateException("malformed variable-length integer");
+  }
+
+  /**
+   * Skips the variable-length long at the given offset
+   *
+   * @param data   the bytes
+   * @param offset the offset of the value
+   * @param limit  the limit of the bytes, exclusive
+   * @return the offset past the value
+   * @throws IllegalStateException if the value is malformed
+   */
+  private static int skipVarLong(final byte[] data, final int offset, final int limit) {
+    for (int i = offset; i < limit && i - offset < 10; i++) {
+      if ((data[i] & 0x80) == 0) {
+        return i + 1;
+      }
+    }
+    throw new IllegalStateException("malformed variable-length integer");
+  }
+}
@@ -0,0 +1,112 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+/**
+ * The collector of items into batches, which are flushed once they reach the maximum size or
+ * the linger time of their first item elapses, whichever comes first.
+ *
+ * The batcher is meant to be owned by a single verticle, hence it's not thread-safe.
+ *
+ * @param <T> the type of the items
+ * @author david
+ * @since 1.0
+ */
+final class RequestBatcher<T> {
+
+  // the vertx instance
+  private final Vertx vertx;
+
+  // the maximum batch size
+  private final int maxSize;
+
+  // the linger time of the batches (in milliseconds)
+  private final long linger;
+
+  // the handler of the flushed batches
+  private final Handler<List<T>> flushHandler;
+
+  // the pending batch
+  private List<T> pending = new ArrayList<>();
+
+  // the linger timer of the pending batch, if any
+  private long timer = -1;
+
+  /**
+   * Constructs the batcher with the given limits
+   *
+   * @param vertx        the vertx instance
+   * @param maxSize      the maximum batch size
+   * @param linger       the linger time of the batches, in milliseconds
+   * @param flushHandler the handler of the flushed batches
+   */
+  RequestBatcher(final Vertx vertx, final int maxSize, final long linger,
+      final Handler<List<T>> flushHandler) {
+    this.vertx = vertx;
+    this.maxSize = Math.max(1, maxSize);
+    this.linger = Math.max(1, linger);
+    this.flushHandler = flushHandler;
+  }
+
+  /**
+   * Adds the given item to the pending batch, flushing it if full
+   *
+   * @param item the item to be added
+   */
+  void add(final T item) {
+    pending.add(item);
+    if (pending.size() >= maxSize) {
+      flush();
+    } else if (timer == -1) {
+      timer = vertx.setTimer(linger, t -> {
+        timer = -1;
+        flush();
+      });
+    }
+  }
+
+  /**
+   * Flushes the pending batch, if not empty
+   */
+  void flush() {
+    if (timer != -1) {
+      vertx.cancelTimer(timer);
+      timer = -1;
+    }
+    if (!pending.isEmpty()) {
+      final List<T> batch = pending;
+      pending = new ArrayList<>(maxSize);
+      flushHandler.handle(batch);
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+/**
+ * The visibility of the slacker responses at the channel where the command was issued:
+ * <ul>
+ * <li>{@link #EPHEMERAL}: only visible to the user that issued the command</li>
+ * <li>{@link #IN_CHANNEL}: visible to every member of the channel</li>
+ * </ul>
+ *
+ * @author david
+ * @since 1.0
+ */
+public enum ResponseType {
+  EPHEMERAL("ephemeral"),
+  IN_CHANNEL("in_channel");
+
+  // the slack name of the response type
+  private final String slackName;
+
+  /**
+   * Default response type constructor with the slack name mapping
+   *
+   * @param slackName the slack name of the response type
+   */
+  ResponseType(final String slackName) {
+    this.slackName = slackName;
+  }
+
+  /**
+   * Returns the name of this response type, as expected by slack
+   *
+   * @return the slack name
+   */
+  public String getSlackName() {
+    return slackName;
+  }
+}
@@ -37,7 +37,9 @@ import io.netty.handler.codec.http.HttpResponseStatus;
 public enum ResultCode {
   OK(HttpResponseStatus.OK),
   INVALID(HttpResponseStatus.BAD_REQUEST),
-  ERROR(HttpResponseStatus.INTERNAL_SERVER_ERROR);
+  ERROR(HttpResponseStatus.INTERNAL_SERVER_ERROR),
+  BUSY(HttpResponseStatus.SERVICE_UNAVAILABLE),
+  THROTTLED(HttpResponseStatus.TOO_MANY_REQUESTS);
 
   // the underlying HTTP status
   private final HttpResponseStatus httpStatus;
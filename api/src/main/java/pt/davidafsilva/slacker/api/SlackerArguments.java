@@ -0,0 +1,250 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The structured view of the arguments of a slacker command, split into the positional arguments
+ * and the named flags.
+ *
+ * The arguments are tokenized in a single pass, shell alike:
+ * <ul>
+ * <li>the tokens are separated by (unquoted) whitespace</li>
+ * <li>single quotes preserve every enclosed character as is</li>
+ * <li>double quotes preserve the enclosed characters, except for the backslash escapes</li>
+ * <li>an unquoted backslash escapes the following character</li>
+ * <li>the tokens starting with {@code --} are flags, either with a value ({@code --name=value})
+ * or without one ({@code --name}), in which case their value is empty</li>
+ * <li>a lone {@code --} ends the flags, such that the following tokens are always
+ * positional</li>
+ * </ul>
+ * Whenever a flag is repeated, its last value is kept. Unterminated quotes and escapes are
+ * leniently taken as they are.
+ *
+ * @author david
+ * @since 1.0
+ */
+public final class SlackerArguments {
+
+  // the empty arguments
+  private static final SlackerArguments EMPTY = new SlackerArguments(Collections.emptyList(),
+      Collections.emptyMap());
+
+  // the flags marker
+  private static final String FLAG = "--";
+
+  // the positional arguments
+  private final List<String> positional;
+
+  // the flags
+  private final Map<String, String> flags;
+
+  /**
+   * Default constructor
+   *
+   * @param positional the positional arguments
+   * @param flags      the flags
+   */
+  private SlackerArguments(final List<String> positional, final Map<String, String> flags) {
+    this.positional = positional;
+    this.flags = flags;
+  }
+
+  /**
+   * Tokenizes the given arguments text
+   *
+   * @param text the arguments text, may be {@code null}
+   * @return the structured arguments
+   */
+  public static SlackerArguments parse(final String text) {
+    if (text == null || text.isEmpty()) {
+      return EMPTY;
+    }
+
+    final List<String> positional = new ArrayList<>();
+    final Map<String, String> flags = new LinkedHashMap<>();
+    final StringBuilder token = new StringBuilder(text.length());
+    boolean inToken = false;
+    boolean flag = false;
+    boolean flagsEnded = false;
+    int assignment = -1;
+    char quote = 0;
+    final int length = text.length();
+    for (int i = 0; i < length; i++) {
+      final char c = text.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        } else if (c == '\\' && quote == '"' && i + 1 < length) {
+          token.append(text.charAt(++i));
+        } else {
+          token.append(c);
+        }
+      } else if (Character.isWhitespace(c)) {
+        if (inToken) {
+          flagsEnded = emit(token, flag, flagsEnded, assignment, positional, flags);
+          token.setLength(0);
+          inToken = false;
+          flag = false;
+          assignment = -1;
+        }
+      } else if (!inToken && !flagsEnded && text.startsWith(FLAG, i)) {
+        inToken = true;
+        flag = true;
+        i++;
+      } else {
+        inToken = true;
+        if (c == '"' || c == '\'') {
+          quote = c;
+        } else if (c == '\\' && i + 1 < length) {
+          token.append(text.charAt(++i));
+        } else {
+          if (c == '=' && flag && assignment < 0) {
+            assignment = token.length();
+          }
+          token.append(c);
+        }
+      }
+    }
+    if (inToken) {
+      emit(token, flag, flagsEnded, assignment, positional, flags);
+    }
+
+    return new SlackerArguments(Collections.unmodifiableList(positional),
+        Collections.unmodifiableMap(flags));
+  }
+
+  /**
+   * Emits the given token either as a positional argument or as a flag
+   *
+   * @param token      the token
+   * @param flag       whether or not the token started as a flag
+   * @param flagsEnded whether or not the flags have ended
+   * @param assignment the index of the flag value assignment, {@code -1} if there's none
+   * @param positional the positional arguments
+   * @param flags      the flags
+   * @return whether or not the flags have ended, after this token
+   */
+  private static boolean emit(final StringBuilder token, final boolean flag,
+      final boolean flagsEnded, final int assignment, final List<String> positional,
+      final Map<String, String> flags) {
+    if (!flag) {
+      positional.add(token.toString());
+      return flagsEnded;
+    }
+    if (token.length() == 0) {
+      return true;
+    }
+    if (assignment == 0) {
+      // no flag name, take it as it is
+      positional.add(FLAG + token);
+    } else if (assignment < 0) {
+      flags.put(token.toString(), "");
+    } else {
+      flags.put(token.substring(0, assignment), token.substring(assignment + 1));
+    }
+    return flagsEnded;
+  }
+
+  /**
+   * Returns the structured view of no arguments at all
+   *
+   * @return the empty arguments
+   */
+  public static SlackerArguments empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Returns the (unmodifiable) positional arguments, in order
+   *
+   * @return the positional arguments
+   */
+  public List<String> getPositional() {
+    return positional;
+  }
+
+  /**
+   * Returns the positional argument at the given position, if available
+   *
+   * @param index the position of the argument
+   * @return the positional argument
+   */
+  public Optional<String> get(final int index) {
+    return index >= 0 && index < positional.size() ? Optional.of(positional.get(index)) :
+        Optional.empty();
+  }
+
+  /**
+   * Returns the (unmodifiable) flags, in the order they were first specified
+   *
+   * @return the flags, by name
+   */
+  public Map<String, String> getFlags() {
+    return flags;
+  }
+
+  /**
+   * Returns the value of the flag with the given name, if specified
+   *
+   * @param name the flag name, without the leading {@code --}
+   * @return the flag value, empty if the flag was specified without one
+   */
+  public Optional<String> getFlag(final String name) {
+    return Optional.ofNullable(flags.get(name));
+  }
+
+  /**
+   * Checks whether or not the flag with the given name was specified
+   *
+   * @param name the flag name, without the leading {@code --}
+   * @return {@code true} if the flag was specified, {@code false} otherwise
+   */
+  public boolean hasFlag(final String name) {
+    return flags.containsKey(name);
+  }
+
+  /**
+   * Checks whether or not there are no arguments at all
+   *
+   * @return {@code true} if there are no arguments, {@code false} otherwise
+   */
+  public boolean isEmpty() {
+    return positional.isEmpty() && flags.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return "SlackerArguments{positional=" + positional + ", flags=" + flags + '}';
+  }
+}
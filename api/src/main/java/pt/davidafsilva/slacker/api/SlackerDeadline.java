@@ -0,0 +1,94 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.time.Duration;
+import java.util.Optional;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.eventbus.DeliveryOptions;
+
+/**
+ * Utility methods for the end-to-end deadline of the slacker requests.
+ *
+ * The deadline is established once, when the request is received, and carried along every
+ * event-bus hop as the {@link #HEADER} header (epoch milliseconds). Each hop bounds its send
+ * timeout by the remaining time, such that late work is dropped instead of piling up.
+ *
+ * @author david
+ * @since 1.0
+ */
+public final class SlackerDeadline {
+
+  // the deadline header name
+  public static final String HEADER = "slacker-deadline";
+
+  // private constructor
+  private SlackerDeadline() {
+    throw new UnsupportedOperationException("no no no");
+  }
+
+  /**
+   * Sets up the given delivery options with the specified deadline, both as the header to be
+   * propagated and as the send timeout.
+   *
+   * @param options  the delivery options
+   * @param deadline the deadline, in epoch milliseconds
+   * @return the given delivery options
+   */
+  public static DeliveryOptions apply(final DeliveryOptions options, final long deadline) {
+    return options
+        .addHeader(HEADER, Long.toString(deadline))
+        .setSendTimeout(Math.max(1, deadline - System.currentTimeMillis()));
+  }
+
+  /**
+   * Reads the deadline from the given message headers
+   *
+   * @param headers the message headers
+   * @return the optional with the deadline in epoch milliseconds, empty if absent or invalid
+   */
+  public static Optional<Long> of(final MultiMap headers) {
+    return Optional.ofNullable(headers.get(HEADER)).flatMap(value -> {
+      try {
+        return Optional.of(Long.parseLong(value));
+      } catch (final NumberFormatException e) {
+        return Optional.empty();
+      }
+    });
+  }
+
+  /**
+   * Returns the time left until the given deadline, which is negative if already exceeded.
+   *
+   * @param deadline the deadline, in epoch milliseconds
+   * @return the remaining time
+   */
+  public static Duration remaining(final long deadline) {
+    return Duration.ofMillis(deadline - System.currentTimeMillis());
+  }
+}
@@ -26,6 +26,8 @@ package pt.davidafsilva.slacker.api;
  * #L%
  */
 
+import java.util.Optional;
+
 import io.vertx.core.AsyncResultHandler;
 import io.vertx.core.Future;
 import io.vertx.core.Verticle;
@@ -57,10 +59,27 @@ import io.vertx.core.eventbus.ReplyException;
  *      {
  *        "i": &lt;identifier&gt;,
  *        "d": &lt;description&gt;,
- *        "v": &lt;version&gt;
+ *        "v": &lt;version&gt;,
+ *        "m": &lt;response mode&gt; (optional),
+ *        "c": { (optional)
+ *          "t": &lt;cache ttl&gt;,
+ *          "s": &lt;cache scope&gt;
+ *        },
+ *        "k": &lt;coalescing scope&gt; (optional)
  *      }
  * SE &lt;---- [ HELLO RSP } &lt;---- SS
  *      {
+ *        "a": &lt;address&gt;,
+ *        "l": &lt;lease&gt;
+ *      }
+ * SE ----&gt; [ HEARTBEAT ] ----&gt; SS (every lease / 3)
+ *      {
+ *        "i": &lt;identifier&gt;,
+ *        "a": &lt;address&gt;
+ *      }
+ * SE ----&gt; [ UNREGISTER ] ----&gt; SS (on stop)
+ *      {
+ *        "i": &lt;identifier&gt;,
  *        "a": &lt;address&gt;
  *      }
  * </pre>
@@ -68,10 +87,15 @@ import io.vertx.core.eventbus.ReplyException;
  * All HELLO REQ message fields are straightforward enough. The identifier is used to identify the
  * executor as well as the channel command. The description is used to display at the help message.
  * Finally, the version is used to ensure that only instances with the same or newer (in-service
- * upgrade) version are enabled.
+ * upgrade) version are enabled. The optional response mode is either <i>sync</i> (the default) or
+ * <i>deferred</i> (see {@link #deferred()}). The optional cache policy is only
+ * sent by cacheable executors (see {@link #cacheTtl()}), likewise for the coalescing scope of the
+ * coalesced executors (see {@link #coalescing()}).
  *
  * The HELLO RSP message contains the generated address that must be used to bind at consume events
- * from the event bus.
+ * from the event bus, along with the lease duration (in milliseconds). The lease must be renewed
+ * with heartbeats, otherwise the executor is evicted - a failed heartbeat means that the executor
+ * must register again.
  *
  * In case of a failure, the message is generated from the underlying vertx failure protocol via
  * the serialization/deserialization of {@link ReplyException}.
@@ -115,6 +139,71 @@ public interface SlackerExecutor extends Verticle {
    */
   String version();
 
+  /**
+   * Returns whether or not the responses of this executor are deferred.
+   *
+   * Deferred executors are meant for slow commands: the incoming requests are immediately
+   * acknowledged and the execution result is delivered asynchronously to the request response URL
+   * (see {@link SlackerRequest#getResponseUrl()}), hence not bound to the slack response deadline.
+   *
+   * @return {@code true} if the responses are deferred, {@code false} otherwise
+   */
+  default boolean deferred() {
+    return false;
+  }
+
+  /**
+   * Returns for how long the responses of this executor may be cached, in milliseconds.
+   *
+   * Cacheable executors are meant for idempotent commands, whose response only depends on the
+   * command arguments (and the {@link #cacheScope() scope}): the successful responses are cached
+   * by the slacker-server and the following requests with the same arguments are served from the
+   * cache, without being forwarded to the executor, until the response expires.
+   *
+   * @return the cached responses time to live, zero if the responses are not cacheable
+   */
+  default long cacheTtl() {
+    return 0;
+  }
+
+  /**
+   * Returns the scope of the cached responses of this executor, which is only relevant for
+   * cacheable executors (see {@link #cacheTtl()}).
+   *
+   * @return the cached responses scope
+   */
+  default CacheScope cacheScope() {
+    return CacheScope.COMMAND;
+  }
+
+  /**
+   * Returns the scope within which the identical in-flight requests to this executor are
+   * coalesced, if any.
+   *
+   * Coalesced executors are meant for expensive commands: while a request is being executed, the
+   * identical requests (same command and arguments, within the returned scope) are not forwarded
+   * to the executor, but attached to the in-flight execution instead - all of them get the
+   * same response.
+   *
+   * @return the coalescing scope, empty if the requests are not coalesced
+   */
+  default Optional<CacheScope> coalescing() {
+    return Optional.empty();
+  }
+
+  /**
+   * Returns the execution mode of this executor, i.e. on which threads the requests are executed.
+   *
+   * Executors that block while handling the requests (e.g. JDBC or file I/O) must not be
+   * executed at the event-loop, which is shared among several verticles, but at either the shared
+   * worker pool or a dedicated pool - see {@link ExecutionMode}.
+   *
+   * @return the execution mode, the event-loop by default
+   */
+  default ExecutionMode executionMode() {
+    return ExecutionMode.eventLoop();
+  }
+
   /**
    * Invoke and handles the incoming request, posting the execution result asynchronously to the
    * specified future.
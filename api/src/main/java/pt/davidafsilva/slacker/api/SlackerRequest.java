@@ -100,4 +100,27 @@ public interface SlackerRequest {
    * @return the command arguments
    */
   Optional<String> getArguments();
+
+  /**
+   * Returns the structured view of the arguments for the command, tokenized into the positional
+   * arguments and the flags (see {@link SlackerArguments}).
+   *
+   * @return the structured command arguments, empty if there are no arguments
+   */
+  default SlackerArguments getParsedArguments() {
+    return SlackerArguments.parse(getArguments().orElse(null));
+  }
+
+  /**
+   * Returns the URL to which the (deferred) response of the command may be delivered, if any is
+   * available.
+   * <p>
+   * By default, no response URL is available, which keeps implementations written before the
+   * introduction of deferred responses source compatible.
+   *
+   * @return the response URL
+   */
+  default Optional<String> getResponseUrl() {
+    return Optional.empty();
+  }
 }
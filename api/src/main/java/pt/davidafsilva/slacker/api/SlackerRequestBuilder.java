@@ -50,6 +50,7 @@ public final class SlackerRequestBuilder {
   private String userName;
   private String command;
   private String args;
+  private String responseUrl;
 
   public SlackerRequestBuilder timestamp(final Instant timestamp) {
     this.timestamp = timestamp;
@@ -96,6 +97,11 @@ public final class SlackerRequestBuilder {
     return this;
   }
 
+  public SlackerRequestBuilder responseUrl(final String responseUrl) {
+    this.responseUrl = responseUrl;
+    return this;
+  }
+
   /**
    * Builds a slacker request with the current state of the builder.
    *
@@ -113,7 +119,8 @@ public final class SlackerRequestBuilder {
         Objects.requireNonNull(userId, "user identifier"),
         Objects.requireNonNull(userName, "user name"),
         Objects.requireNonNull(command, "command"),
-        args == null || args.isEmpty() ? null : args);
+        args == null || args.isEmpty() ? null : args,
+        responseUrl == null || responseUrl.isEmpty() ? null : responseUrl);
   }
 
   // straight-forward implementation of the slacker request
@@ -137,6 +144,10 @@ public final class SlackerRequestBuilder {
     private final String command;
     // the arguments
     private final Optional<String> args;
+    // the response url
+    private final Optional<String> responseUrl;
+    // the lazily parsed arguments
+    private SlackerArguments parsedArgs;
 
     /**
      * Default constructor
@@ -150,10 +161,12 @@ public final class SlackerRequestBuilder {
      * @param userName       the user name
      * @param command        the command
      * @param args           the arguments
+     * @param responseUrl    the response url
      */
     private SlackerRequestImpl(final Instant timestamp, final String teamIdentifier,
         final String teamDomain, final String channelId, final String channelName,
-        final String userId, final String userName, final String command, final String args) {
+        final String userId, final String userName, final String command, final String args,
+        final String responseUrl) {
       this.timestamp = timestamp;
       this.teamIdentifier = teamIdentifier;
       this.teamDomain = teamDomain;
@@ -163,6 +176,7 @@ public final class SlackerRequestBuilder {
       this.userName = userName;
       this.command = command;
       this.args = Optional.ofNullable(args);
+      this.responseUrl = Optional.ofNullable(responseUrl);
     }
 
 
@@ -211,6 +225,21 @@ public final class SlackerRequestBuilder {
       return args;
     }
 
+    @Override
+    public SlackerArguments getParsedArguments() {
+      // benign race: the arguments are immutable and parsed the same way by every thread
+      SlackerArguments parsed = parsedArgs;
+      if (parsed == null) {
+        parsedArgs = parsed = SlackerArguments.parse(args.orElse(null));
+      }
+      return parsed;
+    }
+
+    @Override
+    public Optional<String> getResponseUrl() {
+      return responseUrl;
+    }
+
     @Override
     public String toString() {
       return Json.encodePrettily(this);
@@ -27,8 +27,10 @@ package pt.davidafsilva.slacker.api;
  */
 
 import java.time.Instant;
+import java.util.Optional;
 import java.util.function.Consumer;
 
+import io.netty.buffer.ByteBuf;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.MessageCodec;
 
@@ -36,6 +38,24 @@ import io.vertx.core.eventbus.MessageCodec;
  * The code for the the {@link SlackerRequest} message.
  * This is required to sent this message types across the vertx event-bus.
  *
+ * The requests are encoded with a compact, versioned, wire format:
+ * <pre>
+ *   format    (1 byte: the magic and version of the format)
+ *   presence  (1 byte: bitmap of the optional fields - arguments and response url)
+ *   timestamp (varint epoch seconds + varint nanoseconds)
+ *   team identifier, team domain, channel id, channel name, user id, user name, command
+ *   [arguments], [response url]
+ * </pre>
+ * where each string is prefixed by its UTF-8 byte count, as a varint (see {@link WireFormat}).
+ * The requests encoded with the former (fixed-length) format are still decoded, such that
+ * the nodes of a cluster may be upgraded one at a time. That format has no version marker and
+ * ends with the arguments, hence it never carries a response url: a trailing one is only read
+ * when present.
+ *
+ * The requests are decoded into {@link PackedSlackerRequest}s, which wrap the received bytes as
+ * they are - without copying them, whenever these are heap based - and only decode their fields
+ * upon access. Likewise, the packed requests are encoded by a plain copy of their bytes.
+ *
  * @author david
  * @since 1.0
  */
@@ -45,41 +65,87 @@ public final class SlackerRequestMessageCodec
   // the code name
   public static final String NAME = "slacker-req";
 
+  // the magic and version of the wire format
+  static final byte FORMAT_V1 = (byte) 0xA1;
+
+  // the legacy format marker, i.e. the most significant byte of its timestamp
+  static final byte FORMAT_LEGACY = 0;
+
+  // the presence bits of the optional fields
+  static final int ARGS_BIT = 1;
+  static final int RESPONSE_URL_BIT = 1 << 1;
+
   @Override
   public void encodeToWire(final Buffer buffer, final SlackerRequest request) {
+    if (request instanceof PackedSlackerRequest) {
+      ((PackedSlackerRequest) request).writeTo(buffer);
+    } else {
+      encode(buffer, request);
+    }
+  }
+
+  /**
+   * Encodes the given request into the given buffer
+   *
+   * @param buffer  the buffer where the request is going to be written
+   * @param request the request to be encoded
+   */
+  static void encode(final Buffer buffer, final SlackerRequest request) {
+    final Optional<String> args = request.getArguments();
+    final Optional<String> responseUrl = request.getResponseUrl();
+    buffer.appendByte(FORMAT_V1)
+        .appendByte((byte) ((args.isPresent() ? ARGS_BIT : 0) |
+            (responseUrl.isPresent() ? RESPONSE_URL_BIT : 0)));
     // timestamp
-    buffer.appendLong(request.getTimestamp().getEpochSecond())
-        .appendInt(request.getTimestamp().getNano());
+    WireFormat.writeVarLong(buffer, request.getTimestamp().getEpochSecond());
+    WireFormat.writeVarInt(buffer, request.getTimestamp().getNano());
     // team identifier
-    writeString(buffer, request.getTeamIdentifier());
+    WireFormat.writeString(buffer, request.getTeamIdentifier());
     // team domain
-    writeString(buffer, request.getTeamDomain());
+    WireFormat.writeString(buffer, request.getTeamDomain());
     // channel id
-    writeString(buffer, request.getChannelId());
+    WireFormat.writeString(buffer, request.getChannelId());
     // channel name
-    writeString(buffer, request.getChannelName());
+    WireFormat.writeString(buffer, request.getChannelName());
     // user id
-    writeString(buffer, request.getUserId());
+    WireFormat.writeString(buffer, request.getUserId());
     // user name
-    writeString(buffer, request.getUserName());
+    WireFormat.writeString(buffer, request.getUserName());
     // command
-    writeString(buffer, request.getCommand());
+    WireFormat.writeString(buffer, request.getCommand());
     // arguments
-    writeString(buffer, request.getArguments().orElse(""));
+    args.ifPresent(a -> WireFormat.writeString(buffer, a));
+    // response url
+    responseUrl.ifPresent(u -> WireFormat.writeString(buffer, u));
+  }
+
+  @Override
+  public SlackerRequest decodeFromWire(final int pos, final Buffer buffer) {
+    final byte format = buffer.getByte(pos);
+    if (format == FORMAT_LEGACY) {
+      return decodeLegacy(pos, buffer);
+    }
+    if (format != FORMAT_V1) {
+      throw new IllegalStateException("unsupported request format: " + format);
+    }
+
+    final ByteBuf bytes = buffer.getByteBuf();
+    if (bytes.hasArray()) {
+      return PackedSlackerRequest.wrap(bytes.array(), bytes.arrayOffset() + pos,
+          bytes.arrayOffset() + buffer.length());
+    }
+    return PackedSlackerRequest.wrap(buffer.getBytes(pos, buffer.length()), 0,
+        buffer.length() - pos);
   }
 
   /**
-   * Writes the (length, text) tuple to the buffer for the given string
+   * Decodes a request encoded with the legacy (fixed-length) format
    *
-   * @param buffer the buffer where the string is going to be written
-   * @param str    the string to be written
+   * @param pos    the position of the request at the buffer
+   * @param buffer the buffer where to read the request from
+   * @return the decoded request
    */
-  private void writeString(final Buffer buffer, final String str) {
-    buffer.appendInt(str.length()).appendString(str);
-  }
-
-  @Override
-  public SlackerRequest decodeFromWire(final int pos, final Buffer buffer) {
+  private SlackerRequest decodeLegacy(final int pos, final Buffer buffer) {
     final SlackerRequestBuilder builder = new SlackerRequestBuilder();
     // timestamp
     builder.timestamp(Instant.ofEpochSecond(buffer.getLong(pos), buffer.getInt(pos + 8)));
@@ -99,13 +165,17 @@ public final class SlackerRequestMessageCodec
     // trigger
     offset = readString(buffer, offset, builder::command);
     // text message
-    readString(buffer, offset, builder::args);
+    offset = readString(buffer, offset, builder::args);
+    // response url, not written by the legacy nodes
+    if (offset < buffer.length()) {
+      readString(buffer, offset, url -> builder.responseUrl(url.isEmpty() ? null : url));
+    }
 
     return builder.build();
   }
 
   /**
-   * Reads a string previously written by this codec from the given buffer
+   * Reads a string previously written with the legacy format from the given buffer
    *
    * @param buffer   the buffer where to read the string from
    * @param offset   the offset from which starts the string
@@ -26,11 +26,20 @@ package pt.davidafsilva.slacker.api;
  * #L%
  */
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
 /**
  * The response of the (remote) slacker command execution.
  *
+ * Besides the response text, a response may also carry its visibility, the message attachments or
+ * even the whole, pre-rendered, slack message. See {@link SlackerResponseBuilder} for the creation
+ * of such responses.
+ *
  * @author david
  * @since 1.0
  */
@@ -43,6 +52,8 @@ public interface SlackerResponse {
    * <li>{@link ResultCode#OK}: everything went smoothly</li>
    * <li>{@link ResultCode#INVALID}: invalid arguments/input data</li>
    * <li>{@link ResultCode#ERROR}: unexpected error happened</li>
+   * <li>{@link ResultCode#BUSY}: the request was rejected due to overload</li>
+   * <li>{@link ResultCode#THROTTLED}: the request was rejected due to rate limiting</li>
    * </ul>
    *
    * @return the result code
@@ -59,4 +70,32 @@ public interface SlackerResponse {
    * @return the failure reason of the execution
    */
   Optional<String> getResponse();
+
+  /**
+   * Returns the visibility of the response at the channel, if other than the slack default.
+   *
+   * @return the optional response type
+   */
+  default Optional<ResponseType> getResponseType() {
+    return Optional.empty();
+  }
+
+  /**
+   * Returns the attachments of the response message, as defined by the slack message format.
+   *
+   * @return the (possibly empty) list of attachments
+   */
+  default List<JsonObject> getAttachments() {
+    return Collections.emptyList();
+  }
+
+  /**
+   * Returns the pre-rendered (JSON) slack message of the response, if any. Such payload is sent
+   * as is and supersedes the remaining content of the response.
+   *
+   * @return the optional pre-rendered message
+   */
+  default Optional<Buffer> getPayload() {
+    return Optional.empty();
+  }
 }
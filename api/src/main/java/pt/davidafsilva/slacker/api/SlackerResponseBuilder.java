@@ -0,0 +1,109 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A builder for a fluent creation of {@link SlackerResponse} messages, namely the ones with a
+ * specific visibility, attachments or a pre-rendered slack message.
+ *
+ * @author david
+ * @since 1.0
+ */
+public final class SlackerResponseBuilder {
+
+  // properties
+  private ResultCode code = ResultCode.OK;
+  private String message;
+  private ResponseType type;
+  private final List<JsonObject> attachments = new ArrayList<>();
+  private Buffer payload;
+
+  public SlackerResponseBuilder code(final ResultCode code) {
+    this.code = code;
+    return this;
+  }
+
+  public SlackerResponseBuilder message(final String message) {
+    this.message = message;
+    return this;
+  }
+
+  public SlackerResponseBuilder type(final ResponseType type) {
+    this.type = type;
+    return this;
+  }
+
+  public SlackerResponseBuilder attachment(final JsonObject attachment) {
+    attachments.add(Objects.requireNonNull(attachment, "attachment"));
+    return this;
+  }
+
+  public SlackerResponseBuilder payload(final Buffer payload) {
+    this.payload = payload;
+    return this;
+  }
+
+  /**
+   * Builds a slacker response with the current state of the builder.
+   *
+   * @return a new instance of {@link SlackerResponse} with the specified parameters
+   * @throws NullPointerException if the result code is missing
+   */
+  public SlackerResponse build() {
+    return SlackerResponseFactory.create(code,
+        Optional.ofNullable(message).filter(m -> !m.isEmpty()),
+        Optional.ofNullable(type),
+        attachments.isEmpty() ? Collections.emptyList() :
+            Collections.unmodifiableList(new ArrayList<>(attachments)),
+        Optional.ofNullable(payload).filter(p -> p.length() > 0));
+  }
+
+  /**
+   * Builds a slacker response with the current state of the builder, along with its pre-rendered
+   * slack message (see {@link SlackerResponseRenderer}). Such responses are meant to be built once
+   * and reused, e.g. as constants, being their message sent as is rather than rendered on every
+   * request.
+   *
+   * @return a new instance of {@link SlackerResponse} with the specified parameters
+   * @throws NullPointerException if the result code is missing
+   */
+  public SlackerResponse buildRendered() {
+    final SlackerResponse response = build();
+    return SlackerResponseFactory.create(response.getCode(), response.getResponse(),
+        response.getResponseType(), response.getAttachments(),
+        Optional.of(SlackerResponseRenderer.render(response)).filter(p -> p.length() > 0));
+  }
+}
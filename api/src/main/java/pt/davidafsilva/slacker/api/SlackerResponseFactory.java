@@ -26,9 +26,14 @@ package pt.davidafsilva.slacker.api;
  * #L%
  */
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
 /**
  * A simple factory for the creation of {@link SlackerResponse} messages.
  *
@@ -51,8 +56,28 @@ final class SlackerResponseFactory {
    * @throws NullPointerException if any of the arguments is {@code null}
    */
   static SlackerResponse create(final ResultCode code, final Optional<String> message) {
+    return create(code, message, Optional.empty(), Collections.emptyList(), Optional.empty());
+  }
+
+  /**
+   * Creates a slacker response with the given response code, message, type, attachments and
+   * pre-rendered message.
+   *
+   * @param code        the result code
+   * @param message     the result message
+   * @param type        the response type
+   * @param attachments the message attachments
+   * @param payload     the pre-rendered message
+   * @return a new instance of {@link SlackerResponse} with the specified parameters
+   * @throws NullPointerException if any of the arguments is {@code null}
+   */
+  static SlackerResponse create(final ResultCode code, final Optional<String> message,
+      final Optional<ResponseType> type, final List<JsonObject> attachments,
+      final Optional<Buffer> payload) {
     return new SlackerResponseImpl(Objects.requireNonNull(code, "code"),
-        Objects.requireNonNull(message, "message"));
+        Objects.requireNonNull(message, "message"), Objects.requireNonNull(type, "type"),
+        Objects.requireNonNull(attachments, "attachments"),
+        Objects.requireNonNull(payload, "payload"));
   }
 
   // straight-forward implementation of the slacker response
@@ -62,16 +87,30 @@ final class SlackerResponseFactory {
     private final ResultCode code;
     // the message
     private final Optional<String> message;
+    // the response type
+    private final Optional<ResponseType> type;
+    // the attachments
+    private final List<JsonObject> attachments;
+    // the pre-rendered message
+    private final Optional<Buffer> payload;
 
     /**
      * Default constructor
      *
-     * @param code    the result code
-     * @param message the result message
+     * @param code        the result code
+     * @param message     the result message
+     * @param type        the response type
+     * @param attachments the message attachments
+     * @param payload     the pre-rendered message
      */
-    private SlackerResponseImpl(final ResultCode code, final Optional<String> message) {
+    private SlackerResponseImpl(final ResultCode code, final Optional<String> message,
+        final Optional<ResponseType> type, final List<JsonObject> attachments,
+        final Optional<Buffer> payload) {
       this.code = code;
       this.message = message;
+      this.type = type;
+      this.attachments = attachments;
+      this.payload = payload;
     }
 
     @Override
@@ -83,5 +122,20 @@ final class SlackerResponseFactory {
     public Optional<String> getResponse() {
       return message;
     }
+
+    @Override
+    public Optional<ResponseType> getResponseType() {
+      return type;
+    }
+
+    @Override
+    public List<JsonObject> getAttachments() {
+      return attachments;
+    }
+
+    @Override
+    public Optional<Buffer> getPayload() {
+      return payload;
+    }
   }
 }
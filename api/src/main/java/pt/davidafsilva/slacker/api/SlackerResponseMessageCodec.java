@@ -26,16 +26,32 @@ package pt.davidafsilva.slacker.api;
  * #L%
  */
 
-import java.util.Objects;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 
 /**
- * The code for the the {@link SlackerRequest} message.
+ * The code for the the {@link SlackerResponse} message.
  * This is required to sent this message types across the vertx event-bus.
  *
+ * The responses are encoded with a compact, versioned and extensible, wire format:
+ * <pre>
+ *   format   (1 byte: the magic and version of the format)
+ *   code     (1 byte: the result code)
+ *   sections (varint: the number of sections)
+ *   [tag (1 byte), length (varint), content]*
+ * </pre>
+ * where the (optional) sections are the response text, type, attachments and pre-rendered message.
+ * The sections with unknown tags are skipped, such that newer nodes may add sections without
+ * breaking the older ones. Likewise, the responses encoded with the former (fixed-length) format
+ * are still decoded, such that the nodes of a cluster may be upgraded one at a time.
+ *
  * @author david
  * @since 1.0
  */
@@ -45,20 +61,96 @@ public final class SlackerResponseMessageCodec
   // the code name
   public static final String NAME = "slacker-rsp";
 
+  // the magic and version of the wire format
+  static final byte FORMAT_V1 = (byte) 0xA1;
+
+  // the legacy format marker, i.e. the most significant byte of its result code
+  static final byte FORMAT_LEGACY = 0;
+
+  // the section tags
+  static final byte TEXT_TAG = 1;
+  static final byte TYPE_TAG = 2;
+  static final byte ATTACHMENTS_TAG = 3;
+  static final byte PAYLOAD_TAG = 4;
+
   @Override
   public void encodeToWire(final Buffer buffer, final SlackerResponse response) {
-    // response code
-    buffer.appendInt(response.getCode().ordinal());
+    final Optional<String> text = response.getResponse();
+    final Optional<ResponseType> type = response.getResponseType();
+    final List<JsonObject> attachments = response.getAttachments();
+    final Optional<Buffer> payload = response.getPayload();
+    buffer.appendByte(FORMAT_V1)
+        .appendByte((byte) response.getCode().ordinal());
+    WireFormat.writeVarInt(buffer, (text.isPresent() ? 1 : 0) + (type.isPresent() ? 1 : 0) +
+        (attachments.isEmpty() ? 0 : 1) + (payload.isPresent() ? 1 : 0));
     // response text
-    buffer.appendInt(response.getResponse().filter(Objects::nonNull).map(String::length).orElse(0));
-    response.getResponse().filter(Objects::nonNull).ifPresent(buffer::appendString);
+    text.ifPresent(t -> WireFormat.writeString(buffer.appendByte(TEXT_TAG), t));
+    // response type
+    type.ifPresent(t -> buffer.appendByte(TYPE_TAG).appendByte((byte) 1)
+        .appendByte((byte) t.ordinal()));
+    // attachments
+    if (!attachments.isEmpty()) {
+      WireFormat.writeString(buffer.appendByte(ATTACHMENTS_TAG),
+          new JsonArray(new ArrayList<>(attachments)).encode());
+    }
+    // pre-rendered message
+    payload.ifPresent(p -> {
+      WireFormat.writeVarInt(buffer.appendByte(PAYLOAD_TAG), p.length());
+      buffer.appendBuffer(p);
+    });
   }
 
   @Override
   public SlackerResponse decodeFromWire(final int pos, final Buffer buffer) {
+    final byte format = buffer.getByte(pos);
+    if (format == FORMAT_LEGACY) {
+      return decodeLegacy(pos, buffer);
+    }
+    if (format != FORMAT_V1) {
+      throw new IllegalStateException("unsupported response format: " + format);
+    }
+
+    final WireFormat.Reader reader = new WireFormat.Reader(buffer, pos + 1);
+    final ResultCode code = resultCode(reader.readByte());
+    Optional<String> text = Optional.empty();
+    Optional<ResponseType> type = Optional.empty();
+    List<JsonObject> attachments = Collections.emptyList();
+    Optional<Buffer> payload = Optional.empty();
+    for (int sections = reader.readVarInt(); sections > 0; sections--) {
+      final byte tag = reader.readByte();
+      switch (tag) {
+        case TEXT_TAG:
+          text = Optional.of(reader.readString());
+          break;
+        case TYPE_TAG:
+          type = responseType(reader.readBuffer());
+          break;
+        case ATTACHMENTS_TAG:
+          attachments = attachments(reader.readString());
+          break;
+        case PAYLOAD_TAG:
+          payload = Optional.of(reader.readBuffer());
+          break;
+        default:
+          // unknown section, skip it
+          reader.skip(reader.readVarInt());
+      }
+    }
+
+    return SlackerResponseFactory.create(code, text, type, attachments, payload);
+  }
+
+  /**
+   * Decodes a response encoded with the legacy (fixed-length) format
+   *
+   * @param pos    the position of the response at the buffer
+   * @param buffer the buffer where to read the response from
+   * @return the decoded response
+   */
+  private SlackerResponse decodeLegacy(final int pos, final Buffer buffer) {
     int offset = pos;
     // result code
-    final ResultCode code = ResultCode.values()[buffer.getInt(offset)];
+    final ResultCode code = resultCode(buffer.getInt(offset));
     offset += 4;
     // response body
     final int length = buffer.getInt(offset);
@@ -73,6 +165,47 @@ public final class SlackerResponseMessageCodec
     return SlackerResponseFactory.create(code, response);
   }
 
+  /**
+   * Maps the given ordinal to its result code. The unknown codes, i.e. the ones introduced by
+   * newer versions, are deemed errors.
+   *
+   * @param ordinal the result code ordinal
+   * @return the result code
+   */
+  private static ResultCode resultCode(final int ordinal) {
+    final ResultCode[] codes = ResultCode.values();
+    return ordinal >= 0 && ordinal < codes.length ? codes[ordinal] : ResultCode.ERROR;
+  }
+
+  /**
+   * Maps the given type section content to its response type. The unknown types are ignored.
+   *
+   * @param content the section content
+   * @return the optional response type
+   */
+  private static Optional<ResponseType> responseType(final Buffer content) {
+    final ResponseType[] types = ResponseType.values();
+    final int ordinal = content.length() == 1 ? content.getByte(0) : -1;
+    return ordinal >= 0 && ordinal < types.length ? Optional.of(types[ordinal]) :
+        Optional.empty();
+  }
+
+  /**
+   * Decodes the attachments from the given JSON array
+   *
+   * @param json the encoded JSON array
+   * @return the decoded attachments
+   */
+  private static List<JsonObject> attachments(final String json) {
+    final List<JsonObject> attachments = new ArrayList<>();
+    new JsonArray(json).forEach(a -> {
+      if (JsonObject.class.isInstance(a)) {
+        attachments.add((JsonObject) a);
+      }
+    });
+    return Collections.unmodifiableList(attachments);
+  }
+
   @Override
   public SlackerResponse transform(final SlackerResponse response) {
     return response;
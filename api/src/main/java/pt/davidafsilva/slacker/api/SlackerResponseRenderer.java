@@ -0,0 +1,171 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Optional;
+
+import io.netty.buffer.Unpooled;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Renders the slacker responses into the (JSON) message payload expected by slack, either when
+ * replying to the incoming request or when delivering a deferred response.
+ *
+ * The pre-rendered messages (see {@link SlackerResponse#getPayload()}) are sent as is, while the
+ * plain text messages are escaped and encoded straight into their final bytes, without building
+ * an intermediate JSON object. Only the messages with a specific type or attachments go through
+ * the regular JSON encoding.
+ *
+ * @author david
+ * @since 1.0
+ */
+public final class SlackerResponseRenderer {
+
+  // the empty message
+  private static final Buffer EMPTY_BUF = Buffer.buffer(0);
+
+  // the enclosing bytes of the plain text messages
+  private static final byte[] TEXT_PREFIX = "{\"text\":\"".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] TEXT_SUFFIX = "\"}".getBytes(StandardCharsets.US_ASCII);
+
+  // the hexadecimal digits of the unicode escapes
+  private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+  // the escapes of the ASCII characters: 0 for none, 'u' for an unicode escape or the short escape
+  private static final byte[] ESCAPES = new byte[128];
+
+  static {
+    for (int c = 0; c < 0x20; c++) {
+      ESCAPES[c] = 'u';
+    }
+    ESCAPES['\b'] = 'b';
+    ESCAPES['\t'] = 't';
+    ESCAPES['\n'] = 'n';
+    ESCAPES['\f'] = 'f';
+    ESCAPES['\r'] = 'r';
+    ESCAPES['"'] = '"';
+    ESCAPES['\\'] = '\\';
+  }
+
+  // private constructor
+  private SlackerResponseRenderer() {
+    throw new UnsupportedOperationException("no no no");
+  }
+
+  /**
+   * Renders the given response into the slack message payload
+   *
+   * @param response the slacker response
+   * @return the rendered message, an empty buffer if the response has no content
+   */
+  public static Buffer render(final SlackerResponse response) {
+    if (response.getPayload().isPresent()) {
+      return response.getPayload().get();
+    }
+    if (!response.getResponseType().isPresent() && response.getAttachments().isEmpty()) {
+      return render(response.getResponse());
+    }
+
+    final JsonObject message = new JsonObject();
+    response.getResponse().ifPresent(m -> message.put("text", m));
+    response.getResponseType().ifPresent(t -> message.put("response_type", t.getSlackName()));
+    if (!response.getAttachments().isEmpty()) {
+      message.put("attachments", new JsonArray(new ArrayList<>(response.getAttachments())));
+    }
+    return Buffer.buffer(message.toString());
+  }
+
+  /**
+   * Renders the given optional response text into the slack message payload
+   *
+   * @param text the response text, if any
+   * @return the rendered message, an empty buffer if there's no response text
+   */
+  public static Buffer render(final Optional<String> text) {
+    return text.map(SlackerResponseRenderer::renderText).orElse(EMPTY_BUF);
+  }
+
+  /**
+   * Renders the given text into a plain text slack message. The text is encoded (UTF-8) at once
+   * and then escaped straight into the exact-sized message bytes, copying the runs of bytes
+   * between escapes as they are - which is safe, as only ASCII characters need to be escaped and
+   * every byte of the UTF-8 multi-byte sequences is outside of the ASCII range.
+   *
+   * @param text the response text
+   * @return the rendered message
+   */
+  private static Buffer renderText(final String text) {
+    final byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+    final byte[] bytes = new byte[TEXT_PREFIX.length + escapedLength(encoded) +
+        TEXT_SUFFIX.length];
+    System.arraycopy(TEXT_PREFIX, 0, bytes, 0, TEXT_PREFIX.length);
+    int offset = TEXT_PREFIX.length;
+    int start = 0;
+    for (int i = 0; i < encoded.length; i++) {
+      final byte b = encoded[i];
+      final byte escape = b < 0 ? 0 : ESCAPES[b];
+      if (escape != 0) {
+        System.arraycopy(encoded, start, bytes, offset, i - start);
+        offset += i - start;
+        bytes[offset++] = '\\';
+        bytes[offset++] = escape;
+        if (escape == 'u') {
+          bytes[offset++] = '0';
+          bytes[offset++] = '0';
+          bytes[offset++] = HEX[b >> 4];
+          bytes[offset++] = HEX[b & 0xF];
+        }
+        start = i + 1;
+      }
+    }
+    System.arraycopy(encoded, start, bytes, offset, encoded.length - start);
+    offset += encoded.length - start;
+    System.arraycopy(TEXT_SUFFIX, 0, bytes, offset, TEXT_SUFFIX.length);
+    return Buffer.buffer(Unpooled.wrappedBuffer(bytes));
+  }
+
+  /**
+   * Computes the length of the given encoded text, once escaped
+   *
+   * @param encoded the encoded text
+   * @return the number of bytes of the escaped text
+   */
+  private static int escapedLength(final byte[] encoded) {
+    int escaped = encoded.length;
+    for (final byte b : encoded) {
+      final byte escape = b < 0 ? 0 : ESCAPES[b];
+      if (escape != 0) {
+        escaped += escape == 'u' ? 5 : 1;
+      }
+    }
+    return escaped;
+  }
+}
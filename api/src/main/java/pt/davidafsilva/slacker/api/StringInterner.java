@@ -0,0 +1,189 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded and concurrent cache of canonical strings, looked up straight from their encoded
+ * (UTF-8) bytes, such that the repeated values of the request identifiers - teams, channels,
+ * users and commands - resolve to the same string instances without being decoded over and over.
+ *
+ * The cache is an open-addressed table, whose lookups probe a small window of slots next to the
+ * slot of the value hash. Upon a miss, the value is decoded and stored either at an empty slot of
+ * the window or in place of a random one, hence the memory is bound to the table capacity and
+ * the frequent values are likely to stay around. The slots are read and written lock-free, as a
+ * racing lookup at most decodes the same value twice.
+ *
+ * Only the short ASCII values are cached, as the identifiers are, while the remaining ones are
+ * decoded as usual.
+ *
+ * @author david
+ * @since 1.0
+ */
+public final class StringInterner {
+
+  // the default capacity of the shared interner
+  private static final int DEFAULT_CAPACITY = 16384;
+
+  // the shared interner
+  private static final StringInterner SHARED = new StringInterner(DEFAULT_CAPACITY);
+
+  // the maximum length of the cached values
+  static final int MAX_LENGTH = 64;
+
+  // the number of probed slots
+  private static final int PROBES = 4;
+
+  // the table of cached values
+  private final AtomicReferenceArray<String> table;
+
+  // the mask of the table indexes
+  private final int mask;
+
+  /**
+   * Constructs the interner with (at least) the given capacity
+   *
+   * @param capacity the maximum number of cached values
+   * @throws IllegalArgumentException if the capacity is out of range
+   */
+  public StringInterner(final int capacity) {
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("invalid interner capacity: " + capacity);
+    }
+    final int size = Math.max(PROBES, Integer.highestOneBit(capacity - 1) << 1);
+    this.table = new AtomicReferenceArray<>(size);
+    this.mask = size - 1;
+  }
+
+  /**
+   * Returns the interner shared by the request parsing and decoding
+   *
+   * @return the shared interner
+   */
+  public static StringInterner shared() {
+    return SHARED;
+  }
+
+  /**
+   * Returns the canonical string of the given UTF-8 encoded value
+   *
+   * @param bytes  the bytes holding the encoded value
+   * @param offset the offset of the value
+   * @param length the length of the value, in bytes
+   * @return the (decoded) value
+   */
+  public String intern(final byte[] bytes, final int offset, final int length) {
+    if (length == 0) {
+      return "";
+    }
+    if (length > MAX_LENGTH) {
+      return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+
+    // the hash of the ASCII bytes matches the hash of the decoded string
+    int hash = 0;
+    for (int i = offset; i < offset + length; i++) {
+      final byte b = bytes[i];
+      if (b < 0) {
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
+      }
+      hash = 31 * hash + b;
+    }
+
+    final int index = (hash ^ hash >>> 16) & mask;
+    for (int probe = 0; probe < PROBES; probe++) {
+      final int slot = (index + probe) & mask;
+      final String candidate = table.get(slot);
+      if (candidate == null) {
+        // the window is filled in order, hence the value isn't cached
+        final String value = decodeAscii(bytes, offset, length);
+        table.lazySet(slot, value);
+        return value;
+      }
+      if (candidate.hashCode() == hash && matches(candidate, bytes, offset, length)) {
+        return candidate;
+      }
+    }
+
+    final String value = decodeAscii(bytes, offset, length);
+    table.lazySet((index + ThreadLocalRandom.current().nextInt(PROBES)) & mask, value);
+    return value;
+  }
+
+  /**
+   * Returns the number of values currently cached
+   *
+   * @return the number of cached values
+   */
+  public int size() {
+    int size = 0;
+    for (int i = 0; i < table.length(); i++) {
+      if (table.get(i) != null) {
+        size++;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Decodes the given ASCII value
+   *
+   * @param bytes  the bytes holding the value
+   * @param offset the offset of the value
+   * @param length the length of the value
+   * @return the decoded value
+   */
+  private static String decodeAscii(final byte[] bytes, final int offset, final int length) {
+    // every ASCII byte maps to the same latin-1 character, without the UTF-8 decoding checks
+    return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+  }
+
+  /**
+   * Checks whether or not the given string matches the given ASCII value
+   *
+   * @param str    the string
+   * @param bytes  the bytes holding the value
+   * @param offset the offset of the value
+   * @param length the length of the value
+   * @return {@code true} if the string matches the value, {@code false} otherwise
+   */
+  private static boolean matches(final String str, final byte[] bytes, final int offset,
+      final int length) {
+    if (str.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (str.charAt(i) != bytes[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,176 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * This abstract implementation serves as a baseline for the slacker command executors whose
+ * requests are handled synchronously, e.g. by wrapping blocking SDKs: each request is handled by
+ * {@link #handle(SlackerRequest)} at a thread of its own, while its response is handed back to
+ * the executor verticle context.
+ *
+ * The requests are handled by virtual threads whenever the runtime supports them, hence
+ * thousands of concurrent (blocking) requests are cheap - otherwise, they're handled by platform
+ * threads created on demand. Either way, the number of concurrent requests is capped by
+ * {@link #maxConcurrency()}: the exceeding requests are rejected with {@link ResultCode#BUSY}.
+ *
+ * @author david
+ * @since 1.0
+ */
+public abstract class SynchronousSlackerExecutor extends AbstractSlackerExecutor {
+
+  // the logger instance
+  private static final Logger LOGGER = LoggerFactory.getLogger(SynchronousSlackerExecutor.class);
+
+  // the default maximum number of concurrent requests
+  static final int DEFAULT_MAX_CONCURRENCY = 1024;
+
+  // the number of requests being handled
+  private final AtomicInteger concurrency = new AtomicInteger();
+
+  // the thread per request executor service
+  private ExecutorService executorService;
+
+  // the verticle context, to which the responses are handed back
+  private Context context;
+
+  @Override
+  public void init(final Vertx vertx, final Context context) {
+    super.init(vertx, context);
+    this.context = context;
+    executorService = newThreadPerTaskExecutor(identifier());
+  }
+
+  /**
+   * Creates the executor service which creates a thread per task, virtual if supported by the
+   * runtime.
+   *
+   * @param name the name prefix of the platform threads
+   * @return the thread per task executor service
+   */
+  static ExecutorService newThreadPerTaskExecutor(final String name) {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    } catch (final ReflectiveOperationException e) {
+      LOGGER.debug("virtual threads are not supported, using platform threads", e);
+      final AtomicInteger threads = new AtomicInteger();
+      return Executors.newCachedThreadPool(r -> {
+        final Thread thread = new Thread(r, name + "-" + threads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  /**
+   * Returns the maximum number of requests that may be handled concurrently by this executor.
+   *
+   * @return the maximum number of concurrent requests
+   */
+  protected int maxConcurrency() {
+    return DEFAULT_MAX_CONCURRENCY;
+  }
+
+  /**
+   * Handles the incoming request synchronously, at a thread of its own - blocking is allowed.
+   * Any thrown exception fails the request.
+   *
+   * @param request the incoming slacker request
+   * @return the execution result
+   * @throws Exception if the request handling fails
+   */
+  protected abstract SlackerResponse handle(SlackerRequest request) throws Exception;
+
+  @Override
+  public final void execute(final SlackerRequest request, final Future<SlackerResponse> result) {
+    // cap the concurrent requests
+    if (concurrency.incrementAndGet() > maxConcurrency()) {
+      concurrency.decrementAndGet();
+      result.complete(SlackerResponseFactory.create(ResultCode.BUSY,
+          Optional.of("too many concurrent requests")));
+      return;
+    }
+
+    try {
+      executorService.execute(() -> {
+        SlackerResponse response = null;
+        Throwable failure = null;
+        try {
+          response = handle(request);
+        } catch (final Throwable e) {
+          failure = e;
+        } finally {
+          concurrency.decrementAndGet();
+        }
+
+        // hand the outcome back to the verticle context, whatever the execution mode
+        final SlackerResponse r = response;
+        final Throwable f = failure;
+        context.runOnContext(v -> complete(result, r, f));
+      });
+    } catch (final RejectedExecutionException e) {
+      concurrency.decrementAndGet();
+      result.fail(e);
+    }
+  }
+
+  /**
+   * Completes the request result with the given outcome
+   *
+   * @param result   the request result
+   * @param response the response, if successfully handled
+   * @param failure  the failure, if failed
+   */
+  private static void complete(final Future<SlackerResponse> result,
+      final SlackerResponse response, final Throwable failure) {
+    if (failure != null) {
+      result.fail(failure);
+    } else if (response == null) {
+      result.fail("no response");
+    } else {
+      result.complete(response);
+    }
+  }
+
+  @Override
+  public void stop(final Future<Void> stopFuture) throws Exception {
+    executorService.shutdown();
+    super.stop(stopFuture);
+  }
+}
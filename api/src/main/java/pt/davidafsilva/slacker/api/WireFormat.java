@@ -0,0 +1,202 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.nio.charset.StandardCharsets;
+
+import io.netty.buffer.ByteBuf;
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Utility class with the primitives of the compact wire format of the slacker messages: unsigned
+ * variable-length integers (7 bits per byte, least significant group first) and UTF-8 strings
+ * prefixed by their variable-length byte count.
+ *
+ * @author david
+ * @since 1.0
+ */
+final class WireFormat {
+
+  // private constructor
+  private WireFormat() {
+    throw new UnsupportedOperationException("no no no");
+  }
+
+  /**
+   * Writes the given (non-negative) value as a variable-length integer
+   *
+   * @param buffer the buffer where the value is going to be written
+   * @param value  the value to be written
+   */
+  static void writeVarInt(final Buffer buffer, final int value) {
+    writeVarLong(buffer, value & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Writes the given (non-negative) value as a variable-length integer
+   *
+   * @param buffer the buffer where the value is going to be written
+   * @param value  the value to be written
+   */
+  static void writeVarLong(final Buffer buffer, final long value) {
+    long v = value;
+    while ((v & ~0x7FL) != 0) {
+      buffer.appendByte((byte) ((v & 0x7F) | 0x80));
+      v >>>= 7;
+    }
+    buffer.appendByte((byte) v);
+  }
+
+  /**
+   * Writes the (UTF-8 byte count, UTF-8 bytes) tuple of the given string
+   *
+   * @param buffer the buffer where the string is going to be written
+   * @param str    the string to be written
+   */
+  static void writeString(final Buffer buffer, final String str) {
+    final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(buffer, bytes.length);
+    buffer.appendBytes(bytes);
+  }
+
+  // the sequential reader of a buffer
+  static final class Reader {
+
+    // the buffer
+    private final Buffer buffer;
+
+    // the underlying bytes of the buffer
+    private final ByteBuf bytes;
+
+    // the current offset
+    private int offset;
+
+    /**
+     * Constructs the reader of the given buffer, starting at the given offset
+     *
+     * @param buffer the buffer to be read
+     * @param offset the starting offset
+     */
+    Reader(final Buffer buffer, final int offset) {
+      this.buffer = buffer;
+      this.bytes = buffer.getByteBuf();
+      this.offset = offset;
+    }
+
+    /**
+     * Reads a single byte
+     *
+     * @return the read byte
+     */
+    byte readByte() {
+      return buffer.getByte(offset++);
+    }
+
+    /**
+     * Reads a variable-length integer
+     *
+     * @return the read value
+     * @throws IllegalStateException if the value is malformed
+     */
+    int readVarInt() {
+      final long value = readVarLong();
+      if (value > Integer.MAX_VALUE) {
+        throw new IllegalStateException("malformed variable-length integer");
+      }
+      return (int) value;
+    }
+
+    /**
+     * Reads a variable-length long
+     *
+     * @return the read value
+     * @throws IllegalStateException if the value is malformed
+     */
+    long readVarLong() {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        final byte b = readByte();
+        value |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IllegalStateException("malformed variable-length integer");
+    }
+
+    /**
+     * Reads a string, decoding it straight from the buffer bytes, without intermediate copies
+     * whenever these are heap based
+     *
+     * @return the read string
+     */
+    String readString() {
+      final int length = readVarInt();
+      final String str;
+      if (length == 0) {
+        str = "";
+      } else if (bytes.hasArray()) {
+        str = new String(bytes.array(), bytes.arrayOffset() + offset, length,
+            StandardCharsets.UTF_8);
+      } else {
+        str = bytes.toString(offset, length, StandardCharsets.UTF_8);
+      }
+      offset += length;
+      return str;
+    }
+
+    /**
+     * Reads a (byte count, bytes) tuple into a buffer of its own
+     *
+     * @return the read buffer
+     */
+    Buffer readBuffer() {
+      final int length = readVarInt();
+      final Buffer read = buffer.getBuffer(offset, offset + length);
+      offset += length;
+      return read;
+    }
+
+    /**
+     * Skips the given number of bytes
+     *
+     * @param length the number of bytes to skip
+     */
+    void skip(final int length) {
+      offset += length;
+    }
+
+    /**
+     * Returns the current offset of the reader
+     *
+     * @return the current offset
+     */
+    int offset() {
+      return offset;
+    }
+  }
+}
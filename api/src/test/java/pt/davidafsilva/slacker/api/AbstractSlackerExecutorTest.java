@@ -29,15 +29,26 @@ package pt.davidafsilva.slacker.api;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
 
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
 
@@ -184,6 +195,300 @@ public class AbstractSlackerExecutorTest extends SlackerBaseTest {
     executeDeployWithMessage(ERROR);
   }
 
+  @Test
+  public void test_successDeploy_heartbeat() throws InterruptedException {
+    deployServer(r -> r.reply(new JsonObject().put("a", "amazing-address").put("l", 30L)));
+
+    // the lease must be renewed
+    wrapExec(latch -> {
+      vertx.eventBus().<JsonObject>consumer("hbt.slacker-server", h -> {
+        assertEquals(new JsonObject().put("i", "test").put("a", "amazing-address"), h.body());
+        h.reply(new JsonObject().put("l", 30L));
+        latch.countDown();
+      });
+      assertTrue("unable to deploy executor",
+          deployVerticle(new TestSlackerExecutor(Future::complete)).succeeded());
+    });
+  }
+
+  @Test
+  public void test_successDeploy_lostLease() throws InterruptedException {
+    final AtomicInteger registrations = new AtomicInteger();
+    deployServer(r -> r.reply(new JsonObject()
+        .put("a", "amazing-address-" + registrations.incrementAndGet())
+        .put("l", 30L)));
+    // only the first lease is lost
+    vertx.eventBus().<JsonObject>consumer("hbt.slacker-server", h -> {
+      if ("amazing-address-1".equals(h.body().getString("a"))) {
+        h.fail(1, "unknown");
+      } else {
+        h.reply(new JsonObject());
+      }
+    });
+    assertTrue("unable to deploy executor",
+        deployVerticle(new TestSlackerExecutor(f -> f.complete(SUCCESS))).succeeded());
+
+    // the executor must register again and listen at the new address
+    final long deadline = System.currentTimeMillis() + 5000;
+    while (registrations.get() < 2 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue(registrations.get() >= 2);
+    assertTrue(sendRequest("amazing-address-2", REQUEST).succeeded());
+  }
+
+  @Test
+  public void test_successDeploy_lostLease_singleRegistration() throws InterruptedException {
+    final AtomicInteger registrations = new AtomicInteger();
+    deployServer(r -> {
+      final int registration = registrations.incrementAndGet();
+      final JsonObject reply = new JsonObject()
+          .put("a", "amazing-address-" + registration)
+          .put("l", 30L);
+      if (registration == 1) {
+        r.reply(reply);
+      } else {
+        // a slow registration, spanning several heartbeat periods
+        vertx.setTimer(300, t -> r.reply(reply));
+      }
+    });
+    vertx.eventBus().<JsonObject>consumer("hbt.slacker-server", h -> {
+      if ("amazing-address-1".equals(h.body().getString("a"))) {
+        h.fail(1, "unknown");
+      } else {
+        h.reply(new JsonObject());
+      }
+    });
+    assertTrue("unable to deploy executor",
+        deployVerticle(new TestSlackerExecutor(f -> f.complete(SUCCESS))).succeeded());
+
+    // the executor must register again only once, and listen at the new address only
+    final long deadline = System.currentTimeMillis() + 5000;
+    while (registrations.get() < 2 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    // wait for the slow registration, and several heartbeats afterwards
+    Thread.sleep(500);
+    assertEquals(2, registrations.get());
+    assertTrue(sendRequest("amazing-address-2", REQUEST).succeeded());
+    assertTrue(sendRequest("amazing-address-1", REQUEST).failed());
+  }
+
+  @Test
+  public void test_stop_unregister() throws InterruptedException {
+    deployServer(r -> r.reply(new JsonObject().put("a", "amazing-address")));
+    final AsyncResult<String> deployment = deployVerticle(new TestSlackerExecutor(
+        Future::complete));
+    assertTrue("unable to deploy executor", deployment.succeeded());
+
+    // the executor must unregister itself upon stop
+    wrapExec(latch -> {
+      vertx.eventBus().<JsonObject>consumer("unr.slacker-server", u -> {
+        assertEquals(new JsonObject().put("i", "test").put("a", "amazing-address"), u.body());
+        u.reply(new JsonObject());
+        latch.countDown();
+      });
+      vertx.undeploy(deployment.result());
+    });
+  }
+
+  @Test
+  public void test_request_deadlineExceeded() throws InterruptedException {
+    deployServer(r -> r.reply(new JsonObject().put("a", "amazing-address")));
+    final AtomicInteger executions = new AtomicInteger();
+    assertTrue("unable to deploy executor", deployVerticle(new TestSlackerExecutor(f -> {
+      executions.incrementAndGet();
+      f.complete(SUCCESS);
+    })).succeeded());
+
+    // the late request must be dropped
+    wrapExec(latch -> vertx.eventBus().send("amazing-address", REQUEST, SlackerDeadline.apply(
+        new DeliveryOptions().setCodecName(SlackerRequestMessageCodec.NAME),
+        System.currentTimeMillis() - 1).setSendTimeout(1000), reply -> {
+      assertTrue(reply.failed());
+      assertEquals("deadline exceeded", reply.cause().getMessage());
+      latch.countDown();
+    }));
+    assertEquals(0, executions.get());
+  }
+
+  @Test
+  public void test_request_remainingTime() throws InterruptedException {
+    deployServer(r -> r.reply(new JsonObject().put("a", "amazing-address")));
+    final AtomicReference<Optional<Duration>> remaining = new AtomicReference<>();
+    assertTrue("unable to deploy executor", deployVerticle(new TestSlackerExecutor(
+        f -> f.complete(SUCCESS)) {
+      @Override
+      public void execute(final SlackerRequest request, final Future<SlackerResponse> result) {
+        remaining.set(remainingTime(request));
+        super.execute(request, result);
+      }
+    }).succeeded());
+
+    wrapExec(latch -> vertx.eventBus().send("amazing-address", REQUEST, SlackerDeadline.apply(
+        new DeliveryOptions().setCodecName(SlackerRequestMessageCodec.NAME),
+        System.currentTimeMillis() + 5000), reply -> {
+      assertTrue(reply.succeeded());
+      latch.countDown();
+    }));
+    assertTrue(remaining.get().isPresent());
+    assertFalse(remaining.get().get().isNegative());
+    assertTrue(remaining.get().get().toMillis() <= 5000);
+
+    // requests without deadline
+    assertTrue(sendRequest("amazing-address", REQUEST).succeeded());
+    assertFalse(remaining.get().isPresent());
+  }
+
+  @Test
+  public void test_request_stallTracked() throws InterruptedException {
+    executor(ExecutionMode.eventLoop(), f -> {
+      try {
+        Thread.sleep(ExecutionTracker.DEFAULT_THRESHOLD + 20);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      f.complete(SUCCESS);
+    });
+    assertTrue(sendRequest("amazing-address", REQUEST).succeeded());
+
+    final JsonArray offenders = ExecutionTracker.shared().report().getJsonArray("offenders");
+    final Optional<JsonObject> offender = offenders.stream()
+        .map(JsonObject.class::cast)
+        .filter(o -> "test".equals(o.getString("command")))
+        .findFirst();
+    assertTrue(offender.isPresent());
+    assertTrue(offender.get().getDouble("max") >= ExecutionTracker.DEFAULT_THRESHOLD);
+    assertEquals("test (" + REQUEST.getTimestamp() + ")", offender.get().getString("request"));
+  }
+
+  @Test
+  public void test_request_workerStallNotTracked() throws InterruptedException {
+    final long stalls = stalls();
+    executor(ExecutionMode.worker(), f -> {
+      try {
+        Thread.sleep(ExecutionTracker.DEFAULT_THRESHOLD + 20);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      f.complete(SUCCESS);
+    });
+    assertTrue(sendRequest("amazing-address", REQUEST).succeeded());
+    assertEquals(stalls, stalls());
+  }
+
+  // the number of stalls of the test command, within the current report
+  private static long stalls() {
+    return ExecutionTracker.shared().report().getJsonArray("offenders").stream()
+        .map(JsonObject.class::cast)
+        .filter(o -> "test".equals(o.getString("command")))
+        .mapToLong(o -> o.getLong("stalls"))
+        .sum();
+  }
+
+  @Test
+  public void test_request_workerExecution() throws InterruptedException {
+    final AtomicReference<String> thread = new AtomicReference<>();
+    final AbstractSlackerExecutor executor = executor(ExecutionMode.worker(), f -> {
+      thread.set(Thread.currentThread().getName());
+      f.complete(SUCCESS);
+    });
+    assertTrue(sendRequest("amazing-address", REQUEST).succeeded());
+    assertTrue(thread.get().startsWith("vert.x-worker-thread"));
+    assertEquals(1L, executor.executionStats().getLong("executions").longValue());
+  }
+
+  @Test
+  public void test_request_poolExecution() throws InterruptedException {
+    final AtomicReference<String> thread = new AtomicReference<>();
+    final AbstractSlackerExecutor executor = executor(ExecutionMode.pool("blocking", 2, 10),
+        f -> {
+          thread.set(Thread.currentThread().getName());
+          f.complete(SUCCESS);
+        });
+    assertTrue(sendRequest("amazing-address", REQUEST).succeeded());
+    assertTrue(thread.get().startsWith("blocking-"));
+
+    final JsonObject stats = executor.executionStats();
+    assertEquals("POOL[blocking/2/10]", stats.getString("mode"));
+    assertEquals(1L, stats.getLong("executions").longValue());
+    assertEquals(0L, stats.getLong("rejections").longValue());
+    assertEquals(0, stats.getInteger("queued").intValue());
+    assertTrue(stats.getDouble("queueWaitMax") >= stats.getDouble("queueWaitAvg"));
+  }
+
+  @Test
+  public void test_request_poolExecution_repliedOnContext() throws InterruptedException {
+    // capture the thread replying the request
+    final AtomicReference<String> replier = new AtomicReference<>();
+    final Logger logger = Logger.getLogger(AbstractSlackerExecutor.class.getName());
+    final Handler handler = new Handler() {
+      @Override
+      public void publish(final LogRecord record) {
+        if (record.getMessage().startsWith("=>=> successfully handled request")) {
+          replier.set(Thread.currentThread().getName());
+        }
+      }
+
+      @Override
+      public void flush() {
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    logger.addHandler(handler);
+    try {
+      executor(ExecutionMode.pool("blocking", 2, 10), f -> f.complete(SUCCESS));
+      assertTrue(sendRequest("amazing-address", REQUEST).succeeded());
+      assertTrue(replier.get(), replier.get().startsWith("vert.x-eventloop-thread"));
+    } finally {
+      logger.removeHandler(handler);
+    }
+  }
+
+  @Test
+  public void test_request_poolSaturated() throws InterruptedException {
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AbstractSlackerExecutor executor = executor(ExecutionMode.pool("blocking", 1, 0), f -> {
+      blocked.countDown();
+      try {
+        release.await();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      f.complete(SUCCESS);
+    });
+
+    // the single thread is kept busy, while the following request is rejected
+    final AtomicReference<AsyncResult<Message<Object>>> first = new AtomicReference<>();
+    vertx.eventBus().send("amazing-address", REQUEST,
+        new DeliveryOptions().setCodecName(SlackerRequestMessageCodec.NAME), first::set);
+    assertTrue(blocked.await(5, TimeUnit.SECONDS));
+    final AsyncResult<Message<Object>> rejected = sendRequest("amazing-address", REQUEST);
+    assertTrue(rejected.failed());
+    assertEquals(ResultCode.BUSY.ordinal(),
+        ((ReplyException) rejected.cause()).failureCode());
+    assertEquals(1.0, executor.executionStats().getDouble("utilisation"), 0);
+    assertEquals(1L, executor.executionStats().getLong("rejections").longValue());
+    release.countDown();
+  }
+
+  private AbstractSlackerExecutor executor(final ExecutionMode mode,
+      final Consumer<Future<SlackerResponse>> responseFunc) throws InterruptedException {
+    deployServer(r -> r.reply(new JsonObject().put("a", "amazing-address")));
+    final AbstractSlackerExecutor executor = new TestSlackerExecutor(responseFunc) {
+      @Override
+      public ExecutionMode executionMode() {
+        return mode;
+      }
+    };
+    assertTrue("unable to deploy executor", deployVerticle(executor).succeeded());
+    return executor;
+  }
+
   private void deployServer(final Consumer<Message<Object>> replyFunc)
       throws InterruptedException {
     assertTrue(deployVerticle(new TestSlackerServer(replyFunc)).succeeded());
@@ -274,6 +579,10 @@ public class AbstractSlackerExecutorTest extends SlackerBaseTest {
         assertEquals("1.0.0", json.getString("v"));
         assertTrue(json.containsKey("d"));
         assertEquals("some dummy description", json.getString("d"));
+        assertTrue(json.containsKey("m"));
+        assertEquals("sync", json.getString("m"));
+        assertFalse(json.containsKey("c"));
+        assertFalse(json.containsKey("k"));
         replyFunc.accept(r);
       });
     }
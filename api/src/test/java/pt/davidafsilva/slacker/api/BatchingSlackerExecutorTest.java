@@ -0,0 +1,219 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link BatchingSlackerExecutor} handling by the
+ * {@link AbstractSlackerExecutor}.
+ *
+ * @author david
+ */
+@RunWith(VertxUnitRunner.class)
+public class BatchingSlackerExecutorTest extends SlackerBaseTest {
+
+  // the handled batches
+  private final List<List<SlackerRequest>> batches = new ArrayList<>();
+
+  @Override
+  public void setup() throws Exception {
+    super.setup();
+
+    // the registration endpoint of the slacker-server
+    vertx.eventBus().consumer("reg.slacker-server",
+        r -> r.reply(new JsonObject().put("a", "amazing-address")));
+  }
+
+  @Test
+  public void test_batch_maxSize() {
+    deploy(3, 60000, (requests, result) -> result.complete(requests.stream()
+        .map(r -> SlackerResponseFactory.create(ResultCode.OK, r.getArguments()))
+        .collect(Collectors.toList())));
+
+    // every request gets the response of its own
+    final List<String> responses = send(3);
+    assertEquals(1, batches.size());
+    assertEquals(3, batches.get(0).size());
+    assertEquals(3, responses.size());
+    for (int i = 0; i < 3; i++) {
+      assertTrue(responses.contains(String.valueOf(i)));
+    }
+  }
+
+  @Test
+  public void test_batch_linger() {
+    deploy(100, 10, (requests, result) -> result.complete(requests.stream()
+        .map(r -> SlackerResponseFactory.create(ResultCode.OK, r.getArguments()))
+        .collect(Collectors.toList())));
+
+    assertEquals(2, send(2).size());
+    assertEquals(1, batches.size());
+    assertEquals(2, batches.get(0).size());
+  }
+
+  @Test
+  public void test_batch_invalidResponses() {
+    deploy(2, 60000, (requests, result) -> result.complete(new ArrayList<>()));
+    assertEquals(2, send(2).stream().filter("invalid batch responses"::equals).count());
+  }
+
+  @Test
+  public void test_batch_failure() {
+    deploy(2, 60000, (requests, result) -> result.fail("oops"));
+    assertEquals(2, send(2).stream().filter("oops"::equals).count());
+  }
+
+  @Test
+  public void test_execute_singleBatch() {
+    final TestSlackerExecutor executor = new TestSlackerExecutor(1, 1,
+        (requests, result) -> result.complete(requests.stream()
+            .map(r -> SlackerResponseFactory.create(ResultCode.OK, Optional.of("single")))
+            .collect(Collectors.toList())));
+    final Future<SlackerResponse> result = Future.future();
+    executor.execute(request(0), result);
+    assertTrue(result.succeeded());
+    assertEquals("single", result.result().getResponse().get());
+  }
+
+  private void deploy(final int maxBatchSize, final long batchLinger,
+      final BiConsumer<List<SlackerRequest>, Future<List<SlackerResponse>>> batchFunc) {
+    assertTrue("unable to deploy executor", deployVerticle(new TestSlackerExecutor(maxBatchSize,
+        batchLinger, batchFunc)).succeeded());
+  }
+
+  /**
+   * Sends the given number of requests at once, waiting for every reply
+   *
+   * @param count the number of requests
+   * @return the responses text or failure messages
+   */
+  private List<String> send(final int count) {
+    final List<String> replies = new ArrayList<>();
+    final CountDownLatch pending = new CountDownLatch(count);
+    wrapExec(latch -> {
+      for (int i = 0; i < count; i++) {
+        vertx.eventBus().send("amazing-address", request(i),
+            new DeliveryOptions().setCodecName(SlackerRequestMessageCodec.NAME),
+            (AsyncResult<Message<Object>> r) -> {
+              replies.add(r.succeeded() ?
+                  ((SlackerResponse) r.result().body()).getResponse().get() :
+                  r.cause().getMessage());
+              pending.countDown();
+              if (pending.getCount() == 0) {
+                latch.countDown();
+              }
+            });
+      }
+    });
+    return replies;
+  }
+
+  private static SlackerRequest request(final int i) {
+    return new SlackerRequestBuilder()
+        .timestamp(Instant.now())
+        .channelId("12345")
+        .channelName("#dope")
+        .userId("6789")
+        .userName("david")
+        .teamDomain("slack.davidafsilva.pt")
+        .teamIdentifier("davidafsilva")
+        .command("test")
+        .args(String.valueOf(i))
+        .build();
+  }
+
+  // the test batching executor
+  private class TestSlackerExecutor extends AbstractSlackerExecutor
+      implements BatchingSlackerExecutor {
+
+    // the batch settings
+    private final int maxBatchSize;
+    private final long batchLinger;
+
+    // the batch function
+    private final BiConsumer<List<SlackerRequest>, Future<List<SlackerResponse>>> batchFunc;
+
+    private TestSlackerExecutor(final int maxBatchSize, final long batchLinger,
+        final BiConsumer<List<SlackerRequest>, Future<List<SlackerResponse>>> batchFunc) {
+      this.maxBatchSize = maxBatchSize;
+      this.batchLinger = batchLinger;
+      this.batchFunc = batchFunc;
+    }
+
+    @Override
+    public int maxBatchSize() {
+      return maxBatchSize;
+    }
+
+    @Override
+    public long batchLinger() {
+      return batchLinger;
+    }
+
+    @Override
+    public void executeBatch(final List<SlackerRequest> requests,
+        final Future<List<SlackerResponse>> result) {
+      batches.add(requests);
+      batchFunc.accept(requests, result);
+    }
+
+    @Override
+    public String identifier() {
+      return "test";
+    }
+
+    @Override
+    public String description() {
+      return "some dummy description";
+    }
+
+    @Override
+    public String version() {
+      return "1.0.0";
+    }
+  }
+}
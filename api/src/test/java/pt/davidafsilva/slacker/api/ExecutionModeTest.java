@@ -0,0 +1,77 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for the {@link ExecutionMode} object.
+ *
+ * @author david
+ */
+public class ExecutionModeTest {
+
+  @Test
+  public void test_eventLoop() {
+    assertEquals(ExecutionMode.Kind.EVENT_LOOP, ExecutionMode.eventLoop().getKind());
+    assertNull(ExecutionMode.eventLoop().getName());
+    assertEquals("EVENT_LOOP", ExecutionMode.eventLoop().toString());
+  }
+
+  @Test
+  public void test_worker() {
+    assertEquals(ExecutionMode.Kind.WORKER, ExecutionMode.worker().getKind());
+    assertEquals(0, ExecutionMode.worker().getSize());
+  }
+
+  @Test
+  public void test_pool() {
+    final ExecutionMode mode = ExecutionMode.pool("jdbc", 4, 100);
+    assertEquals(ExecutionMode.Kind.POOL, mode.getKind());
+    assertEquals("jdbc", mode.getName());
+    assertEquals(4, mode.getSize());
+    assertEquals(100, mode.getQueueSize());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_pool_invalidSize() {
+    ExecutionMode.pool("jdbc", 0, 100);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_pool_invalidQueueSize() {
+    ExecutionMode.pool("jdbc", 1, -1);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void test_pool_nullName() {
+    ExecutionMode.pool(null, 1, 1);
+  }
+}
@@ -0,0 +1,192 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link ExecutionTracker}.
+ *
+ * @author david
+ */
+public class ExecutionTrackerTest {
+
+  // the test request
+  private static final SlackerRequest REQUEST = new SlackerRequestBuilder()
+      .timestamp(Instant.ofEpochSecond(1355517523))
+      .teamIdentifier("T1")
+      .teamDomain("xpto")
+      .channelId("C1")
+      .channelName("general")
+      .userId("U1")
+      .userName("david")
+      .command("deploy")
+      .build();
+
+  // the test clock
+  private final AtomicLong clock = new AtomicLong();
+
+  // the test tracker: 50ms threshold, 100ms sampling and 1s windows
+  private final ExecutionTracker tracker = new ExecutionTracker(50, 100, 1000, clock::get);
+
+  @Test
+  public void test_shared() {
+    assertSame(ExecutionTracker.shared(), ExecutionTracker.shared());
+  }
+
+  @Test
+  public void test_stalls() {
+    // executions below the threshold aren't stalls
+    execute("fast", 49);
+    assertEquals(0, tracker.stalls());
+    assertTrue(tracker.report().getJsonArray("offenders").isEmpty());
+
+    execute("deploy", 50);
+    execute("deploy", 150);
+    execute("build", 100);
+    assertEquals(3, tracker.stalls());
+
+    final JsonObject report = tracker.report();
+    assertEquals(50d, report.getDouble("threshold"), 0d);
+    final JsonArray offenders = report.getJsonArray("offenders");
+    assertEquals(2, offenders.size());
+    final JsonObject top = offenders.getJsonObject(0);
+    assertEquals("deploy", top.getString("command"));
+    assertEquals(2L, top.getLong("stalls").longValue());
+    assertEquals(200d, top.getDouble("total"), 0d);
+    assertEquals(150d, top.getDouble("max"), 0d);
+    assertEquals("deploy (2012-12-14T20:38:43Z)", top.getString("request"));
+    assertEquals("build", offenders.getJsonObject(1).getString("command"));
+  }
+
+  @Test
+  public void test_batchStall() {
+    final long start = tracker.enter("deploy", null);
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(60));
+    tracker.exit(start);
+    assertEquals("batch", tracker.report().getJsonArray("offenders").getJsonObject(0)
+        .getString("request"));
+  }
+
+  @Test
+  public void test_topOffenders() {
+    for (int i = 0; i < ExecutionTracker.MAX_OFFENDERS * 2; i++) {
+      execute("c" + i, 50 + i);
+    }
+    final JsonArray offenders = tracker.report().getJsonArray("offenders");
+    assertEquals(ExecutionTracker.MAX_OFFENDERS, offenders.size());
+    assertEquals("c" + (ExecutionTracker.MAX_OFFENDERS * 2 - 1),
+        offenders.getJsonObject(0).getString("command"));
+  }
+
+  @Test
+  public void test_lag() {
+    tracker.lag(TimeUnit.MILLISECONDS.toNanos(10));
+    tracker.lag(-1);
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(10), tracker.maxLag());
+
+    // the lag is attributed to the latest stall of the event loop
+    execute("deploy", 300);
+    tracker.lag(TimeUnit.MILLISECONDS.toNanos(250));
+    final JsonObject loop = tracker.report().getJsonArray("eventLoops").getJsonObject(0);
+    assertEquals(Thread.currentThread().getName(), loop.getString("thread"));
+    assertEquals(250d, loop.getDouble("maxLag"), 0d);
+    assertEquals(1L, loop.getLong("stalls").longValue());
+    assertEquals("deploy", loop.getString("lastOffender"));
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(250), tracker.maxLag());
+  }
+
+  @Test
+  public void test_rollingWindows() {
+    execute("deploy", 100);
+    assertEquals(1, tracker.stalls());
+
+    // the previous window is still reported
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+    execute("deploy", 100);
+    assertEquals(2, tracker.stalls());
+    assertEquals(2L, tracker.report().getJsonArray("offenders").getJsonObject(0)
+        .getLong("stalls").longValue());
+
+    // but not the expired ones
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+    assertEquals(1, tracker.stalls());
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(2000));
+    assertEquals(0, tracker.stalls());
+    assertEquals(0, tracker.maxLag());
+  }
+
+  @Test
+  public void test_runningStalls() throws Exception {
+    final CountDownLatch entered = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final Thread thread = new Thread(() -> {
+      final long start = tracker.enter("deploy", REQUEST);
+      entered.countDown();
+      try {
+        release.await();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      tracker.exit(start);
+    }, "stalled-thread");
+    thread.start();
+    assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+    assertTrue(tracker.report().getJsonArray("running").isEmpty());
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(75));
+    final JsonArray running = tracker.report().getJsonArray("running");
+    assertEquals(1, running.size());
+    assertEquals("stalled-thread", running.getJsonObject(0).getString("thread"));
+    assertEquals("deploy", running.getJsonObject(0).getString("command"));
+    assertEquals(75d, running.getJsonObject(0).getDouble("elapsed"), 0d);
+
+    release.countDown();
+    thread.join(5000);
+    assertTrue(tracker.report().getJsonArray("running").isEmpty());
+    assertEquals(1, tracker.stalls());
+  }
+
+  // executes the given command for the given time
+  private void execute(final String command, final long millis) {
+    final long start = tracker.enter(command, REQUEST);
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    tracker.exit(start);
+  }
+}
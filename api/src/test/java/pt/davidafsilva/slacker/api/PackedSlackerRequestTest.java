@@ -0,0 +1,181 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+import io.vertx.core.buffer.Buffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link PackedSlackerRequest}.
+ *
+ * @author david
+ */
+public class PackedSlackerRequestTest {
+
+  // the test timestamp
+  private static final Instant TIMESTAMP = Instant.ofEpochSecond(1355517523, 5000);
+
+  @Test
+  public void test_pack() {
+    final SlackerRequest request = request("arg1 --dry-run", "https://hooks.slack.com/x");
+    final PackedSlackerRequest packed = PackedSlackerRequest.pack(request);
+    assertRequest(request, packed);
+    assertEquals("arg1", packed.getParsedArguments().get(0).get());
+    assertTrue(packed.getParsedArguments().hasFlag("dry-run"));
+  }
+
+  @Test
+  public void test_pack_absentFields() {
+    final SlackerRequest request = request(null, null);
+    final PackedSlackerRequest packed = PackedSlackerRequest.pack(request);
+    assertRequest(request, packed);
+    assertFalse(packed.getArguments().isPresent());
+    assertFalse(packed.getResponseUrl().isPresent());
+  }
+
+  @Test
+  public void test_pack_unicode() {
+    final SlackerRequest request = request("ação € 😀", null);
+    assertRequest(request, PackedSlackerRequest.pack(request));
+  }
+
+  @Test
+  public void test_pack_packed() {
+    final PackedSlackerRequest packed = PackedSlackerRequest.pack(request("a", null));
+    assertSame(packed, PackedSlackerRequest.pack(packed));
+  }
+
+  @Test
+  public void test_internedIdentifiers() {
+    final PackedSlackerRequest packed = PackedSlackerRequest.pack(request("a", null));
+    assertSame(packed.getTeamIdentifier(), packed.getTeamIdentifier());
+    assertSame(packed.getChannelId(), packed.getChannelId());
+    assertSame(packed.getUserId(), packed.getUserId());
+    assertSame(packed.getCommand(),
+        PackedSlackerRequest.pack(request(null, null)).getCommand());
+  }
+
+  @Test
+  public void test_wrap_offset() {
+    final SlackerRequest request = request("a b", "https://hooks.slack.com/x");
+    final Buffer encoded = encode(request);
+    final byte[] bytes = Buffer.buffer().appendInt(42).appendBuffer(encoded)
+        .appendString("trailing").getBytes();
+    final PackedSlackerRequest packed = PackedSlackerRequest.wrap(bytes, 4, bytes.length);
+    assertRequest(request, packed);
+    assertEquals(encoded.length(), packed.length());
+  }
+
+  @Test
+  public void test_writeTo() {
+    final SlackerRequest request = request("a b", "https://hooks.slack.com/x");
+    final Buffer buffer = Buffer.buffer();
+    PackedSlackerRequest.pack(request).writeTo(buffer);
+    assertArrayEquals(encode(request).getBytes(), buffer.getBytes());
+  }
+
+  @Test
+  public void test_codec() {
+    final SlackerRequestMessageCodec codec = new SlackerRequestMessageCodec();
+    final SlackerRequest request = request("a b", "https://hooks.slack.com/x");
+    final SlackerRequest decoded = codec.decodeFromWire(0, encode(request));
+    assertTrue(decoded instanceof PackedSlackerRequest);
+    assertRequest(request, decoded);
+
+    // the packed requests are encoded as they are
+    final Buffer buffer = Buffer.buffer();
+    codec.encodeToWire(buffer, decoded);
+    assertArrayEquals(encode(request).getBytes(), buffer.getBytes());
+  }
+
+  @Test
+  public void test_wrap_malformed() {
+    final byte[] bytes = encode(request("a b", "https://hooks.slack.com/x")).getBytes();
+    // unknown format
+    final byte[] unknown = bytes.clone();
+    unknown[0] = 1;
+    assertMalformed(unknown, unknown.length);
+    // truncated at every possible length
+    for (int limit = 0; limit < bytes.length; limit++) {
+      assertMalformed(bytes, limit);
+    }
+  }
+
+  private static void assertMalformed(final byte[] bytes, final int limit) {
+    try {
+      PackedSlackerRequest.wrap(bytes, 0, limit);
+    } catch (final IllegalStateException e) {
+      return;
+    }
+    throw new AssertionError("wrapped malformed request: " +
+        Arrays.toString(Arrays.copyOf(bytes, limit)));
+  }
+
+  private static Buffer encode(final SlackerRequest request) {
+    final Buffer buffer = Buffer.buffer();
+    SlackerRequestMessageCodec.encode(buffer, request);
+    return buffer;
+  }
+
+  private static SlackerRequest request(final String args, final String responseUrl) {
+    return new SlackerRequestBuilder()
+        .timestamp(TIMESTAMP)
+        .channelId("C2147483705")
+        .channelName("general")
+        .userId("U2147483697")
+        .userName("david")
+        .teamDomain("davidafsilva")
+        .teamIdentifier("T0001")
+        .command("deploy")
+        .args(args)
+        .responseUrl(responseUrl)
+        .build();
+  }
+
+  private static void assertRequest(final SlackerRequest request, final SlackerRequest packed) {
+    assertEquals(request.getTimestamp(), packed.getTimestamp());
+    assertEquals(request.getTeamIdentifier(), packed.getTeamIdentifier());
+    assertEquals(request.getTeamDomain(), packed.getTeamDomain());
+    assertEquals(request.getChannelId(), packed.getChannelId());
+    assertEquals(request.getChannelName(), packed.getChannelName());
+    assertEquals(request.getUserId(), packed.getUserId());
+    assertEquals(request.getUserName(), packed.getUserName());
+    assertEquals(request.getCommand(), packed.getCommand());
+    assertEquals(request.getArguments(), packed.getArguments());
+    assertEquals(request.getResponseUrl(), packed.getResponseUrl());
+  }
+}
@@ -57,5 +57,7 @@ public class ResultCodeTest {
     assertEquals(ResultCode.OK.getHttpStatus(), HttpResponseStatus.OK);
     assertEquals(ResultCode.INVALID.getHttpStatus(), HttpResponseStatus.BAD_REQUEST);
     assertEquals(ResultCode.ERROR.getHttpStatus(), HttpResponseStatus.INTERNAL_SERVER_ERROR);
+    assertEquals(ResultCode.BUSY.getHttpStatus(), HttpResponseStatus.SERVICE_UNAVAILABLE);
+    assertEquals(ResultCode.THROTTLED.getHttpStatus(), HttpResponseStatus.TOO_MANY_REQUESTS);
   }
 }
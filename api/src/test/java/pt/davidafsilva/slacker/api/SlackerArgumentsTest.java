@@ -0,0 +1,143 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link SlackerArguments}.
+ *
+ * @author david
+ */
+public class SlackerArgumentsTest {
+
+  @Test
+  public void test_empty() {
+    assertSame(SlackerArguments.empty(), SlackerArguments.parse(null));
+    assertSame(SlackerArguments.empty(), SlackerArguments.parse(""));
+    assertTrue(SlackerArguments.parse(" \t\n ").isEmpty());
+    assertEquals(Optional.empty(), SlackerArguments.empty().get(0));
+    assertEquals(Optional.empty(), SlackerArguments.empty().getFlag("x"));
+  }
+
+  @Test
+  public void test_whitespace() {
+    assertArguments(SlackerArguments.parse("  a \t b\nc  "), flags(), "a", "b", "c");
+  }
+
+  @Test
+  public void test_quotes() {
+    assertArguments(SlackerArguments.parse("\"a b\" 'c d' e\"f g\"h \"\" ''"), flags(),
+        "a b", "c d", "ef gh", "", "");
+  }
+
+  @Test
+  public void test_escapes() {
+    assertArguments(SlackerArguments.parse("a\\ b \\\"c \"d\\\"e\\\\\" 'f\\g' h\\"), flags(),
+        "a b", "\"c", "d\"e\\", "f\\g", "h\\");
+  }
+
+  @Test
+  public void test_unterminatedQuote() {
+    assertArguments(SlackerArguments.parse("a \"b c"), flags(), "a", "b c");
+  }
+
+  @Test
+  public void test_flags() {
+    final SlackerArguments args = SlackerArguments.parse(
+        "--city=Lisboa now --verbose --name=\"David Silva\" --eq=a=b --empty=");
+    assertArguments(args, flags("city", "Lisboa", "verbose", "", "name", "David Silva",
+        "eq", "a=b", "empty", ""), "now");
+    assertEquals(Optional.of("now"), args.get(0));
+    assertEquals(Optional.empty(), args.get(1));
+    assertEquals(Optional.empty(), args.get(-1));
+    assertEquals(Optional.of("Lisboa"), args.getFlag("city"));
+    assertEquals(Optional.of(""), args.getFlag("verbose"));
+    assertEquals(Optional.empty(), args.getFlag("other"));
+    assertTrue(args.hasFlag("verbose"));
+    assertFalse(args.hasFlag("other"));
+  }
+
+  @Test
+  public void test_repeatedFlags() {
+    assertArguments(SlackerArguments.parse("--a=1 --a=2"), flags("a", "2"));
+  }
+
+  @Test
+  public void test_notFlags() {
+    assertArguments(SlackerArguments.parse("-a \"--b\" \\--c --=d x--e"), flags(),
+        "-a", "--b", "--c", "--=d", "x--e");
+  }
+
+  @Test
+  public void test_endOfFlags() {
+    assertArguments(SlackerArguments.parse("--a=1 -- --b=2 --"), flags("a", "1"), "--b=2",
+        "--");
+  }
+
+  @Test
+  public void test_unicode() {
+    assertArguments(SlackerArguments.parse("«olá» --ñ=\"é ü\" 😀"),
+        flags("ñ", "é ü"), "«olá»", "😀");
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void test_unmodifiable() {
+    SlackerArguments.parse("a").getPositional().add("b");
+  }
+
+  // asserts the positional arguments and flags of the given arguments
+  private static void assertArguments(final SlackerArguments arguments,
+      final Map<String, String> flags, final String... positional) {
+    assertEquals(Arrays.asList(positional), arguments.getPositional());
+    assertEquals(flags, arguments.getFlags());
+    assertEquals(flags.keySet().toString(), arguments.getFlags().keySet().toString());
+  }
+
+  // creates the map of flags from the given names and values
+  private static Map<String, String> flags(final String... namesAndValues) {
+    if (namesAndValues.length == 0) {
+      return Collections.emptyMap();
+    }
+    final Map<String, String> flags = new LinkedHashMap<>();
+    for (int i = 0; i < namesAndValues.length; i += 2) {
+      flags.put(namesAndValues[i], namesAndValues[i + 1]);
+    }
+    return flags;
+  }
+}
@@ -118,6 +118,21 @@ public class SlackerBaseTest {
     return execSync(vertx::deployVerticle, verticle, options);
   }
 
+  /**
+   * Deploys the verticle with the given name and deployment options in a synchronous fashion.
+   *
+   * @param name    the name of the verticle to be deployed
+   * @param options the options for the deployment of the verticle
+   * @return the result of the deployment
+   * @see #deployVerticle(Verticle, DeploymentOptions)
+   */
+  protected AsyncResult<String> deployVerticle(final String name,
+      final DeploymentOptions options) {
+    final TriConsumer<String, DeploymentOptions, Handler<AsyncResult<String>>> f =
+        vertx::deployVerticle;
+    return execSync(f, name, options);
+  }
+
   /**
    * Executes a void asynchronous procedure with no arguments in a synchronous fashion.
    *
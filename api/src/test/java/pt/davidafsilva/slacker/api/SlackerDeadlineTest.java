@@ -0,0 +1,85 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.eventbus.DeliveryOptions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link SlackerDeadline} utility.
+ *
+ * @author david
+ */
+public class SlackerDeadlineTest {
+
+  @Test
+  public void test_apply() {
+    final long deadline = System.currentTimeMillis() + 1000;
+    final DeliveryOptions options = SlackerDeadline.apply(new DeliveryOptions(), deadline);
+    assertEquals(String.valueOf(deadline), options.getHeaders().get(SlackerDeadline.HEADER));
+    assertTrue(options.getSendTimeout() > 0 && options.getSendTimeout() <= 1000);
+  }
+
+  @Test
+  public void test_apply_exceeded() {
+    final DeliveryOptions options = SlackerDeadline.apply(new DeliveryOptions(),
+        System.currentTimeMillis() - 1000);
+    assertEquals(1, options.getSendTimeout());
+  }
+
+  @Test
+  public void test_of() {
+    assertEquals(Optional.of(123L), SlackerDeadline.of(MultiMap.caseInsensitiveMultiMap()
+        .add(SlackerDeadline.HEADER, "123")));
+  }
+
+  @Test
+  public void test_of_absent() {
+    assertEquals(Optional.empty(), SlackerDeadline.of(MultiMap.caseInsensitiveMultiMap()));
+  }
+
+  @Test
+  public void test_of_invalid() {
+    assertEquals(Optional.empty(), SlackerDeadline.of(MultiMap.caseInsensitiveMultiMap()
+        .add(SlackerDeadline.HEADER, "xpto")));
+  }
+
+  @Test
+  public void test_remaining() {
+    final Duration remaining = SlackerDeadline.remaining(System.currentTimeMillis() + 1000);
+    assertTrue(!remaining.isNegative() && remaining.toMillis() <= 1000);
+    assertTrue(SlackerDeadline.remaining(System.currentTimeMillis() - 1000).isNegative());
+  }
+}
@@ -35,6 +35,7 @@ import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * Unit tests for the {@link SlackerRequestBuilder}.
@@ -193,6 +194,23 @@ public class SlackerRequestBuilderTest {
     testWithArgs(Optional.empty());
   }
 
+  @Test
+  public void test_success_responseUrl() {
+    final SlackerRequest request = new SlackerRequestBuilder()
+        .timestamp(Instant.now())
+        .channelId("12345")
+        .channelName("#dope")
+        .userId("6789")
+        .userName("david")
+        .teamDomain("slack.davidafsilva.pt")
+        .teamIdentifier("davidafsilva")
+        .command("test")
+        .responseUrl("https://hooks.slack.com/commands/1234/5678")
+        .build();
+    assertEquals(Optional.of("https://hooks.slack.com/commands/1234/5678"),
+        request.getResponseUrl());
+  }
+
   private void testWithArgs(final Optional<String> args) {
     final Instant now = Instant.now();
     final SlackerRequestBuilder builder = new SlackerRequestBuilder()
@@ -217,6 +235,9 @@ public class SlackerRequestBuilderTest {
     assertEquals("test", request.getCommand());
     assertEquals(args.filter(s -> !s.isEmpty()).isPresent(), request.getArguments().isPresent());
     request.getArguments().ifPresent(a -> assertEquals(args.get(), a));
+    assertEquals(request.getArguments().isPresent(), !request.getParsedArguments().isEmpty());
+    assertSame(request.getParsedArguments(), request.getParsedArguments());
+    assertEquals(Optional.empty(), request.getResponseUrl());
     assertNotNull(request.toString());
   }
 }
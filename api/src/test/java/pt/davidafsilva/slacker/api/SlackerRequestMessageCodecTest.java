@@ -28,12 +28,17 @@ package pt.davidafsilva.slacker.api;
 
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.Optional;
 
 import io.vertx.core.buffer.Buffer;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
 /**
@@ -72,11 +77,171 @@ public class SlackerRequestMessageCodecTest {
     encodeDecode(null);
   }
 
+  @Test
+  public void test_encodeDecode_responseUrl() {
+    encodeDecode("123 456", "https://hooks.slack.com/commands/1234/5678");
+  }
+
   private void encodeDecode(final String args) {
+    encodeDecode(args, null);
+  }
+
+  @Test
+  public void test_encodeDecode_unicode() {
+    final SlackerRequestMessageCodec codec = new SlackerRequestMessageCodec();
+    final SlackerRequest request = request(Instant.now(), "ação \uD83D\uDE80 日本語",
+        "https://hooks.slack.com/commands/ç");
+    final SlackerRequest decoded = codec.decodeFromWire(0, encode(codec, request));
+    assertRequest(request, decoded);
+  }
+
+  @Test
+  public void test_encodeDecode_defaultResponseUrl() {
+    final SlackerRequestMessageCodec codec = new SlackerRequestMessageCodec();
+    final SlackerRequest source = request(Instant.now(), "123 456", null);
+    // an implementation which predates the response url
+    final SlackerRequest request = new SlackerRequest() {
+      @Override
+      public Instant getTimestamp() {
+        return source.getTimestamp();
+      }
+
+      @Override
+      public String getTeamIdentifier() {
+        return source.getTeamIdentifier();
+      }
+
+      @Override
+      public String getTeamDomain() {
+        return source.getTeamDomain();
+      }
+
+      @Override
+      public String getChannelId() {
+        return source.getChannelId();
+      }
+
+      @Override
+      public String getChannelName() {
+        return source.getChannelName();
+      }
+
+      @Override
+      public String getUserId() {
+        return source.getUserId();
+      }
+
+      @Override
+      public String getUserName() {
+        return source.getUserName();
+      }
+
+      @Override
+      public String getCommand() {
+        return source.getCommand();
+      }
+
+      @Override
+      public Optional<String> getArguments() {
+        return source.getArguments();
+      }
+    };
+    assertFalse(request.getResponseUrl().isPresent());
+    assertRequest(source, codec.decodeFromWire(0, encode(codec, request)));
+  }
+
+  @Test
+  public void test_decode_offset() {
+    final SlackerRequestMessageCodec codec = new SlackerRequestMessageCodec();
+    final SlackerRequest request = request(Instant.now(), "123 456", null);
+    final Buffer buffer = Buffer.buffer().appendInt(42);
+    codec.encodeToWire(buffer, request);
+    assertRequest(request, codec.decodeFromWire(4, buffer.copy()));
+  }
+
+  @Test
+  public void test_decode_legacyFormat() {
+    final SlackerRequestMessageCodec codec = new SlackerRequestMessageCodec();
+    final SlackerRequest request = request(Instant.now(), "123 456", null);
+    assertRequest(request, codec.decodeFromWire(0, encodeLegacy(request)));
+  }
+
+  @Test
+  public void test_decode_legacyFormat_offset() {
     final SlackerRequestMessageCodec codec = new SlackerRequestMessageCodec();
-    final Instant now = Instant.now();
-    final SlackerRequest request = new SlackerRequestBuilder()
-        .timestamp(now)
+    final SlackerRequest request = request(Instant.now(), null, null);
+    final Buffer buffer = Buffer.buffer().appendInt(42).appendBuffer(encodeLegacy(request));
+    assertRequest(request, codec.decodeFromWire(4, buffer));
+  }
+
+  @Test
+  public void test_decode_legacyFormat_trailingResponseUrl() {
+    final SlackerRequestMessageCodec codec = new SlackerRequestMessageCodec();
+    final String url = "https://hooks.slack.com/commands/1234/5678";
+    final SlackerRequest request = request(Instant.now(), "123 456", url);
+    final Buffer buffer = encodeLegacy(request)
+        .appendInt(url.length()).appendString(url, StandardCharsets.UTF_8.name());
+    assertRequest(request, codec.decodeFromWire(0, buffer));
+
+    // an empty trailing response url is absent
+    final Buffer empty = encodeLegacy(request).appendInt(0);
+    assertFalse(codec.decodeFromWire(0, empty).getResponseUrl().isPresent());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void test_decode_unknownFormat() {
+    new SlackerRequestMessageCodec().decodeFromWire(0, Buffer.buffer().appendByte((byte) 0xB7));
+  }
+
+  @Test
+  public void test_encode_smallerThanLegacy() {
+    final SlackerRequestMessageCodec codec = new SlackerRequestMessageCodec();
+    final SlackerRequest request = request(Instant.now(), null, null);
+    final int size = encode(codec, request).length();
+    final int legacySize = encodeLegacy(request).length();
+    assertTrue(size + " vs " + legacySize, size <= legacySize * 0.75);
+  }
+
+  private void encodeDecode(final String args, final String responseUrl) {
+    final SlackerRequestMessageCodec codec = new SlackerRequestMessageCodec();
+    final Instant timestamp = Instant.ofEpochSecond(1445000000L, 123456789);
+    final SlackerRequest request = request(timestamp, args, responseUrl);
+
+    // encode
+    final Buffer buffer = encode(codec, request);
+    assertEquals(1 + 1 // format + presence
+            + 5 + 4 // timestamp
+            + 1 + 5 // channel id
+            + 1 + 5 // channel name
+            + 1 + 4 // user id
+            + 1 + 5 // user name
+            + 1 + 21 // team domain
+            + 1 + 12 // team id
+            + 1 + 4 // command
+            + (args == null || args.isEmpty() ? 0 : 1 + args.length()) // args
+            + (responseUrl == null ? 0 : 1 + responseUrl.length()) // response url
+        , buffer.length());
+
+    // decode
+    final SlackerRequest decoded = codec.decodeFromWire(0, buffer.copy());
+    assertEquals(timestamp, decoded.getTimestamp());
+    assertRequest(request, decoded);
+
+    // the identifiers are interned
+    final SlackerRequest again = codec.decodeFromWire(0, buffer.copy());
+    assertSame(decoded.getTeamIdentifier(), again.getTeamIdentifier());
+    assertSame(decoded.getTeamDomain(), again.getTeamDomain());
+    assertSame(decoded.getChannelId(), again.getChannelId());
+    assertSame(decoded.getChannelName(), again.getChannelName());
+    assertSame(decoded.getUserId(), again.getUserId());
+    assertSame(decoded.getUserName(), again.getUserName());
+    assertSame(decoded.getCommand(), again.getCommand());
+  }
+
+  private SlackerRequest request(final Instant timestamp, final String args,
+      final String responseUrl) {
+    return new SlackerRequestBuilder()
+        .timestamp(timestamp)
         .channelId("12345")
         .channelName("#dope")
         .userId("6789")
@@ -85,26 +250,33 @@ public class SlackerRequestMessageCodecTest {
         .teamIdentifier("davidafsilva")
         .command("test")
         .args(args)
+        .responseUrl(responseUrl)
         .build();
+  }
 
-    // encode
+  private Buffer encode(final SlackerRequestMessageCodec codec, final SlackerRequest request) {
     final Buffer buffer = Buffer.buffer();
     codec.encodeToWire(buffer, request);
-    assertEquals((8 + 4) // timestamp
-            + 4 + 5 // channel id
-            + 4 + 5 // channel name
-            + 4 + 4 // user id
-            + 4 + 5 // user name
-            + 4 + 21 // team domain
-            + 4 + 12 // team id
-            + 4 + 4 // command
-            + 4 + (args == null ? 0 : args.length()) // args
-        , buffer.length());
+    return buffer;
+  }
 
-    // decode
-    final SlackerRequest decoded = codec.decodeFromWire(0, buffer.copy());
+  // the former (fixed-length, single-byte characters only) encoding of the requests, as written
+  // by the baseline nodes: eight strings, without the response url
+  private Buffer encodeLegacy(final SlackerRequest request) {
+    final Buffer buffer = Buffer.buffer()
+        .appendLong(request.getTimestamp().getEpochSecond())
+        .appendInt(request.getTimestamp().getNano());
+    for (final String str : new String[]{request.getTeamIdentifier(), request.getTeamDomain(),
+        request.getChannelId(), request.getChannelName(), request.getUserId(),
+        request.getUserName(), request.getCommand(), request.getArguments().orElse("")}) {
+      buffer.appendInt(str.length()).appendString(str, StandardCharsets.UTF_8.name());
+    }
+    return buffer;
+  }
+
+  private void assertRequest(final SlackerRequest request, final SlackerRequest decoded) {
     assertNotNull(decoded);
-    assertEquals(now, decoded.getTimestamp());
+    assertEquals(request.getTimestamp(), decoded.getTimestamp());
     assertEquals(request.getChannelId(), decoded.getChannelId());
     assertEquals(request.getChannelName(), decoded.getChannelName());
     assertEquals(request.getUserId(), decoded.getUserId());
@@ -112,7 +284,7 @@ public class SlackerRequestMessageCodecTest {
     assertEquals(request.getTeamDomain(), decoded.getTeamDomain());
     assertEquals(request.getTeamIdentifier(), decoded.getTeamIdentifier());
     assertEquals(request.getCommand(), decoded.getCommand());
-    assertEquals(request.getArguments().isPresent(), decoded.getArguments().isPresent());
-    request.getArguments().ifPresent(a -> assertEquals(a, decoded.getArguments().get()));
+    assertEquals(request.getArguments(), decoded.getArguments());
+    assertEquals(request.getResponseUrl(), decoded.getResponseUrl());
   }
 }
@@ -0,0 +1,108 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Collections;
+import java.util.Optional;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Unit tests for the {@link SlackerResponseBuilder}.
+ *
+ * @author david
+ */
+public class SlackerResponseBuilderTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void test_invalidCode() {
+    thrown.expect(NullPointerException.class);
+    thrown.expectMessage("code");
+    new SlackerResponseBuilder().code(null).build();
+  }
+
+  @Test
+  public void test_invalidAttachment() {
+    thrown.expect(NullPointerException.class);
+    thrown.expectMessage("attachment");
+    new SlackerResponseBuilder().attachment(null);
+  }
+
+  @Test
+  public void test_defaults() {
+    final SlackerResponse response = new SlackerResponseBuilder()
+        .message("")
+        .payload(Buffer.buffer())
+        .build();
+    assertEquals(ResultCode.OK, response.getCode());
+    assertFalse(response.getResponse().isPresent());
+    assertFalse(response.getResponseType().isPresent());
+    assertEquals(Collections.emptyList(), response.getAttachments());
+    assertFalse(response.getPayload().isPresent());
+  }
+
+  @Test
+  public void test_build() {
+    final SlackerResponseBuilder builder = new SlackerResponseBuilder()
+        .code(ResultCode.INVALID)
+        .message("test")
+        .type(ResponseType.EPHEMERAL)
+        .attachment(new JsonObject().put("text", "a"))
+        .payload(Buffer.buffer("{}"));
+    final SlackerResponse response = builder.build();
+    // later changes to the builder do not leak into the built responses
+    builder.attachment(new JsonObject());
+
+    assertEquals(ResultCode.INVALID, response.getCode());
+    assertEquals(Optional.of("test"), response.getResponse());
+    assertEquals(Optional.of(ResponseType.EPHEMERAL), response.getResponseType());
+    assertEquals(Collections.singletonList(new JsonObject().put("text", "a")),
+        response.getAttachments());
+    assertEquals(Optional.of(Buffer.buffer("{}")), response.getPayload());
+  }
+
+  @Test
+  public void test_buildRendered() {
+    final SlackerResponse response = new SlackerResponseBuilder()
+        .message("test")
+        .buildRendered();
+    assertEquals(Optional.of("test"), response.getResponse());
+    assertEquals(Optional.of(Buffer.buffer("{\"text\":\"test\"}")), response.getPayload());
+    assertFalse(new SlackerResponseBuilder().buildRendered().getPayload().isPresent());
+  }
+}
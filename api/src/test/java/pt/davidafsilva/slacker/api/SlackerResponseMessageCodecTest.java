@@ -31,6 +31,7 @@ import org.junit.Test;
 import java.util.Optional;
 
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -68,8 +69,8 @@ public class SlackerResponseMessageCodecTest {
     // encode
     final Buffer buffer = Buffer.buffer();
     codec.encodeToWire(buffer, response);
-    // 2x integers
-    assertEquals(4 + 4, buffer.length());
+    // format + code + no sections
+    assertEquals(1 + 1 + 1, buffer.length());
 
     // decode
     final SlackerResponse decoded = codec.decodeFromWire(0, buffer.copy());
@@ -87,8 +88,8 @@ public class SlackerResponseMessageCodecTest {
     // encode
     final Buffer buffer = Buffer.buffer();
     codec.encodeToWire(buffer, response);
-    // 2x integers + "test"
-    assertEquals(4 + 4 + 4, buffer.length());
+    // format + code + 1 section (tag + length + "test")
+    assertEquals(1 + 1 + 1 + 1 + 1 + 4, buffer.length());
 
     // decode
     final SlackerResponse decoded = codec.decodeFromWire(0, buffer.copy());
@@ -97,4 +98,90 @@ public class SlackerResponseMessageCodecTest {
     assertTrue(decoded.getResponse().isPresent());
     assertEquals(response.getResponse().get(), decoded.getResponse().get());
   }
+
+  @Test
+  public void test_encodeDecode_unicode() {
+    final SlackerResponseMessageCodec codec = new SlackerResponseMessageCodec();
+    final SlackerResponse response = SlackerResponseFactory.create(ResultCode.OK,
+        Optional.of("olá \uD83D\uDE80 mundo"));
+    final SlackerResponse decoded = codec.decodeFromWire(0, encode(codec, response));
+    assertEquals(response.getResponse(), decoded.getResponse());
+  }
+
+  @Test
+  public void test_encodeDecode_allSections() {
+    final SlackerResponseMessageCodec codec = new SlackerResponseMessageCodec();
+    final SlackerResponse response = new SlackerResponseBuilder()
+        .code(ResultCode.INVALID)
+        .message("text")
+        .type(ResponseType.IN_CHANNEL)
+        .attachment(new JsonObject().put("title", "ação"))
+        .attachment(new JsonObject().put("text", "b"))
+        .payload(Buffer.buffer("{\"text\":\"pre-rendered\"}"))
+        .build();
+    final Buffer buffer = Buffer.buffer().appendInt(42);
+    codec.encodeToWire(buffer, response);
+
+    final SlackerResponse decoded = codec.decodeFromWire(4, buffer.copy());
+    assertEquals(ResultCode.INVALID, decoded.getCode());
+    assertEquals(Optional.of("text"), decoded.getResponse());
+    assertEquals(Optional.of(ResponseType.IN_CHANNEL), decoded.getResponseType());
+    assertEquals(response.getAttachments(), decoded.getAttachments());
+    assertTrue(decoded.getPayload().isPresent());
+    assertEquals(response.getPayload().get(), decoded.getPayload().get());
+  }
+
+  @Test
+  public void test_decode_unknownSections() {
+    final SlackerResponseMessageCodec codec = new SlackerResponseMessageCodec();
+    final Buffer buffer = Buffer.buffer()
+        .appendByte(SlackerResponseMessageCodec.FORMAT_V1)
+        .appendByte((byte) ResultCode.OK.ordinal())
+        .appendByte((byte) 3)
+        // unknown section
+        .appendByte((byte) 42).appendByte((byte) 3).appendString("xyz")
+        // unknown response type
+        .appendByte(SlackerResponseMessageCodec.TYPE_TAG).appendByte((byte) 1)
+        .appendByte((byte) 42)
+        // text
+        .appendByte(SlackerResponseMessageCodec.TEXT_TAG).appendByte((byte) 2)
+        .appendString("ok");
+
+    final SlackerResponse decoded = codec.decodeFromWire(0, buffer);
+    assertEquals(ResultCode.OK, decoded.getCode());
+    assertEquals(Optional.of("ok"), decoded.getResponse());
+    assertFalse(decoded.getResponseType().isPresent());
+  }
+
+  @Test
+  public void test_decode_unknownCode() {
+    final SlackerResponse decoded = new SlackerResponseMessageCodec().decodeFromWire(0,
+        Buffer.buffer()
+            .appendByte(SlackerResponseMessageCodec.FORMAT_V1)
+            .appendByte((byte) 42)
+            .appendByte((byte) 0));
+    assertEquals(ResultCode.ERROR, decoded.getCode());
+  }
+
+  @Test
+  public void test_decode_legacyFormat() {
+    final SlackerResponse decoded = new SlackerResponseMessageCodec().decodeFromWire(0,
+        Buffer.buffer()
+            .appendInt(ResultCode.BUSY.ordinal())
+            .appendInt(4)
+            .appendString("busy"));
+    assertEquals(ResultCode.BUSY, decoded.getCode());
+    assertEquals(Optional.of("busy"), decoded.getResponse());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void test_decode_unknownFormat() {
+    new SlackerResponseMessageCodec().decodeFromWire(0, Buffer.buffer().appendByte((byte) 0xB7));
+  }
+
+  private Buffer encode(final SlackerResponseMessageCodec codec, final SlackerResponse response) {
+    final Buffer buffer = Buffer.buffer();
+    codec.encodeToWire(buffer, response);
+    return buffer;
+  }
 }
@@ -0,0 +1,111 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Optional;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit tests for the {@link SlackerResponseRenderer}.
+ *
+ * @author david
+ */
+public class SlackerResponseRendererTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void test_constructor() throws Exception {
+    thrown.expect(InvocationTargetException.class);
+    Constructor<SlackerResponseRenderer> c = SlackerResponseRenderer.class
+        .getDeclaredConstructor();
+    c.setAccessible(true);
+    c.newInstance();
+  }
+
+  @Test
+  public void test_render_noText() {
+    assertEquals(0, SlackerResponseRenderer.render(Optional.empty()).length());
+    assertEquals(0, SlackerResponseRenderer.render(new SlackerResponseBuilder().build()).length());
+  }
+
+  @Test
+  public void test_render_text() {
+    assertText("");
+    assertText("simple text");
+    assertText("\"quoted\" \\back\\slashed/");
+    assertText("line\nfeed\ttab\rreturn\bback\fform \u0000\u0001\u001f\u007f");
+    assertText("ação, 日本語, 🚀");
+  }
+
+  @Test
+  public void test_render_unpairedSurrogates() {
+    assertEquals("{\"text\":\"a?b?\"}", SlackerResponseRenderer.render(
+        Optional.of("a\uD83Db\uDE80")).toString());
+  }
+
+  @Test
+  public void test_render_typeAndAttachments() {
+    final SlackerResponse response = new SlackerResponseBuilder()
+        .message("text")
+        .type(ResponseType.IN_CHANNEL)
+        .attachment(new JsonObject().put("title", "a"))
+        .build();
+    assertEquals(new JsonObject()
+            .put("text", "text")
+            .put("response_type", "in_channel")
+            .put("attachments", new JsonArray().add(new JsonObject().put("title", "a"))),
+        new JsonObject(SlackerResponseRenderer.render(response).toString()));
+  }
+
+  @Test
+  public void test_render_payload() {
+    final Buffer payload = Buffer.buffer("{\"text\":\"pre-rendered\"}");
+    assertSame(payload, SlackerResponseRenderer.render(new SlackerResponseBuilder()
+        .message("ignored")
+        .payload(payload)
+        .build()));
+  }
+
+  private void assertText(final String text) {
+    final Buffer expected = Buffer.buffer(new JsonObject().put("text", text).encode());
+    assertEquals(expected, SlackerResponseRenderer.render(Optional.of(text)));
+  }
+}
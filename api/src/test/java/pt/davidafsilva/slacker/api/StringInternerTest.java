@@ -0,0 +1,140 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link StringInterner}.
+ *
+ * @author david
+ */
+public class StringInternerTest {
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_invalidCapacity() {
+    new StringInterner(0);
+  }
+
+  @Test
+  public void test_shared() {
+    assertSame(StringInterner.shared(), StringInterner.shared());
+  }
+
+  @Test
+  public void test_canonicalInstances() {
+    final StringInterner interner = new StringInterner(16);
+    final String first = intern(interner, "U2147483697");
+    assertEquals("U2147483697", first);
+    assertSame(first, intern(interner, "U2147483697"));
+    assertEquals(1, interner.size());
+
+    // the value is matched within a larger array
+    final byte[] bytes = "xxU2147483697xx".getBytes(StandardCharsets.US_ASCII);
+    assertSame(first, interner.intern(bytes, 2, 11));
+    assertEquals("U214", interner.intern(bytes, 2, 4));
+  }
+
+  @Test
+  public void test_emptyValue() {
+    assertEquals("", new StringInterner(16).intern(new byte[0], 0, 0));
+  }
+
+  @Test
+  public void test_nonCachedValues() {
+    final StringInterner interner = new StringInterner(16);
+    final String unicode = "Ação €";
+    assertEquals(unicode, intern(interner, unicode));
+    assertNotSame(intern(interner, unicode), intern(interner, unicode));
+
+    final StringBuilder longValue = new StringBuilder();
+    while (longValue.length() <= StringInterner.MAX_LENGTH) {
+      longValue.append("abc");
+    }
+    assertEquals(longValue.toString(), intern(interner, longValue.toString()));
+    assertNotSame(intern(interner, longValue.toString()),
+        intern(interner, longValue.toString()));
+    assertEquals(0, interner.size());
+  }
+
+  @Test
+  public void test_bounded() {
+    final StringInterner interner = new StringInterner(64);
+    for (int i = 0; i < 10_000; i++) {
+      final String value = "C" + i;
+      assertEquals(value, intern(interner, value));
+      assertEquals(value, intern(interner, value));
+    }
+    assertTrue(interner.size() <= 64);
+  }
+
+  @Test
+  public void test_concurrent() throws Exception {
+    final StringInterner interner = new StringInterner(256);
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Future<Boolean>> results = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      results.add(executor.submit(() -> {
+        start.await();
+        for (int i = 0; i < 100_000; i++) {
+          final String value = "T" + (i % 1000);
+          if (!value.equals(intern(interner, value))) {
+            return false;
+          }
+        }
+        return true;
+      }));
+    }
+    start.countDown();
+    for (final Future<Boolean> result : results) {
+      assertTrue(result.get(30, TimeUnit.SECONDS));
+    }
+    executor.shutdown();
+    assertTrue(interner.size() <= 256);
+  }
+
+  // interns the given value
+  private static String intern(final StringInterner interner, final String value) {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    return interner.intern(bytes, 0, bytes.length);
+  }
+}
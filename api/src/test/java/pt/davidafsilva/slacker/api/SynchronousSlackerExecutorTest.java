@@ -0,0 +1,234 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-api
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link SynchronousSlackerExecutor}.
+ *
+ * @author david
+ */
+@RunWith(VertxUnitRunner.class)
+public class SynchronousSlackerExecutorTest extends SlackerBaseTest {
+
+  // the request used for the test execution
+  private static final SlackerRequest REQUEST = new SlackerRequestBuilder()
+      .timestamp(Instant.now())
+      .channelId("12345")
+      .channelName("#dope")
+      .userId("6789")
+      .userName("david")
+      .teamDomain("slack.davidafsilva.pt")
+      .teamIdentifier("davidafsilva")
+      .command("test")
+      .args("123 456")
+      .build();
+
+  @Override
+  public void setup() throws Exception {
+    super.setup();
+
+    // the registration endpoint of the slacker-server
+    vertx.eventBus().consumer("reg.slacker-server",
+        r -> r.reply(new JsonObject().put("a", "amazing-address")));
+  }
+
+  @Test
+  public void test_threadPerTaskExecutor() throws InterruptedException {
+    final ExecutorService executor = SynchronousSlackerExecutor.newThreadPerTaskExecutor("test");
+    final CountDownLatch latch = new CountDownLatch(2);
+    executor.execute(latch::countDown);
+    executor.execute(latch::countDown);
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    executor.shutdown();
+  }
+
+  @Test
+  public void test_handle() {
+    final AtomicReference<Boolean> eventLoop = new AtomicReference<>();
+    assertTrue(deployVerticle(new TestSlackerExecutor(Integer.MAX_VALUE) {
+      @Override
+      protected SlackerResponse handle(final SlackerRequest request) throws Exception {
+        eventLoop.set(Context.isOnEventLoopThread());
+        Thread.sleep(10);
+        return success(request.getArguments().get());
+      }
+    }).succeeded());
+
+    final AsyncResult<Message<Object>> reply = sendRequest("amazing-address", REQUEST);
+    assertTrue(reply.succeeded());
+    final SlackerResponse response = (SlackerResponse) reply.result().body();
+    assertEquals(ResultCode.OK, response.getCode());
+    assertEquals("123 456", response.getResponse().get());
+    assertFalse(eventLoop.get());
+  }
+
+  @Test
+  public void test_handle_poolMode_completedOnContext() {
+    final SynchronousSlackerExecutor executor = new TestSlackerExecutor(Integer.MAX_VALUE) {
+      @Override
+      public ExecutionMode executionMode() {
+        return ExecutionMode.pool("blocking", 2, 10);
+      }
+
+      @Override
+      protected SlackerResponse handle(final SlackerRequest request) throws Exception {
+        return success(request.getArguments().get());
+      }
+    };
+    assertTrue(deployVerticle(executor).succeeded());
+
+    // executed off any vertx context, as by the pool threads
+    final AtomicReference<String> thread = new AtomicReference<>();
+    wrapExec(latch -> {
+      final Future<SlackerResponse> future = Future.future();
+      future.setHandler(r -> {
+        assertTrue(r.succeeded());
+        thread.set(Thread.currentThread().getName());
+        latch.countDown();
+      });
+      executor.execute(REQUEST, future);
+    });
+    assertTrue(thread.get(), thread.get().startsWith("vert.x-eventloop-thread"));
+  }
+
+  @Test
+  public void test_handle_failure() {
+    assertTrue(deployVerticle(new TestSlackerExecutor(Integer.MAX_VALUE) {
+      @Override
+      protected SlackerResponse handle(final SlackerRequest request) throws Exception {
+        throw new IllegalStateException("oops");
+      }
+    }).succeeded());
+
+    final AsyncResult<Message<Object>> reply = sendRequest("amazing-address", REQUEST);
+    assertTrue(reply.failed());
+    assertEquals("oops", reply.cause().getMessage());
+  }
+
+  @Test
+  public void test_handle_error() {
+    assertTrue(deployVerticle(new TestSlackerExecutor(Integer.MAX_VALUE) {
+      @Override
+      protected SlackerResponse handle(final SlackerRequest request) throws Exception {
+        throw new AssertionError("oops");
+      }
+    }).succeeded());
+
+    final AsyncResult<Message<Object>> reply = sendRequest("amazing-address", REQUEST);
+    assertTrue(reply.failed());
+    assertEquals("oops", reply.cause().getMessage());
+  }
+
+  @Test
+  public void test_handle_maxConcurrency() throws InterruptedException {
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    assertTrue(deployVerticle(new TestSlackerExecutor(1) {
+      @Override
+      protected SlackerResponse handle(final SlackerRequest request) throws Exception {
+        blocked.countDown();
+        release.await();
+        return success();
+      }
+    }).succeeded());
+
+    // the first request is being handled, hence the following one is rejected
+    final CountDownLatch first = new CountDownLatch(1);
+    vertx.eventBus().send("amazing-address", REQUEST,
+        new DeliveryOptions().setCodecName(SlackerRequestMessageCodec.NAME), r -> {
+          assertTrue(r.succeeded());
+          first.countDown();
+        });
+    assertTrue(blocked.await(5, TimeUnit.SECONDS));
+    final AsyncResult<Message<Object>> reply = sendRequest("amazing-address", REQUEST);
+    assertTrue(reply.succeeded());
+    assertEquals(ResultCode.BUSY, ((SlackerResponse) reply.result().body()).getCode());
+
+    // and accepted again once the first completes
+    release.countDown();
+    assertTrue(first.await(5, TimeUnit.SECONDS));
+    assertTrue(sendRequest("amazing-address", REQUEST).succeeded());
+  }
+
+  // the base test synchronous executor
+  private abstract static class TestSlackerExecutor extends SynchronousSlackerExecutor {
+
+    // the maximum number of concurrent requests
+    private final int maxConcurrency;
+
+    /**
+     * Constructs the executor with the given concurrency cap
+     *
+     * @param maxConcurrency the maximum number of concurrent requests
+     */
+    private TestSlackerExecutor(final int maxConcurrency) {
+      this.maxConcurrency = maxConcurrency;
+    }
+
+    @Override
+    protected int maxConcurrency() {
+      return maxConcurrency;
+    }
+
+    @Override
+    public String identifier() {
+      return "test";
+    }
+
+    @Override
+    public String description() {
+      return "some dummy description";
+    }
+
+    @Override
+    public String version() {
+      return "1.0.0";
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-benchmark
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Compares the {@link SlackerRequestMessageCodec} against the former, fixed-length, request
+ * encoding, for both ASCII and non-ASCII requests.
+ *
+ * @author david
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestCodecBenchmark {
+
+  // whether or not the request has non-ASCII content
+  @Param({"false", "true"})
+  boolean unicode;
+
+  // the codec under test
+  final SlackerRequestMessageCodec codec = new SlackerRequestMessageCodec();
+
+  // the request to encode
+  SlackerRequest request;
+
+  // the encoded request, with both formats
+  Buffer encoded;
+  Buffer legacyEncoded;
+
+  @Setup
+  public void setup() {
+    request = new SlackerRequestBuilder()
+        .timestamp(Instant.now())
+        .teamIdentifier("T0001")
+        .teamDomain("example")
+        .channelId("C2147483705")
+        .channelName(unicode ? "ação" : "acao")
+        .userId("U2147483697")
+        .userName(unicode ? "José" : "Jose")
+        .command("weather")
+        .args("94070")
+        .responseUrl("https://hooks.slack.com/commands/1234/5678")
+        .build();
+    encoded = Buffer.buffer();
+    codec.encodeToWire(encoded, request);
+    legacyEncoded = Buffer.buffer();
+    Legacy.encode(legacyEncoded, request);
+  }
+
+  @Benchmark
+  public Buffer encode() {
+    final Buffer buffer = Buffer.buffer(128);
+    codec.encodeToWire(buffer, request);
+    return buffer;
+  }
+
+  @Benchmark
+  public Buffer encodeLegacy() {
+    final Buffer buffer = Buffer.buffer(128);
+    Legacy.encode(buffer, request);
+    return buffer;
+  }
+
+  @Benchmark
+  public void decode(final Blackhole blackhole) {
+    consume(codec.decodeFromWire(0, encoded), blackhole);
+  }
+
+  @Benchmark
+  public void decodeLegacy(final Blackhole blackhole) {
+    consume(Legacy.decode(legacyEncoded), blackhole);
+  }
+
+  /**
+   * Reads every field of the given decoded request, so that both formats are measured for the
+   * same work regardless of how lazily their fields are decoded
+   *
+   * @param request   the decoded request
+   * @param blackhole the blackhole consuming the fields
+   */
+  private static void consume(final SlackerRequest request, final Blackhole blackhole) {
+    blackhole.consume(request.getTimestamp());
+    blackhole.consume(request.getTeamIdentifier());
+    blackhole.consume(request.getTeamDomain());
+    blackhole.consume(request.getChannelId());
+    blackhole.consume(request.getChannelName());
+    blackhole.consume(request.getUserId());
+    blackhole.consume(request.getUserName());
+    blackhole.consume(request.getCommand());
+    blackhole.consume(request.getArguments());
+    blackhole.consume(request.getResponseUrl());
+  }
+
+  // the former request encoding: fixed-length timestamp and string prefixes (the latter counting
+  // bytes rather than characters, so that the non-ASCII requests still round-trip)
+  private static final class Legacy {
+
+    private static void encode(final Buffer buffer, final SlackerRequest request) {
+      buffer.appendLong(request.getTimestamp().getEpochSecond())
+          .appendInt(request.getTimestamp().getNano());
+      writeString(buffer, request.getTeamIdentifier());
+      writeString(buffer, request.getTeamDomain());
+      writeString(buffer, request.getChannelId());
+      writeString(buffer, request.getChannelName());
+      writeString(buffer, request.getUserId());
+      writeString(buffer, request.getUserName());
+      writeString(buffer, request.getCommand());
+      writeString(buffer, request.getArguments().orElse(""));
+      writeString(buffer, request.getResponseUrl().orElse(""));
+    }
+
+    private static SlackerRequest decode(final Buffer buffer) {
+      final SlackerRequestBuilder builder = new SlackerRequestBuilder();
+      builder.timestamp(Instant.ofEpochSecond(buffer.getLong(0), buffer.getInt(8)));
+      int offset = 12;
+      offset = readString(buffer, offset, builder::teamIdentifier);
+      offset = readString(buffer, offset, builder::teamDomain);
+      offset = readString(buffer, offset, builder::channelId);
+      offset = readString(buffer, offset, builder::channelName);
+      offset = readString(buffer, offset, builder::userId);
+      offset = readString(buffer, offset, builder::userName);
+      offset = readString(buffer, offset, builder::command);
+      offset = readString(buffer, offset, builder::args);
+      readString(buffer, offset, builder::responseUrl);
+      return builder.build();
+    }
+
+    private static void writeString(final Buffer buffer, final String str) {
+      final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+      buffer.appendInt(bytes.length).appendBytes(bytes);
+    }
+
+    private static int readString(final Buffer buffer, final int offset,
+        final Consumer<String> consumer) {
+      final int length = buffer.getInt(offset);
+      final int end = offset + 4 + length;
+      consumer.accept(length == 0 ? "" : buffer.getString(offset + 4, end));
+      return end;
+    }
+  }
+}
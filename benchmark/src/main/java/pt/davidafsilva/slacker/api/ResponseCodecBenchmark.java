@@ -0,0 +1,132 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-benchmark
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Compares the {@link SlackerResponseMessageCodec} against the former, fixed-length, response
+ * encoding, for responses of several lengths.
+ *
+ * @author david
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseCodecBenchmark {
+
+  // the length of the response text
+  @Param({"0", "32", "1024"})
+  int length;
+
+  // the codec under test
+  final SlackerResponseMessageCodec codec = new SlackerResponseMessageCodec();
+
+  // the response to encode
+  SlackerResponse response;
+
+  // the encoded response, with both formats
+  Buffer encoded;
+  Buffer legacyEncoded;
+
+  @Setup
+  public void setup() {
+    final StringBuilder text = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      text.append((char) ('a' + i % 26));
+    }
+    response = SlackerResponseFactory.create(ResultCode.OK,
+        Optional.of(text.toString()).filter(t -> !t.isEmpty()));
+    encoded = Buffer.buffer();
+    codec.encodeToWire(encoded, response);
+    legacyEncoded = Buffer.buffer();
+    Legacy.encode(legacyEncoded, response);
+  }
+
+  @Benchmark
+  public Buffer encode() {
+    final Buffer buffer = Buffer.buffer(length + 16);
+    codec.encodeToWire(buffer, response);
+    return buffer;
+  }
+
+  @Benchmark
+  public Buffer encodeLegacy() {
+    final Buffer buffer = Buffer.buffer(length + 16);
+    Legacy.encode(buffer, response);
+    return buffer;
+  }
+
+  @Benchmark
+  public SlackerResponse decode() {
+    return codec.decodeFromWire(0, encoded);
+  }
+
+  @Benchmark
+  public SlackerResponse decodeLegacy() {
+    return Legacy.decode(legacyEncoded);
+  }
+
+  // the former response encoding: fixed-length result code and text prefix (the latter counting
+  // bytes rather than characters, so that the non-ASCII responses still round-trip)
+  private static final class Legacy {
+
+    private static void encode(final Buffer buffer, final SlackerResponse response) {
+      final byte[] text = response.getResponse().map(t -> t.getBytes(StandardCharsets.UTF_8))
+          .orElse(new byte[0]);
+      buffer.appendInt(response.getCode().ordinal())
+          .appendInt(text.length)
+          .appendBytes(text);
+    }
+
+    private static SlackerResponse decode(final Buffer buffer) {
+      final ResultCode code = ResultCode.values()[buffer.getInt(0)];
+      final int length = buffer.getInt(4);
+      return SlackerResponseFactory.create(code, length > 0 ?
+          Optional.of(buffer.getString(8, 8 + length)) : Optional.empty());
+    }
+  }
+}
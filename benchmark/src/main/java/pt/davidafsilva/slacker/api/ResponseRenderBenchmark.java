@@ -0,0 +1,99 @@
+package pt.davidafsilva.slacker.api;
+
+/*
+ * #%L
+ * slacker-benchmark
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Measures the rendering cost of the responses at the ingress: the former rendering through a
+ * JSON object, the streaming rendering of the {@link SlackerResponseRenderer} and the pre-rendered
+ * (constant) responses.
+ *
+ * @author david
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseRenderBenchmark {
+
+  // the length of the response text
+  @Param({"32", "1024"})
+  int length;
+
+  // whether or not the response text has characters to escape and non-ASCII characters
+  @Param({"false", "true"})
+  boolean escaped;
+
+  // the plain text response
+  SlackerResponse response;
+
+  // the pre-rendered response
+  SlackerResponse rendered;
+
+  @Setup
+  public void setup() {
+    final StringBuilder text = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      text.append(escaped && i % 16 == 0 ? (i % 32 == 0 ? '\n' : 'ç') : (char) ('a' + i % 26));
+    }
+    response = new SlackerResponseBuilder().message(text.toString()).build();
+    rendered = new SlackerResponseBuilder().message(text.toString()).buildRendered();
+  }
+
+  @Benchmark
+  public Buffer jsonObject() {
+    return Buffer.buffer(new JsonObject().put("text", response.getResponse().get()).toString());
+  }
+
+  @Benchmark
+  public Buffer streaming() {
+    return SlackerResponseRenderer.render(response);
+  }
+
+  @Benchmark
+  public Buffer preRendered() {
+    return SlackerResponseRenderer.render(rendered);
+  }
+}
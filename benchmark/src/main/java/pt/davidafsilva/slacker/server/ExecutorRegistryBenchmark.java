@@ -0,0 +1,125 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-benchmark
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Measures the {@link ExecutorRegistry} lookup throughput, both uncontended and under concurrent
+ * registration churn.
+ *
+ * @author david
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutorRegistryBenchmark {
+
+  // the number of registered commands
+  private static final int COMMANDS = 64;
+
+  @State(Scope.Group)
+  public static class Registry {
+
+    // the registry under test
+    ExecutorRegistry registry;
+
+    // the registered command identifiers
+    final String[] commands = new String[COMMANDS];
+
+    // the sequence for the churn registrations
+    int churn;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+      registry = new ExecutorRegistry();
+      for (int i = 0; i < COMMANDS; i++) {
+        commands[i] = "command-" + i;
+        registry.register(request(commands[i]), a -> { }, r -> { });
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+
+    // the index of the next command to lookup
+    int next;
+  }
+
+  @Benchmark
+  @Group("uncontended")
+  @GroupThreads(4)
+  public void lookup(final Registry state, final Cursor cursor, final Blackhole bh) {
+    state.registry.lookup(state.commands[cursor.next++ & (COMMANDS - 1)], bh::consume,
+        bh::consume);
+  }
+
+  @Benchmark
+  @Group("churn")
+  @GroupThreads(3)
+  public void churnLookup(final Registry state, final Cursor cursor, final Blackhole bh) {
+    state.registry.lookup(state.commands[cursor.next++ & (COMMANDS - 1)], bh::consume,
+        bh::consume);
+  }
+
+  @Benchmark
+  @Group("churn")
+  @GroupThreads(1)
+  public void churnRegister(final Registry state, final Blackhole bh) {
+    state.registry.register(request("churn-" + state.churn++), bh::consume, bh::consume);
+  }
+
+  /**
+   * Creates the registration request for the given command
+   *
+   * @param command the command identifier
+   * @return the registration request
+   */
+  private static JsonObject request(final String command) {
+    return new JsonObject().put("i", command).put("d", "benchmark").put("v", "1.0.0");
+  }
+}
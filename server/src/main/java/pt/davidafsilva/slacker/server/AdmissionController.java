@@ -0,0 +1,225 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import io.vertx.core.shareddata.Shareable;
+
+/**
+ * The admission controller of the incoming requests, which bounds the number of in-flight
+ * requests, both globally and per command, such that the requests exceeding the limits are
+ * promptly rejected instead of queued.
+ *
+ * The global limit may be adaptive, following an additive-increase/multiplicative-decrease (AIMD)
+ * policy driven by the observed latency: the limit grows while the requests complete within the
+ * target latency and shrinks as soon as they don't, never exceeding the configured limit. The
+ * limit shrinks at most once per latency window: only the requests admitted after the last
+ * decrease may shrink it again, such that a burst of slow requests is a single congestion signal.
+ * The requests whose outcome says nothing about the load, such as routing misses, are released
+ * without adjusting the limit at all.
+ *
+ * The controller is lock-free and {@link Shareable}, hence it may be shared among several
+ * verticles.
+ *
+ * @author david
+ */
+final class AdmissionController implements Shareable {
+
+  // the multiplicative decrease factor of the adaptive limit
+  static final double DECREASE_FACTOR = 0.9;
+
+  // the global in-flight limit, zero if unbounded
+  private final int maxInFlight;
+
+  // the per command in-flight limit, zero if unbounded
+  private final int commandMaxInFlight;
+
+  // whether or not the global limit is adaptive
+  private final boolean adaptive;
+
+  // the target latency of the adaptive limit (in nanoseconds)
+  private final long targetLatency;
+
+  // the global number of in-flight requests
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  // the number of in-flight requests per command, only for the commands with in-flight requests
+  private final ConcurrentMap<String, Integer> commandInFlight = new ConcurrentHashMap<>();
+
+  // the current (adaptive) global limit, stored as the raw double bits
+  private final AtomicLong limit;
+
+  // the time of the last decrease of the adaptive limit (in nanoseconds)
+  private final AtomicLong lastDecrease;
+
+  // the monotonic clock (in nanoseconds)
+  private final LongSupplier clock;
+
+  /**
+   * Constructs the admission controller with the given limits
+   *
+   * @param maxInFlight        the global in-flight limit, zero if unbounded
+   * @param commandMaxInFlight the per command in-flight limit, zero if unbounded
+   * @param adaptive           whether or not the global limit is adaptive
+   * @param targetLatency      the target latency of the adaptive limit, in milliseconds
+   */
+  AdmissionController(final int maxInFlight, final int commandMaxInFlight,
+      final boolean adaptive, final long targetLatency) {
+    this(maxInFlight, commandMaxInFlight, adaptive, targetLatency, System::nanoTime);
+  }
+
+  /**
+   * Constructs the admission controller with the given limits and clock
+   *
+   * @param maxInFlight        the global in-flight limit, zero if unbounded
+   * @param commandMaxInFlight the per command in-flight limit, zero if unbounded
+   * @param adaptive           whether or not the global limit is adaptive
+   * @param targetLatency      the target latency of the adaptive limit, in milliseconds
+   * @param clock              the monotonic clock, in nanoseconds
+   */
+  AdmissionController(final int maxInFlight, final int commandMaxInFlight,
+      final boolean adaptive, final long targetLatency, final LongSupplier clock) {
+    this.maxInFlight = maxInFlight;
+    this.commandMaxInFlight = commandMaxInFlight;
+    this.adaptive = adaptive && maxInFlight > 0;
+    this.targetLatency = TimeUnit.MILLISECONDS.toNanos(targetLatency);
+    this.limit = new AtomicLong(Double.doubleToRawLongBits(maxInFlight));
+    this.clock = clock;
+    this.lastDecrease = new AtomicLong(clock.getAsLong());
+  }
+
+  /**
+   * Tries to admit a request for the given command
+   *
+   * @param command the request command
+   * @return {@code true} if the request was admitted, in which case it must be released with
+   * either {@link #release(String, long, boolean)} or {@link #release(String)}, {@code false}
+   * otherwise
+   */
+  boolean tryAcquire(final String command) {
+    // global limit
+    if (maxInFlight > 0) {
+      final int current = (int) getLimit();
+      int count;
+      do {
+        count = inFlight.get();
+        if (count >= current) {
+          return false;
+        }
+      } while (!inFlight.compareAndSet(count, count + 1));
+    } else {
+      inFlight.incrementAndGet();
+    }
+
+    // command limit
+    if (commandMaxInFlight > 0) {
+      final boolean[] admitted = {false};
+      commandInFlight.compute(command, (k, count) -> {
+        final int c = count == null ? 0 : count;
+        if (c >= commandMaxInFlight) {
+          return count;
+        }
+        admitted[0] = true;
+        return c + 1;
+      });
+      if (!admitted[0]) {
+        inFlight.decrementAndGet();
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Releases a request previously admitted with {@link #tryAcquire(String)}, adjusting the
+   * adaptive limit with its outcome
+   *
+   * @param command   the request command
+   * @param latency   the request latency, in nanoseconds
+   * @param succeeded whether or not the request succeeded
+   */
+  void release(final String command, final long latency, final boolean succeeded) {
+    release(command);
+    if (adaptive) {
+      final boolean increase = succeeded && latency <= targetLatency;
+      if (!increase) {
+        // decrease only once per window: the requests admitted before the last decrease were
+        // already accounted for by it
+        final long now = clock.getAsLong();
+        final long last = lastDecrease.get();
+        if (now - latency - last < 0 || !lastDecrease.compareAndSet(last, now)) {
+          return;
+        }
+      }
+      long current;
+      double updated;
+      do {
+        current = limit.get();
+        final double value = Double.longBitsToDouble(current);
+        updated = increase ? Math.min(maxInFlight, value + 1 / value) :
+            Math.max(1, value * DECREASE_FACTOR);
+      } while (!limit.compareAndSet(current, Double.doubleToRawLongBits(updated)));
+    }
+  }
+
+  /**
+   * Releases a request previously admitted with {@link #tryAcquire(String)}, without adjusting
+   * the adaptive limit, as its outcome is unrelated with the load (e.g. routing misses)
+   *
+   * @param command the request command
+   */
+  void release(final String command) {
+    inFlight.decrementAndGet();
+    if (commandMaxInFlight > 0) {
+      commandInFlight.computeIfPresent(command, (k, count) -> count <= 1 ? null : count - 1);
+    }
+  }
+
+  /**
+   * Returns the current global in-flight limit
+   *
+   * @return the global limit, zero if unbounded
+   */
+  double getLimit() {
+    return Double.longBitsToDouble(limit.get());
+  }
+
+  /**
+   * Returns the global number of in-flight requests
+   *
+   * @return the number of in-flight requests
+   */
+  int getInFlight() {
+    return inFlight.get();
+  }
+}
@@ -26,17 +26,29 @@ package pt.davidafsilva.slacker.server;
  * #L%
  */
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
+import pt.davidafsilva.slacker.api.CacheScope;
+import pt.davidafsilva.slacker.api.ExecutionTracker;
+import pt.davidafsilva.slacker.api.ResultCode;
+import pt.davidafsilva.slacker.api.SlackerDeadline;
 import pt.davidafsilva.slacker.api.SlackerRequest;
 import pt.davidafsilva.slacker.api.SlackerRequestMessageCodec;
 import pt.davidafsilva.slacker.api.SlackerResponse;
@@ -46,6 +58,30 @@ import pt.davidafsilva.slacker.api.SlackerResponseMessageCodec;
  * The event server that shall receive the incoming requests (events) from the http server and
  * forward them to the respective slacker-executor, if any is available.
  *
+ * Besides the request forwarding, this server also keeps the interested parties (i.e. the
+ * HTTP servers with direct routing enabled) up to date with the executors routing table, by
+ * serving snapshots of the table and publishing every change made to it.
+ *
+ * Whenever several instances of the same executor are registered, the requests are balanced among
+ * them according to the configured {@link LoadBalancingStrategy}. The executor instances are kept
+ * registered for as long as they keep renewing their lease with heartbeats: a timer periodically
+ * evicts the expired instances, such that requests for commands without live executors fail right
+ * away. The requests are forwarded within their deadline (see {@link SlackerDeadline}), if any.
+ *
+ * The requests for executors with deferred responses are acknowledged right away, as long as the
+ * request carries a response URL, and forwarded to the executor within the (longer) deferred
+ * budget - the executor response is then delivered by the {@link ResponseDeliveryVerticle}.
+ *
+ * The successful responses of the cacheable executors are kept at the {@link ResponseCache}, from
+ * which the following requests with the same key are served without being forwarded to the
+ * executor. Likewise, the identical in-flight requests of the coalesced executors are attached to
+ * a single execution by the {@link RequestCoalescer}. The statistics of both are available upon
+ * request.
+ *
+ * The latency of both the event server hop and the executor execution are recorded at the shared
+ * {@link SlackerMetrics}, along with the size of the executor registry, while the lag of its event
+ * loop is sampled by the {@link ExecutionTracker}.
+ *
  * @author david
  */
 final class EventServerVerticle extends AbstractVerticle {
@@ -56,39 +92,147 @@ final class EventServerVerticle extends AbstractVerticle {
   // the event consumer addresses
   static final String REQ_SERVER_ADDRESS = "req.slacker-server";
   static final String REG_SERVER_ADDRESS = "reg.slacker-server";
+  static final String SNP_SERVER_ADDRESS = "snp.slacker-server";
+  static final String HBT_SERVER_ADDRESS = "hbt.slacker-server";
+  static final String UNR_SERVER_ADDRESS = "unr.slacker-server";
+  static final String STS_SERVER_ADDRESS = "sts.slacker-server";
+
+  // the routing table updates address
+  static final String UPD_SERVER_ADDRESS = "upd.slacker-server";
+
+  // the failure code of the requests without any available executor
+  static final int NO_EXECUTOR_FAILURE = 3;
+
+  // the acknowledge response of the deferred requests
+  static final SlackerResponse ACK = new SlackerResponse() {
+    @Override
+    public ResultCode getCode() {
+      return ResultCode.OK;
+    }
+
+    @Override
+    public Optional<String> getResponse() {
+      return Optional.empty();
+    }
+  };
 
   // the executor registry
   private final ExecutorRegistry executorRegistry;
 
+  // the load balancing strategy among the executor instances
+  private final LoadBalancingStrategy strategy;
+
+  // the cache of the responses of the cacheable executors
+  private final ResponseCache cache;
+
+  // the coalescer of the identical requests of the coalesced executors
+  private final RequestCoalescer coalescer;
+
   // the event consumer instances
-  private MessageConsumer<Object> registerConsumer;
-  private MessageConsumer<Object> requestConsumer;
+  private final List<MessageConsumer<Object>> consumers = new ArrayList<>();
+
+  // the lease eviction timer
+  private long evictionTimer;
+
+  // the event loop lag sampling timer
+  private long lagTimer;
+
+  // the time budget of the deferred requests (in milliseconds)
+  private long deferredBudget;
+
+  // the metrics, shared among the verticles
+  private SlackerMetrics metrics;
 
   /**
-   * Constructs the event server verticle with the given executor registry instance
+   * Constructs the event server verticle with the given executor registry instance and the
+   * default load balancing strategy
    *
    * @param executorRegistry the executor registry instance
    */
   EventServerVerticle(final ExecutorRegistry executorRegistry) {
+    this(executorRegistry, HttpServerConfiguration.DEFAULT_LOAD_BALANCING);
+  }
+
+  /**
+   * Constructs the event server verticle with the given executor registry instance and load
+   * balancing strategy
+   *
+   * @param executorRegistry the executor registry instance
+   * @param strategy         the load balancing strategy among the executor instances
+   */
+  EventServerVerticle(final ExecutorRegistry executorRegistry,
+      final LoadBalancingStrategy strategy) {
+    this(executorRegistry, strategy,
+        new ResponseCache(HttpServerConfiguration.DEFAULT_RESPONSE_CACHE_SIZE),
+        new RequestCoalescer());
+  }
+
+  /**
+   * Constructs the event server verticle with the given executor registry instance, load
+   * balancing strategy, response cache and request coalescer
+   *
+   * @param executorRegistry the executor registry instance
+   * @param strategy         the load balancing strategy among the executor instances
+   * @param cache            the cache of the responses of the cacheable executors
+   * @param coalescer        the coalescer of the requests of the coalesced executors
+   */
+  EventServerVerticle(final ExecutorRegistry executorRegistry,
+      final LoadBalancingStrategy strategy, final ResponseCache cache,
+      final RequestCoalescer coalescer) {
     this.executorRegistry = Objects.requireNonNull(executorRegistry, "executorRegistry");
+    this.strategy = Objects.requireNonNull(strategy, "strategy");
+    this.cache = Objects.requireNonNull(cache, "cache");
+    this.coalescer = Objects.requireNonNull(coalescer, "coalescer");
   }
 
   @Override
   public void start() throws Exception {
+    deferredBudget = HttpServerConfiguration.deferredBudget(config());
+    metrics = SlackerMetrics.of(vertx);
+    lagTimer = ExecutionTracker.shared().monitor(vertx);
+
     // register the event consumers
-    registerConsumer = vertx.eventBus().consumer(REG_SERVER_ADDRESS, this::handlerRegisterEvent);
-    requestConsumer = vertx.eventBus().consumer(REQ_SERVER_ADDRESS, this::handlerRequestEvent);
+    consumers.add(vertx.eventBus().consumer(REG_SERVER_ADDRESS, this::handlerRegisterEvent));
+    consumers.add(vertx.eventBus().consumer(REQ_SERVER_ADDRESS, this::handlerRequestEvent));
+    consumers.add(vertx.eventBus().consumer(SNP_SERVER_ADDRESS, this::handlerSnapshotEvent));
+    consumers.add(vertx.eventBus().consumer(HBT_SERVER_ADDRESS, this::handlerHeartbeatEvent));
+    consumers.add(vertx.eventBus().consumer(UNR_SERVER_ADDRESS, this::handlerUnregisterEvent));
+    consumers.add(vertx.eventBus().consumer(STS_SERVER_ADDRESS, m -> m.reply(new JsonObject()
+        .put("cache", cache.stats())
+        .put("coalescer", new JsonObject()
+            .put("coalesced", coalescer.coalesced())
+            .put("inFlight", coalescer.size())))));
+
+    // periodically evict the executors with expired leases
+    evictionTimer = vertx.setPeriodic(Math.max(1, executorRegistry.getLease() / 3),
+        t -> executorRegistry.evict(this::publishRoute));
   }
 
   @Override
   public void stop(final Future<Void> stopFuture) throws Exception {
-    // stop the consumers
-    registerConsumer.unregister(r1 -> {
-      LOGGER.info("slacker register consumer closed: {0} (cause: {1})", r1.succeeded(), r1.cause());
-      requestConsumer.unregister(r2 -> {
-        LOGGER.info("slacker request consumer closed: {0} (cause: {1})", r2.succeeded(), r2.cause());
-        stopFuture.complete();
-      });
+    // stop the eviction timer and the consumers
+    vertx.cancelTimer(evictionTimer);
+    vertx.cancelTimer(lagTimer);
+    unregisterAll(consumers.iterator(), stopFuture);
+  }
+
+  /**
+   * Un-registers the given event consumers, one after the other.
+   *
+   * @param consumers  the event consumers
+   * @param stopFuture the stop future to be completed once every consumer is un-registered
+   */
+  private void unregisterAll(final Iterator<MessageConsumer<Object>> consumers,
+      final Future<Void> stopFuture) {
+    if (!consumers.hasNext()) {
+      stopFuture.complete();
+      return;
+    }
+    final MessageConsumer<Object> consumer = consumers.next();
+    consumer.unregister(r -> {
+      LOGGER.info("slacker {0} consumer closed: {1} (cause: {2})", consumer.address(),
+          r.succeeded(), r.cause());
+      unregisterAll(consumers, stopFuture);
     });
   }
 
@@ -111,10 +255,101 @@ final class EventServerVerticle extends AbstractVerticle {
     // try to register the executor
     final JsonObject executorRequest = (JsonObject) message.body();
     executorRegistry.register(executorRequest,
-        address -> message.reply(new JsonObject().put("a", address)),
+        address -> {
+          message.reply(new JsonObject()
+              .put("a", address)
+              .put("l", executorRegistry.getLease()));
+          // let the direct routing parties know about the executor routes
+          executorRegistry.lookup(executorRequest.getString("i"), this::publishRoute, v -> {});
+        },
         reason -> message.fail(1, String.format("unable to register executor: %s", reason)));
   }
 
+  /**
+   * Handles a executor heartbeat message event by renewing the lease of the executor instance.
+   * The heartbeat fails if the instance is no longer registered, in which case the executor is
+   * expected to register again.
+   *
+   * @param message the heartbeat message event
+   */
+  private void handlerHeartbeatEvent(final Message<Object> message) {
+    // validate the received event
+    if (message.body() == null || !JsonObject.class.isInstance(message.body())) {
+      message.fail(1, "invalid heartbeat event received");
+      return;
+    }
+
+    executorRegistry.heartbeat((JsonObject) message.body(),
+        lease -> message.reply(new JsonObject().put("l", lease)),
+        reason -> message.fail(1, String.format("unable to renew lease: %s", reason)));
+  }
+
+  /**
+   * Handles a executor unregister message event by removing the executor instance from the
+   * registry.
+   *
+   * @param message the unregister message event
+   */
+  private void handlerUnregisterEvent(final Message<Object> message) {
+    LOGGER.debug("received unregister event message: {0}", message.body());
+
+    // validate the received event
+    if (message.body() == null || !JsonObject.class.isInstance(message.body())) {
+      message.fail(1, "invalid unregister event received");
+      return;
+    }
+
+    executorRegistry.unregister((JsonObject) message.body(),
+        entry -> {
+          message.reply(new JsonObject());
+          publishRoute(entry);
+        },
+        reason -> message.fail(1, String.format("unable to unregister executor: %s", reason)));
+  }
+
+  /**
+   * Publishes the route of the given executor entry to the direct routing parties
+   *
+   * @param entry the executor entry
+   */
+  private void publishRoute(final ExecutorRegistry.ExecutorEntry entry) {
+    vertx.eventBus().publish(UPD_SERVER_ADDRESS, toRoute(entry).put("i", entry.getId()));
+  }
+
+  /**
+   * Handles a routing table snapshot request message event by replying with the current
+   * executors routing table, mapping each command to the respective executor route.
+   *
+   * @param message the snapshot request message event
+   */
+  private void handlerSnapshotEvent(final Message<Object> message) {
+    LOGGER.debug("received snapshot event message");
+    final JsonObject snapshot = new JsonObject();
+    executorRegistry.executors().forEach(e -> snapshot.put(e.getId(), toRoute(e)));
+    message.reply(snapshot);
+  }
+
+  /**
+   * Creates the route representation of the given executor entry, with both the entry revision
+   * and the addresses of every registered instance.
+   *
+   * @param entry the executor entry
+   * @return the executor route
+   */
+  private static JsonObject toRoute(final ExecutorRegistry.ExecutorEntry entry) {
+    final JsonObject route = new JsonObject()
+        .put("r", entry.getRevision())
+        .put("m", entry.isDeferred() ? ExecutorRegistry.DEFERRED_MODE : ExecutorRegistry.SYNC_MODE);
+    if (entry.getCacheTtl() > 0 || entry.getCoalescing().isPresent()) {
+      // the requests must go through the event server
+      route.put("c", true);
+    }
+    return route
+        .put("a", new JsonArray(entry.getEndpoints().stream()
+            .map(ExecutorEndpoint::getAddress)
+            .collect(Collectors.toList())));
+  }
+
   /**
    * Handles a request message event by delivering the request to the appropriate executor, if
    * any is registered to handle that particular type of request.
@@ -131,32 +366,159 @@ final class EventServerVerticle extends AbstractVerticle {
       return;
     }
 
-    // handle the request
     final SlackerRequest request = (SlackerRequest) message.body();
+    final long received = metrics.begin(SlackerMetrics.Stage.EVENT_SERVER);
+
+    // drop the request if its deadline was already exceeded
+    final Optional<Long> deadline = SlackerDeadline.of(message.headers());
+    if (deadline.isPresent() && SlackerDeadline.remaining(deadline.get()).isNegative()) {
+      message.fail(1, "deadline exceeded");
+      endHop(metrics.label(request.getCommand()), received);
+      return;
+    }
+
+    // handle the request
     executorRegistry.lookup(request.getCommand(),
-        address -> sendRequestToExecutor(address, request, message),
-        v -> message.fail(1, String.format("no executor available for the command: %s",
-            request.getCommand())));
+        entry -> forwardRequest(entry, request, deadline, message, received),
+        v -> {
+          message.fail(NO_EXECUTOR_FAILURE, String.format(
+              "no executor available for the command: %s", request.getCommand()));
+          endHop(metrics.label(request.getCommand()), received);
+        });
+  }
+
+  /**
+   * Marks the end of the event server hop of the given request, resolved to an executor
+   *
+   * @param request  the request
+   * @param received the reception timestamp of the request
+   */
+  private void endHop(final SlackerRequest request, final long received) {
+    endHop(request.getCommand(), received);
+  }
+
+  /**
+   * Marks the end of the event server hop of a request
+   *
+   * @param command  the command label of the request (see {@link SlackerMetrics#label(String)})
+   * @param received the reception timestamp of the request
+   */
+  private void endHop(final String command, final long received) {
+    metrics.end(SlackerMetrics.Stage.EVENT_SERVER, command, received);
+  }
+
+  /**
+   * Forwards the request to the given executor, unless its response is cached. The requests for
+   * executors with deferred responses are acknowledged right away, whenever possible.
+   *
+   * @param entry    the executor entry
+   * @param request  the request to be forwarded
+   * @param deadline the optional request deadline
+   * @param message  the original request message with the reply address
+   * @param received the reception timestamp of the request
+   */
+  private void forwardRequest(final ExecutorRegistry.ExecutorEntry entry,
+      final SlackerRequest request, final Optional<Long> deadline, final Message<Object> message,
+      final long received) {
+    // serve the cached response, if any
+    final boolean cacheable = entry.getCacheTtl() > 0;
+    final Optional<SlackerResponse> cached = cacheable ?
+        cache.get(request, entry.getCacheScope()) : Optional.empty();
+    if (cached.isPresent()) {
+      message.reply(cached.get(), new DeliveryOptions()
+          .setCodecName(SlackerResponseMessageCodec.NAME));
+      endHop(request, received);
+      return;
+    }
+
+    final Optional<String> responseUrl = request.getResponseUrl();
+    if (entry.isDeferred() && responseUrl.isPresent()) {
+      // acknowledge right away and deliver the response once available
+      message.reply(ACK, new DeliveryOptions()
+          .setCodecName(SlackerResponseMessageCodec.NAME));
+      endHop(request, received);
+      executeRequest(entry, request, Optional.of(System.currentTimeMillis() + deferredBudget),
+          response -> ResponseDeliveryVerticle.deliver(vertx, responseUrl.get(), response),
+          reason -> {
+            LOGGER.error("deferred request failed: {0}", reason);
+            ResponseDeliveryVerticle.deliverFailure(vertx, responseUrl.get(), reason);
+          });
+    } else {
+      executeRequest(entry, request, deadline, response -> {
+        message.reply(response, new DeliveryOptions()
+            .setCodecName(SlackerResponseMessageCodec.NAME));
+        endHop(request, received);
+      }, reason -> {
+        message.fail(2, reason);
+        endHop(request, received);
+      });
+    }
+  }
+
+  /**
+   * Executes the request at one of the executor instances, caching its successful response if
+   * the executor is cacheable. The identical in-flight requests of coalesced executors are
+   * attached to a single execution.
+   *
+   * @param entry    the executor entry
+   * @param request  the request to be executed
+   * @param deadline the optional request deadline
+   * @param success  the handler to be called with the executor response
+   * @param failure  the handler to be called with the failure reason
+   */
+  private void executeRequest(final ExecutorRegistry.ExecutorEntry entry,
+      final SlackerRequest request, final Optional<Long> deadline,
+      final Handler<SlackerResponse> success, final Handler<String> failure) {
+    final RequestCoalescer.Execution execution = (s, f) -> sendRequestToExecutor(entry,
+        strategy.select(entry.getEndpoints()), request, deadline, response -> {
+          if (entry.getCacheTtl() > 0 && response.getCode() == ResultCode.OK) {
+            cache.put(request, entry.getCacheScope(), entry.getCacheTtl(), response);
+          }
+          s.handle(response);
+        }, f);
+
+    final Optional<CacheScope> coalescing = entry.getCoalescing();
+    if (coalescing.isPresent()) {
+      coalescer.execute(RequestKeys.of(request, coalescing.get()), execution, success, failure);
+    } else {
+      execution.execute(success, failure);
+    }
   }
 
   /**
    * Sends the requests to the executor and handles the reply
    *
-   * @param address        the address of the executor
-   * @param request        the request to be sent
-   * @param requestMessage the original request message with the reply address
+   * @param entry    the executor entry
+   * @param endpoint the endpoint of the selected executor instance
+   * @param request  the request to be sent
+   * @param deadline the optional request deadline, which bounds the send timeout
+   * @param success  the handler to be called with the executor response
+   * @param failure  the handler to be called with the failure reason
    */
-  private void sendRequestToExecutor(final String address, final SlackerRequest request,
-      final Message<Object> requestMessage) {
-    LOGGER.debug("forwarding request message to {0}..", address);
-    vertx.eventBus().send(address, request, new DeliveryOptions()
-        .setCodecName(SlackerRequestMessageCodec.NAME), reply -> {
+  private void sendRequestToExecutor(final ExecutorRegistry.ExecutorEntry entry,
+      final ExecutorEndpoint endpoint, final SlackerRequest request,
+      final Optional<Long> deadline, final Handler<SlackerResponse> success,
+      final Handler<String> failure) {
+    LOGGER.debug("forwarding request message to {0}..", endpoint);
+    final DeliveryOptions options = new DeliveryOptions()
+        .setCodecName(SlackerRequestMessageCodec.NAME);
+    deadline.ifPresent(d -> SlackerDeadline.apply(options, d));
+    final long start = endpoint.begin();
+    final long executed = metrics.begin(SlackerMetrics.Stage.EXECUTOR);
+    vertx.eventBus().send(endpoint.getAddress(), request, options, reply -> {
+      endpoint.end(start);
+      metrics.end(SlackerMetrics.Stage.EXECUTOR, request.getCommand(), executed);
       if (reply.succeeded() && SlackerResponse.class.isInstance(reply.result().body())) {
-        requestMessage.reply(reply.result().body(), new DeliveryOptions()
-            .setCodecName(SlackerResponseMessageCodec.NAME));
+        success.handle((SlackerResponse) reply.result().body());
       } else {
         LOGGER.error("failed to process request", reply.cause());
-        requestMessage.fail(2, String.format("failed %s processing: %s", request.getCommand(),
+        if (reply.cause() instanceof ReplyException &&
+            ((ReplyException) reply.cause()).failureType() == ReplyFailure.NO_HANDLERS) {
+          // the executor instance is gone without unregistering, evict it right away
+          executorRegistry.unregister(entry.getId(), endpoint.getAddress(), this::publishRoute,
+              reason -> {});
+        }
+        failure.handle(String.format("failed %s processing: %s", request.getCommand(),
             Optional.ofNullable(reply.cause()).map(Throwable::getMessage)
                 .orElse("invalid response")));
       }
@@ -0,0 +1,148 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An endpoint of a registered executor, i.e. the address of a single executor instance, along with
+ * the load statistics required for the selection of the endpoint that shall handle a request:
+ * <ul>
+ * <li>the number of outstanding (in-flight) requests</li>
+ * <li>the exponentially weighted moving average (EWMA) of the response latency</li>
+ * </ul>
+ *
+ * The statistics are updated lock-free, hence the endpoint may be shared among several verticles.
+ *
+ * @author david
+ * @see LoadBalancingStrategy
+ */
+final class ExecutorEndpoint {
+
+  // the weight of each latency sample at the moving average
+  static final double EWMA_ALPHA = 0.2;
+
+  // the executor instance address
+  private final String address;
+
+  // the number of outstanding requests
+  private final AtomicInteger outstanding = new AtomicInteger();
+
+  // the latency moving average (in nanoseconds), stored as the raw double bits
+  private final AtomicLong latency = new AtomicLong(Double.doubleToRawLongBits(0d));
+
+  // the lease expiration timestamp (in nanoseconds)
+  private volatile long leaseExpiration;
+
+  /**
+   * Constructs the endpoint for the given executor instance address
+   *
+   * @param address the executor instance address
+   */
+  ExecutorEndpoint(final String address) {
+    this.address = address;
+  }
+
+  /**
+   * Returns the address of the executor instance
+   *
+   * @return the executor instance address
+   */
+  String getAddress() {
+    return address;
+  }
+
+  /**
+   * Returns the number of requests sent to this endpoint that are still awaiting a reply
+   *
+   * @return the number of outstanding requests
+   */
+  int getOutstanding() {
+    return outstanding.get();
+  }
+
+  /**
+   * Returns the moving average of the latency of this endpoint, in nanoseconds.
+   *
+   * @return the latency moving average, zero if no requests have been handled yet
+   */
+  double getLatency() {
+    return Double.longBitsToDouble(latency.get());
+  }
+
+  /**
+   * Marks the start of a request to this endpoint
+   *
+   * @return the start timestamp of the request, to be supplied to {@link #end(long)}
+   */
+  long begin() {
+    outstanding.incrementAndGet();
+    return System.nanoTime();
+  }
+
+  /**
+   * Marks the end of a request to this endpoint, previously started with {@link #begin()}
+   *
+   * @param start the start timestamp of the request
+   */
+  void end(final long start) {
+    outstanding.decrementAndGet();
+    final double sample = System.nanoTime() - start;
+    long current;
+    double average;
+    do {
+      current = latency.get();
+      average = Double.longBitsToDouble(current);
+      average = average == 0d ? sample : average + EWMA_ALPHA * (sample - average);
+    } while (!latency.compareAndSet(current, Double.doubleToRawLongBits(average)));
+  }
+
+  /**
+   * Renews the lease of the executor instance
+   *
+   * @param expiration the new lease expiration timestamp, in nanoseconds
+   */
+  void renew(final long expiration) {
+    leaseExpiration = expiration;
+  }
+
+  /**
+   * Checks whether or not the lease of the executor instance has expired
+   *
+   * @param now the current timestamp, in nanoseconds
+   * @return {@code true} if the lease has expired, {@code false} otherwise
+   */
+  boolean isExpired(final long now) {
+    return now - leaseExpiration > 0;
+  }
+
+  @Override
+  public String toString() {
+    return address;
+  }
+}
@@ -31,19 +31,39 @@ import com.github.zafarkhaja.semver.Version;
 
 import java.math.BigInteger;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import io.vertx.core.Handler;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
+import pt.davidafsilva.slacker.api.CacheScope;
 
 /**
  * The registry where incoming register executor requests are processed (validated a registered)
  * and lookups can be issued for a particular executor.
  *
+ * The registry is safe to be shared among several verticles (and therefore threads): the
+ * executors are kept in an immutable, versioned snapshot which is replaced as a whole
+ * (copy-on-write) upon each registration. Lookups are lock-free reads of the current snapshot,
+ * while concurrent registrations are serialized via compare-and-set of the snapshot reference.
+ *
+ * Each registered instance holds a lease, which must be renewed by the executor with periodic
+ * heartbeats. Instances are removed from the registry either when they explicitly unregister or
+ * once their lease expires, so that requests are not forwarded to dead executors.
+ *
  * @author david
  */
 final class ExecutorRegistry {
@@ -61,23 +81,96 @@ final class ExecutorRegistry {
   static final String INCOMPATIBLE_VERSION_FORMAT = "incompatible version, found %s, expected %s " +
       "or greater";
 
+  // the message to be included when an unknown response mode is received
+  static final String INVALID_MODE_MSG = "invalid response mode, expected sync or deferred";
+
+  // the message to be included when the response mode differs from the registered one
+  static final String INCOMPATIBLE_MODE_MSG = "incompatible response mode";
+
+  // the message to be included when the cache or coalescing policies differ from the registered
+  // ones, for the same version
+  static final String INCOMPATIBLE_POLICY_MSG = "incompatible cache or coalescing policy";
+
+  // the message to be included when an invalid cache policy is received
+  static final String INVALID_CACHE_MSG = "invalid cache policy";
+
+  // the message to be included when an invalid coalescing scope is received
+  static final String INVALID_COALESCING_MSG = "invalid coalescing scope";
+
+  // the synchronous and deferred response modes
+  static final String SYNC_MODE = "sync";
+  static final String DEFERRED_MODE = "deferred";
+
+  // the message to be included when an unknown executor instance is referenced
+  static final String UNKNOWN_EXECUTOR_MSG = "unknown executor instance";
+
   // the address format
   private static final String ADDRESS_FORMAT = "%032x.slacker-executor";
 
   // the secure random generator for the address assignment
   private final SecureRandom random = new SecureRandom();
 
-  // the in-memory mapping of executors by his identifier
-  private final Map<String, ExecutorEntry> executors = new HashMap<>();
+  // the lease duration of the executor instances (in milliseconds)
+  private final long lease;
+
+  // the monotonic clock (in nanoseconds) used to track the leases
+  private final LongSupplier clock;
+
+  // the in-memory (immutable) snapshot of the executors mapped by his identifier
+  private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(
+      new Snapshot(0, Collections.emptyMap()));
 
   /**
-   * Tries to register the executor that is defined within the given JSON request object.
+   * Constructs the registry with the default executor lease duration
+   */
+  ExecutorRegistry() {
+    this(HttpServerConfiguration.DEFAULT_EXECUTOR_LEASE);
+  }
+
+  /**
+   * Constructs the registry with the given executor lease duration
+   *
+   * @param lease the lease duration of the executor instances, in milliseconds
+   */
+  ExecutorRegistry(final long lease) {
+    this(lease, System::nanoTime);
+  }
+
+  /**
+   * Constructs the registry with the given executor lease duration and clock
+   *
+   * @param lease the lease duration of the executor instances, in milliseconds
+   * @param clock the monotonic clock, in nanoseconds
+   */
+  ExecutorRegistry(final long lease, final LongSupplier clock) {
+    this.lease = lease;
+    this.clock = clock;
+  }
+
+  /**
+   * Returns the lease duration of the executor instances, which must be renewed with heartbeats
+   *
+   * @return the lease duration, in milliseconds
+   */
+  long getLease() {
+    return lease;
+  }
+
+  /**
+   * Tries to register the executor instance that is defined within the given JSON request object.
    * The registering of the executor will succeed if, and only if one of the two rules is
    * fulfilled:
    * <ol>
    * <li>there are not executors registered with the same identifier</li>
    * <li>if there are executors registers, they must share the same version number</li>
    * </ol>
+   * Additionally, the instances of the same executor must share the same response mode, and the
+   * instances of the same version must share the same cache and coalescing policies. An instance
+   * with a newer version upgrades the executor instead, whose description and policies become
+   * the ones of the new version.
+   *
+   * Each registered instance is assigned its own endpoint (address), such that the requests for
+   * the executor can be balanced among its instances.
    *
    * @param request        the request with executor information
    * @param successHandler the handler to be handle with the assigned address if the register
@@ -91,52 +184,191 @@ final class ExecutorRegistry {
       errorHandler.handle(INVALID_REQUEST_MSG);
       return;
     }
+    if (!isModeValid(request)) {
+      errorHandler.handle(INVALID_MODE_MSG);
+      return;
+    }
+    if (!isCacheValid(request)) {
+      errorHandler.handle(INVALID_CACHE_MSG);
+      return;
+    }
+    if (!isScopeValid(request.getValue("k", CacheScope.COMMAND.name()))) {
+      errorHandler.handle(INVALID_COALESCING_MSG);
+      return;
+    }
 
     // extract the data from the request
     final String id = request.getString("i");
     final Version version = Version.valueOf(request.getString("v"));
     final String description = request.getString("d", DEFAULT_DESCRIPTION);
+    final boolean deferred = DEFERRED_MODE.equals(request.getString("m"));
+    final JsonObject cache = request.getJsonObject("c", new JsonObject());
+    final long cacheTtl = cache.getLong("t", 0L);
+    final CacheScope cacheScope = CacheScope.valueOf(cache.getString("s",
+        CacheScope.COMMAND.name()));
+    final CacheScope coalescing = Optional.ofNullable(request.getString("k"))
+        .map(CacheScope::valueOf)
+        .orElse(null);
 
-    // check if there's an executor, if so validate the version
-    ExecutorEntry executorEntry = executors.get(id);
-    if (executorEntry != null) {
-      // validate the version
-      if (version.lessThan(executorEntry.getVersion())) {
-        // incompatible version
-        errorHandler.handle(String.format(INCOMPATIBLE_VERSION_FORMAT, version,
-            executorEntry.getVersion()));
-        return;
+    // the endpoint for the new executor instance
+    final ExecutorEndpoint endpoint = new ExecutorEndpoint(randomAddress());
+    endpoint.renew(leaseExpiration());
+
+    // add the endpoint to a copy of the current snapshot, retrying on concurrent modifications
+    Snapshot current;
+    Snapshot updated;
+    Version upgraded;
+    do {
+      upgraded = null;
+      current = snapshot.get();
+      final long revision = current.revision + 1;
+
+      // check if there's an executor, if so validate the version
+      final ExecutorEntry executorEntry = current.executors.get(id);
+      if (executorEntry != null) {
+        // validate the version
+        if (version.lessThan(executorEntry.getVersion())) {
+          // incompatible version
+          errorHandler.handle(String.format(INCOMPATIBLE_VERSION_FORMAT, version,
+              executorEntry.getVersion()));
+          return;
+        }
+        // validate the response mode
+        if (deferred != executorEntry.isDeferred()) {
+          errorHandler.handle(INCOMPATIBLE_MODE_MSG);
+          return;
+        }
+        if (version.greaterThan(executorEntry.getVersion())) {
+          // the newer version takes over the description and policies of the executor
+          upgraded = executorEntry.getVersion();
+          updated = current.with(new ExecutorEntry(id, version, description, deferred, cacheTtl,
+              cacheScope, coalescing, executorEntry.withEndpoint(endpoint, revision)
+              .getEndpoints(), revision));
+        } else if (cacheTtl != executorEntry.getCacheTtl() ||
+            cacheScope != executorEntry.getCacheScope() ||
+            !Optional.ofNullable(coalescing).equals(executorEntry.getCoalescing())) {
+          // validate the cache and coalescing policies
+          errorHandler.handle(INCOMPATIBLE_POLICY_MSG);
+          return;
+        } else {
+          updated = current.with(executorEntry.withEndpoint(endpoint, revision));
+        }
+      } else {
+        updated = current.with(new ExecutorEntry(id, version, description, deferred,
+            cacheTtl, cacheScope, coalescing, Collections.singletonList(endpoint), revision));
       }
+    } while (!snapshot.compareAndSet(current, updated));
+    if (upgraded != null) {
+      LOGGER.info("upgraded {0} executor from version {1} to {2}", id, upgraded, version);
+    }
+
+    // report the success
+    successHandler.handle(endpoint.getAddress());
+  }
+
+  /**
+   * Renews the lease of the executor instance that is defined within the given JSON heartbeat
+   * request object.
+   *
+   * @param request        the heartbeat request with the executor identifier and address
+   * @param successHandler the handler to be called with the renewed lease duration
+   * @param errorHandler   the error handler that shall be called whenever the instance is not
+   *                       (or no longer) registered
+   */
+  void heartbeat(final JsonObject request, final Handler<Long> successHandler,
+      final Handler<String> errorHandler) {
+    // validate the request
+    if (!basicValidation(request, "i") || !basicValidation(request, "a")) {
+      errorHandler.handle(INVALID_REQUEST_MSG);
+      return;
+    }
+
+    // renew the lease of the instance, if still registered
+    final String address = request.getString("a");
+    final Optional<ExecutorEndpoint> endpoint = Optional
+        .ofNullable(snapshot.get().executors.get(request.getString("i")))
+        .flatMap(e -> e.getEndpoints().stream()
+            .filter(ep -> ep.getAddress().equals(address))
+            .findAny());
+    if (endpoint.isPresent()) {
+      endpoint.get().renew(leaseExpiration());
+      successHandler.handle(lease);
     } else {
-      // generate address
-      final String address = randomAddress();
+      errorHandler.handle(UNKNOWN_EXECUTOR_MSG);
+    }
+  }
 
-      // add the executor
-      executors.put(id, executorEntry = new ExecutorEntry(id, version, description, address));
+  /**
+   * Unregisters the executor instance that is defined within the given JSON request object.
+   *
+   * @param request        the request with the executor identifier and address
+   * @param successHandler the handler to be called with the updated executor entry, which has no
+   *                       endpoints if the last instance was unregistered
+   * @param errorHandler   the error handler that shall be called whenever the instance is not
+   *                       (or no longer) registered
+   */
+  void unregister(final JsonObject request, final Handler<ExecutorEntry> successHandler,
+      final Handler<String> errorHandler) {
+    // validate the request
+    if (!basicValidation(request, "i") || !basicValidation(request, "a")) {
+      errorHandler.handle(INVALID_REQUEST_MSG);
+      return;
     }
+    unregister(request.getString("i"), request.getString("a"), successHandler, errorHandler);
+  }
 
-    //TODO: monitor instances
-    // - at least one must be up! otherwise remove it from the map
-    // - keep the "lower" version of them all
+  /**
+   * Unregisters the executor instance with the given identifier and address.
+   *
+   * @param id             the executor identifier
+   * @param address        the executor instance address
+   * @param successHandler the handler to be called with the updated executor entry, which has no
+   *                       endpoints if the last instance was unregistered
+   * @param errorHandler   the error handler that shall be called whenever the instance is not
+   *                       (or no longer) registered
+   */
+  void unregister(final String id, final String address,
+      final Handler<ExecutorEntry> successHandler, final Handler<String> errorHandler) {
+    final List<ExecutorEntry> changed = remove(e -> e.getId().equals(id),
+        ep -> ep.getAddress().equals(address));
+    if (changed.isEmpty()) {
+      errorHandler.handle(UNKNOWN_EXECUTOR_MSG);
+    } else {
+      LOGGER.info("unregistered {0} instance at {1}", id, address);
+      successHandler.handle(changed.get(0));
+    }
+  }
 
-    // report the success
-    successHandler.handle(executorEntry.address);
+  /**
+   * Evicts every executor instance whose lease has expired.
+   *
+   * @param evictionHandler the handler to be called with each updated executor entry, which has
+   *                        no endpoints if the last instance was evicted
+   */
+  void evict(final Handler<ExecutorEntry> evictionHandler) {
+    final long now = clock.getAsLong();
+    remove(e -> true, ep -> ep.isExpired(now)).forEach(e -> {
+      LOGGER.warn("evicted expired {0} instance(s), {1} remaining", e.getId(),
+          e.getEndpoints().size());
+      evictionHandler.handle(e);
+    });
   }
 
   /**
    * Looks up a previously registered executor by his identifier
    *
-   * @param id             the executor identifier to lookup
-   * @param addressHandler the handler that shall be called with the executor reachable address
-   * @param errorHandler   the handler that shall be called if the executor does not exist and/or
-   *                       its not registered
+   * @param id           the executor identifier to lookup
+   * @param entryHandler the handler that shall be called with the executor entry, from which the
+   *                     reachable endpoints are available
+   * @param errorHandler the handler that shall be called if the executor does not exist and/or
+   *                     its not registered
    */
-  void lookup(final String id, final Handler<String> addressHandler,
+  void lookup(final String id, final Handler<ExecutorEntry> entryHandler,
       final Handler<Void> errorHandler) {
     // get the executor entry
-    final ExecutorEntry executorEntry = executors.get(id);
+    final ExecutorEntry executorEntry = snapshot.get().executors.get(id);
     if (executorEntry != null) {
-      addressHandler.handle(executorEntry.address);
+      entryHandler.handle(executorEntry);
     } else {
       errorHandler.handle(null);
     }
@@ -148,7 +380,43 @@ final class ExecutorRegistry {
    * @return the registered executor
    */
   Stream<ExecutorEntry> executors() {
-    return executors.values().stream();
+    return snapshot.get().executors.values().stream();
+  }
+
+  /**
+   * Removes the endpoints matching the given predicate from the matching executor entries. The
+   * entries left without endpoints are removed from the registry.
+   *
+   * @param entries   the predicate for the entries to be inspected
+   * @param endpoints the predicate for the endpoints to be removed
+   * @return the changed executor entries
+   */
+  private List<ExecutorEntry> remove(final Predicate<ExecutorEntry> entries,
+      final Predicate<ExecutorEndpoint> endpoints) {
+    Snapshot current;
+    List<ExecutorEntry> changed;
+    do {
+      current = snapshot.get();
+      final long revision = current.revision + 1;
+      changed = current.executors.values().stream()
+          .filter(entries)
+          .filter(e -> e.getEndpoints().stream().anyMatch(endpoints))
+          .map(e -> e.withoutEndpoints(endpoints, revision))
+          .collect(Collectors.toList());
+      if (changed.isEmpty()) {
+        break;
+      }
+    } while (!snapshot.compareAndSet(current, current.with(changed)));
+    return changed;
+  }
+
+  /**
+   * Returns the lease expiration for an instance whose lease starts (or is renewed) now
+   *
+   * @return the lease expiration timestamp, in nanoseconds
+   */
+  private long leaseExpiration() {
+    return clock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(lease);
   }
 
   /**
@@ -178,6 +446,46 @@ final class ExecutorRegistry {
         validateVersionFormat(request.getString("v"));
   }
 
+  /**
+   * Validates the (optional) cache policy of the received executor registration request
+   *
+   * @param request the executor registration request
+   * @return {@code true} if the cache policy is either absent or valid, {@code false} otherwise.
+   */
+  private boolean isCacheValid(final JsonObject request) {
+    final Object cache = request.getValue("c");
+    if (cache == null) {
+      return true;
+    }
+    if (!JsonObject.class.isInstance(cache)) {
+      return false;
+    }
+    final Object ttl = ((JsonObject) cache).getValue("t");
+    final Object scope = ((JsonObject) cache).getValue("s", CacheScope.COMMAND.name());
+    return ttl instanceof Number && ((Number) ttl).longValue() > 0 && isScopeValid(scope);
+  }
+
+  /**
+   * Validates the given (cache or coalescing) scope name
+   *
+   * @param scope the scope name
+   * @return {@code true} if the scope is known, {@code false} otherwise.
+   */
+  private static boolean isScopeValid(final Object scope) {
+    return Arrays.stream(CacheScope.values()).anyMatch(s -> s.name().equals(scope));
+  }
+
+  /**
+   * Validates the (optional) response mode of the received executor registration request
+   *
+   * @param request the executor registration request
+   * @return {@code true} if the mode is either absent or known, {@code false} otherwise.
+   */
+  private boolean isModeValid(final JsonObject request) {
+    final String mode = request.getString("m", SYNC_MODE);
+    return SYNC_MODE.equals(mode) || DEFERRED_MODE.equals(mode);
+  }
+
   /**
    * Performs a basic validation of the specified field at the executor registry request.
    * This method only validates if the field is present and it's not empty.
@@ -210,6 +518,57 @@ final class ExecutorRegistry {
     return valid;
   }
 
+  // the immutable snapshot of the registered executors
+  private static final class Snapshot {
+
+    // the snapshot revision, incremented upon each change
+    private final long revision;
+
+    // the executors mapped by his identifier
+    private final Map<String, ExecutorEntry> executors;
+
+    /**
+     * Constructs the snapshot with the given revision and executors
+     *
+     * @param revision  the snapshot revision
+     * @param executors the (immutable) executors mapping
+     */
+    private Snapshot(final long revision, final Map<String, ExecutorEntry> executors) {
+      this.revision = revision;
+      this.executors = executors;
+    }
+
+    /**
+     * Creates the next revision of this snapshot with the given entry added to (or replaced at)
+     * the executors mapping
+     *
+     * @param entry the executor entry
+     * @return the new snapshot
+     */
+    private Snapshot with(final ExecutorEntry entry) {
+      return with(Collections.singletonList(entry));
+    }
+
+    /**
+     * Creates the next revision of this snapshot with the given entries added to (or replaced at)
+     * the executors mapping. Entries without endpoints are removed from the mapping instead.
+     *
+     * @param entries the executor entries, all of them with the same revision
+     * @return the new snapshot
+     */
+    private Snapshot with(final List<ExecutorEntry> entries) {
+      final Map<String, ExecutorEntry> copy = new HashMap<>(executors);
+      entries.forEach(e -> {
+        if (e.getEndpoints().isEmpty()) {
+          copy.remove(e.getId());
+        } else {
+          copy.put(e.getId(), e);
+        }
+      });
+      return new Snapshot(entries.get(0).getRevision(), Collections.unmodifiableMap(copy));
+    }
+  }
+
   // the executor map entry utility class
   static class ExecutorEntry {
 
@@ -217,7 +576,12 @@ final class ExecutorRegistry {
     private final String id;
     private final Version version;
     private final String description;
-    private final String address;
+    private final boolean deferred;
+    private final long cacheTtl;
+    private final CacheScope cacheScope;
+    private final CacheScope coalescing;
+    private final List<ExecutorEndpoint> endpoints;
+    private final long revision;
 
     /**
      * Constructs the entry with the executor configuration
@@ -225,14 +589,55 @@ final class ExecutorRegistry {
      * @param id          the executor identifier
      * @param version     the executor version
      * @param description the executor description
-     * @param address     the assigned address to the executor
+     * @param deferred    whether or not the executor responses are deferred
+     * @param cacheTtl    the time to live of the cached responses, zero if not cacheable
+     * @param cacheScope  the scope of the cached responses
+     * @param coalescing  the coalescing scope, {@code null} if the requests are not coalesced
+     * @param endpoints   the (immutable) endpoints of the executor instances
+     * @param revision    the registry revision at which this entry was created
      */
     private ExecutorEntry(final String id, final Version version, final String description,
-        final String address) {
+        final boolean deferred, final long cacheTtl, final CacheScope cacheScope,
+        final CacheScope coalescing, final List<ExecutorEndpoint> endpoints,
+        final long revision) {
       this.id = id;
       this.version = version;
       this.description = description;
-      this.address = address;
+      this.deferred = deferred;
+      this.cacheTtl = cacheTtl;
+      this.cacheScope = cacheScope;
+      this.coalescing = coalescing;
+      this.endpoints = endpoints;
+      this.revision = revision;
+    }
+
+    /**
+     * Creates a copy of this entry with the given endpoint added to it
+     *
+     * @param endpoint the new executor instance endpoint
+     * @param revision the registry revision of the copy
+     * @return the new executor entry
+     */
+    private ExecutorEntry withEndpoint(final ExecutorEndpoint endpoint, final long revision) {
+      final List<ExecutorEndpoint> copy = new ArrayList<>(endpoints);
+      copy.add(endpoint);
+      return new ExecutorEntry(id, version, description, deferred, cacheTtl, cacheScope,
+          coalescing, Collections.unmodifiableList(copy), revision);
+    }
+
+    /**
+     * Creates a copy of this entry without the endpoints matching the given predicate
+     *
+     * @param predicate the predicate for the endpoints to be removed
+     * @param revision  the registry revision of the copy
+     * @return the new executor entry
+     */
+    private ExecutorEntry withoutEndpoints(final Predicate<ExecutorEndpoint> predicate,
+        final long revision) {
+      return new ExecutorEntry(id, version, description, deferred, cacheTtl, cacheScope,
+          coalescing, Collections.unmodifiableList(endpoints.stream()
+              .filter(predicate.negate())
+              .collect(Collectors.toList())), revision);
     }
 
     /**
@@ -261,5 +666,63 @@ final class ExecutorRegistry {
     String getDescription() {
       return description;
     }
+
+    /**
+     * Returns whether or not the executor responses are deferred, i.e. delivered asynchronously to
+     * the request response URL
+     *
+     * @return {@code true} if the responses are deferred, {@code false} otherwise
+     */
+    boolean isDeferred() {
+      return deferred;
+    }
+
+    /**
+     * Returns for how long the executor responses may be cached
+     *
+     * @return the time to live of the cached responses, in milliseconds, zero if the responses are
+     * not cacheable
+     */
+    long getCacheTtl() {
+      return cacheTtl;
+    }
+
+    /**
+     * Returns the scope of the cached responses of the executor
+     *
+     * @return the cached responses scope
+     */
+    CacheScope getCacheScope() {
+      return cacheScope;
+    }
+
+    /**
+     * Returns the scope within which the identical in-flight requests to the executor are
+     * coalesced, if any
+     *
+     * @return the coalescing scope, empty if the requests are not coalesced
+     */
+    Optional<CacheScope> getCoalescing() {
+      return Optional.ofNullable(coalescing);
+    }
+
+    /**
+     * Returns the endpoints of the registered executor instances
+     *
+     * @return the executor endpoints
+     */
+    List<ExecutorEndpoint> getEndpoints() {
+      return endpoints;
+    }
+
+    /**
+     * Returns the registry revision at which this entry was last modified. Newer revisions of the
+     * same executor entry supersede the older ones.
+     *
+     * @return the entry revision
+     */
+    long getRevision() {
+      return revision;
+    }
   }
 }
@@ -0,0 +1,262 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+
+import io.netty.buffer.ByteBuf;
+import io.vertx.core.buffer.Buffer;
+import pt.davidafsilva.slacker.api.StringInterner;
+
+/**
+ * A single-pass decoder of {@code application/x-www-form-urlencoded} bodies, which only decodes
+ * the values of a known set of fields.
+ *
+ * The body is scanned straight from its bytes: the field names are matched against the encoded
+ * known names, while the unknown fields are skipped without being decoded. The values of the
+ * known fields are percent-decoded (UTF-8) into their final strings, such that no intermediate
+ * maps, lists or strings are created. Whenever a field is repeated, its first value is kept.
+ * The values of the interned fields are further resolved through a {@link StringInterner},
+ * such that their repeated values aren't even decoded.
+ *
+ * The decoder is immutable, hence thread-safe.
+ *
+ * @author david
+ */
+final class FormDecoder {
+
+  // the encoded names of the known fields
+  private final byte[][] fields;
+
+  // the interner of the values of the interned fields
+  private final StringInterner interner;
+
+  // whether or not the values of each of the known fields are interned
+  private final boolean[] interned;
+
+  /**
+   * Constructs the decoder of the given known fields, whose names must be plain ASCII, without
+   * any reserved characters.
+   *
+   * @param fields the names of the known fields
+   */
+  FormDecoder(final String... fields) {
+    this(null, Collections.emptySet(), fields);
+  }
+
+  /**
+   * Constructs the decoder of the given known fields, whose names must be plain ASCII, without
+   * any reserved characters, resolving the values of the interned fields through the given
+   * interner.
+   *
+   * @param interner the interner of the values
+   * @param interned the names of the interned fields
+   * @param fields   the names of the known fields
+   */
+  FormDecoder(final StringInterner interner, final Collection<String> interned,
+      final String... fields) {
+    this.fields = new byte[fields.length][];
+    this.interner = interner;
+    this.interned = new boolean[fields.length];
+    for (int i = 0; i < fields.length; i++) {
+      this.fields[i] = fields[i].getBytes(StandardCharsets.US_ASCII);
+      this.interned[i] = interned.contains(fields[i]);
+    }
+  }
+
+  /**
+   * Returns the number of known fields of this decoder
+   *
+   * @return the number of known fields
+   */
+  int size() {
+    return fields.length;
+  }
+
+  /**
+   * Returns the name of the known field with the given index
+   *
+   * @param index the index of the field
+   * @return the field name
+   */
+  String name(final int index) {
+    return new String(fields[index], StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Decodes the values of the known fields from the given body into the given array, indexed in
+   * the same order as the fields of this decoder. The values of the missing fields are left
+   * untouched.
+   *
+   * @param body   the form body
+   * @param values the array of values, with (at least) the size of this decoder
+   * @return {@code true} if the body was successfully decoded, {@code false} if it has malformed
+   * percent-encoded values
+   */
+  boolean decode(final Buffer body, final String[] values) {
+    final byte[] bytes;
+    final int start;
+    final ByteBuf buf = body.getByteBuf();
+    if (buf.hasArray()) {
+      bytes = buf.array();
+      start = buf.arrayOffset() + buf.readerIndex();
+    } else {
+      bytes = body.getBytes();
+      start = 0;
+    }
+
+    final int end = start + body.length();
+    int pos = start;
+    while (pos < end) {
+      final int separator = indexOf(bytes, (byte) '&', pos, end);
+      final int assignment = indexOf(bytes, (byte) '=', pos, separator);
+      final int field = field(bytes, pos, assignment);
+      if (field >= 0 && values[field] == null) {
+        values[field] = assignment == separator ? "" :
+            decodeValue(bytes, assignment + 1, separator, interned[field] ? interner : null);
+        if (values[field] == null) {
+          return false;
+        }
+      }
+      pos = separator + 1;
+    }
+    return true;
+  }
+
+  /**
+   * Looks up the known field with the given (encoded) name
+   *
+   * @param bytes the bytes of the body
+   * @param from  the start of the field name, inclusive
+   * @param to    the end of the field name, exclusive
+   * @return the index of the field, or {@code -1} if it's unknown
+   */
+  private int field(final byte[] bytes, final int from, final int to) {
+    final int length = to - from;
+    for (int i = 0; i < fields.length; i++) {
+      final byte[] field = fields[i];
+      if (field.length == length && matches(bytes, from, field)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Decodes the (percent-encoded) value within the given bounds
+   *
+   * @param bytes    the bytes of the body
+   * @param from     the start of the value, inclusive
+   * @param to       the end of the value, exclusive
+   * @param interner the interner of the value, if it is to be interned
+   * @return the decoded value, or {@code null} if it is malformed
+   */
+  private static String decodeValue(final byte[] bytes, final int from, final int to,
+      final StringInterner interner) {
+    int encoded = from;
+    while (encoded < to && bytes[encoded] != '%' && bytes[encoded] != '+') {
+      encoded++;
+    }
+    if (encoded == to) {
+      return decode(bytes, from, to - from, interner);
+    }
+
+    // the decoded value is never longer than the encoded one
+    final byte[] decoded = new byte[to - from];
+    int length = encoded - from;
+    System.arraycopy(bytes, from, decoded, 0, length);
+    for (int i = encoded; i < to; i++) {
+      final byte b = bytes[i];
+      if (b == '+') {
+        decoded[length++] = ' ';
+      } else if (b == '%') {
+        final int high = i + 2 < to ? Character.digit(bytes[i + 1], 16) : -1;
+        final int low = high < 0 ? -1 : Character.digit(bytes[i + 2], 16);
+        if (low < 0) {
+          return null;
+        }
+        decoded[length++] = (byte) (high << 4 | low);
+        i += 2;
+      } else {
+        decoded[length++] = b;
+      }
+    }
+    return decode(decoded, 0, length, interner);
+  }
+
+  /**
+   * Decodes the given (UTF-8) bytes, through the given interner if any
+   *
+   * @param bytes    the bytes
+   * @param offset   the offset of the value
+   * @param length   the length of the value
+   * @param interner the interner of the value, if it is to be interned
+   * @return the decoded value
+   */
+  private static String decode(final byte[] bytes, final int offset, final int length,
+      final StringInterner interner) {
+    return interner == null ? new String(bytes, offset, length, StandardCharsets.UTF_8) :
+        interner.intern(bytes, offset, length);
+  }
+
+  /**
+   * Checks whether or not the given field name is found at the given position
+   *
+   * @param bytes the bytes of the body
+   * @param from  the position to check
+   * @param field the field name
+   * @return {@code true} if the field name is found, {@code false} otherwise
+   */
+  private static boolean matches(final byte[] bytes, final int from, final byte[] field) {
+    for (int i = 0; i < field.length; i++) {
+      if (bytes[from + i] != field[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Finds the first occurrence of the given byte within the given bounds
+   *
+   * @param bytes the bytes to search
+   * @param b     the byte to find
+   * @param from  the start of the search, inclusive
+   * @param to    the end of the search, exclusive
+   * @return the index of the byte, or {@code to} if it is not found
+   */
+  private static int indexOf(final byte[] bytes, final byte b, final int from, final int to) {
+    for (int i = from; i < to; i++) {
+      if (bytes[i] == b) {
+        return i;
+      }
+    }
+    return to;
+  }
+}
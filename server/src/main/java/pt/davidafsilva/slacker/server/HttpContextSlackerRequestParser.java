@@ -26,22 +26,21 @@ package pt.davidafsilva.slacker.server;
  * #L%
  */
 
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.time.Instant;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeFormatterBuilder;
-import java.util.NoSuchElementException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
-import java.util.function.Function;
-import java.util.function.Supplier;
+import java.util.Set;
 
-import io.vertx.core.logging.Logger;
-import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.ext.web.RoutingContext;
-import pt.davidafsilva.slacker.api.SlackerRequest;
 import pt.davidafsilva.slacker.api.SlackerRequestBuilder;
-
-import static java.time.temporal.ChronoField.INSTANT_SECONDS;
-import static java.time.temporal.ChronoField.NANO_OF_SECOND;
+import pt.davidafsilva.slacker.api.StringInterner;
 
 /**
  * The http-server based slacker request
@@ -50,15 +49,6 @@ import static java.time.temporal.ChronoField.NANO_OF_SECOND;
  */
 final class HttpContextSlackerRequestParser {
 
-  // the logger
-  private static final Logger
-      LOGGER =
-      LoggerFactory.getLogger(HttpContextSlackerRequestParser.class);
-
-  // the supplier for the exception thrown when a POST request field is missing
-  private static final Function<String, Supplier<RuntimeException>> NO_VALUE_EXCEPTION = field ->
-      () -> new NoSuchElementException("required request field is missing: " + field);
-
   // the request parameters
   //static final String REQUEST_TOKEN = "token";
   static final String REQUEST_TIMESTAMP = "timestamp";
@@ -70,13 +60,36 @@ final class HttpContextSlackerRequestParser {
   static final String REQUEST_USER_NAME = "user_name";
   static final String REQUEST_TRIGGER_WORD = "trigger_word";
   static final String REQUEST_TEXT = "text";
+  static final String REQUEST_RESPONSE_URL = "response_url";
+
+  // the decoder of the request parameters, along with the indexes of their values
+  // (the identifiers are interned, as their values are repeated over and over)
+  private static final FormDecoder DECODER = new FormDecoder(StringInterner.shared(),
+      Arrays.asList(REQUEST_TEAM_ID, REQUEST_TEAM_DOMAIN, REQUEST_CHANNEL_ID,
+          REQUEST_CHANNEL_NAME, REQUEST_USER_ID, REQUEST_USER_NAME, REQUEST_TRIGGER_WORD),
+      REQUEST_TIMESTAMP, REQUEST_TEAM_ID, REQUEST_TEAM_DOMAIN, REQUEST_CHANNEL_ID,
+      REQUEST_CHANNEL_NAME, REQUEST_USER_ID, REQUEST_USER_NAME, REQUEST_TRIGGER_WORD,
+      REQUEST_TEXT, REQUEST_RESPONSE_URL);
+  private static final int TIMESTAMP = 0;
+  private static final int TEAM_ID = 1;
+  private static final int TEAM_DOMAIN = 2;
+  private static final int CHANNEL_ID = 3;
+  private static final int CHANNEL_NAME = 4;
+  private static final int USER_ID = 5;
+  private static final int USER_NAME = 6;
+  private static final int TRIGGER_WORD = 7;
+  private static final int TEXT = 8;
+  private static final int RESPONSE_URL = 9;
+
+  // the invalid fields of the malformed requests
+  private static final List<String> MALFORMED_BODY = Collections.singletonList("body");
 
-  // the timestamp formatter
-  private static final DateTimeFormatter TIMESTAMP_FORMATTER = new DateTimeFormatterBuilder()
-      .appendValue(INSTANT_SECONDS, 10)
-      .appendLiteral('.')
-      .appendFraction(NANO_OF_SECOND, 0, 9, false)
-      .toFormatter();
+  // the default hosts of the response URLs
+  private static final Set<String> DEFAULT_RESPONSE_URL_HOSTS = Collections.singleton(
+      HttpServerConfiguration.DEFAULT_RESPONSE_URL_HOSTS);
+
+  // the required scheme of the response URLs
+  private static final String RESPONSE_URL_SCHEME = "https";
 
   // private constructor
   private HttpContextSlackerRequestParser() {
@@ -84,60 +97,143 @@ final class HttpContextSlackerRequestParser {
   }
 
   /**
-   * Creates a slacker request from the given POST request context.
-   * If any error occurs, i.e. there is a missing field from the request, an {@link
-   * Optional#empty()} is returned.
+   * Validates and creates a slacker request from the given POST request context.
    *
-   * @param context the routing context
-   * @return the optional with the slacker request, if successfully parsed
+   * @param context          the routing context
+   * @param responseUrlHosts the hosts to which the response URLs may point to
+   * @return the validation result, with either the slacker request or the missing and invalid
+   * fields of the request
    */
-  public static Optional<SlackerRequest> parse(final RoutingContext context) {
-    Optional<SlackerRequest> optionalRequest;
-    try {
-      final SlackerRequestBuilder builder = new SlackerRequestBuilder();
-      //getPostValue(context, REQUEST_TOKEN);
-      builder.timestamp(Instant.from(TIMESTAMP_FORMATTER.parse(getPostValue(context,
-          REQUEST_TIMESTAMP))));
-      builder.teamIdentifier(getPostValue(context, REQUEST_TEAM_ID));
-      builder.teamDomain(getPostValue(context, REQUEST_TEAM_DOMAIN));
-      builder.channelId(getPostValue(context, REQUEST_CHANNEL_ID));
-      builder.channelName(getPostValue(context, REQUEST_CHANNEL_NAME));
-      builder.userId(getPostValue(context, REQUEST_USER_ID));
-      builder.userName(getPostValue(context, REQUEST_USER_NAME));
-      final String[] split = splitCommandAndArguments(getPostValue(context, REQUEST_TRIGGER_WORD),
-          getPostValue(context, REQUEST_TEXT));
-      builder.command(split[0]);
-      builder.args(split.length > 1 ? split[1] : null);
-      optionalRequest = Optional.of(builder.build());
-    } catch (final Exception e) {
-      LOGGER.error("unable to parse request", e);
-      optionalRequest = Optional.empty();
+  public static RequestValidation parse(final RoutingContext context,
+      final Set<String> responseUrlHosts) {
+    return parse(context.getBody(), responseUrlHosts);
+  }
+
+  /**
+   * Validates and creates a slacker request from the given (url-encoded) POST request body, whose
+   * response URL may only point to the default hosts.
+   *
+   * @param body the request body
+   * @return the validation result, with either the slacker request or the missing and invalid
+   * fields of the request
+   */
+  static RequestValidation parse(final Buffer body) {
+    return parse(body, DEFAULT_RESPONSE_URL_HOSTS);
+  }
+
+  /**
+   * Validates and creates a slacker request from the given (url-encoded) POST request body.
+   * Every field is validated, such that all of the missing and invalid fields are reported at
+   * once. The response URL, if any, must be an https URL of one of the given hosts, as the
+   * responses are delivered to it.
+   *
+   * @param body             the request body
+   * @param responseUrlHosts the hosts to which the response URLs may point to
+   * @return the validation result, with either the slacker request or the missing and invalid
+   * fields of the request
+   */
+  static RequestValidation parse(final Buffer body, final Set<String> responseUrlHosts) {
+    final String[] values = new String[DECODER.size()];
+    if (body == null || !DECODER.decode(body, values)) {
+      return RequestValidation.invalid(Collections.emptyList(), MALFORMED_BODY);
     }
 
-    return optionalRequest;
+    // required fields
+    List<String> missing = Collections.emptyList();
+    for (int field = 0; field < DECODER.size(); field++) {
+      if (values[field] == null && field != RESPONSE_URL) {
+        missing = add(missing, DECODER.name(field));
+      }
+    }
+    final Optional<Instant> timestamp = values[TIMESTAMP] == null ? Optional.empty() :
+        TimestampParser.parse(values[TIMESTAMP]);
+    List<String> invalid = Collections.emptyList();
+    if (values[TIMESTAMP] != null && !timestamp.isPresent()) {
+      invalid = add(invalid, REQUEST_TIMESTAMP);
+    }
+    if (values[RESPONSE_URL] != null &&
+        !isResponseUrlAllowed(values[RESPONSE_URL], responseUrlHosts)) {
+      invalid = add(invalid, REQUEST_RESPONSE_URL);
+    }
+    if (!missing.isEmpty() || !invalid.isEmpty()) {
+      return RequestValidation.invalid(missing, invalid);
+    }
+
+    final SlackerRequestBuilder builder = new SlackerRequestBuilder()
+        .timestamp(timestamp.get())
+        .teamIdentifier(values[TEAM_ID])
+        .teamDomain(values[TEAM_DOMAIN])
+        .channelId(values[CHANNEL_ID])
+        .channelName(values[CHANNEL_NAME])
+        .userId(values[USER_ID])
+        .userName(values[USER_NAME])
+        // optional fields
+        .responseUrl(values[RESPONSE_URL]);
+    splitCommandAndArguments(values[TRIGGER_WORD], values[TEXT], builder);
+    return RequestValidation.valid(builder.build());
+  }
+
+  /**
+   * Adds the given field to the list of fields, creating the (mutable) list on the first field
+   *
+   * @param fields the list of fields
+   * @param field  the field to add
+   * @return the list of fields
+   */
+  private static List<String> add(final List<String> fields, final String field) {
+    final List<String> list = fields.isEmpty() ? new ArrayList<>(DECODER.size()) : fields;
+    list.add(field);
+    return list;
   }
 
   /**
-   * Returns a split of the command and the respective arguments that were issued from the channel
+   * Checks whether or not the given response URL is an https URL of one of the given hosts
+   *
+   * @param url   the response URL
+   * @param hosts the allowed (lower-case) hosts
+   * @return {@code true} if the response URL is allowed, {@code false} otherwise
+   */
+  private static boolean isResponseUrlAllowed(final String url, final Set<String> hosts) {
+    try {
+      final URI uri = new URI(url);
+      return RESPONSE_URL_SCHEME.equalsIgnoreCase(uri.getScheme()) && uri.getHost() != null &&
+          uri.getRawUserInfo() == null && hosts.contains(uri.getHost().toLowerCase(Locale.ROOT));
+    } catch (final URISyntaxException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Splits the command and the respective arguments that were issued from the channel, without
+   * the trigger of the message. The trigger is matched literally, and the command is separated
+   * from the arguments by the first whitespace character.
    *
    * @param trigger the trigger of the message
    * @param text    the complete text of the command
-   * @return the first position of array contains the command, the second is the argument
+   * @param builder the request builder to which the command and arguments are set
    */
-  private static String[] splitCommandAndArguments(final String trigger, final String text) {
-    return text.replaceFirst(trigger, "").split("\\s", 2);
+  private static void splitCommandAndArguments(final String trigger, final String text,
+      final SlackerRequestBuilder builder) {
+    final int triggerIndex = trigger.isEmpty() ? -1 : text.indexOf(trigger);
+    final String message = triggerIndex < 0 ? text : text.substring(0, triggerIndex) +
+        text.substring(triggerIndex + trigger.length());
+    final int length = message.length();
+    int separator = 0;
+    while (separator < length && !isWhitespace(message.charAt(separator))) {
+      separator++;
+    }
+    builder.command(message.substring(0, separator));
+    builder.args(separator < length ? message.substring(separator + 1) : null);
   }
 
   /**
-   * Returns the POST property value if it's available, otherwise an {@link NoSuchElementException}
-   * is thrown.
+   * Checks whether or not the given character is a whitespace character, as in the {@code \s}
+   * regular expression class
    *
-   * @param context  the routing context with the request data
-   * @param property the desired POST property
-   * @return the property value
+   * @param c the character
+   * @return {@code true} if the character is a whitespace, {@code false} otherwise
    */
-  private static String getPostValue(final RoutingContext context, final String property) {
-    return Optional.ofNullable(context.request().formAttributes().get(property))
-        .orElseThrow(NO_VALUE_EXCEPTION.apply(property));
+  private static boolean isWhitespace(final char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
   }
 }
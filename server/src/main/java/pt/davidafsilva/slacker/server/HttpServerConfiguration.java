@@ -29,9 +29,14 @@ package pt.davidafsilva.slacker.server;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import io.vertx.core.http.HttpServerOptions;
 import io.vertx.core.json.JsonObject;
@@ -57,6 +62,92 @@ import io.vertx.core.net.JksOptions;
  * <td>The port for underlying HTTP server - required for heroku deployments</td>
  * </tr>
  * <tr>
+ * <td>SLACKER_HTTP_INSTANCES</td>
+ * <td>The number of HTTP server verticle instances sharing the listener (defaults to the number
+ * of available cores)</td>
+ * </tr>
+ * <tr>
+ * <td>SLACKER_EVENT_INSTANCES</td>
+ * <td>The number of event server verticle instances (defaults to 1)</td>
+ * </tr>
+ * <tr>
+ * <td>SLACKER_DIRECT_ROUTING</td>
+ * <td>Enables the direct routing of requests from the HTTP server to the executors, skipping the
+ * event server hop whenever the executor address is known</td>
+ * </tr>
+ * <tr>
+ * <td>SLACKER_LOAD_BALANCING</td>
+ * <td>The strategy used to balance the requests among the instances of the same executor:
+ * LEAST_OUTSTANDING (default), POWER_OF_TWO_CHOICES or EWMA</td>
+ * </tr>
+ * <tr>
+ * <td>SLACKER_EXECUTOR_LEASE</td>
+ * <td>The lease duration (in milliseconds) of the registered executors, which is renewed by their
+ * heartbeats (defaults to 3000)</td>
+ * </tr>
+ * <tr>
+ * <td>SLACKER_REQUEST_BUDGET</td>
+ * <td>The time budget (in milliseconds) of each request, counted from the request timestamp,
+ * after which the request is abandoned (defaults to 3000, the slack response deadline)</td>
+ * </tr>
+ * <tr>
+ * <td>SLACKER_MAX_BODY_SIZE</td>
+ * <td>The maximum size (in bytes) of the request bodies, beyond which the requests are rejected
+ * (defaults to 16384)</td>
+ * </tr>
+ * <tr>
+ * <td>SLACKER_MAX_IN_FLIGHT</td>
+ * <td>The maximum number of in-flight requests, after which the incoming requests are rejected
+ * as busy (defaults to 1024, zero disables the limit)</td>
+ * </tr>
+ * <tr>
+ * <td>SLACKER_COMMAND_MAX_IN_FLIGHT</td>
+ * <td>The maximum number of in-flight requests per command (defaults to zero, no limit)</td>
+ * </tr>
+ * <tr>
+ * <td>SLACKER_ADAPTIVE_ADMISSION</td>
+ * <td>Enables the adaptation of the maximum number of in-flight requests to the observed latency,
+ * targeting half of the request budget</td>
+ * </tr>
+ * <tr>
+ * <td>SLACKER_RATE_LIMIT</td>
+ * <td>The sustained rate (in requests per second) allowed for each team, channel and user of a
+ * command (defaults to zero, no limit)</td>
+ * </tr>
+ * <tr>
+ * <td>SLACKER_RATE_BURST</td>
+ * <td>The maximum burst of requests allowed for each team, channel and user of a command
+ * (defaults to 10)</td>
+ * </tr>
+ * <tr>
+ * <td>SLACKER_COMMAND_RATE_LIMITS</td>
+ * <td>The JSON object with the rate limits of specific commands, mapping each command to its
+ * rate ("r") and burst ("b")</td>
+ * </tr>
+ * <tr>
+ * <td>SLACKER_RESPONSE_CACHE_SIZE</td>
+ * <td>The maximum number of cached responses of the cacheable executors (defaults to 10000)</td>
+ * </tr>
+ * <tr>
+ * <td>SLACKER_DEFERRED_BUDGET</td>
+ * <td>The time budget (in milliseconds) of each request to an executor with deferred responses,
+ * counted from the moment the request is acknowledged (defaults to 300000)</td>
+ * </tr>
+ * <tr>
+ * <td>SLACKER_DELIVERY_CONCURRENCY</td>
+ * <td>The maximum number of concurrent deliveries of deferred responses, which is also the size of
+ * the delivery connection pool (defaults to 16)</td>
+ * </tr>
+ * <tr>
+ * <td>SLACKER_DELIVERY_RETRIES</td>
+ * <td>The maximum number of retries of a failed deferred response delivery (defaults to 3)</td>
+ * </tr>
+ * <tr>
+ * <td>SLACKER_RESPONSE_URL_HOSTS</td>
+ * <td>The comma-separated hosts to which the (https) response URLs may point to (defaults to
+ * hooks.slack.com)</td>
+ * </tr>
+ * <tr>
  * <td>SLACKER_USE_SSL</td>
  * <td>Enables HTTPS instead of HTTP for underlying server</td>
  * </tr>
@@ -77,6 +168,41 @@ final class HttpServerConfiguration {
 
   // the default value for HTTP port
   static final int DEFAULT_HTTP_PORT = 8080;
+  // the default value for the number of HTTP server instances
+  static final int DEFAULT_HTTP_INSTANCES = Runtime.getRuntime().availableProcessors();
+  // the default value for the number of event server instances
+  static final int DEFAULT_EVENT_INSTANCES = 1;
+  // the default value for the direct routing flag
+  static final boolean DEFAULT_DIRECT_ROUTING = false;
+  // the default load balancing strategy among executor instances
+  static final LoadBalancingStrategy DEFAULT_LOAD_BALANCING =
+      LoadBalancingStrategy.LEAST_OUTSTANDING;
+  // the default lease duration of the registered executors (in milliseconds)
+  static final long DEFAULT_EXECUTOR_LEASE = 3000;
+  // the default time budget of each request (in milliseconds)
+  static final long DEFAULT_REQUEST_BUDGET = 3000;
+  // the default maximum size of the request bodies (in bytes)
+  static final int DEFAULT_MAX_BODY_SIZE = 16384;
+  // the default maximum number of in-flight requests
+  static final int DEFAULT_MAX_IN_FLIGHT = 1024;
+  // the default maximum number of in-flight requests per command
+  static final int DEFAULT_COMMAND_MAX_IN_FLIGHT = 0;
+  // the default value for the adaptive admission flag
+  static final boolean DEFAULT_ADAPTIVE_ADMISSION = false;
+  // the default rate limit (in requests per second)
+  static final double DEFAULT_RATE_LIMIT = 0;
+  // the default rate limit burst
+  static final int DEFAULT_RATE_BURST = 10;
+  // the default maximum number of cached responses
+  static final int DEFAULT_RESPONSE_CACHE_SIZE = 10000;
+  // the default time budget of each deferred request (in milliseconds)
+  static final long DEFAULT_DEFERRED_BUDGET = 300000;
+  // the default maximum number of concurrent deliveries
+  static final int DEFAULT_DELIVERY_CONCURRENCY = 16;
+  // the default maximum number of delivery retries
+  static final int DEFAULT_DELIVERY_RETRIES = 3;
+  // the default hosts of the response URLs
+  static final String DEFAULT_RESPONSE_URL_HOSTS = "hooks.slack.com";
   // the default value for the use SSL flag
   static final boolean DEFAULT_USE_SSL = false;
   // the idle timeout for the connection (in seconds)
@@ -94,6 +220,17 @@ final class HttpServerConfiguration {
 
   // invalid configuration message
   static final String MISSING_PROPERTIES = "some required properties are missing: %s";
+  static final String INVALID_INSTANCES = "invalid number of instances: %d";
+  static final String INVALID_LOAD_BALANCING = "invalid load balancing strategy: %s";
+  static final String INVALID_LEASE = "invalid executor lease: %d";
+  static final String INVALID_BUDGET = "invalid request budget: %d";
+  static final String INVALID_BODY_SIZE = "invalid maximum body size: %d";
+  static final String INVALID_IN_FLIGHT = "invalid in-flight limit: %d";
+  static final String INVALID_RATE_LIMIT = "invalid rate limit: %s/%s";
+  static final String INVALID_CACHE_SIZE = "invalid response cache size: %d";
+  static final String INVALID_CONCURRENCY = "invalid delivery concurrency: %d";
+  static final String INVALID_RETRIES = "invalid delivery retries: %d";
+  static final String INVALID_RESPONSE_URL_HOSTS = "invalid response url hosts: %s";
 
   // private constructor
   private HttpServerConfiguration() {
@@ -135,6 +272,338 @@ final class HttpServerConfiguration {
     return options;
   }
 
+  /**
+   * Returns the number of HTTP server verticle instances to be deployed, based on the available
+   * environment variables (SLACK_*) and current configuration via the json configuration file.
+   * All of the instances share the same listener, each one running at its own event-loop.
+   *
+   * @param config the current configuration
+   * @return the number of instances to be deployed
+   * @throws IllegalStateException if the configured number of instances is not positive
+   */
+  static int httpInstances(final JsonObject config) {
+    return instances(config, ConfigurationVariable.HTTP_INSTANCES, DEFAULT_HTTP_INSTANCES);
+  }
+
+  /**
+   * Returns the number of event server verticle instances to be deployed, based on the available
+   * environment variables (SLACK_*) and current configuration via the json configuration file.
+   *
+   * @param config the current configuration
+   * @return the number of instances to be deployed
+   * @throws IllegalStateException if the configured number of instances is not positive
+   */
+  static int eventInstances(final JsonObject config) {
+    return instances(config, ConfigurationVariable.EVENT_INSTANCES, DEFAULT_EVENT_INSTANCES);
+  }
+
+  /**
+   * Reads the number of instances specified by the given configuration variable
+   *
+   * @param config       the current configuration
+   * @param variable     the configuration variable with the number of instances
+   * @param defaultValue the default number of instances
+   * @return the number of instances to be deployed
+   * @throws IllegalStateException if the configured number of instances is not positive
+   */
+  private static int instances(final JsonObject config, final ConfigurationVariable variable,
+      final int defaultValue) {
+    // evaluate the environment variables
+    evaluateEnvironmentVariables(config);
+
+    final int instances = config.getInteger(variable.name(), defaultValue);
+    if (instances < 1) {
+      throw new IllegalStateException(String.format(INVALID_INSTANCES, instances));
+    }
+    return instances;
+  }
+
+  /**
+   * Returns whether or not the requests shall be routed directly from the HTTP server to the
+   * executors, based on the available environment variables (SLACK_*) and current configuration
+   * via the json configuration file.
+   *
+   * @param config the current configuration
+   * @return {@code true} if direct routing is enabled, {@code false} otherwise
+   */
+  static boolean directRouting(final JsonObject config) {
+    // evaluate the environment variables
+    evaluateEnvironmentVariables(config);
+
+    return config.getBoolean(ConfigurationVariable.DIRECT_ROUTING.name(), DEFAULT_DIRECT_ROUTING);
+  }
+
+  /**
+   * Returns the strategy used to balance the requests among the instances of the same executor,
+   * based on the available environment variables (SLACK_*) and current configuration via the json
+   * configuration file.
+   *
+   * @param config the current configuration
+   * @return the load balancing strategy
+   * @throws IllegalStateException if the configured strategy is unknown
+   */
+  static LoadBalancingStrategy loadBalancing(final JsonObject config) {
+    // evaluate the environment variables
+    evaluateEnvironmentVariables(config);
+
+    final String strategy = config.getString(ConfigurationVariable.LOAD_BALANCING.name(),
+        DEFAULT_LOAD_BALANCING.name());
+    try {
+      return LoadBalancingStrategy.valueOf(strategy.toUpperCase(Locale.ROOT));
+    } catch (final IllegalArgumentException e) {
+      throw new IllegalStateException(String.format(INVALID_LOAD_BALANCING, strategy), e);
+    }
+  }
+
+  /**
+   * Returns the lease duration of the registered executors, based on the available environment
+   * variables (SLACK_*) and current configuration via the json configuration file.
+   *
+   * @param config the current configuration
+   * @return the executor lease duration, in milliseconds
+   * @throws IllegalStateException if the configured lease is not positive
+   */
+  static long executorLease(final JsonObject config) {
+    // evaluate the environment variables
+    evaluateEnvironmentVariables(config);
+
+    final long lease = config.getLong(ConfigurationVariable.EXECUTOR_LEASE.name(),
+        DEFAULT_EXECUTOR_LEASE);
+    if (lease < 1) {
+      throw new IllegalStateException(String.format(INVALID_LEASE, lease));
+    }
+    return lease;
+  }
+
+  /**
+   * Returns the time budget of each request, based on the available environment variables
+   * (SLACK_*) and current configuration via the json configuration file.
+   *
+   * @param config the current configuration
+   * @return the request time budget, in milliseconds
+   * @throws IllegalStateException if the configured budget is not positive
+   */
+  static long requestBudget(final JsonObject config) {
+    // evaluate the environment variables
+    evaluateEnvironmentVariables(config);
+
+    final long budget = config.getLong(ConfigurationVariable.REQUEST_BUDGET.name(),
+        DEFAULT_REQUEST_BUDGET);
+    if (budget < 1) {
+      throw new IllegalStateException(String.format(INVALID_BUDGET, budget));
+    }
+    return budget;
+  }
+
+  /**
+   * Returns the maximum size of the request bodies, based on the available environment variables
+   * (SLACK_*) and current configuration via the json configuration file.
+   *
+   * @param config the current configuration
+   * @return the maximum body size, in bytes
+   * @throws IllegalStateException if the configured size is not positive
+   */
+  static int maxBodySize(final JsonObject config) {
+    // evaluate the environment variables
+    evaluateEnvironmentVariables(config);
+
+    final int size = config.getInteger(ConfigurationVariable.MAX_BODY_SIZE.name(),
+        DEFAULT_MAX_BODY_SIZE);
+    if (size < 1) {
+      throw new IllegalStateException(String.format(INVALID_BODY_SIZE, size));
+    }
+    return size;
+  }
+
+  /**
+   * Creates the admission controller of the incoming requests, based on the available environment
+   * variables (SLACK_*) and current configuration via the json configuration file.
+   *
+   * @param config the current configuration
+   * @return the admission controller
+   * @throws IllegalStateException if any of the configured in-flight limits is negative
+   */
+  static AdmissionController admission(final JsonObject config) {
+    return new AdmissionController(
+        inFlightLimit(config, ConfigurationVariable.MAX_IN_FLIGHT, DEFAULT_MAX_IN_FLIGHT),
+        inFlightLimit(config, ConfigurationVariable.COMMAND_MAX_IN_FLIGHT,
+            DEFAULT_COMMAND_MAX_IN_FLIGHT),
+        config.getBoolean(ConfigurationVariable.ADAPTIVE_ADMISSION.name(),
+            DEFAULT_ADAPTIVE_ADMISSION),
+        requestBudget(config) / 2);
+  }
+
+  /**
+   * Reads the in-flight limit specified by the given configuration variable
+   *
+   * @param config       the current configuration
+   * @param variable     the configuration variable with the in-flight limit
+   * @param defaultValue the default in-flight limit
+   * @return the in-flight limit, zero if unbounded
+   * @throws IllegalStateException if the configured limit is negative
+   */
+  private static int inFlightLimit(final JsonObject config, final ConfigurationVariable variable,
+      final int defaultValue) {
+    // evaluate the environment variables
+    evaluateEnvironmentVariables(config);
+
+    final int limit = config.getInteger(variable.name(), defaultValue);
+    if (limit < 0) {
+      throw new IllegalStateException(String.format(INVALID_IN_FLIGHT, limit));
+    }
+    return limit;
+  }
+
+  /**
+   * Creates the rate limiter of the incoming requests, based on the available environment
+   * variables (SLACK_*) and current configuration via the json configuration file.
+   *
+   * @param config the current configuration
+   * @return the rate limiter
+   * @throws IllegalStateException if any of the configured rates or bursts is invalid
+   */
+  static RateLimiter rateLimiter(final JsonObject config) {
+    // evaluate the environment variables
+    evaluateEnvironmentVariables(config);
+
+    final RateLimiter.Limit defaultLimit = rateLimit(
+        config.getDouble(ConfigurationVariable.RATE_LIMIT.name(), DEFAULT_RATE_LIMIT),
+        config.getInteger(ConfigurationVariable.RATE_BURST.name(), DEFAULT_RATE_BURST));
+    final Map<String, RateLimiter.Limit> commandLimits = new HashMap<>();
+    config.getJsonObject(ConfigurationVariable.COMMAND_RATE_LIMITS.name(), new JsonObject())
+        .forEach(e -> {
+          final JsonObject limit = e.getValue() instanceof JsonObject ?
+              (JsonObject) e.getValue() : new JsonObject();
+          commandLimits.put(e.getKey(), rateLimit(limit.getDouble("r", DEFAULT_RATE_LIMIT),
+              limit.getInteger("b", DEFAULT_RATE_BURST)));
+        });
+    return new RateLimiter(defaultLimit, commandLimits);
+  }
+
+  /**
+   * Creates the rate limit with the given rate and burst
+   *
+   * @param rate  the rate, in requests per second, zero if unlimited
+   * @param burst the maximum burst of requests
+   * @return the rate limit
+   * @throws IllegalStateException if either the rate or the burst is invalid
+   */
+  private static RateLimiter.Limit rateLimit(final double rate, final int burst) {
+    if (rate < 0 || burst < 1) {
+      throw new IllegalStateException(String.format(INVALID_RATE_LIMIT, rate, burst));
+    }
+    return rate == 0 ? RateLimiter.Limit.UNLIMITED : new RateLimiter.Limit(rate, burst);
+  }
+
+  /**
+   * Returns the maximum number of cached responses of the cacheable executors, based on the
+   * available environment variables (SLACK_*) and current configuration via the json configuration
+   * file.
+   *
+   * @param config the current configuration
+   * @return the maximum number of cached responses
+   * @throws IllegalStateException if the configured size is negative
+   */
+  static int responseCacheSize(final JsonObject config) {
+    // evaluate the environment variables
+    evaluateEnvironmentVariables(config);
+
+    final int size = config.getInteger(ConfigurationVariable.RESPONSE_CACHE_SIZE.name(),
+        DEFAULT_RESPONSE_CACHE_SIZE);
+    if (size < 0) {
+      throw new IllegalStateException(String.format(INVALID_CACHE_SIZE, size));
+    }
+    return size;
+  }
+
+  /**
+   * Returns the time budget of each request to an executor with deferred responses, based on the
+   * available environment variables (SLACK_*) and current configuration via the json configuration
+   * file.
+   *
+   * @param config the current configuration
+   * @return the deferred request time budget, in milliseconds
+   * @throws IllegalStateException if the configured budget is not positive
+   */
+  static long deferredBudget(final JsonObject config) {
+    // evaluate the environment variables
+    evaluateEnvironmentVariables(config);
+
+    final long budget = config.getLong(ConfigurationVariable.DEFERRED_BUDGET.name(),
+        DEFAULT_DEFERRED_BUDGET);
+    if (budget < 1) {
+      throw new IllegalStateException(String.format(INVALID_BUDGET, budget));
+    }
+    return budget;
+  }
+
+  /**
+   * Returns the maximum number of concurrent deliveries of deferred responses, based on the
+   * available environment variables (SLACK_*) and current configuration via the json configuration
+   * file.
+   *
+   * @param config the current configuration
+   * @return the maximum number of concurrent deliveries
+   * @throws IllegalStateException if the configured concurrency is not positive
+   */
+  static int deliveryConcurrency(final JsonObject config) {
+    // evaluate the environment variables
+    evaluateEnvironmentVariables(config);
+
+    final int concurrency = config.getInteger(ConfigurationVariable.DELIVERY_CONCURRENCY.name(),
+        DEFAULT_DELIVERY_CONCURRENCY);
+    if (concurrency < 1) {
+      throw new IllegalStateException(String.format(INVALID_CONCURRENCY, concurrency));
+    }
+    return concurrency;
+  }
+
+  /**
+   * Returns the maximum number of retries of a failed deferred response delivery, based on the
+   * available environment variables (SLACK_*) and current configuration via the json configuration
+   * file.
+   *
+   * @param config the current configuration
+   * @return the maximum number of delivery retries
+   * @throws IllegalStateException if the configured number of retries is negative
+   */
+  static int deliveryRetries(final JsonObject config) {
+    // evaluate the environment variables
+    evaluateEnvironmentVariables(config);
+
+    final int retries = config.getInteger(ConfigurationVariable.DELIVERY_RETRIES.name(),
+        DEFAULT_DELIVERY_RETRIES);
+    if (retries < 0) {
+      throw new IllegalStateException(String.format(INVALID_RETRIES, retries));
+    }
+    return retries;
+  }
+
+  /**
+   * Returns the hosts to which the response URLs of the requests may point to, based on the
+   * available environment variables (SLACK_*) and current configuration via the json configuration
+   * file.
+   *
+   * @param config the current configuration
+   * @return the (lower-case) response URL hosts
+   * @throws IllegalStateException if no hosts are configured
+   */
+  static Set<String> responseUrlHosts(final JsonObject config) {
+    // evaluate the environment variables
+    evaluateEnvironmentVariables(config);
+
+    final String hosts = config.getString(ConfigurationVariable.RESPONSE_URL_HOSTS.name(),
+        DEFAULT_RESPONSE_URL_HOSTS);
+    final Set<String> set = Arrays.stream(hosts.split(","))
+        .map(h -> h.trim().toLowerCase(Locale.ROOT))
+        .filter(h -> !h.isEmpty())
+        .collect(Collectors.toSet());
+    if (set.isEmpty()) {
+      throw new IllegalStateException(String.format(INVALID_RESPONSE_URL_HOSTS, hosts));
+    }
+    return Collections.unmodifiableSet(set);
+  }
+
   /**
    * Validates the options for runtime and if there are missing options, fails the start of this
    * verticle.
@@ -175,6 +644,24 @@ final class HttpServerConfiguration {
   // the enumeration of the support configuration variables
   enum ConfigurationVariable {
     HTTP_PORT(Integer::valueOf),
+    HTTP_INSTANCES(Integer::valueOf),
+    EVENT_INSTANCES(Integer::valueOf),
+    DIRECT_ROUTING(Boolean::valueOf),
+    LOAD_BALANCING(Objects::toString),
+    EXECUTOR_LEASE(Long::valueOf),
+    REQUEST_BUDGET(Long::valueOf),
+    MAX_BODY_SIZE(Integer::valueOf),
+    MAX_IN_FLIGHT(Integer::valueOf),
+    COMMAND_MAX_IN_FLIGHT(Integer::valueOf),
+    ADAPTIVE_ADMISSION(Boolean::valueOf),
+    RATE_LIMIT(Double::valueOf),
+    RATE_BURST(Integer::valueOf),
+    COMMAND_RATE_LIMITS(JsonObject::new),
+    RESPONSE_CACHE_SIZE(Integer::valueOf),
+    DEFERRED_BUDGET(Long::valueOf),
+    DELIVERY_CONCURRENCY(Integer::valueOf),
+    DELIVERY_RETRIES(Integer::valueOf),
+    RESPONSE_URL_HOSTS(Objects::toString),
     USE_SSL(Boolean::valueOf),
     KEY_STORE_FILE(Objects::toString),
     KEY_STORE_PASS(Objects::toString);
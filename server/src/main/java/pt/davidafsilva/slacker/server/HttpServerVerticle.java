@@ -27,48 +27,128 @@ package pt.davidafsilva.slacker.server;
  */
 
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+import io.netty.handler.codec.http.HttpResponseStatus;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpServer;
 import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.shareddata.LocalMap;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
-import io.vertx.ext.web.handler.BodyHandler;
+import pt.davidafsilva.slacker.api.ExecutionTracker;
 import pt.davidafsilva.slacker.api.ResultCode;
+import pt.davidafsilva.slacker.api.SlackerDeadline;
 import pt.davidafsilva.slacker.api.SlackerRequest;
 import pt.davidafsilva.slacker.api.SlackerRequestMessageCodec;
 import pt.davidafsilva.slacker.api.SlackerResponse;
+import pt.davidafsilva.slacker.api.SlackerResponseRenderer;
 
 /**
  * The http server that shall receive the incoming requests from the slack web-hook and
  * forward them to the slacker-server via event-bus.
  *
+ * When direct routing is enabled, the requests are sent straight to the executors whose address is
+ * known from the local {@link RoutingTable} snapshot, falling back to the slacker-server otherwise.
+ *
+ * Multiple instances of this verticle may be deployed, in which case all of them share the same
+ * listener and the incoming connections are distributed among them.
+ *
+ * The request bodies are read up to the configured maximum size (see {@link
+ * HttpServerConfiguration#maxBodySize(JsonObject)}), being the larger ones rejected right away, and
+ * decoded by the {@link HttpContextSlackerRequestParser}. The invalid requests are rejected as
+ * {@link ResultCode#INVALID}, along with their missing and invalid fields, being only logged a
+ * periodic summary of them (see {@link InvalidRequestLog}). Since the responses are delivered to
+ * the request response URL, only the https URLs of the configured hosts are accepted (see {@link
+ * HttpServerConfiguration#responseUrlHosts(JsonObject)}).
+ *
+ * Each request is given a deadline, as per the configured request budget, which bounds the time
+ * waiting for the response and is propagated to the following hops (see {@link SlackerDeadline}).
+ * The requests directly routed to executors with deferred responses are acknowledged right away,
+ * being the executor response delivered afterwards by the {@link ResponseDeliveryVerticle}.
+ *
+ * Under overload, the requests exceeding the in-flight limits of the {@link AdmissionController}
+ * are promptly rejected as {@link ResultCode#BUSY} rather than queued. Likewise, the requests
+ * exceeding the rate limits of their team, channel or user (see {@link RateLimiter}) are rejected
+ * as {@link ResultCode#THROTTLED}.
+ *
+ * The requests are measured along the way, being their {@link SlackerMetrics} exposed in the
+ * Prometheus text format at the {@code GET /metrics} route. The lag of the event loops and the
+ * executions stalling them are tracked by the {@link ExecutionTracker}, whose report of the top
+ * offenders is exposed at the {@code GET /metrics/offenders} route.
+ *
  * @author david
  */
-final class HttpServerVerticle extends AbstractVerticle {
+public final class HttpServerVerticle extends AbstractVerticle {
 
   // the logger
   private static final Logger LOGGER = LoggerFactory.getLogger(HttpServerVerticle.class);
 
-  // the empty buffer
-  private static final Buffer EMPTY_BUF = Buffer.buffer(0);
+  // the shared map of admission controllers, by listening port
+  static final String ADMISSION_MAP = "admission.slacker-server";
+
+  // the shared map of rate limiters, by listening port
+  static final String RATE_LIMITER_MAP = "rate-limiter.slacker-server";
+
+  // the period of the idle rate limiter buckets eviction (in milliseconds)
+  static final long RATE_LIMITER_EVICTION_PERIOD = 60000;
 
   // the http httpServer
   private HttpServer httpServer;
 
+  // the local routing table, available only with direct routing enabled
+  private Optional<RoutingTable> routingTable = Optional.empty();
+
+  // the time budget of each request (in milliseconds)
+  private long requestBudget;
+
+  // the time budget of each deferred request (in milliseconds)
+  private long deferredBudget;
+
+  // the maximum size of the request bodies (in bytes)
+  private int maxBodySize;
+
+  // the hosts to which the response URLs may point to
+  private Set<String> responseUrlHosts;
+
+  // the admission controller, shared among the instances sharing the listener
+  private AdmissionController admission;
+
+  // the rate limiter, shared among the instances sharing the listener
+  private RateLimiter rateLimiter;
+
+  // the idle rate limiter buckets eviction timer
+  private long evictionTimer;
+
+  // the event loop lag sampling timer
+  private long lagTimer;
+
+  // the rate-limited log of the invalid requests
+  private final InvalidRequestLog invalidRequests = new InvalidRequestLog(LOGGER);
+
+  // the metrics, shared among the verticles
+  private SlackerMetrics metrics;
+
   @Override
   public void start(final Future<Void> startFuture) throws Exception {
     // create the routing configuration
     final Router router = Router.router(vertx);
 
     // default handler
-    router.route().handler(BodyHandler.create());
+    router.route().handler(this::readBody);
 
     // POST /command
     router.post("/command")
@@ -76,11 +156,57 @@ final class HttpServerVerticle extends AbstractVerticle {
         .produces("application/json")
         .handler(this::executeCommand);
 
+    // GET /metrics
+    router.get("/metrics").handler(this::renderMetrics);
+
+    // GET /metrics/offenders
+    router.get("/metrics/offenders").handler(this::renderOffenders);
+
     // create the http httpServer options by reading the boot configuration
     final HttpServerOptions options = HttpServerConfiguration.setup(config());
     LOGGER.debug("starting with the following configuration: {0}", config());
+    requestBudget = HttpServerConfiguration.requestBudget(config());
+    maxBodySize = HttpServerConfiguration.maxBodySize(config());
+    responseUrlHosts = HttpServerConfiguration.responseUrlHosts(config());
+    deferredBudget = HttpServerConfiguration.deferredBudget(config());
+    metrics = SlackerMetrics.of(vertx);
+    metrics.gauge("slacker_event_loop_lag_max_milliseconds",
+        "The maximum lag of the event loops within the rolling window.",
+        () -> TimeUnit.NANOSECONDS.toMillis(ExecutionTracker.shared().maxLag()));
+    metrics.gauge("slacker_execution_stalls", "The number of execution stalls within the " +
+        "rolling window.", () -> ExecutionTracker.shared().stalls());
+    lagTimer = ExecutionTracker.shared().monitor(vertx);
 
-    // create the actual http httpServer
+    // share the admission controller among the instances sharing the same listener
+    final LocalMap<Integer, AdmissionController> admissions = vertx.sharedData()
+        .getLocalMap(ADMISSION_MAP);
+    admissions.putIfAbsent(options.getPort(), HttpServerConfiguration.admission(config()));
+    admission = admissions.get(options.getPort());
+
+    // and the rate limiter as well, periodically evicting its idle buckets
+    final LocalMap<Integer, RateLimiter> rateLimiters = vertx.sharedData()
+        .getLocalMap(RATE_LIMITER_MAP);
+    rateLimiters.putIfAbsent(options.getPort(), HttpServerConfiguration.rateLimiter(config()));
+    rateLimiter = rateLimiters.get(options.getPort());
+    evictionTimer = vertx.setPeriodic(RATE_LIMITER_EVICTION_PERIOD, t -> rateLimiter.evict());
+
+    // setup the direct routing, if enabled, prior to start listening for requests
+    if (HttpServerConfiguration.directRouting(config())) {
+      setupDirectRouting(v -> listen(router, options, startFuture));
+    } else {
+      listen(router, options, startFuture);
+    }
+  }
+
+  /**
+   * Creates the actual http server and starts listening for requests.
+   *
+   * @param router      the request router
+   * @param options     the http server options
+   * @param startFuture the start future to be completed once the server is listening
+   */
+  private void listen(final Router router, final HttpServerOptions options,
+      final Future<Void> startFuture) {
     httpServer = vertx.createHttpServer(options)
         .requestHandler(router::accept)
         .listen(deployedHandler -> {
@@ -97,12 +223,121 @@ final class HttpServerVerticle extends AbstractVerticle {
   @Override
   public void stop(final Future<Void> stopFuture) throws Exception {
     LOGGER.info("closing slacker http server..");
+    vertx.cancelTimer(evictionTimer);
+    vertx.cancelTimer(lagTimer);
     httpServer.close(r -> {
       LOGGER.info("slacker http server closed: {0} (cause: {1})", r.succeeded(), r.cause());
       stopFuture.complete();
     });
   }
 
+  /**
+   * Sets up the local routing table, which is kept up to date with the updates published by the
+   * slacker-server and initially loaded with the table snapshot.
+   *
+   * @param completionHandler the handler to be called once the snapshot load is attempted
+   */
+  private void setupDirectRouting(final Handler<Void> completionHandler) {
+    final RoutingTable table = new RoutingTable(
+        HttpServerConfiguration.loadBalancing(config()));
+    routingTable = Optional.of(table);
+    vertx.eventBus().<JsonObject>consumer(EventServerVerticle.UPD_SERVER_ADDRESS,
+        update -> table.update(update.body()));
+    vertx.eventBus().send(EventServerVerticle.SNP_SERVER_ADDRESS, null, reply -> {
+      if (reply.succeeded() && JsonObject.class.isInstance(reply.result().body())) {
+        table.load((JsonObject) reply.result().body());
+      } else {
+        // not critical: the requests will be routed through the slacker-server meanwhile
+        LOGGER.warn("unable to load the routing table snapshot", reply.cause());
+      }
+      completionHandler.handle(null);
+    });
+  }
+
+  /**
+   * Reads the whole body of the incoming request, as long as it does not exceed the maximum body
+   * size, before handing the request to the next handler. The requests with larger bodies are
+   * promptly rejected.
+   *
+   * @param context the routing context of the request
+   */
+  private void readBody(final RoutingContext context) {
+    final HttpServerRequest request = context.request();
+    final String contentLength = request.getHeader(HttpHeaders.CONTENT_LENGTH);
+    final long length = contentLength == null ? -1 : parseLength(contentLength);
+    if (length > maxBodySize) {
+      rejectBody(context);
+      return;
+    }
+
+    final Buffer body = Buffer.buffer(length < 0 ? Math.min(1024, maxBodySize) : (int) length);
+    request.handler(chunk -> {
+      if (body.length() + chunk.length() > maxBodySize) {
+        rejectBody(context);
+      } else if (!context.response().ended()) {
+        body.appendBuffer(chunk);
+      }
+    });
+    request.endHandler(v -> {
+      if (!context.response().ended()) {
+        context.setBody(body);
+        context.next();
+      }
+    });
+  }
+
+  /**
+   * Rejects the request of the given context due to its body size, if not rejected yet
+   *
+   * @param context the routing context of the request
+   */
+  private void rejectBody(final RoutingContext context) {
+    if (!context.response().ended()) {
+      LOGGER.warn("rejecting request with a body larger than {0} bytes", maxBodySize);
+      context.response()
+          .setStatusCode(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE.code())
+          .end();
+    }
+  }
+
+  /**
+   * Parses the given content length header value
+   *
+   * @param contentLength the content length header value
+   * @return the content length, or {@code -1} if it's invalid
+   */
+  private static long parseLength(final String contentLength) {
+    try {
+      return Long.parseLong(contentLength);
+    } catch (final NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Renders the current metrics
+   *
+   * @param context the routing context of the request
+   */
+  private void renderMetrics(final RoutingContext context) {
+    context.response()
+        .putHeader(HttpHeaders.CONTENT_TYPE, SlackerMetrics.CONTENT_TYPE)
+        .putHeader("Cache-Control", "no-store, no-cache")
+        .end(metrics.render());
+  }
+
+  /**
+   * Renders the report of the executions stalling the event loops
+   *
+   * @param context the routing context of the request
+   */
+  private void renderOffenders(final RoutingContext context) {
+    context.response()
+        .putHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+        .putHeader("Cache-Control", "no-store, no-cache")
+        .end(ExecutionTracker.shared().report().encodePrettily());
+  }
+
   /**
    * Handles the incoming hello requests
    *
@@ -110,38 +345,166 @@ final class HttpServerVerticle extends AbstractVerticle {
    */
   private void executeCommand(final RoutingContext context) {
     LOGGER.info("received command request");
+    final long received = metrics.begin(SlackerMetrics.Stage.INGRESS);
     // create the request data from the POST request
-    final Optional<SlackerRequest> slackRequest = HttpContextSlackerRequestParser.parse(context);
-    LOGGER.debug("request data: {0}", slackRequest);
+    final RequestValidation validation = HttpContextSlackerRequestParser.parse(context,
+        responseUrlHosts);
+    LOGGER.debug("request data: {0}", validation.getRequest());
 
     // dispatch the request to the slacker server
-    if (slackRequest.isPresent()) {
-      final SlackerRequest r = slackRequest.get();
-      vertx.eventBus().send(EventServerVerticle.REQ_SERVER_ADDRESS, r, new DeliveryOptions()
-          .setCodecName(SlackerRequestMessageCodec.NAME), reply -> {
-        LOGGER.info("received reply from slacker-server for request");
+    if (validation.isValid()) {
+      final SlackerRequest r = validation.getRequest().get();
+      if (!rateLimiter.tryAcquire(r)) {
+        LOGGER.warn("rejecting {0} request, rate limit exceeded", r.getCommand());
+        endRequest(context, label(r.getCommand()), received, ResultCode.THROTTLED,
+            Optional.empty());
+        return;
+      }
+      if (!admission.tryAcquire(r.getCommand())) {
+        LOGGER.warn("rejecting {0} request, too many in-flight requests", r.getCommand());
+        endRequest(context, label(r.getCommand()), received, ResultCode.BUSY,
+            Optional.empty());
+        return;
+      }
+      final long admitted = System.nanoTime();
+      final Optional<ExecutorEndpoint> endpoint = routingTable.flatMap(t -> t.lookup(
+          r.getCommand()));
+      final String address = endpoint.map(ExecutorEndpoint::getAddress)
+          .orElse(EventServerVerticle.REQ_SERVER_ADDRESS);
+      if (endpoint.isPresent() && r.getResponseUrl().isPresent() &&
+          routingTable.get().isDeferred(r.getCommand())) {
+        executeDeferred(context, received, endpoint.get(), r);
+        admission.release(r.getCommand(), System.nanoTime() - admitted, true);
+        return;
+      }
+      final long start = endpoint.map(ExecutorEndpoint::begin).orElse(0L);
+      final long executed = endpoint.isPresent() ?
+          metrics.begin(SlackerMetrics.Stage.EXECUTOR) : 0L;
+      vertx.eventBus().send(address, r, SlackerDeadline.apply(new DeliveryOptions()
+          .setCodecName(SlackerRequestMessageCodec.NAME), deadline(r)), reply -> {
+        endpoint.ifPresent(e -> {
+          e.end(start);
+          metrics.end(SlackerMetrics.Stage.EXECUTOR, r.getCommand(), executed);
+        });
+        if (isRoutingMiss(reply)) {
+          admission.release(r.getCommand());
+        } else {
+          admission.release(r.getCommand(), System.nanoTime() - admitted, reply.succeeded());
+        }
+        LOGGER.info("received reply from {0} for request", address);
         LOGGER.debug(reply);
 
+        // the replies come from the executors, unless the command was not resolved
+        final String command = reply.succeeded() || endpoint.isPresent() ? r.getCommand() :
+            label(r.getCommand());
         if (reply.succeeded()) {
           final Object body = reply.result().body();
           if (body != null && SlackerResponse.class.isInstance(body)) {
             LOGGER.info("valid response found");
             final SlackerResponse response = (SlackerResponse) body;
-            endRequest(context, response.getCode(), response.getResponse());
+            endRequest(context, command, received, response.getCode(),
+                SlackerResponseRenderer.render(response));
           } else {
             // terminate the request, it went ok even though no valid response has been received
             LOGGER.warn("no valid response object was found");
-            endRequest(context, ResultCode.ERROR, Optional.empty());
+            endRequest(context, command, received, ResultCode.ERROR, Optional.empty());
           }
         } else {
           LOGGER.error("unable to process request", reply.cause());
-          endRequest(context, ResultCode.ERROR, Optional.empty());
+          endRequest(context, command, received, ResultCode.ERROR, Optional.empty());
         }
       });
     } else {
-      // fail silently
-      endRequest(context, ResultCode.INVALID, Optional.empty());
+      // report the missing and invalid fields back, but only log their summary
+      invalidRequests.record(validation);
+      endRequest(context, SlackerMetrics.INVALID_COMMAND, received, ResultCode.INVALID,
+          validation.render());
+    }
+  }
+
+  /**
+   * Returns the metrics label of the given command, which was not resolved to an executor by the
+   * request at hand: the command itself, if known by the routing table or previously resolved,
+   * {@link SlackerMetrics#UNKNOWN_COMMAND} otherwise
+   *
+   * @param command the request command
+   * @return the command label
+   */
+  private String label(final String command) {
+    return routingTable.map(t -> t.contains(command)).orElse(false) ? command :
+        metrics.label(command);
+  }
+
+  /**
+   * Checks whether or not the given reply is a routing miss, i.e. there was no executor available
+   * to handle the request, which is unrelated with the load of the executors
+   *
+   * @param reply the request reply
+   * @return {@code true} if the reply is a routing miss, {@code false} otherwise
+   */
+  private static boolean isRoutingMiss(final AsyncResult<?> reply) {
+    if (reply.succeeded() || !ReplyException.class.isInstance(reply.cause())) {
+      return false;
     }
+    final ReplyException cause = (ReplyException) reply.cause();
+    return cause.failureType() == ReplyFailure.NO_HANDLERS ||
+        cause.failureType() == ReplyFailure.RECIPIENT_FAILURE &&
+            cause.failureCode() == EventServerVerticle.NO_EXECUTOR_FAILURE;
+  }
+
+  /**
+   * Acknowledges the given request right away and sends it to the executor with deferred
+   * responses, whose response (or failure) is then delivered to the request response URL. Just
+   * like the event server does, instances gone without unregistering are evicted on the way.
+   *
+   * @param context  the routing context of the request
+   * @param received the reception timestamp of the request
+   * @param endpoint the endpoint of the executor instance
+   * @param request  the slacker request
+   */
+  private void executeDeferred(final RoutingContext context, final long received,
+      final ExecutorEndpoint endpoint, final SlackerRequest request) {
+    endRequest(context, request.getCommand(), received, ResultCode.OK, Optional.empty());
+    final long start = endpoint.begin();
+    final long executed = metrics.begin(SlackerMetrics.Stage.EXECUTOR);
+    vertx.eventBus().send(endpoint.getAddress(), request, SlackerDeadline.apply(
+        new DeliveryOptions().setCodecName(SlackerRequestMessageCodec.NAME),
+        System.currentTimeMillis() + deferredBudget), reply -> {
+      endpoint.end(start);
+      metrics.end(SlackerMetrics.Stage.EXECUTOR, request.getCommand(), executed);
+      if (reply.succeeded() && SlackerResponse.class.isInstance(reply.result().body())) {
+        ResponseDeliveryVerticle.deliver(vertx, request.getResponseUrl().get(),
+            (SlackerResponse) reply.result().body());
+      } else {
+        LOGGER.error("unable to process deferred request", reply.cause());
+        if (reply.cause() instanceof ReplyException &&
+            ((ReplyException) reply.cause()).failureType() == ReplyFailure.NO_HANDLERS) {
+          // the executor instance is gone without unregistering, have it evicted right away
+          vertx.eventBus().send(EventServerVerticle.UNR_SERVER_ADDRESS, new JsonObject()
+              .put("i", request.getCommand())
+              .put("a", endpoint.getAddress()));
+        }
+        ResponseDeliveryVerticle.deliverFailure(vertx, request.getResponseUrl().get(),
+            String.format("failed %s processing: %s", request.getCommand(),
+                Optional.ofNullable(reply.cause()).map(Throwable::getMessage)
+                    .orElse("invalid response")));
+      }
+    });
+  }
+
+  /**
+   * Computes the deadline of the given request, counting the request budget from the request
+   * timestamp. Timestamps outside of the budget window (either in the future or too far in the
+   * past) are deemed unreliable, due to clock skew, and the budget is counted from now instead.
+   *
+   * @param request the slacker request
+   * @return the request deadline, in epoch milliseconds
+   */
+  private long deadline(final SlackerRequest request) {
+    final long now = System.currentTimeMillis();
+    final long timestamp = request.getTimestamp().toEpochMilli();
+    return timestamp <= now && now - timestamp < requestBudget ? timestamp + requestBudget :
+        now + requestBudget;
   }
 
   /**
@@ -149,16 +512,32 @@ final class HttpServerVerticle extends AbstractVerticle {
    * code and optional response text
    *
    * @param context  the http request being handled
+   * @param command  the request command
+   * @param received the reception timestamp of the request
    * @param code     the response code, which determines the response http code
    * @param response the response text to send back to the channel, if any
    */
-  private void endRequest(final RoutingContext context, final ResultCode code,
-      final Optional<String> response) {
-    LOGGER.info("terminating request with code {0} and message {1}", code, response);
-    final Buffer message = response
-        .map(m -> new JsonObject().put("text", m).toString())
-        .map(Buffer::buffer)
-        .orElse(EMPTY_BUF);
+  private void endRequest(final RoutingContext context, final String command,
+      final long received, final ResultCode code, final Optional<String> response) {
+    endRequest(context, command, received, code, SlackerResponseRenderer.render(response));
+  }
+
+  /**
+   * Ends the current request identified by the given routing context with the specified result
+   * code and rendered slack message
+   *
+   * @param context  the http request being handled
+   * @param command  the request command
+   * @param received the reception timestamp of the request
+   * @param code     the response code, which determines the response http code
+   * @param message  the rendered message to send back to the channel, possibly empty
+   */
+  private void endRequest(final RoutingContext context, final String command,
+      final long received, final ResultCode code, final Buffer message) {
+    LOGGER.info("terminating request with code {0} and a {1} bytes message", code,
+        message.length());
+    metrics.result(command, code);
+    metrics.end(SlackerMetrics.Stage.INGRESS, command, received);
     context.response()
         .setStatusCode(code.getHttpStatus().code())
         .putHeader("Cache-Control", "no-store, no-cache")
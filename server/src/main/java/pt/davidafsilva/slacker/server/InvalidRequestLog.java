@@ -0,0 +1,113 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import io.vertx.core.logging.Logger;
+
+/**
+ * The rate-limited log of the invalid requests, which summarizes the invalid requests at most
+ * once per interval - the number of invalid requests since the last summary along with the fields
+ * of the latest one - rather than logging each of them, such that a flood of junk requests isn't
+ * able to flood the log as well.
+ *
+ * The log is not thread-safe, it is meant to be confined to the event-loop of a single verticle.
+ *
+ * @author david
+ */
+final class InvalidRequestLog {
+
+  // the default interval between summaries
+  private static final long DEFAULT_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+  // the underlying logger
+  private final Logger logger;
+
+  // the interval between summaries (in nanoseconds)
+  private final long interval;
+
+  // the monotonic clock (in nanoseconds)
+  private final LongSupplier clock;
+
+  // the number of invalid requests since the last summary
+  private long count;
+
+  // the time of the last summary
+  private long lastSummary;
+
+  /**
+   * Constructs the log with the default interval between summaries
+   *
+   * @param logger the underlying logger
+   */
+  InvalidRequestLog(final Logger logger) {
+    this(logger, DEFAULT_INTERVAL, System::nanoTime);
+  }
+
+  /**
+   * Constructs the log with the given interval between summaries and clock
+   *
+   * @param logger   the underlying logger
+   * @param interval the interval between summaries, in nanoseconds
+   * @param clock    the monotonic clock, in nanoseconds
+   */
+  InvalidRequestLog(final Logger logger, final long interval, final LongSupplier clock) {
+    this.logger = logger;
+    this.interval = interval;
+    this.clock = clock;
+    this.lastSummary = clock.getAsLong() - interval;
+  }
+
+  /**
+   * Records the given invalid request, logging the summary of the invalid requests if the
+   * interval since the last summary has elapsed
+   *
+   * @param validation the validation result of the invalid request
+   */
+  void record(final RequestValidation validation) {
+    count++;
+    final long now = clock.getAsLong();
+    if (now - lastSummary >= interval) {
+      logger.warn(String.format("rejected %d invalid request(s) in the last %d second(s), the "
+              + "latest with %s", count, TimeUnit.NANOSECONDS.toSeconds(now - lastSummary),
+          validation));
+      count = 0;
+      lastSummary = now;
+    }
+  }
+
+  /**
+   * Returns the number of invalid requests not yet summarized
+   *
+   * @return the number of pending invalid requests
+   */
+  long pending() {
+    return count;
+  }
+}
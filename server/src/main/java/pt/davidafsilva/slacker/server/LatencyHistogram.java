@@ -0,0 +1,92 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A latency histogram with fixed buckets, ranging from half a millisecond up to ten seconds, as
+ * exposed by the Prometheus histograms. Each bucket counts the samples up to (and including) its
+ * upper bound, but not the samples of the preceding buckets, whereas the last bucket counts the
+ * samples past every bound.
+ *
+ * The samples are recorded lock-free, hence the histogram may be shared among several verticles.
+ * The readings are not atomic as a whole, but each bucket is always consistent on its own.
+ *
+ * @author david
+ */
+final class LatencyHistogram {
+
+  // the upper bounds of the buckets (in seconds), as rendered
+  static final String[] BOUNDS = {"0.0005", "0.001", "0.0025", "0.005", "0.01", "0.025", "0.05",
+      "0.1", "0.25", "0.5", "1", "2.5", "5", "10"};
+
+  // the upper bounds of the buckets (in nanoseconds)
+  private static final long[] BOUNDS_NANOS = Arrays.stream(BOUNDS)
+      .mapToLong(b -> (long) (Double.parseDouble(b) * TimeUnit.SECONDS.toNanos(1)))
+      .toArray();
+
+  // the sample count of each bucket, plus the one past every bound
+  private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+
+  // the sum of the samples (in nanoseconds)
+  private final AtomicLong sum = new AtomicLong();
+
+  /**
+   * Records the given latency sample
+   *
+   * @param latency the latency, in nanoseconds
+   */
+  void record(final long latency) {
+    final int index = Arrays.binarySearch(BOUNDS_NANOS, latency);
+    buckets.incrementAndGet(index < 0 ? -index - 1 : index);
+    sum.addAndGet(Math.max(0, latency));
+  }
+
+  /**
+   * Returns the number of samples of the given bucket, excluding the ones of the preceding
+   * buckets
+   *
+   * @param bucket the bucket index, {@link #BOUNDS} length for the one past every bound
+   * @return the bucket sample count
+   */
+  long getBucket(final int bucket) {
+    return buckets.get(bucket);
+  }
+
+  /**
+   * Returns the sum of the recorded samples
+   *
+   * @return the samples sum, in nanoseconds
+   */
+  long getSum() {
+    return sum.get();
+  }
+}
@@ -0,0 +1,116 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The strategies for the selection of the executor endpoint that shall handle a request, whenever
+ * more than one instance of the executor is registered.
+ *
+ * @author david
+ */
+enum LoadBalancingStrategy {
+
+  /**
+   * Selects the endpoint with the least outstanding requests
+   */
+  LEAST_OUTSTANDING {
+    @Override
+    ExecutorEndpoint select(final List<ExecutorEndpoint> endpoints) {
+      return min(endpoints, ExecutorEndpoint::getOutstanding);
+    }
+  },
+
+  /**
+   * Selects two endpoints at random and picks the one with the least outstanding requests
+   */
+  POWER_OF_TWO_CHOICES {
+    @Override
+    ExecutorEndpoint select(final List<ExecutorEndpoint> endpoints) {
+      final int size = endpoints.size();
+      if (size == 1) {
+        return endpoints.get(0);
+      }
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      final int first = random.nextInt(size);
+      final int second = (first + 1 + random.nextInt(size - 1)) % size;
+      final ExecutorEndpoint a = endpoints.get(first);
+      final ExecutorEndpoint b = endpoints.get(second);
+      return a.getOutstanding() <= b.getOutstanding() ? a : b;
+    }
+  },
+
+  /**
+   * Selects the endpoint with the lowest expected latency, i.e. the latency moving average
+   * weighted by the outstanding requests
+   */
+  EWMA {
+    @Override
+    ExecutorEndpoint select(final List<ExecutorEndpoint> endpoints) {
+      return min(endpoints, e -> e.getLatency() * (e.getOutstanding() + 1));
+    }
+  };
+
+  /**
+   * Selects the endpoint that shall handle the next request
+   *
+   * @param endpoints the available endpoints, must not be empty
+   * @return the selected endpoint
+   */
+  abstract ExecutorEndpoint select(final List<ExecutorEndpoint> endpoints);
+
+  /**
+   * Returns the endpoint with the minimum score. The endpoints are scanned starting at a random
+   * position, so that ties are broken randomly instead of always favoring the same endpoint.
+   *
+   * @param endpoints the available endpoints
+   * @param score     the endpoint scoring function
+   * @return the endpoint with the minimum score
+   */
+  private static ExecutorEndpoint min(final List<ExecutorEndpoint> endpoints,
+      final ToDoubleFunction<ExecutorEndpoint> score) {
+    final int size = endpoints.size();
+    if (size == 1) {
+      return endpoints.get(0);
+    }
+    final int offset = ThreadLocalRandom.current().nextInt(size);
+    ExecutorEndpoint selected = null;
+    double selectedScore = Double.MAX_VALUE;
+    for (int i = 0; i < size; i++) {
+      final ExecutorEndpoint endpoint = endpoints.get((offset + i) % size);
+      final double endpointScore = score.applyAsDouble(endpoint);
+      if (selected == null || endpointScore < selectedScore) {
+        selected = endpoint;
+        selectedScore = endpointScore;
+      }
+    }
+    return selected;
+  }
+}
@@ -0,0 +1,226 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import io.vertx.core.shareddata.Shareable;
+import pt.davidafsilva.slacker.api.SlackerRequest;
+
+/**
+ * The rate limiter of the incoming requests, which keeps a token bucket per command and team,
+ * channel and user, such that a single (noisy) team, channel or user is not able to flood a
+ * command. A request is only accepted if there's an available token at each of its buckets.
+ *
+ * The buckets are implemented with the generic cell rate algorithm (GCRA), which is equivalent to
+ * a token bucket but whose state is a single timestamp - the theoretical arrival time of the next
+ * request - updated lock-free with compare-and-set. The buckets are kept at a concurrent map
+ * (whose lock striping keeps the contention low) and, since an idle bucket is indistinguishable
+ * from a new one, they're evicted once idle with no loss of accuracy, keeping the memory bound to
+ * the recently active keys.
+ *
+ * The limiter is {@link Shareable}, hence it may be shared among several verticles.
+ *
+ * @author david
+ */
+final class RateLimiter implements Shareable {
+
+  // the key separator, which can't be part of the slack identifiers
+  private static final char SEPARATOR = '\0';
+
+  // the default limit of the commands
+  private final Limit defaultLimit;
+
+  // the limits of specific commands
+  private final Map<String, Limit> commandLimits;
+
+  // the monotonic clock (in nanoseconds)
+  private final LongSupplier clock;
+
+  // the buckets mapped by their command and scope key
+  private final ConcurrentMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs the rate limiter with the given limits
+   *
+   * @param defaultLimit  the default limit of the commands
+   * @param commandLimits the limits of specific commands
+   */
+  RateLimiter(final Limit defaultLimit, final Map<String, Limit> commandLimits) {
+    this(defaultLimit, commandLimits, System::nanoTime);
+  }
+
+  /**
+   * Constructs the rate limiter with the given limits and clock
+   *
+   * @param defaultLimit  the default limit of the commands
+   * @param commandLimits the limits of specific commands
+   * @param clock         the monotonic clock, in nanoseconds
+   */
+  RateLimiter(final Limit defaultLimit, final Map<String, Limit> commandLimits,
+      final LongSupplier clock) {
+    this.defaultLimit = defaultLimit;
+    this.commandLimits = Collections.unmodifiableMap(commandLimits);
+    this.clock = clock;
+  }
+
+  /**
+   * Tries to acquire a token for the given request, from each of the request team, channel and
+   * user buckets
+   *
+   * @param request the slacker request
+   * @return {@code true} if the request is within the limits, {@code false} otherwise
+   */
+  boolean tryAcquire(final SlackerRequest request) {
+    final Limit limit = commandLimits.getOrDefault(request.getCommand(), defaultLimit);
+    if (limit.isUnlimited()) {
+      return true;
+    }
+
+    // from the most to the least specific bucket, such that the refunds are less likely
+    final long now = clock.getAsLong();
+    final String command = request.getCommand();
+    final AtomicLong user = bucket(command, 'u', request.getUserId(), now);
+    if (!tryAcquire(user, limit, now)) {
+      return false;
+    }
+    final AtomicLong channel = bucket(command, 'c', request.getChannelId(), now);
+    if (!tryAcquire(channel, limit, now)) {
+      refund(user, limit);
+      return false;
+    }
+    if (!tryAcquire(bucket(command, 't', request.getTeamIdentifier(), now), limit, now)) {
+      refund(channel, limit);
+      refund(user, limit);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Evicts the idle buckets, i.e. the ones that are full of tokens
+   */
+  void evict() {
+    final long now = clock.getAsLong();
+    buckets.values().removeIf(tat -> tat.get() - now <= 0);
+  }
+
+  /**
+   * Returns the number of buckets currently kept
+   *
+   * @return the number of buckets
+   */
+  int size() {
+    return buckets.size();
+  }
+
+  /**
+   * Returns the bucket of the given command and scope key, creating it if necessary
+   *
+   * @param command the command
+   * @param scope   the key scope
+   * @param key     the key
+   * @param now     the current timestamp, in nanoseconds
+   * @return the bucket, i.e. its theoretical arrival time
+   */
+  private AtomicLong bucket(final String command, final char scope, final String key,
+      final long now) {
+    return buckets.computeIfAbsent(command + SEPARATOR + scope + SEPARATOR + key,
+        k -> new AtomicLong(now));
+  }
+
+  /**
+   * Tries to acquire a token from the given bucket
+   *
+   * @param tat   the bucket theoretical arrival time
+   * @param limit the limit of the bucket
+   * @param now   the current timestamp, in nanoseconds
+   * @return {@code true} if the token was acquired, {@code false} otherwise
+   */
+  private static boolean tryAcquire(final AtomicLong tat, final Limit limit, final long now) {
+    long current;
+    long next;
+    do {
+      current = tat.get();
+      final long base = current - now > 0 ? current : now;
+      if (base - now > limit.tolerance) {
+        return false;
+      }
+      next = base + limit.interval;
+    } while (!tat.compareAndSet(current, next));
+    return true;
+  }
+
+  /**
+   * Gives back a previously acquired token to the given bucket
+   *
+   * @param tat   the bucket theoretical arrival time
+   * @param limit the limit of the bucket
+   */
+  private static void refund(final AtomicLong tat, final Limit limit) {
+    tat.addAndGet(-limit.interval);
+  }
+
+  // the rate limit of a command
+  static final class Limit {
+
+    // the unlimited rate
+    static final Limit UNLIMITED = new Limit(0, 0);
+
+    // the emission interval, i.e. the interval between tokens (in nanoseconds)
+    private final long interval;
+
+    // the burst tolerance (in nanoseconds)
+    private final long tolerance;
+
+    /**
+     * Constructs the limit with the given rate and burst
+     *
+     * @param rate  the sustained rate, in requests per second, zero if unlimited
+     * @param burst the maximum burst of requests, i.e. the bucket capacity
+     */
+    Limit(final double rate, final int burst) {
+      this.interval = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+      this.tolerance = interval * (Math.max(1, burst) - 1);
+    }
+
+    /**
+     * Checks whether or not this limit is unlimited
+     *
+     * @return {@code true} if unlimited, {@code false} otherwise
+     */
+    boolean isUnlimited() {
+      return interval == 0;
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.vertx.core.Handler;
+import pt.davidafsilva.slacker.api.SlackerResponse;
+
+/**
+ * The single-flight coalescer of the identical requests: while a request is being executed, the
+ * identical requests (i.e. with the same key, see {@link RequestKeys}) are not executed, but
+ * attached to the in-flight execution instead. Once the execution completes, every attached
+ * request gets its outcome, whether it's a response or a failure.
+ *
+ * The coalescer is safe to be shared among several verticles: the in-flight executions are kept
+ * at a concurrent map, such that each execution is started and completed exactly once.
+ *
+ * @author david
+ */
+final class RequestCoalescer {
+
+  // the in-flight executions mapped by their request key
+  private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<>();
+
+  // the number of coalesced requests, i.e. the ones attached to an in-flight execution
+  private final LongAdder coalesced = new LongAdder();
+
+  /**
+   * Executes the request with the given key, unless an identical request is already in-flight,
+   * in which case the handlers are attached to that execution instead.
+   *
+   * @param key       the request key
+   * @param execution the request execution, to be called with its own completion handlers
+   * @param success   the handler to be called with the response
+   * @param failure   the handler to be called with the failure reason
+   */
+  void execute(final String key, final Execution execution,
+      final Handler<SlackerResponse> success, final Handler<String> failure) {
+    final Flight created = new Flight();
+    final Flight flight = flights.compute(key, (k, f) -> (f == null ? created : f)
+        .attach(success, failure));
+    if (flight != created) {
+      coalesced.increment();
+      return;
+    }
+
+    // start the execution, completing the flight exactly once
+    execution.execute(response -> complete(key, flight).forEach(f -> f.success.handle(response)),
+        reason -> complete(key, flight).forEach(f -> f.failure.handle(reason)));
+  }
+
+  /**
+   * Returns the number of coalesced requests, i.e. the ones that were attached to an in-flight
+   * execution
+   *
+   * @return the number of coalesced requests
+   */
+  long coalesced() {
+    return coalesced.sum();
+  }
+
+  /**
+   * Returns the number of in-flight executions
+   *
+   * @return the number of in-flight executions
+   */
+  int size() {
+    return flights.size();
+  }
+
+  /**
+   * Completes the given flight, such that no more requests are attached to it
+   *
+   * @param key    the request key
+   * @param flight the in-flight execution
+   * @return the waiters of the execution
+   */
+  private List<Waiter> complete(final String key, final Flight flight) {
+    flights.remove(key, flight);
+    return flight.waiters;
+  }
+
+  // the execution of a request
+  @FunctionalInterface
+  interface Execution {
+
+    /**
+     * Executes the request
+     *
+     * @param success the handler to be called with the response
+     * @param failure the handler to be called with the failure reason
+     */
+    void execute(Handler<SlackerResponse> success, Handler<String> failure);
+  }
+
+  // an in-flight execution
+  private static final class Flight {
+
+    // the waiters of the execution, only modified while the flight is mapped
+    private final List<Waiter> waiters = new ArrayList<>(1);
+
+    /**
+     * Attaches the given handlers to this execution
+     *
+     * @param success the handler to be called with the response
+     * @param failure the handler to be called with the failure reason
+     * @return this flight
+     */
+    private Flight attach(final Handler<SlackerResponse> success,
+        final Handler<String> failure) {
+      waiters.add(new Waiter(success, failure));
+      return this;
+    }
+  }
+
+  // a waiter of an execution
+  private static final class Waiter {
+
+    // the completion handlers
+    private final Handler<SlackerResponse> success;
+    private final Handler<String> failure;
+
+    /**
+     * Constructs the waiter with the given handlers
+     *
+     * @param success the handler to be called with the response
+     * @param failure the handler to be called with the failure reason
+     */
+    private Waiter(final Handler<SlackerResponse> success, final Handler<String> failure) {
+      this.success = success;
+      this.failure = failure;
+    }
+  }
+}
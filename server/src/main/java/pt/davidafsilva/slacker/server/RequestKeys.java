@@ -0,0 +1,102 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import pt.davidafsilva.slacker.api.CacheScope;
+import pt.davidafsilva.slacker.api.SlackerRequest;
+
+/**
+ * Utility class for the creation of the keys that identify the identical requests, i.e. the
+ * requests for the same command with the same (normalized) arguments, within a given
+ * {@link CacheScope}.
+ *
+ * @author david
+ */
+final class RequestKeys {
+
+  // the key separator, which can't be part of the slack identifiers
+  private static final char SEPARATOR = '\0';
+
+  // private constructor
+  private RequestKeys() {
+    throw new UnsupportedOperationException("no no no");
+  }
+
+  /**
+   * Creates the key of the given request, according to the scope. The arguments are normalized
+   * by trimming them and collapsing the consecutive whitespace, such that trivially different
+   * arguments map to the same key.
+   *
+   * @param request the slacker request
+   * @param scope   the key scope
+   * @return the request key
+   */
+  static String of(final SlackerRequest request, final CacheScope scope) {
+    final StringBuilder key = new StringBuilder(request.getCommand()).append(SEPARATOR);
+    request.getArguments().ifPresent(args -> normalize(args, key));
+    switch (scope) {
+      case TEAM:
+        key.append(SEPARATOR).append(request.getTeamIdentifier());
+        break;
+      case CHANNEL:
+        key.append(SEPARATOR).append(request.getTeamIdentifier())
+            .append(SEPARATOR).append(request.getChannelId());
+        break;
+      case USER:
+        key.append(SEPARATOR).append(request.getTeamIdentifier())
+            .append(SEPARATOR).append(request.getUserId());
+        break;
+      default:
+        break;
+    }
+    return key.toString();
+  }
+
+  /**
+   * Appends the normalized arguments to the given key
+   *
+   * @param args the arguments
+   * @param key  the key builder
+   */
+  private static void normalize(final String args, final StringBuilder key) {
+    boolean whitespace = false;
+    boolean empty = true;
+    for (int i = 0; i < args.length(); i++) {
+      final char c = args.charAt(i);
+      if (Character.isWhitespace(c)) {
+        whitespace = true;
+      } else {
+        if (whitespace && !empty) {
+          key.append(' ');
+        }
+        key.append(c);
+        whitespace = false;
+        empty = false;
+      }
+    }
+  }
+}
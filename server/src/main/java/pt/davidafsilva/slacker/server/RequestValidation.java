@@ -0,0 +1,145 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import pt.davidafsilva.slacker.api.SlackerRequest;
+
+/**
+ * The result of the validation of an incoming request: either the valid slacker request or every
+ * missing and invalid field of the request.
+ *
+ * @author david
+ */
+final class RequestValidation {
+
+  // the request, if valid
+  private final SlackerRequest request;
+
+  // the missing fields
+  private final List<String> missing;
+
+  // the invalid fields
+  private final List<String> invalid;
+
+  /**
+   * Default constructor
+   *
+   * @param request the request, if valid
+   * @param missing the missing fields
+   * @param invalid the invalid fields
+   */
+  private RequestValidation(final SlackerRequest request, final List<String> missing,
+      final List<String> invalid) {
+    this.request = request;
+    this.missing = missing;
+    this.invalid = invalid;
+  }
+
+  /**
+   * Creates the validation result of a valid request
+   *
+   * @param request the valid request
+   * @return the validation result
+   */
+  static RequestValidation valid(final SlackerRequest request) {
+    return new RequestValidation(request, Collections.emptyList(), Collections.emptyList());
+  }
+
+  /**
+   * Creates the validation result of an invalid request
+   *
+   * @param missing the missing fields
+   * @param invalid the invalid fields
+   * @return the validation result
+   */
+  static RequestValidation invalid(final List<String> missing, final List<String> invalid) {
+    return new RequestValidation(null, Collections.unmodifiableList(missing),
+        Collections.unmodifiableList(invalid));
+  }
+
+  /**
+   * Checks whether or not the request is valid
+   *
+   * @return {@code true} if the request is valid, {@code false} otherwise
+   */
+  boolean isValid() {
+    return request != null;
+  }
+
+  /**
+   * Returns the validated request
+   *
+   * @return the optional with the request, empty if it is invalid
+   */
+  Optional<SlackerRequest> getRequest() {
+    return Optional.ofNullable(request);
+  }
+
+  /**
+   * Returns the missing (required) fields of the request
+   *
+   * @return the missing fields
+   */
+  List<String> getMissing() {
+    return missing;
+  }
+
+  /**
+   * Returns the invalid fields of the request
+   *
+   * @return the invalid fields
+   */
+  List<String> getInvalid() {
+    return invalid;
+  }
+
+  /**
+   * Renders the missing and invalid fields of the request into a JSON message
+   *
+   * @return the rendered message
+   */
+  Buffer render() {
+    return Buffer.buffer(new JsonObject()
+        .put("error", "invalid request")
+        .put("missing", new JsonArray(missing))
+        .put("invalid", new JsonArray(invalid))
+        .toString());
+  }
+
+  @Override
+  public String toString() {
+    return isValid() ? "valid request" : "missing fields " + missing + ", invalid fields " +
+        invalid;
+  }
+}
@@ -0,0 +1,226 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import io.vertx.core.json.JsonObject;
+import pt.davidafsilva.slacker.api.CacheScope;
+import pt.davidafsilva.slacker.api.SlackerRequest;
+import pt.davidafsilva.slacker.api.SlackerResponse;
+
+/**
+ * The cache of the responses of the cacheable executors, bounded in size with a least recently
+ * used (LRU) eviction policy. Each cached response expires according to the executor time to live
+ * and is shared among the requests with the same key (see {@link RequestKeys}), as determined by
+ * the executor {@link CacheScope}.
+ *
+ * The cache is safe to be shared among several verticles: the entries are spread among several
+ * independently locked segments, keeping the contention low, while the statistics are kept
+ * with contention-free counters.
+ *
+ * @author david
+ */
+final class ResponseCache {
+
+  // the number of segments
+  static final int SEGMENTS = 16;
+
+  // the cache segments
+  private final Segment[] segments;
+
+  // the monotonic clock (in nanoseconds)
+  private final LongSupplier clock;
+
+  // the statistics
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder expirations = new LongAdder();
+
+  /**
+   * Constructs the cache with the given capacity
+   *
+   * @param capacity the maximum number of cached responses
+   */
+  ResponseCache(final int capacity) {
+    this(capacity, System::nanoTime);
+  }
+
+  /**
+   * Constructs the cache with the given capacity and clock
+   *
+   * @param capacity the maximum number of cached responses
+   * @param clock    the monotonic clock, in nanoseconds
+   */
+  ResponseCache(final int capacity, final LongSupplier clock) {
+    this.clock = clock;
+    this.segments = new Segment[SEGMENTS];
+    for (int i = 0; i < SEGMENTS; i++) {
+      // spread the capacity among the segments, such that the overall capacity is kept
+      segments[i] = new Segment(capacity / SEGMENTS + (i < capacity % SEGMENTS ? 1 : 0));
+    }
+  }
+
+  /**
+   * Looks up the cached response of the given request
+   *
+   * @param request the slacker request
+   * @param scope   the cache scope of the request executor
+   * @return the cached response, if any
+   */
+  Optional<SlackerResponse> get(final SlackerRequest request, final CacheScope scope) {
+    final String key = RequestKeys.of(request, scope);
+    final Optional<SlackerResponse> response = segment(key).get(key, clock.getAsLong());
+    (response.isPresent() ? hits : misses).increment();
+    return response;
+  }
+
+  /**
+   * Caches the given response of the request
+   *
+   * @param request  the slacker request
+   * @param scope    the cache scope of the request executor
+   * @param ttl      the time to live of the response, in milliseconds
+   * @param response the response to be cached
+   */
+  void put(final SlackerRequest request, final CacheScope scope, final long ttl,
+      final SlackerResponse response) {
+    final String key = RequestKeys.of(request, scope);
+    segment(key).put(key, new Entry(response,
+        clock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(ttl)));
+  }
+
+  /**
+   * Returns the cache statistics, namely the number of hits, misses, evictions and expirations
+   * along with the resulting hit rate
+   *
+   * @return the cache statistics
+   */
+  JsonObject stats() {
+    final long h = hits.sum();
+    final long m = misses.sum();
+    return new JsonObject()
+        .put("hits", h)
+        .put("misses", m)
+        .put("hitRate", h + m == 0 ? 0d : (double) h / (h + m))
+        .put("evictions", evictions.sum())
+        .put("expirations", expirations.sum());
+  }
+
+  /**
+   * Returns the segment of the given key
+   *
+   * @param key the cache key
+   * @return the key segment
+   */
+  private Segment segment(final String key) {
+    final int h = key.hashCode();
+    return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+  }
+
+  // a cached response
+  private static final class Entry {
+
+    // the response
+    private final SlackerResponse response;
+
+    // the expiration timestamp (in nanoseconds)
+    private final long expiration;
+
+    /**
+     * Constructs the entry with the given response and expiration
+     *
+     * @param response   the response
+     * @param expiration the expiration timestamp, in nanoseconds
+     */
+    private Entry(final SlackerResponse response, final long expiration) {
+      this.response = response;
+      this.expiration = expiration;
+    }
+  }
+
+  // an independently locked LRU segment of the cache
+  private final class Segment {
+
+    // the access ordered entries
+    private final LinkedHashMap<String, Entry> entries;
+
+    /**
+     * Constructs the segment with the given capacity
+     *
+     * @param capacity the maximum number of entries of the segment
+     */
+    private Segment(final int capacity) {
+      this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+          final boolean evict = size() > capacity;
+          if (evict) {
+            evictions.increment();
+          }
+          return evict;
+        }
+      };
+    }
+
+    /**
+     * Gets the response of the given key, if cached and not expired
+     *
+     * @param key the cache key
+     * @param now the current timestamp, in nanoseconds
+     * @return the cached response, if any
+     */
+    private synchronized Optional<SlackerResponse> get(final String key, final long now) {
+      final Entry entry = entries.get(key);
+      if (entry == null) {
+        return Optional.empty();
+      }
+      if (now - entry.expiration >= 0) {
+        entries.remove(key);
+        expirations.increment();
+        return Optional.empty();
+      }
+      return Optional.of(entry.response);
+    }
+
+    /**
+     * Puts the given entry at the segment, evicting the least recently used one if necessary
+     *
+     * @param key   the cache key
+     * @param entry the cache entry
+     */
+    private synchronized void put(final String key, final Entry entry) {
+      entries.put(key, entry);
+    }
+  }
+}
@@ -0,0 +1,268 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import pt.davidafsilva.slacker.api.ResultCode;
+import pt.davidafsilva.slacker.api.SlackerResponse;
+import pt.davidafsilva.slacker.api.SlackerResponseBuilder;
+import pt.davidafsilva.slacker.api.SlackerResponseMessageCodec;
+import pt.davidafsilva.slacker.api.SlackerResponseRenderer;
+
+/**
+ * The outbound stage that delivers the deferred responses, i.e. the responses of the executors
+ * whose requests were immediately acknowledged, to the response URL of the respective request.
+ *
+ * The responses are POSTed through pooled keep-alive connections, with at most the configured
+ * number of concurrent deliveries (see {@link HttpServerConfiguration#deliveryConcurrency(
+ * io.vertx.core.json.JsonObject)}) - the exceeding ones are queued up to a bounded capacity.
+ * Deliveries failing with a server error (or a connection failure) are retried with an
+ * exponential back-off, up to the configured number of retries, while the ones rejected with a
+ * client error are dropped right away.
+ *
+ * @author david
+ */
+final class ResponseDeliveryVerticle extends AbstractVerticle {
+
+  // the logger
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResponseDeliveryVerticle.class);
+
+  // the delivery event address
+  static final String DLV_SERVER_ADDRESS = "dlv.slacker-server";
+
+  // the header with the response URL of the delivery events
+  static final String RESPONSE_URL_HEADER = "slacker-response-url";
+
+  // the maximum number of queued deliveries per concurrent delivery
+  static final int QUEUE_FACTOR = 64;
+
+  // the back-off of the first retry (in milliseconds)
+  static final long RETRY_BACKOFF = 250;
+
+  // the timeout of each delivery attempt (in milliseconds)
+  static final long DELIVERY_TIMEOUT = 5000;
+
+  // the queued deliveries
+  private final Deque<Delivery> queue = new ArrayDeque<>();
+
+  // the delivery consumer
+  private MessageConsumer<SlackerResponse> consumer;
+
+  // the plain and secure http clients
+  private HttpClient httpClient;
+  private HttpClient httpsClient;
+
+  // the delivery settings
+  private int concurrency;
+  private int retries;
+
+  // the number of in-flight deliveries
+  private int inFlight;
+
+  /**
+   * Sends the given response to be delivered to the specified response URL
+   *
+   * @param vertx       the vertx instance
+   * @param responseUrl the response URL
+   * @param response    the response to be delivered
+   */
+  static void deliver(final Vertx vertx, final String responseUrl,
+      final SlackerResponse response) {
+    vertx.eventBus().send(DLV_SERVER_ADDRESS, response, new DeliveryOptions()
+        .setCodecName(SlackerResponseMessageCodec.NAME)
+        .addHeader(RESPONSE_URL_HEADER, responseUrl));
+  }
+
+  /**
+   * Sends an error response with the given failure reason to be delivered to the specified
+   * response URL, so that the failures of the deferred executions are reported back as well
+   *
+   * @param vertx       the vertx instance
+   * @param responseUrl the response URL
+   * @param reason      the failure reason
+   */
+  static void deliverFailure(final Vertx vertx, final String responseUrl, final String reason) {
+    deliver(vertx, responseUrl, new SlackerResponseBuilder()
+        .code(ResultCode.ERROR)
+        .message(reason)
+        .build());
+  }
+
+  @Override
+  public void start() throws Exception {
+    concurrency = HttpServerConfiguration.deliveryConcurrency(config());
+    retries = HttpServerConfiguration.deliveryRetries(config());
+
+    // create the pooled keep-alive clients
+    final HttpClientOptions options = new HttpClientOptions()
+        .setKeepAlive(true)
+        .setMaxPoolSize(concurrency);
+    httpClient = vertx.createHttpClient(options);
+    httpsClient = vertx.createHttpClient(new HttpClientOptions(options).setSsl(true));
+
+    consumer = vertx.eventBus().consumer(DLV_SERVER_ADDRESS, this::handleDeliveryEvent);
+  }
+
+  @Override
+  public void stop(final Future<Void> stopFuture) throws Exception {
+    httpClient.close();
+    httpsClient.close();
+    consumer.unregister(r -> {
+      LOGGER.info("slacker delivery consumer closed: {0} (cause: {1})", r.succeeded(),
+          r.cause());
+      stopFuture.complete();
+    });
+  }
+
+  /**
+   * Handles a delivery message event by either starting the delivery right away or queueing it,
+   * if the maximum number of concurrent deliveries was reached.
+   *
+   * @param message the delivery message event
+   */
+  private void handleDeliveryEvent(final Message<SlackerResponse> message) {
+    final String url = message.headers().get(RESPONSE_URL_HEADER);
+    final Buffer payload = message.body() == null ? null :
+        SlackerResponseRenderer.render(message.body());
+    if (url == null || payload == null || payload.length() == 0) {
+      LOGGER.debug("nothing to deliver to {0}", url);
+      return;
+    }
+
+    final Delivery delivery = new Delivery(url, payload);
+    if (inFlight < concurrency) {
+      inFlight++;
+      attempt(delivery);
+    } else if (queue.size() < concurrency * QUEUE_FACTOR) {
+      queue.add(delivery);
+    } else {
+      LOGGER.error("delivery queue is full, dropping response to {0}", url);
+    }
+  }
+
+  /**
+   * Attempts to deliver the given response, retrying it on server errors. The delivery must
+   * already hold an in-flight slot, which is kept until it is completed.
+   *
+   * @param delivery the delivery
+   */
+  private void attempt(final Delivery delivery) {
+    final HttpClient client = delivery.url.startsWith("https:") ? httpsClient : httpClient;
+    final HttpClientRequest request;
+    try {
+      request = client.postAbs(delivery.url, response -> {
+        final int status = response.statusCode();
+        if (status >= 500) {
+          retry(delivery, "status " + status);
+        } else {
+          if (status >= 400) {
+            LOGGER.error("response rejected by {0} with status {1}", delivery.url, status);
+          }
+          complete();
+        }
+      });
+    } catch (final RuntimeException e) {
+      // malformed URLs are rejected right away, without ever being sent
+      LOGGER.error("unable to deliver response to {0}: {1}", delivery.url, e.getMessage());
+      complete();
+      return;
+    }
+    request.exceptionHandler(e -> retry(delivery, e.getMessage()))
+        .setTimeout(DELIVERY_TIMEOUT)
+        .putHeader("Content-Type", "application/json")
+        .end(delivery.payload);
+  }
+
+  /**
+   * Schedules the retry of the given failed delivery, if not exhausted yet. The delivery keeps
+   * its in-flight slot during the back-off, so that retries never exceed the concurrency limit.
+   *
+   * @param delivery the failed delivery
+   * @param reason   the failure reason
+   */
+  private void retry(final Delivery delivery, final String reason) {
+    if (delivery.attempts < retries) {
+      final long backoff = RETRY_BACKOFF << delivery.attempts++;
+      LOGGER.warn("failed to deliver response to {0} ({1}), retrying in {2}ms", delivery.url,
+          reason, backoff);
+      vertx.setTimer(backoff, t -> attempt(delivery));
+    } else {
+      LOGGER.error("failed to deliver response to {0} ({1}), giving up", delivery.url, reason);
+      complete();
+    }
+  }
+
+  /**
+   * Completes an in-flight delivery, handing its slot over to the next queued one, if any.
+   */
+  private void complete() {
+    final Delivery next = queue.poll();
+    if (next == null) {
+      inFlight--;
+    } else {
+      attempt(next);
+    }
+  }
+
+  // a single response delivery
+  private static final class Delivery {
+
+    // the response URL
+    private final String url;
+
+    // the rendered response
+    private final Buffer payload;
+
+    // the number of failed attempts
+    private int attempts;
+
+    /**
+     * Constructs the delivery of the given rendered response
+     *
+     * @param url     the response URL
+     * @param payload the rendered response
+     */
+    private Delivery(final String url, final Buffer payload) {
+      this.url = url;
+      this.payload = payload;
+    }
+  }
+}
@@ -0,0 +1,207 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * A local snapshot of the executors routing table, which maps each command to the endpoints of the
+ * executor instances that handle it.
+ *
+ * The table is fed by the snapshots and updates made available by the {@link EventServerVerticle}
+ * and it's meant to be owned by a single verticle, hence it's not thread-safe. Each route carries
+ * the registry revision at which it was created, so that out of order updates never replace a
+ * newer route. Whenever several instances are available, the lookup balances among them according
+ * to the configured {@link LoadBalancingStrategy}. The cacheable and coalesced executors are
+ * deliberately left out of the lookups, such that their requests go through the event server.
+ *
+ * @author david
+ */
+final class RoutingTable {
+
+  // the logger
+  private static final Logger LOGGER = LoggerFactory.getLogger(RoutingTable.class);
+
+  // the load balancing strategy
+  private final LoadBalancingStrategy strategy;
+
+  // the in-memory mapping of the executor routes by command
+  private final Map<String, Route> routes = new HashMap<>();
+
+  /**
+   * Constructs the routing table with the given load balancing strategy
+   *
+   * @param strategy the load balancing strategy among the executor instances
+   */
+  RoutingTable(final LoadBalancingStrategy strategy) {
+    this.strategy = Objects.requireNonNull(strategy, "strategy");
+  }
+
+  /**
+   * Loads the given routing table snapshot, as replied by the event server, into this table.
+   *
+   * @param snapshot the routing table snapshot, mapping commands to executor routes
+   */
+  void load(final JsonObject snapshot) {
+    snapshot.forEach(e -> {
+      if (JsonObject.class.isInstance(e.getValue())) {
+        apply(e.getKey(), (JsonObject) e.getValue());
+      }
+    });
+    LOGGER.debug("loaded routing table snapshot with {0} entries", snapshot.size());
+  }
+
+  /**
+   * Updates this table with the given route update, as published by the event server.
+   * Invalid and outdated updates are ignored.
+   *
+   * @param update the route update, with the command identifier, revision, response mode and
+   *               executor addresses
+   */
+  void update(final JsonObject update) {
+    final String id = update.getString("i");
+    if (id != null) {
+      apply(id, update);
+    }
+  }
+
+  /**
+   * Looks up the executor endpoint that shall handle the given command
+   *
+   * @param command the command
+   * @return the optional with the selected executor endpoint, if any is known and the executor
+   * requests are not bound to the event server
+   */
+  Optional<ExecutorEndpoint> lookup(final String command) {
+    return Optional.ofNullable(routes.get(command))
+        .filter(route -> !route.bound && !route.endpoints.isEmpty())
+        .map(route -> strategy.select(route.endpoints));
+  }
+
+  /**
+   * Checks whether or not the given command is known, i.e. there's a route for its executor, even
+   * if currently unavailable
+   *
+   * @param command the command
+   * @return {@code true} if the command is known, {@code false} otherwise
+   */
+  boolean contains(final String command) {
+    return routes.containsKey(command);
+  }
+
+  /**
+   * Checks whether or not the responses of the executor that handles the given command are
+   * deferred
+   *
+   * @param command the command
+   * @return {@code true} if the executor is known to have deferred responses, {@code false}
+   * otherwise
+   */
+  boolean isDeferred(final String command) {
+    return Optional.ofNullable(routes.get(command))
+        .map(route -> route.deferred)
+        .orElse(false);
+  }
+
+  /**
+   * Applies the given route to the command, if it's valid and newer than the known one.
+   * The endpoints that are still part of the route are kept, along with their statistics. A route
+   * without addresses marks the executor as unavailable.
+   *
+   * @param id    the command identifier
+   * @param route the route with both the revision and executor addresses
+   */
+  private void apply(final String id, final JsonObject route) {
+    final Long revision = route.getLong("r");
+    final JsonArray addresses = route.getJsonArray("a");
+    if (revision == null || addresses == null) {
+      return;
+    }
+
+    final Route current = routes.get(id);
+    if (current != null && current.revision >= revision) {
+      return;
+    }
+
+    // reuse the known endpoints
+    final Map<String, ExecutorEndpoint> known = current == null ? Collections.emptyMap() :
+        current.endpoints.stream().collect(Collectors.toMap(ExecutorEndpoint::getAddress,
+            Function.identity()));
+    final List<ExecutorEndpoint> endpoints = new ArrayList<>(addresses.size());
+    addresses.forEach(a -> endpoints.add(known.getOrDefault(String.valueOf(a),
+        new ExecutorEndpoint(String.valueOf(a)))));
+    routes.put(id, new Route(revision,
+        ExecutorRegistry.DEFERRED_MODE.equals(route.getString("m")),
+        route.getBoolean("c", false), endpoints));
+    LOGGER.debug("updated route for {0}: {1}", id, endpoints);
+  }
+
+  // the route of a single executor
+  private static final class Route {
+
+    // the registry revision of the route
+    private final long revision;
+
+    // whether or not the executor responses are deferred
+    private final boolean deferred;
+
+    // whether or not the executor requests are bound to the event server
+    private final boolean bound;
+
+    // the endpoints of the executor instances
+    private final List<ExecutorEndpoint> endpoints;
+
+    /**
+     * Constructs the route with the given revision and endpoints
+     *
+     * @param revision  the registry revision of the route
+     * @param deferred  whether or not the executor responses are deferred
+     * @param bound     whether or not the executor requests are bound to the event server
+     * @param endpoints the endpoints of the executor instances
+     */
+    private Route(final long revision, final boolean deferred, final boolean bound,
+        final List<ExecutorEndpoint> endpoints) {
+      this.revision = revision;
+      this.deferred = deferred;
+      this.bound = bound;
+      this.endpoints = endpoints;
+    }
+  }
+}
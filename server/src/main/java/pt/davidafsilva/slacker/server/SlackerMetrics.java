@@ -0,0 +1,379 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import pt.davidafsilva.slacker.api.ResultCode;
+
+/**
+ * The metrics of the slacker server, which are recorded per command:
+ * <ul>
+ * <li>the number of handled requests, by {@link ResultCode}</li>
+ * <li>the latency histograms (see {@link LatencyHistogram}) of each {@link Stage} of the
+ * requests: the http ingress, the event server hop and the executor execution</li>
+ * </ul>
+ * along with the number of in-flight requests of each stage and the registered gauges, such as
+ * the size of the executor registry.
+ *
+ * The metrics are rendered in the Prometheus text format, straight from the lock-free counters,
+ * hence these are cheap enough to be frequently scraped without disturbing the event loops.
+ * Only the commands resolved to an executor are tracked, the requests of any other command being
+ * tracked together as {@link #UNKNOWN_COMMAND}, such that the callers can't grow the metrics at
+ * will. The number of tracked commands is bounded as well, being the requests of the commands
+ * past the bound tracked together as {@link #OTHER_COMMAND}.
+ *
+ * The metrics are {@link Shareable}, being shared by every verticle of the same vertx instance
+ * (see {@link #of(Vertx)}).
+ *
+ * @author david
+ */
+final class SlackerMetrics implements Shareable {
+
+  // the shared map of the metrics
+  static final String METRICS_MAP = "metrics.slacker-server";
+
+  // the content type of the rendered metrics
+  static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  // the maximum number of tracked commands
+  static final int MAX_COMMANDS = 256;
+
+  // the command of the requests past the tracked commands
+  static final String OTHER_COMMAND = "_other";
+
+  // the command of the invalid requests
+  static final String INVALID_COMMAND = "_invalid";
+
+  // the command of the requests not resolved to any executor
+  static final String UNKNOWN_COMMAND = "_unknown";
+
+  /**
+   * The measured stages of the requests
+   */
+  enum Stage {
+    // the http ingress, from the request reception up to its response
+    INGRESS("ingress"),
+    // the event server hop, from the request reception up to its reply
+    EVENT_SERVER("event_server"),
+    // the executor execution, from the request forwarding up to its reply
+    EXECUTOR("executor");
+
+    // the rendered stage label
+    private final String label;
+
+    Stage(final String label) {
+      this.label = label;
+    }
+  }
+
+  // the monotonic clock (in nanoseconds)
+  private final LongSupplier clock;
+
+  // the metrics of each command
+  private final ConcurrentMap<String, CommandMetrics> commands = new ConcurrentHashMap<>();
+
+  // the number of in-flight requests of each stage
+  private final AtomicIntegerArray inFlight = new AtomicIntegerArray(Stage.values().length);
+
+  // the registered gauges, by name
+  private final Map<String, Gauge> gauges = new ConcurrentSkipListMap<>();
+
+  /**
+   * Constructs the metrics with the system clock
+   */
+  SlackerMetrics() {
+    this(System::nanoTime);
+  }
+
+  /**
+   * Constructs the metrics with the given clock
+   *
+   * @param clock the monotonic clock, in nanoseconds
+   */
+  SlackerMetrics(final LongSupplier clock) {
+    this.clock = clock;
+  }
+
+  /**
+   * Returns the metrics shared by the verticles of the given vertx instance
+   *
+   * @param vertx the vertx instance
+   * @return the shared metrics
+   */
+  static SlackerMetrics of(final Vertx vertx) {
+    final LocalMap<String, SlackerMetrics> metrics = vertx.sharedData().getLocalMap(METRICS_MAP);
+    metrics.putIfAbsent(METRICS_MAP, new SlackerMetrics());
+    return metrics.get(METRICS_MAP);
+  }
+
+  /**
+   * Marks the start of a request at the given stage
+   *
+   * @param stage the request stage
+   * @return the start timestamp of the request, to be supplied to {@link #end(Stage, String,
+   * long)}
+   */
+  long begin(final Stage stage) {
+    inFlight.incrementAndGet(stage.ordinal());
+    return clock.getAsLong();
+  }
+
+  /**
+   * Marks the end of a request at the given stage, previously started with {@link
+   * #begin(Stage)}, recording its latency
+   *
+   * @param stage   the request stage
+   * @param command the resolved request command (see {@link #label(String)})
+   * @param start   the start timestamp of the request
+   */
+  void end(final Stage stage, final String command, final long start) {
+    inFlight.decrementAndGet(stage.ordinal());
+    command(command).latencies[stage.ordinal()].record(clock.getAsLong() - start);
+  }
+
+  /**
+   * Returns the label under which the requests of the given command are tracked, whenever the
+   * command is not (yet) resolved to an executor: the command itself, if previously resolved,
+   * {@link #UNKNOWN_COMMAND} otherwise
+   *
+   * @param command the request command
+   * @return the command label
+   */
+  String label(final String command) {
+    return commands.containsKey(command) ? command : UNKNOWN_COMMAND;
+  }
+
+  /**
+   * Records the result of a handled request
+   *
+   * @param command the resolved request command (see {@link #label(String)})
+   * @param code    the request result code
+   */
+  void result(final String command, final ResultCode code) {
+    command(command).results.incrementAndGet(code.ordinal());
+  }
+
+  /**
+   * Registers the given gauge, replacing the one previously registered with the same name
+   *
+   * @param name  the gauge name
+   * @param help  the gauge description
+   * @param value the supplier of the gauge value
+   */
+  void gauge(final String name, final String help, final LongSupplier value) {
+    gauges.put(name, new Gauge(help, value));
+  }
+
+  /**
+   * Removes the gauge registered with the given name, if any
+   *
+   * @param name the gauge name
+   */
+  void removeGauge(final String name) {
+    gauges.remove(name);
+  }
+
+  /**
+   * Returns the number of in-flight requests of the given stage
+   *
+   * @param stage the request stage
+   * @return the number of in-flight requests
+   */
+  int getInFlight(final Stage stage) {
+    return inFlight.get(stage.ordinal());
+  }
+
+  /**
+   * Renders the current metrics in the Prometheus text format
+   *
+   * @return the rendered metrics
+   */
+  Buffer render() {
+    final List<CommandMetrics> sorted = new ArrayList<>(commands.values());
+    sorted.sort(Comparator.comparing(c -> c.command));
+    final StringBuilder out = new StringBuilder(1024 + sorted.size() * 512);
+
+    // the request results
+    header(out, "slacker_requests_total", "counter",
+        "The number of handled requests, by command and result code.");
+    for (final CommandMetrics metrics : sorted) {
+      for (final ResultCode code : ResultCode.values()) {
+        final long count = metrics.results.get(code.ordinal());
+        if (count > 0) {
+          out.append("slacker_requests_total{").append(metrics.label)
+              .append(",code=\"").append(code.name()).append("\"} ").append(count).append('\n');
+        }
+      }
+    }
+
+    // the latency histograms
+    header(out, "slacker_request_duration_seconds", "histogram",
+        "The latency of the requests, by command and stage.");
+    for (final CommandMetrics metrics : sorted) {
+      for (final Stage stage : Stage.values()) {
+        histogram(out, metrics.label, stage, metrics.latencies[stage.ordinal()]);
+      }
+    }
+
+    // the in-flight requests
+    header(out, "slacker_in_flight_requests", "gauge",
+        "The number of in-flight requests, by stage.");
+    for (final Stage stage : Stage.values()) {
+      out.append("slacker_in_flight_requests{stage=\"").append(stage.label).append("\"} ")
+          .append(inFlight.get(stage.ordinal())).append('\n');
+    }
+
+    // the registered gauges
+    gauges.forEach((name, gauge) -> {
+      header(out, name, "gauge", gauge.help);
+      out.append(name).append(' ').append(gauge.value.getAsLong()).append('\n');
+    });
+    return Buffer.buffer(out.toString());
+  }
+
+  /**
+   * Returns the metrics of the given command, as long as the command is within the bound of
+   * tracked commands
+   *
+   * @param command the command
+   * @return the command metrics, the ones of {@link #OTHER_COMMAND} past the bound
+   */
+  private CommandMetrics command(final String command) {
+    final CommandMetrics metrics = commands.get(command);
+    if (metrics != null) {
+      return metrics;
+    }
+    return commands.computeIfAbsent(commands.size() < MAX_COMMANDS ? command : OTHER_COMMAND,
+        CommandMetrics::new);
+  }
+
+  /**
+   * Renders the given histogram, unless it's empty
+   *
+   * @param out       the rendering output
+   * @param label     the rendered command label
+   * @param stage     the histogram stage
+   * @param histogram the histogram
+   */
+  private static void histogram(final StringBuilder out, final String label, final Stage stage,
+      final LatencyHistogram histogram) {
+    long total = 0;
+    for (int i = 0; i <= LatencyHistogram.BOUNDS.length; i++) {
+      total += histogram.getBucket(i);
+    }
+    if (total == 0) {
+      return;
+    }
+
+    long count = 0;
+    for (int i = 0; i <= LatencyHistogram.BOUNDS.length; i++) {
+      count += histogram.getBucket(i);
+      out.append("slacker_request_duration_seconds_bucket{").append(label)
+          .append(",stage=\"").append(stage.label).append("\",le=\"")
+          .append(i < LatencyHistogram.BOUNDS.length ? LatencyHistogram.BOUNDS[i] : "+Inf")
+          .append("\"} ").append(count).append('\n');
+    }
+    out.append("slacker_request_duration_seconds_sum{").append(label)
+        .append(",stage=\"").append(stage.label).append("\"} ")
+        .append(histogram.getSum() / 1e9).append('\n');
+    out.append("slacker_request_duration_seconds_count{").append(label)
+        .append(",stage=\"").append(stage.label).append("\"} ")
+        .append(count).append('\n');
+  }
+
+  /**
+   * Renders the header of the given metric
+   *
+   * @param out  the rendering output
+   * @param name the metric name
+   * @param type the metric type
+   * @param help the metric description
+   */
+  private static void header(final StringBuilder out, final String name, final String type,
+      final String help) {
+    out.append("# HELP ").append(name).append(' ').append(help).append('\n')
+        .append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  /**
+   * The metrics of a single command
+   */
+  private static final class CommandMetrics {
+
+    // the command
+    private final String command;
+
+    // the rendered (and escaped) command label
+    private final String label;
+
+    // the number of requests of each result code
+    private final AtomicLongArray results = new AtomicLongArray(ResultCode.values().length);
+
+    // the latency histogram of each stage
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Stage.values().length];
+
+    private CommandMetrics(final String command) {
+      this.command = command;
+      this.label = "command=\"" + command.replace("\\", "\\\\").replace("\"", "\\\"")
+          .replace("\n", "\\n") + "\"";
+      for (int i = 0; i < latencies.length; i++) {
+        latencies[i] = new LatencyHistogram();
+      }
+    }
+  }
+
+  /**
+   * A registered gauge
+   */
+  private static final class Gauge {
+
+    // the gauge description
+    private final String help;
+
+    // the supplier of the gauge value
+    private final LongSupplier value;
+
+    private Gauge(final String help, final LongSupplier value) {
+      this.help = help;
+      this.value = value;
+    }
+  }
+}
@@ -26,7 +26,14 @@ package pt.davidafsilva.slacker.server;
  * #L%
  */
 
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Verticle;
@@ -37,17 +44,25 @@ import pt.davidafsilva.slacker.api.SlackerResponseMessageCodec;
 
 /**
  * This verticle is the main, root verticle for the slacker application.
- * It is responsible for the deployment of both {@link HttpServerVerticle} and {@link
- * EventServerVerticle}, which will handle the slacker HTTP requests and Event based communication,
- * respectively.
+ * It is responsible for the deployment of {@link ResponseDeliveryVerticle}, {@link
+ * HttpServerVerticle} and {@link EventServerVerticle}, which will handle the deferred responses
+ * delivery, the slacker HTTP requests and Event based communication, respectively.
  *
  * The order in which the inner verticles are deployed are:
  * <ol>
- * <li>{@link HttpServerVerticle}</li>
+ * <li>{@link ResponseDeliveryVerticle}</li>
  * <li>{@link EventServerVerticle}</li>
+ * <li>{@link HttpServerVerticle}</li>
  * </ol>
  * The un-deploy is done in reverse order.
  *
+ * The {@link HttpServerVerticle} is deployed with as many instances as configured (see {@link
+ * HttpServerConfiguration#httpInstances(io.vertx.core.json.JsonObject)}), all of them sharing the
+ * same listener, which spreads the HTTP ingress across the available event-loops. Likewise, the
+ * {@link EventServerVerticle} is deployed as many times as configured (see {@link
+ * HttpServerConfiguration#eventInstances(io.vertx.core.json.JsonObject)}), all of them sharing the
+ * same {@link ExecutorRegistry}.
+ *
  * @author david
  */
 public final class SlackerServer extends AbstractVerticle {
@@ -55,57 +70,152 @@ public final class SlackerServer extends AbstractVerticle {
   // the logger
   private static final Logger LOGGER = LoggerFactory.getLogger(SlackerServer.class);
 
-  // the event verticle deployment id
-  private volatile String eventVerticleId;
+  // the gauges of the shared executor registry
+  static final String EXECUTORS_GAUGE = "slacker_registry_executors";
+  static final String INSTANCES_GAUGE = "slacker_registry_instances";
+
+  // the event verticle deployment ids
+  private final List<String> eventVerticleIds = new CopyOnWriteArrayList<>();
 
   // the http verticle deployment id
   private volatile String httpVerticleId;
 
+  // the delivery verticle deployment id
+  private volatile String deliveryVerticleId;
+
   // the help executor id
   private volatile String helpExecutorId;
 
   @Override
   public void start(final Future<Void> startFuture) throws Exception {
+    // read the http server deployment options
+    final DeploymentOptions httpOptions = new DeploymentOptions()
+        .setConfig(config())
+        .setInstances(HttpServerConfiguration.httpInstances(config()));
+
+    // read the number of event server instances and the load balancing strategy
+    final int eventInstances = HttpServerConfiguration.eventInstances(config());
+    final LoadBalancingStrategy strategy = HttpServerConfiguration.loadBalancing(config());
+
     // create the executor registry
-    final ExecutorRegistry executorRegistry = new ExecutorRegistry();
+    final ExecutorRegistry executorRegistry = new ExecutorRegistry(
+        HttpServerConfiguration.executorLease(config()));
+    registerGauges(executorRegistry);
+
+    // create the response cache and request coalescer shared among the event servers
+    final ResponseCache cache = new ResponseCache(
+        HttpServerConfiguration.responseCacheSize(config()));
+    final RequestCoalescer coalescer = new RequestCoalescer();
 
     // register the shared codecs
     vertx.eventBus()
         .registerCodec(new SlackerRequestMessageCodec())
         .registerCodec(new SlackerResponseMessageCodec());
 
-    // deploy the event server first
-    deployVerticle(new EventServerVerticle(executorRegistry), eid -> {
-      eventVerticleId = eid;
+    // deploy the delivery stage first
+    deployVerticle(new ResponseDeliveryVerticle(), new DeploymentOptions().setConfig(config()),
+        did -> {
+          deliveryVerticleId = did;
 
-      // then deploy the http server
-      deployVerticle(new HttpServerVerticle(), hid -> {
-        httpVerticleId = hid;
-        LOGGER.info("successfully completed the base slacker server deployment");
-        startFuture.complete();
-      }, v -> startFuture.fail("failed to deploy http verticle"));
+          // then the event server instances
+          deployEventServers(executorRegistry, strategy, cache, coalescer, eventInstances, ev -> {
+            // then deploy the http server instances
+            deployVerticle(HttpServerVerticle.class, httpOptions, hid -> {
+              httpVerticleId = hid;
+              LOGGER.info("successfully completed the base slacker server deployment");
+              startFuture.complete();
+            }, v -> startFuture.fail("failed to deploy http verticle"));
 
-      // and deploy the help executor
-      deployVerticle(new HelpSlackerExecutor(executorRegistry::executors),
-          helpId -> helpExecutorId = helpId,
-          v -> LOGGER.error("failed to deploy help executor"));
+            // and deploy the help executor
+            deployVerticle(new HelpSlackerExecutor(executorRegistry::executors),
+                helpId -> helpExecutorId = helpId,
+                v -> LOGGER.error("failed to deploy help executor"));
 
-    }, v -> startFuture.fail("failed to deploy event verticle"));
+          }, v -> startFuture.fail("failed to deploy event verticle"));
+        }, v -> startFuture.fail("failed to deploy delivery verticle"));
   }
 
   @Override
   public void stop(final Future<Void> stopFuture) throws Exception {
     // un-deploy the http server first
     vertx.undeploy(httpVerticleId, er -> {
-      // then the event server and the help executor
-      vertx.undeploy(eventVerticleId, hr -> {
-        LOGGER.info("un-deployment complete.");
-        stopFuture.complete();
+      // then the event servers and the help executor
+      undeployAll(eventVerticleIds.iterator(), hr -> {
+        removeGauges();
+
+        // and finally the delivery stage
+        vertx.undeploy(deliveryVerticleId, dr -> {
+          LOGGER.info("un-deployment complete.");
+          stopFuture.complete();
+        });
       });
       vertx.undeploy(helpExecutorId);
     });
   }
 
+  /**
+   * Registers the gauges of the given executor registry, once for all the event servers sharing it
+   *
+   * @param registry the shared executor registry
+   */
+  private void registerGauges(final ExecutorRegistry registry) {
+    final SlackerMetrics metrics = SlackerMetrics.of(vertx);
+    metrics.gauge(EXECUTORS_GAUGE, "The number of registered executors.",
+        () -> registry.executors().count());
+    metrics.gauge(INSTANCES_GAUGE, "The number of registered executor instances.",
+        () -> registry.executors().mapToLong(e -> e.getEndpoints().size()).sum());
+  }
+
+  /**
+   * Removes the gauges of the executor registry, which is no longer in use
+   */
+  private void removeGauges() {
+    final SlackerMetrics metrics = SlackerMetrics.of(vertx);
+    metrics.removeGauge(EXECUTORS_GAUGE);
+    metrics.removeGauge(INSTANCES_GAUGE);
+  }
+
+  /**
+   * Deploys the specified number of event server instances, one after the other, all of them
+   * sharing the given executor registry, response cache and request coalescer.
+   *
+   * @param registry  the shared executor registry
+   * @param strategy  the load balancing strategy among the executor instances
+   * @param cache     the shared response cache
+   * @param coalescer the shared request coalescer
+   * @param instances the number of instances (yet) to be deployed
+   * @param success   the success handler to be called once all the instances are deployed
+   * @param failure   the failure handler
+   */
+  private void deployEventServers(final ExecutorRegistry registry,
+      final LoadBalancingStrategy strategy, final ResponseCache cache,
+      final RequestCoalescer coalescer, final int instances, final Handler<Void> success,
+      final Handler<Void> failure) {
+    if (instances == 0) {
+      success.handle(null);
+      return;
+    }
+    deployVerticle(new EventServerVerticle(registry, strategy, cache, coalescer),
+        new DeploymentOptions().setConfig(config()), eid -> {
+          eventVerticleIds.add(eid);
+          deployEventServers(registry, strategy, cache, coalescer, instances - 1, success, failure);
+        }, failure);
+  }
+
+  /**
+   * Un-deploys the verticles with the given deployment ids, one after the other.
+   *
+   * @param ids               the deployment ids
+   * @param completionHandler the handler to be called once every verticle is un-deployed
+   */
+  private void undeployAll(final Iterator<String> ids, final Handler<Void> completionHandler) {
+    if (!ids.hasNext()) {
+      completionHandler.handle(null);
+      return;
+    }
+    vertx.undeploy(ids.next(), r -> undeployAll(ids, completionHandler));
+  }
+
   /**
    * Deploys the specified verticle and executes the success or failure handler accordingly.
    *
@@ -115,12 +225,56 @@ public final class SlackerServer extends AbstractVerticle {
    */
   private void deployVerticle(final Verticle v, final Handler<String> success,
       final Handler<Void> failure) {
-    vertx.deployVerticle(v, res -> {
+    deployVerticle(v.getClass(), h -> vertx.deployVerticle(v, h), success, failure);
+  }
+
+  /**
+   * Deploys the specified verticle with the given options and executes the success or failure
+   * handler accordingly.
+   *
+   * @param v       the verticle to be deployed
+   * @param options the deployment options
+   * @param success the success handler which will receive the deployment id has argument
+   * @param failure the failure handler
+   */
+  private void deployVerticle(final Verticle v, final DeploymentOptions options,
+      final Handler<String> success, final Handler<Void> failure) {
+    deployVerticle(v.getClass(), h -> vertx.deployVerticle(v, options, h), success, failure);
+  }
+
+  /**
+   * Deploys the specified verticle class with the given options and executes the success or
+   * failure handler accordingly. This form of deployment is required whenever more than one
+   * instance of the verticle is to be deployed.
+   *
+   * @param v       the verticle class to be deployed
+   * @param options the deployment options
+   * @param success the success handler which will receive the deployment id has argument
+   * @param failure the failure handler
+   */
+  private void deployVerticle(final Class<? extends Verticle> v, final DeploymentOptions options,
+      final Handler<String> success, final Handler<Void> failure) {
+    deployVerticle(v, h -> vertx.deployVerticle(v.getName(), options, h), success, failure);
+  }
+
+  /**
+   * Executes the given deployment procedure and executes the success or failure handler
+   * accordingly.
+   *
+   * @param v        the class of the verticle being deployed
+   * @param deployer the deployment procedure
+   * @param success  the success handler which will receive the deployment id has argument
+   * @param failure  the failure handler
+   */
+  private void deployVerticle(final Class<? extends Verticle> v,
+      final Consumer<Handler<AsyncResult<String>>> deployer, final Handler<String> success,
+      final Handler<Void> failure) {
+    deployer.accept(res -> {
       if (res.succeeded()) {
-        LOGGER.info("successfully deployed {0}", v.getClass().getSimpleName());
+        LOGGER.info("successfully deployed {0}", v.getSimpleName());
         success.handle(res.result());
       } else {
-        LOGGER.error("failed to deploy {0}", res.cause(), v.getClass().getSimpleName());
+        LOGGER.error("failed to deploy {0}", res.cause(), v.getSimpleName());
         failure.handle(null);
       }
     });
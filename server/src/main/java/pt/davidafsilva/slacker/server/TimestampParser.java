@@ -0,0 +1,103 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * A parser of the slack request timestamps, which are laid out as the epoch seconds (exactly 10
+ * digits) followed by a dot and up to 9 digits of the seconds fraction, i.e. {@code
+ * 1355517523.000005}.
+ *
+ * The digits are read straight into the seconds and nanoseconds of the instant, yielding the
+ * exact same instants of the equivalent {@link java.time.format.DateTimeFormatter}, without its
+ * intermediate parsing state. Malformed timestamps are reported as an empty result, rather than
+ * an exception.
+ *
+ * @author david
+ */
+final class TimestampParser {
+
+  // the number of digits of the epoch seconds
+  private static final int SECONDS_DIGITS = 10;
+
+  // the maximum number of digits of the seconds fraction
+  private static final int FRACTION_DIGITS = 9;
+
+  // the nanoseconds scale by number of fraction digits
+  private static final int[] NANOS_SCALE = {1_000_000_000, 100_000_000, 10_000_000, 1_000_000,
+      100_000, 10_000, 1_000, 100, 10, 1};
+
+  // private constructor
+  private TimestampParser() {
+    throw new UnsupportedOperationException("no no no");
+  }
+
+  /**
+   * Parses the given timestamp
+   *
+   * @param value the timestamp value
+   * @return the optional with the parsed instant, empty if the timestamp is malformed
+   */
+  static Optional<Instant> parse(final CharSequence value) {
+    final int length = value.length();
+    final int fractionDigits = length - SECONDS_DIGITS - 1;
+    if (fractionDigits < 0 || fractionDigits > FRACTION_DIGITS ||
+        value.charAt(SECONDS_DIGITS) != '.') {
+      return Optional.empty();
+    }
+
+    long seconds = 0;
+    for (int i = 0; i < SECONDS_DIGITS; i++) {
+      final int digit = digit(value.charAt(i));
+      if (digit < 0) {
+        return Optional.empty();
+      }
+      seconds = seconds * 10 + digit;
+    }
+    int fraction = 0;
+    for (int i = SECONDS_DIGITS + 1; i < length; i++) {
+      final int digit = digit(value.charAt(i));
+      if (digit < 0) {
+        return Optional.empty();
+      }
+      fraction = fraction * 10 + digit;
+    }
+    return Optional.of(Instant.ofEpochSecond(seconds, fraction * NANOS_SCALE[fractionDigits]));
+  }
+
+  /**
+   * Returns the value of the given (ASCII) decimal digit
+   *
+   * @param c the digit character
+   * @return the digit value, or {@code -1} if it isn't a decimal digit
+   */
+  private static int digit(final char c) {
+    return c >= '0' && c <= '9' ? c - '0' : -1;
+  }
+}
@@ -0,0 +1,151 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link AdmissionController} object.
+ *
+ * @author david
+ */
+public class AdmissionControllerTest {
+
+  // the latency samples
+  private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(1000);
+
+  @Test
+  public void test_unbounded() {
+    final AdmissionController controller = new AdmissionController(0, 0, false, 100);
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(controller.tryAcquire("xpto"));
+    }
+    assertEquals(1000, controller.getInFlight());
+  }
+
+  @Test
+  public void test_globalLimit() {
+    final AdmissionController controller = new AdmissionController(2, 0, false, 100);
+    assertTrue(controller.tryAcquire("xpto"));
+    assertTrue(controller.tryAcquire("woop"));
+    assertFalse(controller.tryAcquire("meh"));
+    controller.release("xpto", FAST, true);
+    assertTrue(controller.tryAcquire("meh"));
+    assertEquals(2, controller.getInFlight());
+  }
+
+  @Test
+  public void test_commandLimit() {
+    final AdmissionController controller = new AdmissionController(10, 1, false, 100);
+    assertTrue(controller.tryAcquire("xpto"));
+    assertFalse(controller.tryAcquire("xpto"));
+    assertTrue(controller.tryAcquire("woop"));
+    assertEquals(2, controller.getInFlight());
+    controller.release("xpto", FAST, true);
+    assertTrue(controller.tryAcquire("xpto"));
+  }
+
+  @Test
+  public void test_adaptive_decrease() {
+    final AtomicLong clock = new AtomicLong();
+    final AdmissionController controller = new AdmissionController(10, 0, true, 100,
+        clock::get);
+    assertTrue(controller.tryAcquire("xpto"));
+    clock.addAndGet(SLOW);
+    controller.release("xpto", SLOW, true);
+    assertEquals(10 * AdmissionController.DECREASE_FACTOR, controller.getLimit(), 0.001);
+    assertTrue(controller.tryAcquire("xpto"));
+    clock.addAndGet(FAST);
+    controller.release("xpto", FAST, false);
+    assertEquals(10 * AdmissionController.DECREASE_FACTOR * AdmissionController.DECREASE_FACTOR,
+        controller.getLimit(), 0.001);
+  }
+
+  @Test
+  public void test_adaptive_decreaseOncePerWindow() {
+    final AtomicLong clock = new AtomicLong();
+    final AdmissionController controller = new AdmissionController(10, 0, true, 100,
+        clock::get);
+    for (int i = 0; i < 5; i++) {
+      assertTrue(controller.tryAcquire("xpto"));
+    }
+    clock.addAndGet(SLOW);
+    for (int i = 0; i < 5; i++) {
+      controller.release("xpto", SLOW, false);
+    }
+    assertEquals(10 * AdmissionController.DECREASE_FACTOR, controller.getLimit(), 0.001);
+
+    // the requests admitted after the decrease may shrink the limit again
+    assertTrue(controller.tryAcquire("xpto"));
+    clock.addAndGet(SLOW);
+    controller.release("xpto", SLOW, true);
+    assertEquals(10 * AdmissionController.DECREASE_FACTOR * AdmissionController.DECREASE_FACTOR,
+        controller.getLimit(), 0.001);
+  }
+
+  @Test
+  public void test_adaptive_releaseWithoutSignal() {
+    final AdmissionController controller = new AdmissionController(10, 1, true, 100);
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(controller.tryAcquire("xpto"));
+      controller.release("xpto");
+    }
+    assertEquals(10, controller.getLimit(), 0.001);
+    assertEquals(0, controller.getInFlight());
+    assertTrue(controller.tryAcquire("xpto"));
+  }
+
+  @Test
+  public void test_adaptive_increase() {
+    final AtomicLong clock = new AtomicLong();
+    final AdmissionController controller = new AdmissionController(10, 0, true, 100,
+        clock::get);
+    for (int i = 0; i < 30; i++) {
+      assertTrue(controller.tryAcquire("xpto"));
+      clock.addAndGet(SLOW);
+      controller.release("xpto", SLOW, true);
+    }
+    assertEquals(1, controller.getLimit(), 0.001);
+    assertTrue(controller.tryAcquire("xpto"));
+    assertFalse(controller.tryAcquire("xpto"));
+    for (int i = 0; i < 10; i++) {
+      clock.addAndGet(FAST);
+      controller.release("xpto", FAST, true);
+      assertTrue(controller.tryAcquire("xpto"));
+    }
+    assertTrue(controller.getLimit() > 2);
+    assertTrue(controller.getLimit() <= 10);
+  }
+}
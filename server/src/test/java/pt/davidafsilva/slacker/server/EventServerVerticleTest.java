@@ -30,13 +30,24 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
+import io.vertx.core.Handler;
 import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
 import pt.davidafsilva.slacker.api.ResultCode;
 import pt.davidafsilva.slacker.api.SlackerBaseTest;
+import pt.davidafsilva.slacker.api.SlackerDeadline;
 import pt.davidafsilva.slacker.api.SlackerRequest;
 import pt.davidafsilva.slacker.api.SlackerRequestBuilder;
 import pt.davidafsilva.slacker.api.SlackerRequestMessageCodec;
@@ -45,6 +56,7 @@ import pt.davidafsilva.slacker.api.SlackerResponseMessageCodec;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -57,6 +69,9 @@ import static org.junit.Assert.assertTrue;
 @RunWith(VertxUnitRunner.class)
 public class EventServerVerticleTest extends SlackerBaseTest {
 
+  // the stub response server port
+  private static final int STUB_PORT = 10012;
+
   // the request used for the test execution
   private static final SlackerRequest REQUEST = new SlackerRequestBuilder()
       .timestamp(Instant.now())
@@ -88,6 +103,11 @@ public class EventServerVerticleTest extends SlackerBaseTest {
     new EventServerVerticle(null);
   }
 
+  @Test(expected = NullPointerException.class)
+  public void test_nullStrategy() {
+    new EventServerVerticle(new ExecutorRegistry(), null);
+  }
+
   @Test
   public void test_register_nullRequest() {
     wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.REG_SERVER_ADDRESS, null, reply -> {
@@ -127,10 +147,131 @@ public class EventServerVerticleTest extends SlackerBaseTest {
           final JsonObject json = (JsonObject) reply.result().body();
           assertTrue(json.containsKey("a"));
           assertEquals(32 + 17, json.getString("a").length());
+          assertEquals(HttpServerConfiguration.DEFAULT_EXECUTOR_LEASE, (long) json.getLong("l"));
+          latch.countDown();
+        }));
+  }
+
+  @Test
+  public void test_register_publishesRouteUpdate() {
+    wrapExec(latch -> {
+      vertx.eventBus().<JsonObject>consumer(EventServerVerticle.UPD_SERVER_ADDRESS, update -> {
+        assertEquals("test", update.body().getString("i"));
+        assertEquals(1L, (long) update.body().getLong("r"));
+        assertEquals(ExecutorRegistry.SYNC_MODE, update.body().getString("m"));
+        assertEquals(1, update.body().getJsonArray("a").size());
+        assertEquals(32 + 17, update.body().getJsonArray("a").getString(0).length());
+        latch.countDown();
+      });
+      vertx.eventBus().send(EventServerVerticle.REG_SERVER_ADDRESS,
+          new JsonObject().put("i", "test").put("v", "1.0.0"));
+    });
+  }
+
+  @Test
+  public void test_heartbeat_nullRequest() {
+    wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.HBT_SERVER_ADDRESS, null,
+        reply -> {
+          assertTrue(reply.failed());
+          assertEquals("invalid heartbeat event received", reply.cause().getMessage());
+          latch.countDown();
+        }));
+  }
+
+  @Test
+  public void test_heartbeat_unknownExecutor() {
+    wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.HBT_SERVER_ADDRESS,
+        new JsonObject().put("i", "test").put("a", "meh"), reply -> {
+          assertTrue(reply.failed());
+          assertEquals("unable to renew lease: unknown executor instance",
+              reply.cause().getMessage());
+          latch.countDown();
+        }));
+  }
+
+  @Test
+  public void test_heartbeat_success() {
+    wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.REG_SERVER_ADDRESS,
+        new JsonObject().put("i", "test").put("v", "1.0.0"), reply -> {
+          final String address = ((JsonObject) reply.result().body()).getString("a");
+          vertx.eventBus().send(EventServerVerticle.HBT_SERVER_ADDRESS, new JsonObject()
+              .put("i", "test").put("a", address), heartbeat -> {
+            assertTrue(heartbeat.succeeded());
+            assertEquals(new JsonObject().put("l", HttpServerConfiguration.DEFAULT_EXECUTOR_LEASE),
+                heartbeat.result().body());
+            latch.countDown();
+          });
+        }));
+  }
+
+  @Test
+  public void test_unregister_nullRequest() {
+    wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.UNR_SERVER_ADDRESS, null,
+        reply -> {
+          assertTrue(reply.failed());
+          assertEquals("invalid unregister event received", reply.cause().getMessage());
           latch.countDown();
         }));
   }
 
+  @Test
+  public void test_unregister_unknownExecutor() {
+    wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.UNR_SERVER_ADDRESS,
+        new JsonObject().put("i", "test").put("a", "meh"), reply -> {
+          assertTrue(reply.failed());
+          assertEquals("unable to unregister executor: unknown executor instance",
+              reply.cause().getMessage());
+          latch.countDown();
+        }));
+  }
+
+  @Test
+  public void test_unregister_success() {
+    wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.REG_SERVER_ADDRESS,
+        new JsonObject().put("i", "test").put("v", "1.0.0"), reply -> {
+          final String address = ((JsonObject) reply.result().body()).getString("a");
+          // the removed route must be published
+          vertx.eventBus().<JsonObject>consumer(EventServerVerticle.UPD_SERVER_ADDRESS, update -> {
+            assertEquals("test", update.body().getString("i"));
+            assertEquals(2L, (long) update.body().getLong("r"));
+            assertEquals(new JsonArray(), update.body().getJsonArray("a"));
+            latch.countDown();
+          });
+          vertx.eventBus().send(EventServerVerticle.UNR_SERVER_ADDRESS, new JsonObject()
+              .put("i", "test").put("a", address), unregister ->
+              assertTrue(unregister.succeeded()));
+        }));
+
+    // the requests must fail right away
+    assertNoExecutor();
+  }
+
+  @Test
+  public void test_snapshot_empty() {
+    wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.SNP_SERVER_ADDRESS, null,
+        reply -> {
+          assertTrue(reply.succeeded());
+          assertEquals(new JsonObject(), reply.result().body());
+          latch.countDown();
+        }));
+  }
+
+  @Test
+  public void test_snapshot_withExecutors() {
+    wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.REG_SERVER_ADDRESS,
+        new JsonObject().put("i", "test").put("v", "1.0.0"), reply -> {
+          final String address = ((JsonObject) reply.result().body()).getString("a");
+          vertx.eventBus().send(EventServerVerticle.SNP_SERVER_ADDRESS, null, snapshot -> {
+            assertTrue(snapshot.succeeded());
+            assertEquals(new JsonObject().put("test", new JsonObject()
+                .put("r", 1L)
+                .put("m", ExecutorRegistry.SYNC_MODE)
+                .put("a", new JsonArray().add(address))), snapshot.result().body());
+            latch.countDown();
+          });
+        }));
+  }
+
   @Test
   public void test_request_nullRequest() {
     wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.REQ_SERVER_ADDRESS, null, reply -> {
@@ -151,6 +292,10 @@ public class EventServerVerticleTest extends SlackerBaseTest {
 
   @Test
   public void test_request_noExecutor() {
+    assertNoExecutor();
+  }
+
+  private void assertNoExecutor() {
     wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.REQ_SERVER_ADDRESS, REQUEST,
         new DeliveryOptions().setCodecName(SlackerRequestMessageCodec.NAME),
         reply -> {
@@ -178,6 +323,59 @@ public class EventServerVerticleTest extends SlackerBaseTest {
         }));
   }
 
+  @Test
+  public void test_request_deadlineExceeded() {
+    wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.REQ_SERVER_ADDRESS, REQUEST,
+        SlackerDeadline.apply(new DeliveryOptions()
+            .setCodecName(SlackerRequestMessageCodec.NAME), System.currentTimeMillis() - 1)
+            .setSendTimeout(1000),
+        reply -> {
+          assertTrue(reply.failed());
+          assertEquals("deadline exceeded", reply.cause().getMessage());
+          latch.countDown();
+        }));
+  }
+
+  @Test
+  public void test_request_deadlinePropagated() {
+    final long deadline = System.currentTimeMillis() + 5000;
+    wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.REG_SERVER_ADDRESS,
+        new JsonObject().put("i", "test").put("v", "1.0.0"), reply -> {
+          final JsonObject json = (JsonObject) reply.result().body();
+          vertx.eventBus().consumer(json.getString("a"), req -> {
+            assertEquals(Optional.of(deadline), SlackerDeadline.of(req.headers()));
+            req.fail(1, "meh");
+          });
+          latch.countDown();
+        }));
+
+    wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.REQ_SERVER_ADDRESS, REQUEST,
+        SlackerDeadline.apply(new DeliveryOptions()
+            .setCodecName(SlackerRequestMessageCodec.NAME), deadline),
+        reply -> {
+          assertTrue(reply.failed());
+          assertEquals("failed test processing: meh", reply.cause().getMessage());
+          latch.countDown();
+        }));
+  }
+
+  @Test
+  public void test_request_goneExecutor() {
+    wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.REG_SERVER_ADDRESS,
+        new JsonObject().put("i", "test").put("v", "1.0.0"), reply -> latch.countDown()));
+
+    // no one is listening at the executor address
+    wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.REQ_SERVER_ADDRESS, REQUEST,
+        new DeliveryOptions().setCodecName(SlackerRequestMessageCodec.NAME),
+        reply -> {
+          assertTrue(reply.failed());
+          latch.countDown();
+        }));
+
+    // the executor must have been evicted
+    assertNoExecutor();
+  }
+
   @Test
   public void test_request_executorReplyWithWrongType() {
     wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.REG_SERVER_ADDRESS,
@@ -228,4 +426,246 @@ public class EventServerVerticleTest extends SlackerBaseTest {
           latch.countDown();
         }));
   }
+
+  @Test
+  public void test_request_deferred() {
+    wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.REG_SERVER_ADDRESS,
+        new JsonObject().put("i", "test").put("v", "1.0.0").put("m", "deferred"), reply -> {
+          final JsonObject json = (JsonObject) reply.result().body();
+          vertx.eventBus().consumer(json.getString("a"), req -> req.reply(new SlackerResponse() {
+            @Override
+            public ResultCode getCode() {
+              return ResultCode.OK;
+            }
+
+            @Override
+            public Optional<String> getResponse() {
+              return Optional.of("done");
+            }
+          }, new DeliveryOptions().setCodecName(SlackerResponseMessageCodec.NAME)));
+          latch.countDown();
+        }));
+
+    // the request is acknowledged right away and the response handed over to the delivery stage
+    final SlackerRequest request = new SlackerRequestBuilder()
+        .timestamp(Instant.now())
+        .channelId("12345")
+        .channelName("#dope")
+        .userId("6789")
+        .userName("david")
+        .teamDomain("slack.davidafsilva.pt")
+        .teamIdentifier("davidafsilva")
+        .command("test")
+        .args("123 456")
+        .responseUrl("http://localhost/response")
+        .build();
+    wrapExec(latch -> {
+      vertx.eventBus().<SlackerResponse>consumer(ResponseDeliveryVerticle.DLV_SERVER_ADDRESS,
+          delivery -> {
+            assertEquals("http://localhost/response",
+                delivery.headers().get(ResponseDeliveryVerticle.RESPONSE_URL_HEADER));
+            assertEquals("done", delivery.body().getResponse().get());
+            latch.countDown();
+          });
+      vertx.eventBus().send(EventServerVerticle.REQ_SERVER_ADDRESS, request,
+          new DeliveryOptions().setCodecName(SlackerRequestMessageCodec.NAME), reply -> {
+            assertTrue(reply.succeeded());
+            final SlackerResponse response = (SlackerResponse) reply.result().body();
+            assertEquals(ResultCode.OK, response.getCode());
+            assertFalse(response.getResponse().isPresent());
+          });
+    });
+  }
+
+  @Test
+  public void test_request_deferredFailure() {
+    assertTrue(deployVerticle(new ResponseDeliveryVerticle()).succeeded());
+    wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.REG_SERVER_ADDRESS,
+        new JsonObject().put("i", "test").put("v", "1.0.0").put("m", "deferred"), reply -> {
+          final JsonObject json = (JsonObject) reply.result().body();
+          vertx.eventBus().consumer(json.getString("a"), req -> req.fail(2, "oops"));
+          latch.countDown();
+        }));
+
+    // the failure is delivered to the response URL as an error response
+    final SlackerRequest request = new SlackerRequestBuilder()
+        .timestamp(Instant.now())
+        .channelId("12345")
+        .channelName("#dope")
+        .userId("6789")
+        .userName("david")
+        .teamDomain("slack.davidafsilva.pt")
+        .teamIdentifier("davidafsilva")
+        .command("test")
+        .args("123 456")
+        .responseUrl("http://localhost:" + STUB_PORT + "/response")
+        .build();
+    wrapExec(latch -> vertx.createHttpServer()
+        .requestHandler(delivery -> delivery.bodyHandler(body -> {
+          assertEquals("/response", delivery.path());
+          assertEquals(new JsonObject().put("text", "failed test processing: oops"),
+              new JsonObject(body.toString()));
+          delivery.response().end();
+          latch.countDown();
+        }))
+        .listen(STUB_PORT, r -> {
+          assertTrue(r.succeeded());
+          vertx.eventBus().send(EventServerVerticle.REQ_SERVER_ADDRESS, request,
+              new DeliveryOptions().setCodecName(SlackerRequestMessageCodec.NAME), reply -> {
+                assertTrue(reply.succeeded());
+                final SlackerResponse response = (SlackerResponse) reply.result().body();
+                assertEquals(ResultCode.OK, response.getCode());
+              });
+        }));
+  }
+
+  @Test
+  public void test_request_cached() {
+    final AtomicInteger executions = new AtomicInteger();
+    wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.REG_SERVER_ADDRESS,
+        new JsonObject().put("i", "test").put("v", "1.0.0")
+            .put("c", new JsonObject().put("t", 60000).put("s", "TEAM")), reply -> {
+          final JsonObject json = (JsonObject) reply.result().body();
+          vertx.eventBus().consumer(json.getString("a"), req -> {
+            final String text = "test" + executions.incrementAndGet();
+            req.reply(new SlackerResponse() {
+              @Override
+              public ResultCode getCode() {
+                return ResultCode.OK;
+              }
+
+              @Override
+              public Optional<String> getResponse() {
+                return Optional.of(text);
+              }
+            }, new DeliveryOptions().setCodecName(SlackerResponseMessageCodec.NAME));
+          });
+          latch.countDown();
+        }));
+
+    // the second request is served from the cache
+    for (int i = 0; i < 2; i++) {
+      wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.REQ_SERVER_ADDRESS, REQUEST,
+          new DeliveryOptions().setCodecName(SlackerRequestMessageCodec.NAME), reply -> {
+            assertTrue(reply.succeeded());
+            final SlackerResponse response = (SlackerResponse) reply.result().body();
+            assertEquals(ResultCode.OK, response.getCode());
+            assertEquals("test1", response.getResponse().get());
+            latch.countDown();
+          }));
+    }
+    assertEquals(1, executions.get());
+
+    // statistics
+    wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.STS_SERVER_ADDRESS, null,
+        reply -> {
+          final JsonObject cache = ((JsonObject) reply.result().body()).getJsonObject("cache");
+          assertEquals(1L, cache.getLong("hits").longValue());
+          assertEquals(1L, cache.getLong("misses").longValue());
+          latch.countDown();
+        }));
+  }
+
+  @Test
+  public void test_request_coalesced() {
+    // register an executor which holds the requests until both of them are sent
+    final List<Message<Object>> pending = new ArrayList<>();
+    wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.REG_SERVER_ADDRESS,
+        new JsonObject().put("i", "test").put("v", "1.0.0").put("k", "COMMAND"), reply -> {
+          final JsonObject json = (JsonObject) reply.result().body();
+          vertx.eventBus().consumer(json.getString("a"), pending::add);
+          latch.countDown();
+        }));
+
+    // both requests get the response of a single execution
+    final CountDownLatch replies = new CountDownLatch(2);
+    wrapExec(latch -> {
+      for (int i = 0; i < 2; i++) {
+        vertx.eventBus().send(EventServerVerticle.REQ_SERVER_ADDRESS, REQUEST,
+            new DeliveryOptions().setCodecName(SlackerRequestMessageCodec.NAME), reply -> {
+              assertTrue(reply.succeeded());
+              assertEquals("test",
+                  ((SlackerResponse) reply.result().body()).getResponse().get());
+              replies.countDown();
+              if (replies.getCount() == 0) {
+                latch.countDown();
+              }
+            });
+      }
+      vertx.setTimer(100, t -> pending.forEach(m -> m.reply(new SlackerResponse() {
+        @Override
+        public ResultCode getCode() {
+          return ResultCode.OK;
+        }
+
+        @Override
+        public Optional<String> getResponse() {
+          return Optional.of("test");
+        }
+      }, new DeliveryOptions().setCodecName(SlackerResponseMessageCodec.NAME))));
+    });
+    assertEquals(1, pending.size());
+
+    // statistics
+    wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.STS_SERVER_ADDRESS, null,
+        reply -> {
+          final JsonObject coalescer = ((JsonObject) reply.result().body())
+              .getJsonObject("coalescer");
+          assertEquals(1L, coalescer.getLong("coalesced").longValue());
+          assertEquals(0, coalescer.getInteger("inFlight").intValue());
+          latch.countDown();
+        }));
+  }
+
+  @Test
+  public void test_request_balancedAmongInstances() {
+    final SlackerResponse response = new SlackerResponse() {
+      @Override
+      public ResultCode getCode() {
+        return ResultCode.OK;
+      }
+
+      @Override
+      public Optional<String> getResponse() {
+        return Optional.of("test");
+      }
+    };
+
+    // register two instances, which hold the requests until both of them receive one
+    final List<Message<Object>> pending = new ArrayList<>();
+    final Handler<Message<Object>> instance = req -> {
+      pending.add(req);
+      if (pending.size() == 2) {
+        pending.forEach(m -> m.reply(response, new DeliveryOptions()
+            .setCodecName(SlackerResponseMessageCodec.NAME)));
+      }
+    };
+    final Set<String> addresses = new HashSet<>();
+    wrapExec(latch -> vertx.eventBus().send(EventServerVerticle.REG_SERVER_ADDRESS,
+        new JsonObject().put("i", "test").put("v", "1.0.0"), r1 ->
+            vertx.eventBus().send(EventServerVerticle.REG_SERVER_ADDRESS,
+                new JsonObject().put("i", "test").put("v", "1.0.0"), r2 -> {
+                  addresses.add(((JsonObject) r1.result().body()).getString("a"));
+                  addresses.add(((JsonObject) r2.result().body()).getString("a"));
+                  addresses.forEach(a -> vertx.eventBus().consumer(a, instance));
+                  latch.countDown();
+                })));
+    assertEquals(2, addresses.size());
+
+    // the second request must be sent to the instance without outstanding requests
+    final CountDownLatch replies = new CountDownLatch(2);
+    wrapExec(latch -> {
+      for (int i = 0; i < 2; i++) {
+        vertx.eventBus().send(EventServerVerticle.REQ_SERVER_ADDRESS, REQUEST,
+            new DeliveryOptions().setCodecName(SlackerRequestMessageCodec.NAME), reply -> {
+              assertTrue(reply.succeeded());
+              replies.countDown();
+              if (replies.getCount() == 0) {
+                latch.countDown();
+              }
+            });
+      }
+    });
+    assertEquals(addresses, pending.stream().map(Message::address).collect(Collectors.toSet()));
+  }
 }
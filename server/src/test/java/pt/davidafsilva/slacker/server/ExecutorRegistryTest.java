@@ -34,13 +34,31 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import io.vertx.core.Handler;
 import io.vertx.core.json.JsonObject;
+import pt.davidafsilva.slacker.api.CacheScope;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
@@ -63,12 +81,21 @@ public class ExecutorRegistryTest {
   @Mock
   private Handler<String> registerErrorHandler;
 
+  @Mock
+  private Handler<ExecutorRegistry.ExecutorEntry> lookupHandler;
+
   @Mock
   private Handler<Void> lookupErrorHandler;
 
+  @Mock
+  private Handler<Long> leaseHandler;
+
   @Captor
   private ArgumentCaptor<String> addressCaptor;
 
+  @Captor
+  private ArgumentCaptor<ExecutorRegistry.ExecutorEntry> entryCaptor;
+
   // the test executor registry
   private ExecutorRegistry executorRegistry;
 
@@ -105,6 +132,64 @@ public class ExecutorRegistryTest {
     verify(registerErrorHandler, times(1)).handle(ExecutorRegistry.INVALID_REQUEST_MSG);
   }
 
+  @Test
+  public void register_invalidRequestMode() {
+    executorRegistry.register(new JsonObject().put("i", "xpto").put("v", "1.0.0").put("m", "meh"),
+        successHandler, registerErrorHandler);
+    verify(successHandler, never()).handle(any());
+    verify(registerErrorHandler, times(1)).handle(ExecutorRegistry.INVALID_MODE_MSG);
+  }
+
+  @Test
+  public void register_invalidRequestCachePolicy() {
+    executorRegistry.register(new JsonObject().put("i", "xpto").put("v", "1.0.0")
+        .put("c", new JsonObject().put("t", 0)), successHandler, registerErrorHandler);
+    executorRegistry.register(new JsonObject().put("i", "xpto").put("v", "1.0.0")
+        .put("c", new JsonObject().put("t", 1000).put("s", "meh")), successHandler,
+        registerErrorHandler);
+    executorRegistry.register(new JsonObject().put("i", "xpto").put("v", "1.0.0")
+        .put("c", "meh"), successHandler, registerErrorHandler);
+    verify(successHandler, never()).handle(any());
+    verify(registerErrorHandler, times(3)).handle(ExecutorRegistry.INVALID_CACHE_MSG);
+  }
+
+  @Test
+  public void test_register_success_cacheable() {
+    register_success(new JsonObject().put("i", "xpto").put("v", "1.0.0")
+        .put("c", new JsonObject().put("t", 1000).put("s", "USER")));
+  }
+
+  @Test
+  public void register_invalidRequestCoalescing() {
+    executorRegistry.register(new JsonObject().put("i", "xpto").put("v", "1.0.0").put("k", "meh"),
+        successHandler, registerErrorHandler);
+    executorRegistry.register(new JsonObject().put("i", "xpto").put("v", "1.0.0").put("k", 1),
+        successHandler, registerErrorHandler);
+    verify(successHandler, never()).handle(any());
+    verify(registerErrorHandler, times(2)).handle(ExecutorRegistry.INVALID_COALESCING_MSG);
+  }
+
+  @Test
+  public void test_register_success_coalesced() {
+    register_success(new JsonObject().put("i", "xpto").put("v", "1.0.0").put("k", "TEAM"));
+  }
+
+  @Test
+  public void test_register_success_deferred() {
+    register_success(new JsonObject().put("i", "xpto").put("v", "1.0.0").put("m", "deferred"));
+  }
+
+  @Test
+  public void test_register_failure_incompatibleMode() {
+    register_success(new JsonObject().put("i", "xpto").put("v", "1.0.0"));
+
+    // fail with a different response mode
+    executorRegistry.register(new JsonObject().put("i", "xpto").put("v", "1.0.0")
+        .put("m", "deferred"), successHandler, registerErrorHandler);
+    verify(successHandler, times(2)).handle(any());
+    verify(registerErrorHandler, times(1)).handle(ExecutorRegistry.INCOMPATIBLE_MODE_MSG);
+  }
+
   @Test
   public void test_register_success_noDescription() {
     register_success(new JsonObject().put("i", "xpto").put("v", "1.0.0"));
@@ -122,7 +207,7 @@ public class ExecutorRegistryTest {
     // fail with incompatible version
     executorRegistry.register(new JsonObject().put("i", "xpto").put("v", "0.0.9"), successHandler,
         registerErrorHandler);
-    verify(successHandler, times(3)).handle(any());
+    verify(successHandler, times(2)).handle(any());
     verify(registerErrorHandler, times(1))
         .handle("incompatible version, found 0.0.9, expected 1.0.0 or greater");
   }
@@ -131,11 +216,36 @@ public class ExecutorRegistryTest {
   public void test_register_success_compatibleVersion() {
     register_success(new JsonObject().put("i", "xpto").put("v", "1.0.0"));
 
-    // fail with incompatible version
-    executorRegistry.register(new JsonObject().put("i", "xpto").put("v", "1.1.0"), successHandler,
-        registerErrorHandler);
-    verify(successHandler, times(4)).handle(any());
+    // upgrade to a newer version, with its own policies
+    executorRegistry.register(new JsonObject().put("i", "xpto").put("v", "1.1.0").put("d", "new")
+        .put("k", "TEAM"), successHandler, registerErrorHandler);
+    verify(successHandler, times(3)).handle(any());
     verify(registerErrorHandler, never()).handle(anyString());
+    final ExecutorRegistry.ExecutorEntry entry = executorRegistry.executors().findAny().get();
+    assertEquals("1.1.0", entry.getVersion().toString());
+    assertEquals("new", entry.getDescription());
+    assertEquals(Optional.of(CacheScope.TEAM), entry.getCoalescing());
+    assertEquals(3, entry.getEndpoints().size());
+    assertEquals(3, entry.getRevision());
+  }
+
+  @Test
+  public void test_register_failure_incompatiblePolicy() {
+    register_success(new JsonObject().put("i", "xpto").put("v", "1.0.0")
+        .put("c", new JsonObject().put("t", 1000L)));
+
+    // fail with a different cache or coalescing policy, for the same version
+    executorRegistry.register(new JsonObject().put("i", "xpto").put("v", "1.0.0"),
+        successHandler, registerErrorHandler);
+    executorRegistry.register(new JsonObject().put("i", "xpto").put("v", "1.0.0")
+        .put("c", new JsonObject().put("t", 1000L).put("s", "TEAM")), successHandler,
+        registerErrorHandler);
+    executorRegistry.register(new JsonObject().put("i", "xpto").put("v", "1.0.0")
+        .put("c", new JsonObject().put("t", 1000L)).put("k", "COMMAND"), successHandler,
+        registerErrorHandler);
+    verify(successHandler, times(2)).handle(any());
+    verify(registerErrorHandler, times(3)).handle(ExecutorRegistry.INCOMPATIBLE_POLICY_MSG);
+    assertEquals(2, executorRegistry.executors().findAny().get().getEndpoints().size());
   }
 
   private void register_success(final JsonObject request) {
@@ -148,15 +258,20 @@ public class ExecutorRegistryTest {
     assertTrue(address.endsWith(".slacker-executor"));
     assertEquals(32 + 17, address.length());
 
-    // try to register it again
+    // register another instance
     executorRegistry.register(request, successHandler, registerErrorHandler);
     verify(registerErrorHandler, never()).handle(any());
-    verify(successHandler, times(2)).handle(address);
+    verify(successHandler, times(2)).handle(addressCaptor.capture());
+    final String otherAddress = addressCaptor.getValue();
+    assertNotEquals(address, otherAddress);
 
     // lookup
-    executorRegistry.lookup("xpto", successHandler, lookupErrorHandler);
-    verify(successHandler, times(3)).handle(address);
+    executorRegistry.lookup("xpto", lookupHandler, lookupErrorHandler);
+    verify(lookupHandler, times(1)).handle(entryCaptor.capture());
     verify(lookupErrorHandler, never()).handle(any());
+    assertEquals(Arrays.asList(address, otherAddress), entryCaptor.getValue().getEndpoints()
+        .stream().map(ExecutorEndpoint::getAddress).collect(Collectors.toList()));
+    assertEquals(2, entryCaptor.getValue().getRevision());
 
     // executors
     final List<ExecutorRegistry.ExecutorEntry> executors = executorRegistry.executors()
@@ -166,12 +281,173 @@ public class ExecutorRegistryTest {
     assertEquals(request.getString("d", ExecutorRegistry.DEFAULT_DESCRIPTION),
         executors.get(0).getDescription());
     assertEquals(request.getString("v"), executors.get(0).getVersion().toString());
+    assertEquals(ExecutorRegistry.DEFERRED_MODE.equals(request.getString("m")),
+        executors.get(0).isDeferred());
+    final JsonObject cache = request.getJsonObject("c", new JsonObject());
+    assertEquals(cache.getLong("t", 0L).longValue(), executors.get(0).getCacheTtl());
+    assertEquals(CacheScope.valueOf(cache.getString("s", "COMMAND")),
+        executors.get(0).getCacheScope());
+    assertEquals(Optional.ofNullable(request.getString("k")).map(CacheScope::valueOf),
+        executors.get(0).getCoalescing());
+  }
+
+  @Test
+  public void test_register_concurrent() throws Exception {
+    final int threads = 8;
+    final int executors = 100;
+    final ConcurrentMap<String, Set<String>> addresses = new ConcurrentHashMap<>();
+    final CountDownLatch start = new CountDownLatch(1);
+    final ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(pool.submit(() -> {
+          start.await();
+          for (int i = 0; i < executors; i++) {
+            final String id = "xpto" + i;
+            executorRegistry.register(new JsonObject().put("i", id).put("v", "1.0.0"),
+                a -> addresses.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet()).add(a),
+                registerErrorHandler);
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (final Future<?> future : futures) {
+        future.get(10, TimeUnit.SECONDS);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+
+    // every executor must be registered exactly once, with one endpoint per registered instance
+    verify(registerErrorHandler, never()).handle(any());
+    assertEquals(executors, executorRegistry.executors().count());
+    assertEquals(executors, addresses.size());
+    assertTrue(addresses.values().stream().allMatch(a -> a.size() == threads));
+    executorRegistry.executors().forEach(e ->
+        assertEquals(addresses.get(e.getId()), e.getEndpoints().stream()
+            .map(ExecutorEndpoint::getAddress)
+            .collect(Collectors.toSet())));
   }
 
   @Test
   public void lookup_invalidId() {
-    executorRegistry.lookup("xpto", successHandler, lookupErrorHandler);
-    verify(successHandler, never()).handle(any());
+    executorRegistry.lookup("xpto", lookupHandler, lookupErrorHandler);
+    verify(lookupHandler, never()).handle(any());
     verify(lookupErrorHandler, times(1)).handle(any());
   }
+
+  @Test
+  public void test_heartbeat_invalidRequest() {
+    executorRegistry.heartbeat(new JsonObject().put("i", "xpto"), leaseHandler,
+        registerErrorHandler);
+    executorRegistry.heartbeat(new JsonObject().put("a", "xpto"), leaseHandler,
+        registerErrorHandler);
+    verify(leaseHandler, never()).handle(any());
+    verify(registerErrorHandler, times(2)).handle(ExecutorRegistry.INVALID_REQUEST_MSG);
+  }
+
+  @Test
+  public void test_heartbeat_unknownInstance() {
+    executorRegistry.heartbeat(new JsonObject().put("i", "xpto").put("a", "meh"), leaseHandler,
+        registerErrorHandler);
+    verify(leaseHandler, never()).handle(any());
+    verify(registerErrorHandler, times(1)).handle(ExecutorRegistry.UNKNOWN_EXECUTOR_MSG);
+  }
+
+  @Test
+  public void test_heartbeat_renewsLease() {
+    final AtomicLong clock = new AtomicLong();
+    executorRegistry = new ExecutorRegistry(10, clock::get);
+    final String address = register("xpto");
+
+    // renew the lease right before it expires
+    clock.set(TimeUnit.MILLISECONDS.toNanos(10));
+    executorRegistry.heartbeat(new JsonObject().put("i", "xpto").put("a", address), leaseHandler,
+        registerErrorHandler);
+    verify(leaseHandler, times(1)).handle(10L);
+    verify(registerErrorHandler, never()).handle(any());
+
+    // the lease is still valid after the original expiration
+    clock.set(TimeUnit.MILLISECONDS.toNanos(15));
+    executorRegistry.evict(lookupHandler);
+    verify(lookupHandler, never()).handle(any());
+    assertEquals(1, executorRegistry.executors().count());
+  }
+
+  @Test
+  public void test_unregister_invalidRequest() {
+    executorRegistry.unregister(new JsonObject().put("i", "xpto"), lookupHandler,
+        registerErrorHandler);
+    verify(lookupHandler, never()).handle(any());
+    verify(registerErrorHandler, times(1)).handle(ExecutorRegistry.INVALID_REQUEST_MSG);
+  }
+
+  @Test
+  public void test_unregister_unknownInstance() {
+    register("xpto");
+    executorRegistry.unregister(new JsonObject().put("i", "xpto").put("a", "meh"), lookupHandler,
+        registerErrorHandler);
+    verify(lookupHandler, never()).handle(any());
+    verify(registerErrorHandler, times(1)).handle(ExecutorRegistry.UNKNOWN_EXECUTOR_MSG);
+  }
+
+  @Test
+  public void test_unregister() {
+    final String first = register("xpto");
+    final String second = register("xpto");
+
+    // unregister the first instance
+    executorRegistry.unregister(new JsonObject().put("i", "xpto").put("a", first), lookupHandler,
+        registerErrorHandler);
+    verify(lookupHandler, times(1)).handle(entryCaptor.capture());
+    assertEquals(1, entryCaptor.getValue().getEndpoints().size());
+    assertEquals(second, entryCaptor.getValue().getEndpoints().get(0).getAddress());
+    assertEquals(3, entryCaptor.getValue().getRevision());
+    assertEquals(1, executorRegistry.executors().count());
+
+    // unregister the last instance
+    executorRegistry.unregister(new JsonObject().put("i", "xpto").put("a", second), lookupHandler,
+        registerErrorHandler);
+    verify(lookupHandler, times(2)).handle(entryCaptor.capture());
+    assertTrue(entryCaptor.getValue().getEndpoints().isEmpty());
+    assertEquals(4, entryCaptor.getValue().getRevision());
+    assertEquals(0, executorRegistry.executors().count());
+    verify(registerErrorHandler, never()).handle(any());
+  }
+
+  @Test
+  public void test_evict() {
+    final AtomicLong clock = new AtomicLong();
+    executorRegistry = new ExecutorRegistry(10, clock::get);
+    register("xpto");
+    register("woop");
+    clock.set(TimeUnit.MILLISECONDS.toNanos(5));
+    final String renewed = register("woop");
+
+    // nothing to evict
+    executorRegistry.evict(lookupHandler);
+    verify(lookupHandler, never()).handle(any());
+
+    // evict the expired instances
+    clock.set(TimeUnit.MILLISECONDS.toNanos(11));
+    executorRegistry.evict(lookupHandler);
+    verify(lookupHandler, times(2)).handle(entryCaptor.capture());
+    final Map<String, ExecutorRegistry.ExecutorEntry> evicted = entryCaptor.getAllValues().stream()
+        .collect(Collectors.toMap(ExecutorRegistry.ExecutorEntry::getId, Function.identity()));
+    assertTrue(evicted.get("xpto").getEndpoints().isEmpty());
+    assertEquals(Collections.singletonList(renewed), evicted.get("woop").getEndpoints().stream()
+        .map(ExecutorEndpoint::getAddress).collect(Collectors.toList()));
+    assertEquals(Collections.singletonList("woop"), executorRegistry.executors()
+        .map(ExecutorRegistry.ExecutorEntry::getId).collect(Collectors.toList()));
+  }
+
+  private String register(final String id) {
+    final AtomicReference<String> address = new AtomicReference<>();
+    executorRegistry.register(new JsonObject().put("i", id).put("v", "1.0.0"), address::set,
+        registerErrorHandler);
+    assertNotNull(address.get());
+    return address.get();
+  }
 }
@@ -0,0 +1,173 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import io.netty.buffer.Unpooled;
+import io.vertx.core.buffer.Buffer;
+import pt.davidafsilva.slacker.api.StringInterner;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link FormDecoder} object.
+ *
+ * @author david
+ */
+public class FormDecoderTest {
+
+  // the test decoder
+  private static final FormDecoder DECODER = new FormDecoder("token", "text", "user_name");
+
+  // a typical slack command body
+  private static final String SLACK_BODY = "token=gIkuvaNzQIHg97ATvDxqgjtO&team_id=T0001" +
+      "&team_domain=example&channel_id=C2147483705&channel_name=test&timestamp=1355517523.000005" +
+      "&user_id=U2147483697&user_name=Steve&command=%2Fweather&text=94070&response_url=" +
+      "https%3A%2F%2Fhooks.slack.com%2Fcommands%2F1234%2F5678";
+
+  @Test
+  public void test_fields() {
+    assertEquals(3, DECODER.size());
+    assertEquals("token", DECODER.name(0));
+    assertEquals("text", DECODER.name(1));
+    assertEquals("user_name", DECODER.name(2));
+  }
+
+  @Test
+  public void test_plainValues() {
+    assertArrayEquals(new String[]{"xpto", "hello", "david"},
+        decode("token=xpto&text=hello&user_name=david"));
+  }
+
+  @Test
+  public void test_encodedValues() {
+    assertArrayEquals(new String[]{"a b", "!weather in 'Lisboa' & «Porto»", null},
+        decode("token=a+b&text=%21weather+in+%27Lisboa%27+%26+%C2%ABPorto%c2%BB"));
+  }
+
+  @Test
+  public void test_emptyValues() {
+    assertArrayEquals(new String[]{"", "", null}, decode("token=&text"));
+    assertArrayEquals(new String[]{null, null, null}, decode(""));
+  }
+
+  @Test
+  public void test_unknownFieldsSkipped() {
+    assertArrayEquals(new String[]{null, "x", null},
+        decode("tokens=1&tex=2&%74oken=3&text=x&user=4&=5&&"));
+  }
+
+  @Test
+  public void test_repeatedFields() {
+    assertArrayEquals(new String[]{"1", null, null}, decode("token=1&token=2"));
+  }
+
+  @Test
+  public void test_malformedValues() {
+    assertFalse(DECODER.decode(Buffer.buffer("token=%2"), new String[3]));
+    assertFalse(DECODER.decode(Buffer.buffer("token=%zz&text=x"), new String[3]));
+    // unknown fields are never decoded
+    assertTrue(DECODER.decode(Buffer.buffer("other=%zz&text=x"), new String[3]));
+  }
+
+  @Test
+  public void test_directBuffer() {
+    final byte[] bytes = "token=a%20b&text=x".getBytes();
+    final Buffer body = Buffer.buffer(Unpooled.directBuffer(bytes.length).writeBytes(bytes));
+    final String[] values = new String[3];
+    assertTrue(DECODER.decode(body, values));
+    assertArrayEquals(new String[]{"a b", "x", null}, values);
+  }
+
+  @Test
+  public void test_slicedBuffer() {
+    final Buffer body = Buffer.buffer("xxxxtoken=1&text=2xxxx").slice(4, 18);
+    final String[] values = new String[3];
+    assertTrue(DECODER.decode(body, values));
+    assertArrayEquals(new String[]{"1", "2", null}, values);
+  }
+
+  @Test
+  public void test_internedValues() {
+    final FormDecoder decoder = new FormDecoder(new StringInterner(16),
+        Arrays.asList("token", "user_name"), "token", "text", "user_name");
+    final Buffer body = Buffer.buffer("token=xpto&text=hello&user_name=david+silva");
+    final String[] first = new String[3];
+    final String[] second = new String[3];
+    assertTrue(decoder.decode(body, first));
+    assertTrue(decoder.decode(body, second));
+    assertArrayEquals(new String[]{"xpto", "hello", "david silva"}, second);
+    assertSame(first[0], second[0]);
+    assertNotSame(first[1], second[1]);
+    assertSame(first[2], second[2]);
+  }
+
+  @Test
+  public void test_allocations() {
+    final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+    Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+    threads.setThreadAllocatedMemoryEnabled(true);
+
+    final FormDecoder decoder = new FormDecoder("token", "team_id", "team_domain", "channel_id",
+        "channel_name", "timestamp", "user_id", "user_name", "command", "text", "response_url");
+    final Buffer body = Buffer.buffer(SLACK_BODY);
+    final String[][] values = new String[1000][decoder.size()];
+    for (final String[] v : values) {
+      assertTrue(decoder.decode(body, v));
+    }
+
+    // only the value strings (and the scratch arrays of the encoded ones) are allocated
+    final long thread = Thread.currentThread().getId();
+    final long before = threads.getThreadAllocatedBytes(thread);
+    for (final String[] v : values) {
+      Arrays.fill(v, null);
+      decoder.decode(body, v);
+    }
+    final long perDecode = (threads.getThreadAllocatedBytes(thread) - before) / values.length;
+    assertTrue("allocated " + perDecode + " bytes per decode",
+        perDecode < 2 * body.length() + 50 * decoder.size());
+  }
+
+  // decodes the given body with the test decoder
+  private static String[] decode(final String body) {
+    final String[] values = new String[DECODER.size()];
+    assertTrue(DECODER.decode(Buffer.buffer(body), values));
+    return values;
+  }
+}
@@ -32,15 +32,18 @@ import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
+import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.net.URLEncoder;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Optional;
 
-import io.vertx.core.MultiMap;
-import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.RoutingContext;
+import pt.davidafsilva.slacker.api.SlackerArguments;
 import pt.davidafsilva.slacker.api.SlackerRequest;
 
 import static org.junit.Assert.assertEquals;
@@ -70,6 +73,7 @@ public class HttpContextSlackerRequestParserTest {
   private static final String TRIGGER_WORD_VALUE = "!";
   private static final String TEXT_VALUE = "!boo woop woop";
   private static final String EXPECTED_ARGS = "woop woop";
+  private static final String RESPONSE_URL_VALUE = "https://hooks.slack.com/commands/1234/5678";
 
   @Parameterized.Parameters
   public static Iterable<Object[]> testDataSupplier() {
@@ -91,8 +95,15 @@ public class HttpContextSlackerRequestParserTest {
             {create(Optional.of(HttpContextSlackerRequestParser.REQUEST_TRIGGER_WORD)), false,
                 EXPECTED_ARGS},
             {create(Optional.of(HttpContextSlackerRequestParser.REQUEST_TEXT)), false, EXPECTED_ARGS},
+            {create(Optional.of(HttpContextSlackerRequestParser.REQUEST_RESPONSE_URL)), true,
+                EXPECTED_ARGS},
             {create(Optional.empty()), true, EXPECTED_ARGS},
             {create(Optional.empty(), "!boo"), true, null},
+            {create(Optional.empty(), "!boo\twoop woop"), true, EXPECTED_ARGS},
+            // the trigger is matched literally
+            {create(Optional.empty(), "*", "*boo woop woop"), true, EXPECTED_ARGS},
+            {create(Optional.empty(), "[", "[boo --flag=\"a b\" woop"), true,
+                "--flag=\"a b\" woop"},
         }
     );
   }
@@ -115,43 +126,58 @@ public class HttpContextSlackerRequestParserTest {
    * @return the test routing context
    */
   private static RoutingContext create(final Optional<String> excluded, final String text) {
+    return create(excluded, TRIGGER_WORD_VALUE, text);
+  }
+
+  /**
+   * Creates the base routing context for the test execution with all of the attributes filled
+   *
+   * @param excluded the excluded request attribute, if any
+   * @param trigger  the trigger word value to be included
+   * @param text     the text value to be included
+   * @return the test routing context
+   */
+  private static RoutingContext create(final Optional<String> excluded, final String trigger,
+      final String text) {
     final RoutingContext context = mock(RoutingContext.class);
-    final HttpServerRequest request = mock(HttpServerRequest.class);
-    final MultiMap attributes = mock(MultiMap.class);
-    addAttribute(attributes, HttpContextSlackerRequestParser.REQUEST_TIMESTAMP, TIMESTAMP_VALUE,
+    final StringBuilder body = new StringBuilder("token=xpto");
+    addAttribute(body, HttpContextSlackerRequestParser.REQUEST_TIMESTAMP, TIMESTAMP_VALUE,
         excluded);
-    addAttribute(attributes, HttpContextSlackerRequestParser.REQUEST_TEAM_ID, TEAM_ID_VALUE,
+    addAttribute(body, HttpContextSlackerRequestParser.REQUEST_TEAM_ID, TEAM_ID_VALUE, excluded);
+    addAttribute(body, HttpContextSlackerRequestParser.REQUEST_TEAM_DOMAIN, TEAM_DOMAIN_VALUE,
         excluded);
-    addAttribute(attributes, HttpContextSlackerRequestParser.REQUEST_TEAM_DOMAIN, TEAM_DOMAIN_VALUE,
+    addAttribute(body, HttpContextSlackerRequestParser.REQUEST_CHANNEL_ID, CHANNEL_ID_VALUE,
         excluded);
-    addAttribute(attributes, HttpContextSlackerRequestParser.REQUEST_CHANNEL_ID, CHANNEL_ID_VALUE,
+    addAttribute(body, HttpContextSlackerRequestParser.REQUEST_CHANNEL_NAME, CHANNEL_NAME_VALUE,
         excluded);
-    addAttribute(attributes, HttpContextSlackerRequestParser.REQUEST_CHANNEL_NAME,
-        CHANNEL_NAME_VALUE, excluded);
-    addAttribute(attributes, HttpContextSlackerRequestParser.REQUEST_USER_ID, USER_ID_VALUE,
+    addAttribute(body, HttpContextSlackerRequestParser.REQUEST_USER_ID, USER_ID_VALUE, excluded);
+    addAttribute(body, HttpContextSlackerRequestParser.REQUEST_USER_NAME, USER_NAME_VALUE,
         excluded);
-    addAttribute(attributes, HttpContextSlackerRequestParser.REQUEST_USER_NAME, USER_NAME_VALUE,
+    addAttribute(body, HttpContextSlackerRequestParser.REQUEST_TRIGGER_WORD, trigger, excluded);
+    addAttribute(body, HttpContextSlackerRequestParser.REQUEST_TEXT, text, excluded);
+    addAttribute(body, HttpContextSlackerRequestParser.REQUEST_RESPONSE_URL, RESPONSE_URL_VALUE,
         excluded);
-    addAttribute(attributes, HttpContextSlackerRequestParser.REQUEST_TRIGGER_WORD,
-        TRIGGER_WORD_VALUE, excluded);
-    addAttribute(attributes, HttpContextSlackerRequestParser.REQUEST_TEXT, text, excluded);
-    when(request.formAttributes()).thenReturn(attributes);
-    when(context.request()).thenReturn(request);
+    when(context.getBody()).thenReturn(Buffer.buffer(body.toString()));
     return context;
   }
 
   /**
-   * Adds the given attribute-value to the attributes map if it is not equal to {@code excluded}.
+   * Adds the given (url-encoded) attribute-value to the request body if it is not equal to
+   * {@code excluded}.
    *
-   * @param attributes the attributes map
-   * @param key        the attribute key
-   * @param value      the attribute value
-   * @param excluded   the attribute to be excluded, if any
+   * @param body     the request body
+   * @param key      the attribute key
+   * @param value    the attribute value
+   * @param excluded the attribute to be excluded, if any
    */
-  private static void addAttribute(final MultiMap attributes, final String key, final String value,
+  private static void addAttribute(final StringBuilder body, final String key, final String value,
       final Optional<String> excluded) {
     if (!excluded.map(e -> e.equals(key)).orElse(false)) {
-      when(attributes.get(key)).thenReturn(value);
+      try {
+        body.append('&').append(key).append('=').append(URLEncoder.encode(value, "UTF-8"));
+      } catch (final UnsupportedEncodingException e) {
+        throw new IllegalStateException(e);
+      }
     }
   }
 
@@ -179,8 +205,16 @@ public class HttpContextSlackerRequestParserTest {
 
   @Test
   public void parseContext() {
-    final Optional<SlackerRequest> requestOptional = HttpContextSlackerRequestParser
-        .parse(context);
+    final RequestValidation validation = HttpContextSlackerRequestParser.parse(context,
+        HttpServerConfiguration.responseUrlHosts(new JsonObject()));
+    assertEquals(isPresent, validation.isValid());
+    assertTrue(validation.getInvalid().isEmpty());
+    if (!isPresent) {
+      assertEquals(1, validation.getMissing().size());
+      assertFalse(context.getBody().toString().contains(
+          "&" + validation.getMissing().get(0) + "="));
+    }
+    final Optional<SlackerRequest> requestOptional = validation.getRequest();
     assertEquals(isPresent, requestOptional.isPresent());
     requestOptional.ifPresent(request -> {
       assertEquals(Instant.ofEpochSecond(TIMESTAMP_SECONDS_VALUE, TIMESTAMP_NANOS_VALUE),
@@ -198,6 +232,13 @@ public class HttpContextSlackerRequestParserTest {
       } else {
         assertFalse(request.getArguments().isPresent());
       }
+      assertEquals(SlackerArguments.parse(expectedArgs).getPositional(),
+          request.getParsedArguments().getPositional());
+      assertEquals(SlackerArguments.parse(expectedArgs).getFlags(),
+          request.getParsedArguments().getFlags());
+      assertEquals(context.getBody().toString().contains(
+          HttpContextSlackerRequestParser.REQUEST_RESPONSE_URL + "=") ?
+          Optional.of(RESPONSE_URL_VALUE) : Optional.empty(), request.getResponseUrl());
     });
   }
 }
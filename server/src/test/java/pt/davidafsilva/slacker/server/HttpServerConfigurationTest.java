@@ -33,17 +33,22 @@ import org.junit.rules.ExpectedException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
 
 import io.vertx.core.http.HttpServerOptions;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.net.JksOptions;
 import io.vertx.core.net.KeyCertOptions;
+import pt.davidafsilva.slacker.api.SlackerRequest;
+import pt.davidafsilva.slacker.api.SlackerRequestBuilder;
 
 import static org.hamcrest.CoreMatchers.hasItems;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -84,6 +89,280 @@ public class HttpServerConfigurationTest {
     assertEquals(HttpServerConfiguration.DEFAULT_USE_SSL, options.isSsl());
   }
 
+  @Test
+  public void test_configuration_httpInstances_default() {
+    assertEquals(HttpServerConfiguration.DEFAULT_HTTP_INSTANCES,
+        HttpServerConfiguration.httpInstances(new JsonObject()));
+  }
+
+  @Test
+  public void test_configuration_httpInstances() {
+    assertEquals(8, HttpServerConfiguration.httpInstances(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.HTTP_INSTANCES.name(), 8)));
+  }
+
+  @Test
+  public void test_configuration_eventInstances_default() {
+    assertEquals(HttpServerConfiguration.DEFAULT_EVENT_INSTANCES,
+        HttpServerConfiguration.eventInstances(new JsonObject()));
+  }
+
+  @Test
+  public void test_configuration_eventInstances() {
+    assertEquals(3, HttpServerConfiguration.eventInstances(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.EVENT_INSTANCES.name(), 3)));
+  }
+
+  @Test
+  public void test_configuration_httpInstances_invalid() {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage(String.format(HttpServerConfiguration.INVALID_INSTANCES, 0));
+    HttpServerConfiguration.httpInstances(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.HTTP_INSTANCES.name(), 0));
+  }
+
+  @Test
+  public void test_configuration_loadBalancing_default() {
+    assertEquals(HttpServerConfiguration.DEFAULT_LOAD_BALANCING,
+        HttpServerConfiguration.loadBalancing(new JsonObject()));
+  }
+
+  @Test
+  public void test_configuration_loadBalancing() {
+    assertEquals(LoadBalancingStrategy.EWMA, HttpServerConfiguration.loadBalancing(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.LOAD_BALANCING.name(), "ewma")));
+  }
+
+  @Test
+  public void test_configuration_loadBalancing_invalid() {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage(String.format(HttpServerConfiguration.INVALID_LOAD_BALANCING, "meh"));
+    HttpServerConfiguration.loadBalancing(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.LOAD_BALANCING.name(), "meh"));
+  }
+
+  @Test
+  public void test_configuration_executorLease_default() {
+    assertEquals(HttpServerConfiguration.DEFAULT_EXECUTOR_LEASE,
+        HttpServerConfiguration.executorLease(new JsonObject()));
+  }
+
+  @Test
+  public void test_configuration_executorLease() {
+    assertEquals(500, HttpServerConfiguration.executorLease(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.EXECUTOR_LEASE.name(), 500)));
+  }
+
+  @Test
+  public void test_configuration_executorLease_invalid() {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage(String.format(HttpServerConfiguration.INVALID_LEASE, 0));
+    HttpServerConfiguration.executorLease(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.EXECUTOR_LEASE.name(), 0));
+  }
+
+  @Test
+  public void test_configuration_requestBudget_default() {
+    assertEquals(HttpServerConfiguration.DEFAULT_REQUEST_BUDGET,
+        HttpServerConfiguration.requestBudget(new JsonObject()));
+  }
+
+  @Test
+  public void test_configuration_requestBudget() {
+    assertEquals(2500, HttpServerConfiguration.requestBudget(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.REQUEST_BUDGET.name(), 2500)));
+  }
+
+  @Test
+  public void test_configuration_requestBudget_invalid() {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage(String.format(HttpServerConfiguration.INVALID_BUDGET, -1));
+    HttpServerConfiguration.requestBudget(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.REQUEST_BUDGET.name(), -1));
+  }
+
+  @Test
+  public void test_configuration_maxBodySize_default() {
+    assertEquals(HttpServerConfiguration.DEFAULT_MAX_BODY_SIZE,
+        HttpServerConfiguration.maxBodySize(new JsonObject()));
+  }
+
+  @Test
+  public void test_configuration_maxBodySize() {
+    assertEquals(1024, HttpServerConfiguration.maxBodySize(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.MAX_BODY_SIZE.name(), 1024)));
+  }
+
+  @Test
+  public void test_configuration_maxBodySize_invalid() {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage(String.format(HttpServerConfiguration.INVALID_BODY_SIZE, 0));
+    HttpServerConfiguration.maxBodySize(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.MAX_BODY_SIZE.name(), 0));
+  }
+
+  @Test
+  public void test_configuration_admission_default() {
+    final AdmissionController admission = HttpServerConfiguration.admission(new JsonObject());
+    assertEquals(HttpServerConfiguration.DEFAULT_MAX_IN_FLIGHT, admission.getLimit(), 0);
+  }
+
+  @Test
+  public void test_configuration_admission() {
+    final AdmissionController admission = HttpServerConfiguration.admission(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.MAX_IN_FLIGHT.name(), 1)
+        .put(HttpServerConfiguration.ConfigurationVariable.COMMAND_MAX_IN_FLIGHT.name(), 1)
+        .put(HttpServerConfiguration.ConfigurationVariable.ADAPTIVE_ADMISSION.name(), true));
+    assertEquals(1, admission.getLimit(), 0);
+    assertTrue(admission.tryAcquire("xpto"));
+    assertFalse(admission.tryAcquire("woop"));
+  }
+
+  @Test
+  public void test_configuration_admission_invalid() {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage(String.format(HttpServerConfiguration.INVALID_IN_FLIGHT, -1));
+    HttpServerConfiguration.admission(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.COMMAND_MAX_IN_FLIGHT.name(), -1));
+  }
+
+  @Test
+  public void test_configuration_rateLimiter() {
+    final RateLimiter limiter = HttpServerConfiguration.rateLimiter(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.RATE_LIMIT.name(), 1)
+        .put(HttpServerConfiguration.ConfigurationVariable.RATE_BURST.name(), 1)
+        .put(HttpServerConfiguration.ConfigurationVariable.COMMAND_RATE_LIMITS.name(),
+            new JsonObject().put("woop", new JsonObject().put("r", 0))));
+    assertTrue(limiter.tryAcquire(request("xpto")));
+    assertFalse(limiter.tryAcquire(request("xpto")));
+    assertTrue(limiter.tryAcquire(request("woop")));
+    assertTrue(limiter.tryAcquire(request("woop")));
+  }
+
+  @Test
+  public void test_configuration_rateLimiter_invalid() {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage(String.format(HttpServerConfiguration.INVALID_RATE_LIMIT, 1.0, 0));
+    HttpServerConfiguration.rateLimiter(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.RATE_LIMIT.name(), 1)
+        .put(HttpServerConfiguration.ConfigurationVariable.RATE_BURST.name(), 0));
+  }
+
+  private static SlackerRequest request(final String command) {
+    return new SlackerRequestBuilder()
+        .timestamp(Instant.now())
+        .channelId("12345")
+        .channelName("#dope")
+        .userId("6789")
+        .userName("david")
+        .teamDomain("slack.davidafsilva.pt")
+        .teamIdentifier("davidafsilva")
+        .command(command)
+        .build();
+  }
+
+  @Test
+  public void test_configuration_deferredBudget_default() {
+    assertEquals(HttpServerConfiguration.DEFAULT_DEFERRED_BUDGET,
+        HttpServerConfiguration.deferredBudget(new JsonObject()));
+  }
+
+  @Test
+  public void test_configuration_deferredBudget() {
+    assertEquals(60000, HttpServerConfiguration.deferredBudget(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.DEFERRED_BUDGET.name(), 60000)));
+  }
+
+  @Test
+  public void test_configuration_deferredBudget_invalid() {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage(String.format(HttpServerConfiguration.INVALID_BUDGET, 0));
+    HttpServerConfiguration.deferredBudget(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.DEFERRED_BUDGET.name(), 0));
+  }
+
+  @Test
+  public void test_configuration_responseCacheSize_default() {
+    assertEquals(HttpServerConfiguration.DEFAULT_RESPONSE_CACHE_SIZE,
+        HttpServerConfiguration.responseCacheSize(new JsonObject()));
+  }
+
+  @Test
+  public void test_configuration_responseCacheSize() {
+    assertEquals(100, HttpServerConfiguration.responseCacheSize(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.RESPONSE_CACHE_SIZE.name(), 100)));
+  }
+
+  @Test
+  public void test_configuration_responseCacheSize_invalid() {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage(String.format(HttpServerConfiguration.INVALID_CACHE_SIZE, -1));
+    HttpServerConfiguration.responseCacheSize(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.RESPONSE_CACHE_SIZE.name(), -1));
+  }
+
+  @Test
+  public void test_configuration_deliveryConcurrency_default() {
+    assertEquals(HttpServerConfiguration.DEFAULT_DELIVERY_CONCURRENCY,
+        HttpServerConfiguration.deliveryConcurrency(new JsonObject()));
+  }
+
+  @Test
+  public void test_configuration_deliveryConcurrency() {
+    assertEquals(4, HttpServerConfiguration.deliveryConcurrency(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.DELIVERY_CONCURRENCY.name(), 4)));
+  }
+
+  @Test
+  public void test_configuration_deliveryConcurrency_invalid() {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage(String.format(HttpServerConfiguration.INVALID_CONCURRENCY, 0));
+    HttpServerConfiguration.deliveryConcurrency(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.DELIVERY_CONCURRENCY.name(), 0));
+  }
+
+  @Test
+  public void test_configuration_deliveryRetries_default() {
+    assertEquals(HttpServerConfiguration.DEFAULT_DELIVERY_RETRIES,
+        HttpServerConfiguration.deliveryRetries(new JsonObject()));
+  }
+
+  @Test
+  public void test_configuration_deliveryRetries() {
+    assertEquals(5, HttpServerConfiguration.deliveryRetries(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.DELIVERY_RETRIES.name(), 5)));
+  }
+
+  @Test
+  public void test_configuration_deliveryRetries_invalid() {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage(String.format(HttpServerConfiguration.INVALID_RETRIES, -1));
+    HttpServerConfiguration.deliveryRetries(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.DELIVERY_RETRIES.name(), -1));
+  }
+
+  @Test
+  public void test_configuration_responseUrlHosts_default() {
+    assertEquals(Collections.singleton(HttpServerConfiguration.DEFAULT_RESPONSE_URL_HOSTS),
+        HttpServerConfiguration.responseUrlHosts(new JsonObject()));
+  }
+
+  @Test
+  public void test_configuration_responseUrlHosts() {
+    assertEquals(new HashSet<>(Arrays.asList("hooks.slack.com", "hooks.example.com")),
+        HttpServerConfiguration.responseUrlHosts(new JsonObject().put(
+            HttpServerConfiguration.ConfigurationVariable.RESPONSE_URL_HOSTS.name(),
+            " hooks.slack.com, Hooks.Example.com ,")));
+  }
+
+  @Test
+  public void test_configuration_responseUrlHosts_invalid() {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage(String.format(HttpServerConfiguration.INVALID_RESPONSE_URL_HOSTS, " , "));
+    HttpServerConfiguration.responseUrlHosts(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.RESPONSE_URL_HOSTS.name(), " , "));
+  }
+
   @Test
   public void test_configuration_sslConfig_noKeyStore_noKeyStorePass() {
     thrown.expect(IllegalStateException.class);
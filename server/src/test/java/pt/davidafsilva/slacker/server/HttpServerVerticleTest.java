@@ -29,25 +29,35 @@ package pt.davidafsilva.slacker.server;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.Message;
+import io.vertx.core.http.HttpClient;
 import io.vertx.core.http.HttpClientRequest;
 import io.vertx.core.http.HttpClientResponse;
 import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import pt.davidafsilva.slacker.api.ResponseType;
 import pt.davidafsilva.slacker.api.ResultCode;
 import pt.davidafsilva.slacker.api.SlackerBaseTest;
+import pt.davidafsilva.slacker.api.SlackerDeadline;
 import pt.davidafsilva.slacker.api.SlackerRequest;
 import pt.davidafsilva.slacker.api.SlackerRequestMessageCodec;
 import pt.davidafsilva.slacker.api.SlackerResponse;
+import pt.davidafsilva.slacker.api.SlackerResponseBuilder;
 import pt.davidafsilva.slacker.api.SlackerResponseMessageCodec;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
@@ -102,6 +112,110 @@ public class HttpServerVerticleTest extends SlackerBaseTest {
     assertFalse("deployed server when wasn't expected", result.succeeded());
   }
 
+  @Test
+  public void test_multipleInstances() {
+    final AsyncResult<String> result = deployVerticle(HttpServerVerticle.class.getName(),
+        new DeploymentOptions()
+            .setInstances(2)
+            .setConfig(new JsonObject()
+                .put(HttpServerConfiguration.ConfigurationVariable.HTTP_PORT.name(),
+                    SERVER_PORT + 1)));
+    assertTrue("unable to deploy server instances", result.succeeded());
+    assertTrue(deployVerticle(new DummyEventListener(m -> m.fail(1, "oops"))).succeeded());
+    wrapExec(latch -> vertx.createHttpClient().post(SERVER_PORT + 1, "localhost", "/command",
+        res -> {
+          assertEquals(500, res.statusCode());
+          validateResponseHeaders(res);
+          latch.countDown();
+        })
+        .putHeader(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded")
+        .putHeader(HttpHeaders.ACCEPT, "application/json")
+        .end(POST_DATA));
+  }
+
+  @Test
+  public void test_directRouting() {
+    // routing table snapshot with the executor address
+    vertx.eventBus().consumer(EventServerVerticle.SNP_SERVER_ADDRESS,
+        m -> m.reply(new JsonObject().put("blabla", new JsonObject()
+            .put("r", 1L)
+            .put("a", new JsonArray().add("blabla.slacker-executor")))));
+    final SlackerResponse response = new SlackerResponse() {
+      @Override
+      public ResultCode getCode() {
+        return ResultCode.OK;
+      }
+
+      @Override
+      public Optional<String> getResponse() {
+        return Optional.of("direct");
+      }
+    };
+    vertx.eventBus().<SlackerRequest>consumer("blabla.slacker-executor", m -> m.reply(response,
+        new DeliveryOptions().setCodecName(SlackerResponseMessageCodec.NAME)));
+    // the slacker-server should not be reached
+    assertTrue(deployVerticle(new DummyEventListener(m -> m.fail(1, "oops"))).succeeded());
+    assertTrue("unable to deploy server", deployVerticle(new HttpServerVerticle(),
+        new DeploymentOptions().setConfig(new JsonObject()
+            .put(HttpServerConfiguration.ConfigurationVariable.HTTP_PORT.name(), SERVER_PORT + 2)
+            .put(HttpServerConfiguration.ConfigurationVariable.DIRECT_ROUTING.name(), true)))
+        .succeeded());
+
+    wrapExec(latch -> vertx.createHttpClient().post(SERVER_PORT + 2, "localhost", "/command",
+        res -> {
+          assertEquals(200, res.statusCode());
+          res.bodyHandler(b -> {
+            assertEquals("{\"text\":\"direct\"}", b.toString());
+            latch.countDown();
+          });
+        })
+        .putHeader(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded")
+        .putHeader(HttpHeaders.ACCEPT, "application/json")
+        .end(POST_DATA));
+  }
+
+  @Test
+  public void test_directRouting_deferredFailure() {
+    // routing table snapshot with the address of an instance gone without unregistering
+    vertx.eventBus().consumer(EventServerVerticle.SNP_SERVER_ADDRESS,
+        m -> m.reply(new JsonObject().put("blabla", new JsonObject()
+            .put("r", 1L)
+            .put("m", ExecutorRegistry.DEFERRED_MODE)
+            .put("a", new JsonArray().add("gone.slacker-executor")))));
+    // the slacker-server should not be reached
+    assertTrue(deployVerticle(new DummyEventListener(m -> m.fail(1, "oops"))).succeeded());
+    assertTrue("unable to deploy server", deployVerticle(new HttpServerVerticle(),
+        new DeploymentOptions().setConfig(new JsonObject()
+            .put(HttpServerConfiguration.ConfigurationVariable.HTTP_PORT.name(), SERVER_PORT + 6)
+            .put(HttpServerConfiguration.ConfigurationVariable.DIRECT_ROUTING.name(), true)))
+        .succeeded());
+
+    // the instance is evicted and the failure delivered to the response URL
+    final CountDownLatch latch = new CountDownLatch(3);
+    vertx.eventBus().<JsonObject>consumer(EventServerVerticle.UNR_SERVER_ADDRESS, m -> {
+      assertEquals(new JsonObject().put("i", "blabla").put("a", "gone.slacker-executor"),
+          m.body());
+      latch.countDown();
+    });
+    vertx.eventBus().<SlackerResponse>consumer(ResponseDeliveryVerticle.DLV_SERVER_ADDRESS,
+        delivery -> {
+          assertEquals("https://hooks.slack.com/commands/1",
+              delivery.headers().get(ResponseDeliveryVerticle.RESPONSE_URL_HEADER));
+          assertEquals(ResultCode.ERROR, delivery.body().getCode());
+          assertTrue(delivery.body().getResponse().get().startsWith(
+              "failed blabla processing: "));
+          latch.countDown();
+        });
+    vertx.createHttpClient().post(SERVER_PORT + 6, "localhost", "/command", res -> {
+      assertEquals(200, res.statusCode());
+      latch.countDown();
+    })
+        .putHeader(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded")
+        .putHeader(HttpHeaders.ACCEPT, "application/json")
+        .end(POST_DATA + "&response_url=https://hooks.slack.com/commands/1");
+    awaitLatch(latch);
+  }
+
   @Test
   public void test_invalidUri() {
     // test invalid URI
@@ -126,10 +240,99 @@ public class HttpServerVerticleTest extends SlackerBaseTest {
     wrapExec(latch -> basicPost("/command", res -> {
       assertEquals(400, res.statusCode());
       validateResponseHeaders(res);
-      latch.countDown();
+      res.bodyHandler(body -> {
+        final JsonObject message = new JsonObject(body.toString());
+        assertEquals("invalid request", message.getString("error"));
+        assertEquals(9, message.getJsonArray("missing").size());
+        assertTrue(message.getJsonArray("invalid").isEmpty());
+        latch.countDown();
+      });
+    }).end("{}"));
+  }
+
+  @Test
+  public void test_metrics() {
+    wrapExec(latch -> basicPost("/command", res -> {
+      assertEquals(400, res.statusCode());
+      vertx.createHttpClient().getNow(SERVER_PORT, "localhost", "/metrics", metrics -> {
+        assertEquals(200, metrics.statusCode());
+        assertEquals(SlackerMetrics.CONTENT_TYPE, metrics.getHeader(HttpHeaders.CONTENT_TYPE));
+        metrics.bodyHandler(body -> {
+          final String rendered = body.toString();
+          assertTrue(rendered.contains("slacker_requests_total{command=\"" +
+              SlackerMetrics.INVALID_COMMAND + "\",code=\"INVALID\"} 1\n"));
+          assertTrue(rendered.contains("slacker_request_duration_seconds_count{command=\"" +
+              SlackerMetrics.INVALID_COMMAND + "\",stage=\"ingress\"} 1\n"));
+          assertTrue(rendered.contains("slacker_in_flight_requests{stage=\"ingress\"} 0\n"));
+          assertTrue(rendered.contains("# TYPE slacker_event_loop_lag_max_milliseconds gauge\n"));
+          latch.countDown();
+        });
+      });
     }).end("{}"));
   }
 
+  @Test
+  public void test_metrics_unknownCommand() {
+    assertTrue(deployVerticle(new DummyEventListener(m -> m.fail(
+        EventServerVerticle.NO_EXECUTOR_FAILURE, "no executor"))).succeeded());
+    wrapExec(latch -> basicPost("/command", res -> {
+      assertEquals(500, res.statusCode());
+      vertx.createHttpClient().getNow(SERVER_PORT, "localhost", "/metrics", metrics ->
+          metrics.bodyHandler(body -> {
+            final String rendered = body.toString();
+            assertTrue(rendered.contains("slacker_requests_total{command=\"" +
+                SlackerMetrics.UNKNOWN_COMMAND + "\",code=\"ERROR\"} 1\n"));
+            assertFalse(rendered.contains("command=\"blabla\""));
+            latch.countDown();
+          }));
+    }).end(POST_DATA));
+  }
+
+  @Test
+  public void test_offenders() {
+    wrapExec(latch -> vertx.createHttpClient().getNow(SERVER_PORT, "localhost",
+        "/metrics/offenders", res -> {
+          assertEquals(200, res.statusCode());
+          res.bodyHandler(body -> {
+            final JsonObject report = new JsonObject(body.toString());
+            assertNotNull(report.getJsonArray("offenders"));
+            assertNotNull(report.getJsonArray("eventLoops"));
+            assertNotNull(report.getJsonArray("running"));
+            latch.countDown();
+          });
+        }));
+  }
+
+  @Test
+  public void test_bodyTooLarge() {
+    assertTrue(deployVerticle(new DummyEventListener(m -> m.fail(1, "oops"))).succeeded());
+    wrapExec(latch -> basicPost("/command", res -> {
+      assertEquals(413, res.statusCode());
+      latch.countDown();
+    }).end(largeBody()));
+  }
+
+  @Test
+  public void test_chunkedBodyTooLarge() {
+    assertTrue(deployVerticle(new DummyEventListener(m -> m.fail(1, "oops"))).succeeded());
+    wrapExec(latch -> {
+      final HttpClientRequest request = basicPost("/command", res -> {
+        assertEquals(413, res.statusCode());
+        latch.countDown();
+      }).setChunked(true);
+      request.write(POST_DATA);
+      request.end(largeBody());
+    });
+  }
+
+  private static String largeBody() {
+    final StringBuilder body = new StringBuilder(POST_DATA).append("&token=");
+    while (body.length() <= HttpServerConfiguration.DEFAULT_MAX_BODY_SIZE) {
+      body.append("xpto");
+    }
+    return body.toString();
+  }
+
   @Test
   public void test_failReply() {
     assertTrue(deployVerticle(new DummyEventListener(m -> m.fail(1, "oops"))).succeeded());
@@ -212,6 +415,163 @@ public class HttpServerVerticleTest extends SlackerBaseTest {
     }).end(POST_DATA));
   }
 
+  @Test
+  public void test_responseWithTypeAndAttachments() {
+    final SlackerResponse response = new SlackerResponseBuilder()
+        .message("some text")
+        .type(ResponseType.IN_CHANNEL)
+        .attachment(new JsonObject().put("text", "attached"))
+        .build();
+    assertTrue(deployVerticle(new DummyEventListener(m -> m.reply(response,
+        new DeliveryOptions().setCodecName(SlackerResponseMessageCodec.NAME)))).succeeded());
+    wrapExec(latch -> basicPost("/command", res -> {
+      assertEquals(200, res.statusCode());
+      validateResponseHeaders(res);
+      res.bodyHandler(b -> {
+        assertEquals(new JsonObject()
+            .put("text", "some text")
+            .put("response_type", "in_channel")
+            .put("attachments", new JsonArray().add(new JsonObject().put("text", "attached"))),
+            new JsonObject(b.toString()));
+        latch.countDown();
+      });
+    }).end(POST_DATA));
+  }
+
+  @Test
+  public void test_responseWithPayload() {
+    final SlackerResponse response = new SlackerResponseBuilder()
+        .message("ignored")
+        .payload(Buffer.buffer("{\"text\":\"pre-rendered\"}"))
+        .build();
+    assertTrue(deployVerticle(new DummyEventListener(m -> m.reply(response,
+        new DeliveryOptions().setCodecName(SlackerResponseMessageCodec.NAME)))).succeeded());
+    wrapExec(latch -> basicPost("/command", res -> {
+      assertEquals(200, res.statusCode());
+      validateResponseHeaders(res);
+      res.bodyHandler(b -> {
+        assertEquals("{\"text\":\"pre-rendered\"}", b.toString());
+        latch.countDown();
+      });
+    }).end(POST_DATA));
+  }
+
+  @Test
+  public void test_deadlinePropagated() {
+    final SlackerResponse response = new SlackerResponse() {
+      @Override
+      public ResultCode getCode() {
+        return ResultCode.OK;
+      }
+
+      @Override
+      public Optional<String> getResponse() {
+        return Optional.empty();
+      }
+    };
+    assertTrue(deployVerticle(new DummyEventListener(m -> {
+      // the request timestamp is way past the budget, hence it's counted from now
+      final long deadline = SlackerDeadline.of(m.headers()).orElse(0L);
+      final long remaining = deadline - System.currentTimeMillis();
+      assertTrue(remaining > 0 && remaining <= HttpServerConfiguration.DEFAULT_REQUEST_BUDGET);
+      m.reply(response, new DeliveryOptions().setCodecName(SlackerResponseMessageCodec.NAME));
+    })).succeeded());
+    wrapExec(latch -> basicPost("/command", res -> {
+      assertEquals(200, res.statusCode());
+      latch.countDown();
+    }).end(POST_DATA));
+  }
+
+  @Test
+  public void test_deadlineExceeded() {
+    assertTrue("unable to deploy server", deployVerticle(new HttpServerVerticle(),
+        new DeploymentOptions().setConfig(new JsonObject()
+            .put(HttpServerConfiguration.ConfigurationVariable.HTTP_PORT.name(), SERVER_PORT + 3)
+            .put(HttpServerConfiguration.ConfigurationVariable.REQUEST_BUDGET.name(), 100)))
+        .succeeded());
+    // the request is never replied
+    assertTrue(deployVerticle(new DummyEventListener(m -> {})).succeeded());
+    wrapExec(latch -> vertx.createHttpClient().post(SERVER_PORT + 3, "localhost", "/command",
+        res -> {
+          assertEquals(500, res.statusCode());
+          latch.countDown();
+        })
+        .putHeader(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded")
+        .putHeader(HttpHeaders.ACCEPT, "application/json")
+        .end(POST_DATA), 2, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void test_busy() {
+    assertTrue("unable to deploy server", deployVerticle(new HttpServerVerticle(),
+        new DeploymentOptions().setConfig(new JsonObject()
+            .put(HttpServerConfiguration.ConfigurationVariable.HTTP_PORT.name(), SERVER_PORT + 4)
+            .put(HttpServerConfiguration.ConfigurationVariable.MAX_IN_FLIGHT.name(), 1)))
+        .succeeded());
+    // the first request is held until the second one is rejected
+    final List<Message<SlackerRequest>> held = new ArrayList<>();
+    assertTrue(deployVerticle(new DummyEventListener(held::add)).succeeded());
+    wrapExec(latch -> {
+      final HttpClient client = vertx.createHttpClient();
+      client.post(SERVER_PORT + 4, "localhost", "/command", res -> {
+        assertEquals(200, res.statusCode());
+        latch.countDown();
+      })
+          .putHeader(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded")
+          .putHeader(HttpHeaders.ACCEPT, "application/json")
+          .end(POST_DATA);
+      vertx.setPeriodic(10, t -> {
+        if (held.isEmpty()) {
+          return;
+        }
+        vertx.cancelTimer(t);
+        client.post(SERVER_PORT + 4, "localhost", "/command", res -> {
+          assertEquals(503, res.statusCode());
+          held.get(0).reply(new SlackerResponse() {
+            @Override
+            public ResultCode getCode() {
+              return ResultCode.OK;
+            }
+
+            @Override
+            public Optional<String> getResponse() {
+              return Optional.empty();
+            }
+          }, new DeliveryOptions().setCodecName(SlackerResponseMessageCodec.NAME));
+        })
+            .putHeader(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded")
+            .putHeader(HttpHeaders.ACCEPT, "application/json")
+            .end(POST_DATA);
+      });
+    });
+  }
+
+  @Test
+  public void test_throttled() {
+    assertTrue("unable to deploy server", deployVerticle(new HttpServerVerticle(),
+        new DeploymentOptions().setConfig(new JsonObject()
+            .put(HttpServerConfiguration.ConfigurationVariable.HTTP_PORT.name(), SERVER_PORT + 5)
+            .put(HttpServerConfiguration.ConfigurationVariable.RATE_LIMIT.name(), 0.01)
+            .put(HttpServerConfiguration.ConfigurationVariable.RATE_BURST.name(), 1)))
+        .succeeded());
+    assertTrue(deployVerticle(new DummyEventListener(m -> m.fail(1, "oops"))).succeeded());
+    final HttpClient client = vertx.createHttpClient();
+    wrapExec(latch -> client.post(SERVER_PORT + 5, "localhost", "/command", res -> {
+      assertEquals(500, res.statusCode());
+      latch.countDown();
+    })
+        .putHeader(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded")
+        .putHeader(HttpHeaders.ACCEPT, "application/json")
+        .end(POST_DATA));
+    wrapExec(latch -> client.post(SERVER_PORT + 5, "localhost", "/command", res -> {
+      assertEquals(429, res.statusCode());
+      latch.countDown();
+    })
+        .putHeader(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded")
+        .putHeader(HttpHeaders.ACCEPT, "application/json")
+        .end(POST_DATA));
+  }
+
   private void validateResponseHeaders(final HttpClientResponse response) {
     final String cacheHeader = response.getHeader("Cache-Control");
     assertNotNull(cacheHeader);
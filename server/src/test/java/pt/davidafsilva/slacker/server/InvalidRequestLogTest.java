@@ -0,0 +1,82 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.vertx.core.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for the {@link InvalidRequestLog} object.
+ *
+ * @author david
+ */
+public class InvalidRequestLogTest {
+
+  // the test invalid request
+  private static final RequestValidation INVALID = RequestValidation.invalid(
+      Collections.singletonList("user_id"), Collections.emptyList());
+
+  @Test
+  public void test_summaries() {
+    final Logger logger = mock(Logger.class);
+    final AtomicLong clock = new AtomicLong();
+    final InvalidRequestLog log = new InvalidRequestLog(logger, TimeUnit.SECONDS.toNanos(10),
+        clock::get);
+
+    // the first one is logged right away
+    log.record(INVALID);
+    verify(logger).warn("rejected 1 invalid request(s) in the last 10 second(s), the latest " +
+        "with missing fields [user_id], invalid fields []");
+    assertEquals(0, log.pending());
+
+    // the following ones are held until the interval elapses
+    for (int i = 0; i < 1000; i++) {
+      clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(5));
+      log.record(INVALID);
+    }
+    verify(logger, times(1)).warn(any());
+    assertEquals(1000, log.pending());
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+    log.record(INVALID);
+    verify(logger).warn("rejected 1001 invalid request(s) in the last 10 second(s), the latest " +
+        "with missing fields [user_id], invalid fields []");
+    verify(logger, times(2)).warn(any());
+    assertEquals(0, log.pending());
+  }
+}
@@ -0,0 +1,74 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for the {@link LatencyHistogram} object.
+ *
+ * @author david
+ */
+public class LatencyHistogramTest {
+
+  @Test
+  public void test_buckets() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(0);
+    histogram.record(TimeUnit.MICROSECONDS.toNanos(500));
+    histogram.record(TimeUnit.MICROSECONDS.toNanos(501));
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(30));
+    histogram.record(TimeUnit.SECONDS.toNanos(10));
+    histogram.record(TimeUnit.SECONDS.toNanos(11));
+
+    // the bounds are inclusive
+    assertEquals(2, histogram.getBucket(0));
+    assertEquals(1, histogram.getBucket(1));
+    assertEquals(1, histogram.getBucket(6));
+    assertEquals(1, histogram.getBucket(LatencyHistogram.BOUNDS.length - 1));
+    assertEquals(1, histogram.getBucket(LatencyHistogram.BOUNDS.length));
+    long count = 0;
+    for (int i = 0; i <= LatencyHistogram.BOUNDS.length; i++) {
+      count += histogram.getBucket(i);
+    }
+    assertEquals(6, count);
+    assertEquals(TimeUnit.MICROSECONDS.toNanos(1001) + TimeUnit.MILLISECONDS.toNanos(30) +
+        TimeUnit.SECONDS.toNanos(21), histogram.getSum());
+  }
+
+  @Test
+  public void test_negativeLatency() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-1);
+    assertEquals(1, histogram.getBucket(0));
+    assertEquals(0, histogram.getSum());
+  }
+}
@@ -0,0 +1,91 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit tests for the {@link LoadBalancingStrategy} enumeration.
+ *
+ * @author david
+ */
+public class LoadBalancingStrategyTest {
+
+  @Test
+  public void test_singleEndpoint() {
+    final ExecutorEndpoint endpoint = new ExecutorEndpoint("a1");
+    for (final LoadBalancingStrategy strategy : LoadBalancingStrategy.values()) {
+      assertSame(endpoint, strategy.select(Collections.singletonList(endpoint)));
+    }
+  }
+
+  @Test
+  public void test_leastOutstanding() {
+    final List<ExecutorEndpoint> endpoints = endpoints(3, 1, 2);
+    for (int i = 0; i < 10; i++) {
+      assertSame(endpoints.get(1), LoadBalancingStrategy.LEAST_OUTSTANDING.select(endpoints));
+    }
+  }
+
+  @Test
+  public void test_powerOfTwoChoices() {
+    // with two endpoints both are always compared
+    final List<ExecutorEndpoint> endpoints = endpoints(2, 0);
+    for (int i = 0; i < 10; i++) {
+      assertSame(endpoints.get(1), LoadBalancingStrategy.POWER_OF_TWO_CHOICES.select(endpoints));
+    }
+  }
+
+  @Test
+  public void test_ewma() {
+    final List<ExecutorEndpoint> endpoints = endpoints(0, 0);
+
+    // the first endpoint is slower
+    endpoints.get(0).end(endpoints.get(0).begin() - 1_000_000);
+    endpoints.get(1).end(endpoints.get(1).begin());
+    for (int i = 0; i < 10; i++) {
+      assertSame(endpoints.get(1), LoadBalancingStrategy.EWMA.select(endpoints));
+    }
+  }
+
+  private static List<ExecutorEndpoint> endpoints(final int... outstanding) {
+    final ExecutorEndpoint[] endpoints = new ExecutorEndpoint[outstanding.length];
+    for (int i = 0; i < outstanding.length; i++) {
+      endpoints[i] = new ExecutorEndpoint("a" + i);
+      for (int j = 0; j < outstanding[i]; j++) {
+        endpoints[i].begin();
+      }
+    }
+    return Arrays.asList(endpoints);
+  }
+}
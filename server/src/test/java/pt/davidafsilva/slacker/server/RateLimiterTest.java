@@ -0,0 +1,133 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import pt.davidafsilva.slacker.api.SlackerRequest;
+import pt.davidafsilva.slacker.api.SlackerRequestBuilder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link RateLimiter} object.
+ *
+ * @author david
+ */
+public class RateLimiterTest {
+
+  // the test clock
+  private final AtomicLong clock = new AtomicLong();
+
+  @Test
+  public void test_unlimited() {
+    final RateLimiter limiter = limiter(RateLimiter.Limit.UNLIMITED);
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(limiter.tryAcquire(request("xpto", "T1", "C1", "U1")));
+    }
+    assertEquals(0, limiter.size());
+  }
+
+  @Test
+  public void test_burstAndRefill() {
+    final RateLimiter limiter = limiter(new RateLimiter.Limit(1, 2));
+    assertTrue(limiter.tryAcquire(request("xpto", "T1", "C1", "U1")));
+    assertTrue(limiter.tryAcquire(request("xpto", "T1", "C1", "U1")));
+    assertFalse(limiter.tryAcquire(request("xpto", "T1", "C1", "U1")));
+
+    // a token is available after a second
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    assertTrue(limiter.tryAcquire(request("xpto", "T1", "C1", "U1")));
+    assertFalse(limiter.tryAcquire(request("xpto", "T1", "C1", "U1")));
+  }
+
+  @Test
+  public void test_scopes() {
+    final RateLimiter limiter = limiter(new RateLimiter.Limit(1, 1));
+    assertTrue(limiter.tryAcquire(request("xpto", "T1", "C1", "U1")));
+    // same user, team and channel
+    assertFalse(limiter.tryAcquire(request("xpto", "T2", "C2", "U1")));
+    assertFalse(limiter.tryAcquire(request("xpto", "T2", "C1", "U2")));
+    assertFalse(limiter.tryAcquire(request("xpto", "T1", "C2", "U2")));
+    // other command
+    assertTrue(limiter.tryAcquire(request("woop", "T1", "C1", "U1")));
+    // the rejected requests must not have consumed the tokens of the other scopes
+    assertTrue(limiter.tryAcquire(request("xpto", "T2", "C2", "U2")));
+  }
+
+  @Test
+  public void test_commandLimits() {
+    final RateLimiter limiter = new RateLimiter(RateLimiter.Limit.UNLIMITED,
+        Collections.singletonMap("xpto", new RateLimiter.Limit(1, 1)), clock::get);
+    assertTrue(limiter.tryAcquire(request("xpto", "T1", "C1", "U1")));
+    assertFalse(limiter.tryAcquire(request("xpto", "T1", "C1", "U1")));
+    assertTrue(limiter.tryAcquire(request("woop", "T1", "C1", "U1")));
+    assertTrue(limiter.tryAcquire(request("woop", "T1", "C1", "U1")));
+  }
+
+  @Test
+  public void test_evict() {
+    final RateLimiter limiter = limiter(new RateLimiter.Limit(1, 5));
+    assertTrue(limiter.tryAcquire(request("xpto", "T1", "C1", "U1")));
+    assertTrue(limiter.tryAcquire(request("xpto", "T1", "C2", "U2")));
+    assertEquals(5, limiter.size());
+
+    // not idle yet
+    limiter.evict();
+    assertEquals(5, limiter.size());
+
+    // idle
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+    limiter.evict();
+    assertEquals(0, limiter.size());
+  }
+
+  private RateLimiter limiter(final RateLimiter.Limit limit) {
+    return new RateLimiter(limit, Collections.emptyMap(), clock::get);
+  }
+
+  private static SlackerRequest request(final String command, final String team,
+      final String channel, final String user) {
+    return new SlackerRequestBuilder()
+        .timestamp(Instant.now())
+        .channelId(channel)
+        .channelName("#dope")
+        .userId(user)
+        .userName("david")
+        .teamDomain("slack.davidafsilva.pt")
+        .teamIdentifier(team)
+        .command(command)
+        .build();
+  }
+}
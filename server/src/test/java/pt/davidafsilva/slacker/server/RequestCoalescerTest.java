@@ -0,0 +1,125 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import io.vertx.core.Handler;
+import pt.davidafsilva.slacker.api.ResultCode;
+import pt.davidafsilva.slacker.api.SlackerResponse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit tests for the {@link RequestCoalescer} object.
+ *
+ * @author david
+ */
+public class RequestCoalescerTest {
+
+  // the execution response
+  private static final SlackerResponse RESPONSE = new SlackerResponse() {
+    @Override
+    public ResultCode getCode() {
+      return ResultCode.OK;
+    }
+
+    @Override
+    public Optional<String> getResponse() {
+      return Optional.of("test");
+    }
+  };
+
+  // the coalescer under test
+  private final RequestCoalescer coalescer = new RequestCoalescer();
+
+  // the pending executions
+  private final List<Handler<SlackerResponse>> successes = new ArrayList<>();
+  private final List<Handler<String>> failures = new ArrayList<>();
+
+  // the outcomes
+  private final List<SlackerResponse> responses = new ArrayList<>();
+  private final List<String> reasons = new ArrayList<>();
+
+  @Test
+  public void test_coalesced() {
+    for (int i = 0; i < 3; i++) {
+      execute("xpto");
+    }
+    assertEquals(1, successes.size());
+    assertEquals(1, coalescer.size());
+    assertEquals(2, coalescer.coalesced());
+
+    // every waiter gets the same response
+    successes.get(0).handle(RESPONSE);
+    assertEquals(3, responses.size());
+    responses.forEach(r -> assertSame(RESPONSE, r));
+    assertEquals(0, coalescer.size());
+  }
+
+  @Test
+  public void test_coalesced_failure() {
+    execute("xpto");
+    execute("xpto");
+    failures.get(0).handle("oops");
+    assertEquals(0, responses.size());
+    assertEquals(2, reasons.size());
+    reasons.forEach(r -> assertEquals("oops", r));
+    assertEquals(0, coalescer.size());
+  }
+
+  @Test
+  public void test_distinctKeys() {
+    execute("xpto");
+    execute("woop");
+    assertEquals(2, successes.size());
+    assertEquals(0, coalescer.coalesced());
+  }
+
+  @Test
+  public void test_completed() {
+    execute("xpto");
+    successes.get(0).handle(RESPONSE);
+
+    // no longer in-flight, hence executed again
+    execute("xpto");
+    assertEquals(2, successes.size());
+    assertEquals(0, coalescer.coalesced());
+  }
+
+  private void execute(final String key) {
+    coalescer.execute(key, (s, f) -> {
+      successes.add(s);
+      failures.add(f);
+    }, responses::add, reasons::add);
+  }
+}
@@ -0,0 +1,86 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.time.Instant;
+
+import pt.davidafsilva.slacker.api.CacheScope;
+import pt.davidafsilva.slacker.api.SlackerRequest;
+import pt.davidafsilva.slacker.api.SlackerRequestBuilder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Unit tests for the {@link RequestKeys} utility class.
+ *
+ * @author david
+ */
+public class RequestKeysTest {
+
+  @Test
+  public void test_normalizedArguments() {
+    final String key = RequestKeys.of(request("status", "prod eu"), CacheScope.COMMAND);
+    assertEquals(key, RequestKeys.of(request("status", "  prod \t eu "), CacheScope.COMMAND));
+    assertNotEquals(key, RequestKeys.of(request("status", "prodeu"), CacheScope.COMMAND));
+    assertNotEquals(key, RequestKeys.of(request("status", "prod"), CacheScope.COMMAND));
+    assertNotEquals(key, RequestKeys.of(request("other", "prod eu"), CacheScope.COMMAND));
+  }
+
+  @Test
+  public void test_noArguments() {
+    assertEquals(RequestKeys.of(request("status", null), CacheScope.COMMAND),
+        RequestKeys.of(request("status", "   "), CacheScope.COMMAND));
+  }
+
+  @Test
+  public void test_scopes() {
+    final SlackerRequest request = request("status", "prod");
+    assertNotEquals(RequestKeys.of(request, CacheScope.COMMAND),
+        RequestKeys.of(request, CacheScope.TEAM));
+    assertNotEquals(RequestKeys.of(request, CacheScope.TEAM),
+        RequestKeys.of(request, CacheScope.CHANNEL));
+    assertNotEquals(RequestKeys.of(request, CacheScope.CHANNEL),
+        RequestKeys.of(request, CacheScope.USER));
+  }
+
+  private static SlackerRequest request(final String command, final String args) {
+    return new SlackerRequestBuilder()
+        .timestamp(Instant.now())
+        .channelId("C1")
+        .channelName("#dope")
+        .userId("U1")
+        .userName("david")
+        .teamDomain("slack.davidafsilva.pt")
+        .teamIdentifier("T1")
+        .command(command)
+        .args(args)
+        .build();
+  }
+}
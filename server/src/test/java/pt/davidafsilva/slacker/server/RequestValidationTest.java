@@ -0,0 +1,131 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link RequestValidation} object, as produced by the {@link
+ * HttpContextSlackerRequestParser}.
+ *
+ * @author david
+ */
+public class RequestValidationTest {
+
+  // a valid request body
+  private static final String BODY = "timestamp=1355517523.000005&team_id=T1&team_domain=xpto" +
+      "&channel_id=C1&channel_name=test&user_id=U1&user_name=david&trigger_word=!&text=!boo";
+
+  @Test
+  public void test_valid() {
+    final RequestValidation validation = HttpContextSlackerRequestParser.parse(
+        Buffer.buffer(BODY));
+    assertTrue(validation.isValid());
+    assertEquals("boo", validation.getRequest().get().getCommand());
+    assertTrue(validation.getMissing().isEmpty());
+    assertTrue(validation.getInvalid().isEmpty());
+    assertEquals("valid request", validation.toString());
+  }
+
+  @Test
+  public void test_everyMissingField() {
+    final RequestValidation validation = HttpContextSlackerRequestParser.parse(
+        Buffer.buffer("team_id=T1&channel_name=test&text=!boo"
+            + "&response_url=https://hooks.slack.com/x"));
+    assertFalse(validation.isValid());
+    assertFalse(validation.getRequest().isPresent());
+    assertEquals(Arrays.asList("timestamp", "team_domain", "channel_id", "user_id", "user_name",
+        "trigger_word"), validation.getMissing());
+    assertTrue(validation.getInvalid().isEmpty());
+  }
+
+  @Test
+  public void test_invalidAndMissingFields() {
+    final RequestValidation validation = HttpContextSlackerRequestParser.parse(Buffer.buffer(
+        BODY.replace("1355517523.000005", "yesterday").replace("&user_id=U1", "")));
+    assertFalse(validation.isValid());
+    assertEquals(Collections.singletonList("user_id"), validation.getMissing());
+    assertEquals(Collections.singletonList("timestamp"), validation.getInvalid());
+    assertEquals("missing fields [user_id], invalid fields [timestamp]", validation.toString());
+  }
+
+  @Test
+  public void test_responseUrl() {
+    assertTrue(HttpContextSlackerRequestParser.parse(Buffer.buffer(
+        BODY + "&response_url=https://HOOKS.slack.com/commands/1")).isValid());
+    for (final String url : new String[]{"x", "http://hooks.slack.com/x", "https://internal/x",
+        "https://user@hooks.slack.com/x", "https://hooks.slack.com.evil/x", "file:///etc/passwd"}) {
+      final RequestValidation validation = HttpContextSlackerRequestParser.parse(
+          Buffer.buffer(BODY + "&response_url=" + url));
+      assertFalse(url, validation.isValid());
+      assertEquals(Collections.singletonList("response_url"), validation.getInvalid());
+    }
+  }
+
+  @Test
+  public void test_responseUrl_allowedHosts() {
+    final Set<String> hosts = Collections.singleton("hooks.example.com");
+    assertTrue(HttpContextSlackerRequestParser.parse(Buffer.buffer(
+        BODY + "&response_url=https://hooks.example.com/x"), hosts).isValid());
+    assertFalse(HttpContextSlackerRequestParser.parse(Buffer.buffer(
+        BODY + "&response_url=https://hooks.slack.com/x"), hosts).isValid());
+  }
+
+  @Test
+  public void test_malformedBody() {
+    for (final Buffer body : new Buffer[]{null, Buffer.buffer(BODY + "&response_url=%zz")}) {
+      final RequestValidation validation = HttpContextSlackerRequestParser.parse(body);
+      assertFalse(validation.isValid());
+      assertTrue(validation.getMissing().isEmpty());
+      assertEquals(Collections.singletonList("body"), validation.getInvalid());
+    }
+  }
+
+  @Test
+  public void test_render() {
+    final JsonObject message = new JsonObject(HttpContextSlackerRequestParser.parse(
+        Buffer.buffer("timestamp=0")).render().toString());
+    assertEquals("invalid request", message.getString("error"));
+    assertEquals(new JsonArray(Arrays.asList("team_id", "team_domain", "channel_id",
+        "channel_name", "user_id", "user_name", "trigger_word", "text")),
+        message.getJsonArray("missing"));
+    assertEquals(new JsonArray(Collections.singletonList("timestamp")),
+        message.getJsonArray("invalid"));
+  }
+}
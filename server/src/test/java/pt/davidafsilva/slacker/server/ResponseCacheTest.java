@@ -0,0 +1,161 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.vertx.core.json.JsonObject;
+import pt.davidafsilva.slacker.api.CacheScope;
+import pt.davidafsilva.slacker.api.ResultCode;
+import pt.davidafsilva.slacker.api.SlackerRequest;
+import pt.davidafsilva.slacker.api.SlackerRequestBuilder;
+import pt.davidafsilva.slacker.api.SlackerResponse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link ResponseCache} object.
+ *
+ * @author david
+ */
+public class ResponseCacheTest {
+
+  // the cached response
+  private static final SlackerResponse RESPONSE = new SlackerResponse() {
+    @Override
+    public ResultCode getCode() {
+      return ResultCode.OK;
+    }
+
+    @Override
+    public Optional<String> getResponse() {
+      return Optional.of("test");
+    }
+  };
+
+  // the test clock
+  private final AtomicLong clock = new AtomicLong();
+
+  @Test
+  public void test_hitAndMiss() {
+    final ResponseCache cache = new ResponseCache(100, clock::get);
+    assertFalse(cache.get(request("xpto", "1", "T1", "C1", "U1"), CacheScope.COMMAND).isPresent());
+    cache.put(request("xpto", "1", "T1", "C1", "U1"), CacheScope.COMMAND, 1000, RESPONSE);
+    assertSame(RESPONSE,
+        cache.get(request("xpto", "1", "T1", "C1", "U1"), CacheScope.COMMAND).get());
+    // other arguments and command
+    assertFalse(cache.get(request("xpto", "2", "T1", "C1", "U1"), CacheScope.COMMAND).isPresent());
+    assertFalse(cache.get(request("woop", "1", "T1", "C1", "U1"), CacheScope.COMMAND).isPresent());
+
+    final JsonObject stats = cache.stats();
+    assertEquals(1L, stats.getLong("hits").longValue());
+    assertEquals(3L, stats.getLong("misses").longValue());
+    assertEquals(0.25, stats.getDouble("hitRate"), 0);
+  }
+
+  @Test
+  public void test_scopes() {
+    final ResponseCache cache = new ResponseCache(100, clock::get);
+    for (final CacheScope scope : CacheScope.values()) {
+      cache.put(request("xpto", "1", "T1", "C1", "U1"), scope, 1000, RESPONSE);
+    }
+    // other user, within the same team and channel
+    final SlackerRequest user = request("xpto", "1", "T1", "C1", "U2");
+    assertTrue(cache.get(user, CacheScope.COMMAND).isPresent());
+    assertTrue(cache.get(user, CacheScope.TEAM).isPresent());
+    assertTrue(cache.get(user, CacheScope.CHANNEL).isPresent());
+    assertFalse(cache.get(user, CacheScope.USER).isPresent());
+    // other channel, within the same team
+    final SlackerRequest channel = request("xpto", "1", "T1", "C2", "U1");
+    assertTrue(cache.get(channel, CacheScope.TEAM).isPresent());
+    assertFalse(cache.get(channel, CacheScope.CHANNEL).isPresent());
+    assertTrue(cache.get(channel, CacheScope.USER).isPresent());
+    // other team
+    final SlackerRequest team = request("xpto", "1", "T2", "C1", "U1");
+    assertTrue(cache.get(team, CacheScope.COMMAND).isPresent());
+    assertFalse(cache.get(team, CacheScope.TEAM).isPresent());
+    assertFalse(cache.get(team, CacheScope.CHANNEL).isPresent());
+    assertFalse(cache.get(team, CacheScope.USER).isPresent());
+  }
+
+  @Test
+  public void test_expiration() {
+    final ResponseCache cache = new ResponseCache(100, clock::get);
+    cache.put(request("xpto", "1", "T1", "C1", "U1"), CacheScope.COMMAND, 1000, RESPONSE);
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+    assertTrue(cache.get(request("xpto", "1", "T1", "C1", "U1"), CacheScope.COMMAND).isPresent());
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+    assertFalse(cache.get(request("xpto", "1", "T1", "C1", "U1"), CacheScope.COMMAND).isPresent());
+    assertEquals(1L, cache.stats().getLong("expirations").longValue());
+  }
+
+  @Test
+  public void test_eviction() {
+    final ResponseCache cache = new ResponseCache(ResponseCache.SEGMENTS, clock::get);
+    final int entries = 100;
+    for (int i = 0; i < entries; i++) {
+      cache.put(request("xpto", String.valueOf(i), "T1", "C1", "U1"), CacheScope.COMMAND, 1000,
+          RESPONSE);
+    }
+
+    // the capacity is kept and the most recent entry is never evicted
+    int cached = 0;
+    for (int i = 0; i < entries; i++) {
+      if (cache.get(request("xpto", String.valueOf(i), "T1", "C1", "U1"), CacheScope.COMMAND)
+          .isPresent()) {
+        cached++;
+      }
+    }
+    assertTrue(cached > 0 && cached <= ResponseCache.SEGMENTS);
+    assertTrue(cache.get(request("xpto", String.valueOf(entries - 1), "T1", "C1", "U1"),
+        CacheScope.COMMAND).isPresent());
+    assertEquals(entries - cached, cache.stats().getLong("evictions").longValue());
+  }
+
+  private static SlackerRequest request(final String command, final String args,
+      final String team, final String channel, final String user) {
+    return new SlackerRequestBuilder()
+        .timestamp(Instant.now())
+        .channelId(channel)
+        .channelName("#dope")
+        .userId(user)
+        .userName("david")
+        .teamDomain("slack.davidafsilva.pt")
+        .teamIdentifier(team)
+        .command(command)
+        .args(args)
+        .build();
+  }
+}
@@ -0,0 +1,176 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import pt.davidafsilva.slacker.api.ResultCode;
+import pt.davidafsilva.slacker.api.SlackerBaseTest;
+import pt.davidafsilva.slacker.api.SlackerResponse;
+import pt.davidafsilva.slacker.api.SlackerResponseMessageCodec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link ResponseDeliveryVerticle} object, against a local stub server.
+ *
+ * @author david
+ */
+@RunWith(VertxUnitRunner.class)
+public class ResponseDeliveryVerticleTest extends SlackerBaseTest {
+
+  // the stub server port
+  private static final int STUB_PORT = 10011;
+
+  // the response URL
+  private static final String RESPONSE_URL = "http://localhost:" + STUB_PORT + "/response";
+
+  // the response to be delivered
+  private static final SlackerResponse RESPONSE = new SlackerResponse() {
+    @Override
+    public ResultCode getCode() {
+      return ResultCode.OK;
+    }
+
+    @Override
+    public Optional<String> getResponse() {
+      return Optional.of("done");
+    }
+  };
+
+  @Override
+  public void setup() throws Exception {
+    super.setup();
+
+    // register the codec
+    vertx.eventBus().registerCodec(new SlackerResponseMessageCodec());
+
+    // deploy the delivery stage
+    assertTrue(deployVerticle(new ResponseDeliveryVerticle(), new DeploymentOptions()
+        .setConfig(new JsonObject()
+            .put(HttpServerConfiguration.ConfigurationVariable.DELIVERY_RETRIES.name(), 2)))
+        .succeeded());
+  }
+
+  @Test
+  public void test_deliver() {
+    wrapExec(latch -> stubServer(request -> request.bodyHandler(body -> {
+      assertEquals("/response", request.path());
+      assertEquals("application/json", request.getHeader("Content-Type"));
+      assertEquals(new JsonObject().put("text", "done"), new JsonObject(body.toString()));
+      request.response().end();
+      latch.countDown();
+    }), v -> ResponseDeliveryVerticle.deliver(vertx, RESPONSE_URL, RESPONSE)));
+  }
+
+  @Test
+  public void test_deliver_retriedOnServerError() {
+    final AtomicInteger attempts = new AtomicInteger();
+    wrapExec(latch -> stubServer(request -> request.bodyHandler(body -> {
+      assertEquals(new JsonObject().put("text", "done"), new JsonObject(body.toString()));
+      if (attempts.incrementAndGet() == 1) {
+        request.response().setStatusCode(500).end();
+      } else {
+        request.response().end();
+        latch.countDown();
+      }
+    }), v -> ResponseDeliveryVerticle.deliver(vertx, RESPONSE_URL, RESPONSE)));
+    assertEquals(2, attempts.get());
+  }
+
+  @Test
+  public void test_deliver_malformedUrlReleasesSlot() {
+    wrapExec(latch -> stubServer(request -> {
+      request.response().end();
+      latch.countDown();
+    }, v -> {
+      // exhaust every delivery slot with unusable urls before the valid delivery
+      for (int i = 0; i <= HttpServerConfiguration.DEFAULT_DELIVERY_CONCURRENCY; i++) {
+        ResponseDeliveryVerticle.deliver(vertx, "not a url", RESPONSE);
+      }
+      ResponseDeliveryVerticle.deliver(vertx, RESPONSE_URL, RESPONSE);
+    }));
+  }
+
+  @Test
+  public void test_deliver_retryKeepsSlot() {
+    final int concurrency = HttpServerConfiguration.DEFAULT_DELIVERY_CONCURRENCY;
+    final AtomicInteger outstanding = new AtomicInteger();
+    final AtomicInteger maxOutstanding = new AtomicInteger();
+    final AtomicInteger held = new AtomicInteger();
+    final AtomicInteger attempts = new AtomicInteger();
+    wrapExec(latch -> stubServer(request -> {
+      maxOutstanding.accumulateAndGet(outstanding.incrementAndGet(), Math::max);
+      if (request.path().equals("/hold")) {
+        // never answered, keeps the slot busy
+        if (held.incrementAndGet() == concurrency && attempts.get() == 2) {
+          latch.countDown();
+        }
+      } else if (attempts.incrementAndGet() == 1) {
+        outstanding.decrementAndGet();
+        request.response().setStatusCode(500).end();
+        // occupy every other slot while the failed delivery is backing off
+        for (int i = 0; i < concurrency; i++) {
+          ResponseDeliveryVerticle.deliver(vertx, "http://localhost:" + STUB_PORT + "/hold",
+              RESPONSE);
+        }
+      } else {
+        outstanding.decrementAndGet();
+        request.response().end();
+      }
+    }, v -> ResponseDeliveryVerticle.deliver(vertx, RESPONSE_URL, RESPONSE)));
+    assertEquals(2, attempts.get());
+    assertTrue(maxOutstanding.get() + " > " + concurrency, maxOutstanding.get() <= concurrency);
+  }
+
+  /**
+   * Starts the stub response server with the given request handler
+   *
+   * @param handler         the request handler
+   * @param listenerHandler the handler to be called once the server is listening
+   */
+  private void stubServer(final Handler<HttpServerRequest> handler,
+      final Handler<HttpServer> listenerHandler) {
+    vertx.createHttpServer()
+        .requestHandler(handler)
+        .listen(STUB_PORT, r -> {
+          assertTrue(r.succeeded());
+          listenerHandler.handle(r.result());
+        });
+  }
+}
@@ -0,0 +1,172 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.Optional;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link RoutingTable} object.
+ *
+ * @author david
+ */
+public class RoutingTableTest {
+
+  @Test(expected = NullPointerException.class)
+  public void test_nullStrategy() {
+    new RoutingTable(null);
+  }
+
+  @Test
+  public void test_lookup_empty() {
+    assertEquals(Optional.empty(), table().lookup("xpto"));
+  }
+
+  @Test
+  public void test_load() {
+    final RoutingTable table = table();
+    table.load(new JsonObject()
+        .put("xpto", route(1, "a1"))
+        .put("woop", route(2, "a2"))
+        .put("meh", "a3"));
+    assertEquals(Optional.of("a1"), address(table, "xpto"));
+    assertEquals(Optional.of("a2"), address(table, "woop"));
+    assertEquals(Optional.empty(), address(table, "meh"));
+    assertEquals(Optional.empty(), address(table, "bla"));
+    assertTrue(table.contains("xpto"));
+    assertFalse(table.contains("meh"));
+    assertFalse(table.contains("bla"));
+  }
+
+  @Test
+  public void test_update() {
+    final RoutingTable table = table();
+    table.update(route(1, "a1").put("i", "xpto"));
+    assertEquals(Optional.of("a1"), address(table, "xpto"));
+  }
+
+  @Test
+  public void test_update_invalid() {
+    final RoutingTable table = table();
+    table.update(new JsonObject().put("i", "xpto"));
+    table.update(route(1, "a1"));
+    table.update(new JsonObject().put("i", "xpto").put("a", new JsonArray().add("a1")));
+    assertEquals(Optional.empty(), address(table, "xpto"));
+  }
+
+  @Test
+  public void test_update_outdated() {
+    final RoutingTable table = table();
+    table.update(route(2, "a2").put("i", "xpto"));
+    table.update(route(1, "a1").put("i", "xpto"));
+    assertEquals(Optional.of("a2"), address(table, "xpto"));
+  }
+
+  @Test
+  public void test_update_removed() {
+    final RoutingTable table = table();
+    table.update(route(1, "a1").put("i", "xpto"));
+    table.update(route(2).put("i", "xpto"));
+    assertEquals(Optional.empty(), address(table, "xpto"));
+
+    // outdated updates must not bring it back
+    table.update(route(1, "a1").put("i", "xpto"));
+    assertEquals(Optional.empty(), address(table, "xpto"));
+  }
+
+  @Test
+  public void test_update_keepsKnownEndpoints() {
+    final RoutingTable table = table();
+    table.update(route(1, "a1").put("i", "xpto"));
+    final ExecutorEndpoint endpoint = table.lookup("xpto").get();
+    endpoint.begin();
+
+    // the known endpoint is kept, along with its outstanding requests
+    table.update(route(2, "a1", "a2").put("i", "xpto"));
+    final ExecutorEndpoint other = table.lookup("xpto").get();
+    assertEquals("a2", other.getAddress());
+    other.begin();
+    other.begin();
+    assertSame(endpoint, table.lookup("xpto").get());
+  }
+
+  @Test
+  public void test_lookup_cacheable() {
+    final RoutingTable table = table();
+    table.update(route(1, "a1").put("i", "xpto").put("c", true));
+    table.update(route(1, "a2").put("i", "woop").put("c", false));
+    assertEquals(Optional.empty(), address(table, "xpto"));
+    assertEquals(Optional.of("a2"), address(table, "woop"));
+  }
+
+  @Test
+  public void test_isDeferred() {
+    final RoutingTable table = table();
+    table.update(route(1, "a1").put("i", "xpto").put("m", ExecutorRegistry.DEFERRED_MODE));
+    table.update(route(1, "a2").put("i", "woop").put("m", ExecutorRegistry.SYNC_MODE));
+    table.update(route(1, "a3").put("i", "meh"));
+    assertTrue(table.isDeferred("xpto"));
+    assertFalse(table.isDeferred("woop"));
+    assertFalse(table.isDeferred("meh"));
+    assertFalse(table.isDeferred("bla"));
+  }
+
+  @Test
+  public void test_lookup_balanced() {
+    final RoutingTable table = table();
+    table.update(route(1, "a1", "a2").put("i", "xpto"));
+    final ExecutorEndpoint first = table.lookup("xpto").get();
+    first.begin();
+    final ExecutorEndpoint second = table.lookup("xpto").get();
+    assertTrue(first != second);
+  }
+
+  private static RoutingTable table() {
+    return new RoutingTable(LoadBalancingStrategy.LEAST_OUTSTANDING);
+  }
+
+  private static JsonObject route(final long revision, final String... addresses) {
+    final JsonArray array = new JsonArray();
+    for (final String address : addresses) {
+      array.add(address);
+    }
+    return new JsonObject().put("r", revision).put("a", array);
+  }
+
+  private static Optional<String> address(final RoutingTable table, final String command) {
+    return table.lookup(command).map(ExecutorEndpoint::getAddress);
+  }
+}
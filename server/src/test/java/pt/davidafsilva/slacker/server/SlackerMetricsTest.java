@@ -0,0 +1,125 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import pt.davidafsilva.slacker.api.ResultCode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link SlackerMetrics} object.
+ *
+ * @author david
+ */
+public class SlackerMetricsTest {
+
+  @Test
+  public void test_inFlight() {
+    final SlackerMetrics metrics = new SlackerMetrics();
+    final long start = metrics.begin(SlackerMetrics.Stage.INGRESS);
+    metrics.begin(SlackerMetrics.Stage.EXECUTOR);
+    assertEquals(1, metrics.getInFlight(SlackerMetrics.Stage.INGRESS));
+    assertEquals(0, metrics.getInFlight(SlackerMetrics.Stage.EVENT_SERVER));
+    assertEquals(1, metrics.getInFlight(SlackerMetrics.Stage.EXECUTOR));
+
+    metrics.end(SlackerMetrics.Stage.INGRESS, "test", start);
+    assertEquals(0, metrics.getInFlight(SlackerMetrics.Stage.INGRESS));
+    assertTrue(metrics.render().toString()
+        .contains("slacker_in_flight_requests{stage=\"executor\"} 1\n"));
+  }
+
+  @Test
+  public void test_render() {
+    final AtomicLong clock = new AtomicLong();
+    final SlackerMetrics metrics = new SlackerMetrics(clock::get);
+    for (int i = 0; i < 3; i++) {
+      final long start = metrics.begin(SlackerMetrics.Stage.INGRESS);
+      clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(20));
+      metrics.end(SlackerMetrics.Stage.INGRESS, "deploy", start);
+      metrics.result("deploy", i == 0 ? ResultCode.ERROR : ResultCode.OK);
+    }
+    metrics.gauge("slacker_registry_executors", "The number of registered executors.", () -> 7);
+
+    final String rendered = metrics.render().toString();
+    assertTrue(rendered.contains("# TYPE slacker_requests_total counter\n" +
+        "slacker_requests_total{command=\"deploy\",code=\"OK\"} 2\n" +
+        "slacker_requests_total{command=\"deploy\",code=\"ERROR\"} 1\n"));
+    assertFalse(rendered.contains("code=\"BUSY\""));
+    assertTrue(rendered.contains("# TYPE slacker_request_duration_seconds histogram\n"));
+    assertTrue(rendered.contains("slacker_request_duration_seconds_bucket{command=\"deploy\"," +
+        "stage=\"ingress\",le=\"0.01\"} 0\n"));
+    assertTrue(rendered.contains("slacker_request_duration_seconds_bucket{command=\"deploy\"," +
+        "stage=\"ingress\",le=\"0.025\"} 3\n"));
+    assertTrue(rendered.contains("slacker_request_duration_seconds_bucket{command=\"deploy\"," +
+        "stage=\"ingress\",le=\"+Inf\"} 3\n"));
+    assertTrue(rendered.contains("slacker_request_duration_seconds_sum{command=\"deploy\"," +
+        "stage=\"ingress\"} 0.06\n"));
+    assertTrue(rendered.contains("slacker_request_duration_seconds_count{command=\"deploy\"," +
+        "stage=\"ingress\"} 3\n"));
+    // the stages without samples are left out
+    assertFalse(rendered.contains("stage=\"executor\",le="));
+    assertTrue(rendered.contains("# TYPE slacker_registry_executors gauge\n" +
+        "slacker_registry_executors 7\n"));
+  }
+
+  @Test
+  public void test_escapedCommand() {
+    final SlackerMetrics metrics = new SlackerMetrics();
+    metrics.result("a\"b\\c\nd", ResultCode.OK);
+    assertTrue(metrics.render().toString()
+        .contains("slacker_requests_total{command=\"a\\\"b\\\\c\\nd\",code=\"OK\"} 1\n"));
+  }
+
+  @Test
+  public void test_boundedCommands() {
+    final SlackerMetrics metrics = new SlackerMetrics();
+    for (int i = 0; i < SlackerMetrics.MAX_COMMANDS * 2; i++) {
+      metrics.result("c" + i, ResultCode.OK);
+    }
+    final String rendered = metrics.render().toString();
+    assertTrue(rendered.contains("command=\"c0\""));
+    assertFalse(rendered.contains("command=\"c" + (SlackerMetrics.MAX_COMMANDS * 2 - 1) + "\""));
+    assertTrue(rendered.contains("slacker_requests_total{command=\"" +
+        SlackerMetrics.OTHER_COMMAND + "\",code=\"OK\"} " + SlackerMetrics.MAX_COMMANDS + "\n"));
+  }
+
+  @Test
+  public void test_label() {
+    final SlackerMetrics metrics = new SlackerMetrics();
+    assertEquals(SlackerMetrics.UNKNOWN_COMMAND, metrics.label("xpto"));
+    metrics.result("xpto", ResultCode.OK);
+    assertEquals("xpto", metrics.label("xpto"));
+    assertEquals(SlackerMetrics.UNKNOWN_COMMAND, metrics.label("woop"));
+  }
+}
@@ -36,19 +36,27 @@ import org.mockito.runners.MockitoJUnitRunner;
 
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Context;
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.ServiceHelper;
 import io.vertx.core.Verticle;
 import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.SharedData;
 import io.vertx.core.spi.FutureFactory;
 import pt.davidafsilva.slacker.api.SlackerRequestMessageCodec;
 import pt.davidafsilva.slacker.api.SlackerResponseMessageCodec;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -73,24 +81,45 @@ public class SlackerServerTest {
   @Mock
   private EventBus eventBus;
 
+  @Mock
+  private SharedData sharedData;
+
+  @Mock
+  private LocalMap<String, SlackerMetrics> metricsMap;
+
   @Captor
   private ArgumentCaptor<Handler<AsyncResult<String>>> startCaptor;
 
   @Captor
   private ArgumentCaptor<Handler<AsyncResult<Void>>> stopCaptor;
 
+  @Captor
+  private ArgumentCaptor<DeploymentOptions> optionsCaptor;
+
   // the future factory
   private final FutureFactory factory = ServiceHelper.loadFactory(FutureFactory.class);
 
+  // the shared metrics
+  private final SlackerMetrics metrics = new SlackerMetrics();
+
   // the server instance to be tested
   private SlackerServer server;
 
+  // the server context
+  private Context context;
+
   @Before
   public void setup() {
+    context = mock(Context.class);
+    when(context.config()).thenReturn(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.HTTP_INSTANCES.name(), 4));
     server = new SlackerServer();
-    server.init(vertx, mock(Context.class));
+    server.init(vertx, context);
     when(vertx.eventBus()).thenReturn(eventBus);
     when(eventBus.registerCodec(any())).thenReturn(eventBus);
+    when(vertx.sharedData()).thenReturn(sharedData);
+    when(sharedData.<String, SlackerMetrics>getLocalMap(anyString())).thenReturn(metricsMap);
+    when(metricsMap.get(anyString())).thenReturn(metrics);
   }
 
   @Test
@@ -100,16 +129,35 @@ public class SlackerServerTest {
     verify(eventBus).registerCodec(isA(SlackerResponseMessageCodec.class));
   }
 
+  @Test
+  public void test_start_deliveryDeployFailure() throws Exception {
+    server.start(voidFuture);
+
+    verify(vertx, times(1)).deployVerticle(isA(ResponseDeliveryVerticle.class),
+        any(DeploymentOptions.class), startCaptor.capture());
+    final Handler<AsyncResult<String>> handler = startCaptor.getValue();
+    assertNotNull(handler);
+    handler.handle(factory.completedFuture("dummy", true));
+
+    verify(vertx, never()).deployVerticle(isA(EventServerVerticle.class),
+        any(DeploymentOptions.class), startCaptor.capture());
+    verify(voidFuture, never()).complete();
+    verify(voidFuture, times(1)).fail("failed to deploy delivery verticle");
+  }
+
   @Test
   public void test_start_eventDeployFailure() throws Exception {
     server.start(voidFuture);
 
-    verify(vertx, times(1)).deployVerticle(isA(EventServerVerticle.class), startCaptor.capture());
+    deployWithOptionsSuccess(ResponseDeliveryVerticle.class);
+    verify(vertx, times(1)).deployVerticle(isA(EventServerVerticle.class),
+        any(DeploymentOptions.class), startCaptor.capture());
     final Handler<AsyncResult<String>> handler = startCaptor.getValue();
     assertNotNull(handler);
     handler.handle(factory.completedFuture("dummy", true));
 
-    verify(vertx, never()).deployVerticle(isA(HttpServerVerticle.class), startCaptor.capture());
+    verify(vertx, never()).deployVerticle(eq(HttpServerVerticle.class.getName()),
+        any(DeploymentOptions.class), startCaptor.capture());
     verify(voidFuture, never()).complete();
     verify(voidFuture, times(1)).fail("failed to deploy event verticle");
   }
@@ -118,10 +166,12 @@ public class SlackerServerTest {
   public void test_start_httpDeployFailure() throws Exception {
     server.start(voidFuture);
 
-    deployWithSuccess(EventServerVerticle.class);
+    deployWithOptionsSuccess(ResponseDeliveryVerticle.class);
+    deployWithOptionsSuccess(EventServerVerticle.class);
     deployWithSuccess(HelpSlackerExecutor.class);
 
-    verify(vertx, times(1)).deployVerticle(isA(HttpServerVerticle.class), startCaptor.capture());
+    verify(vertx, times(1)).deployVerticle(eq(HttpServerVerticle.class.getName()),
+        any(DeploymentOptions.class), startCaptor.capture());
     final Handler<AsyncResult<String>> handler = startCaptor.getValue();
     assertNotNull(handler);
     handler.handle(factory.completedFuture("dummy", true));
@@ -134,14 +184,15 @@ public class SlackerServerTest {
   public void test_start_success_helpVerticleFailure() throws Exception {
     server.start(voidFuture);
 
-    deployWithSuccess(EventServerVerticle.class);
+    deployWithOptionsSuccess(ResponseDeliveryVerticle.class);
+    deployWithOptionsSuccess(EventServerVerticle.class);
 
     verify(vertx, times(1)).deployVerticle(isA(HelpSlackerExecutor.class), startCaptor.capture());
     final Handler<AsyncResult<String>> handler = startCaptor.getValue();
     assertNotNull(handler);
     handler.handle(factory.completedFuture("dummy", true));
 
-    deployWithSuccess(HttpServerVerticle.class);
+    deployHttpWithSuccess();
 
     verify(voidFuture, times(1)).complete();
     verify(voidFuture, never()).fail(anyString());
@@ -152,9 +203,10 @@ public class SlackerServerTest {
   public void test_start_success() throws Exception {
     server.start(voidFuture);
 
-    deployWithSuccess(EventServerVerticle.class);
+    deployWithOptionsSuccess(ResponseDeliveryVerticle.class);
+    deployWithOptionsSuccess(EventServerVerticle.class);
     deployWithSuccess(HelpSlackerExecutor.class);
-    deployWithSuccess(HttpServerVerticle.class);
+    deployHttpWithSuccess();
 
     verify(voidFuture, times(1)).complete();
     verify(voidFuture, never()).fail(anyString());
@@ -168,8 +220,55 @@ public class SlackerServerTest {
     handler.handle(factory.completedFuture());
   }
 
+  private void deployWithOptionsSuccess(final Class<? extends Verticle> verticle) {
+    verify(vertx, times(1)).deployVerticle(isA(verticle), any(DeploymentOptions.class),
+        startCaptor.capture());
+    final Handler<AsyncResult<String>> handler = startCaptor.getValue();
+    assertNotNull(handler);
+    handler.handle(factory.completedFuture());
+  }
+
+  private void deployHttpWithSuccess() {
+    verify(vertx, times(1)).deployVerticle(eq(HttpServerVerticle.class.getName()),
+        optionsCaptor.capture(), startCaptor.capture());
+    assertEquals(4, optionsCaptor.getValue().getInstances());
+    final Handler<AsyncResult<String>> handler = startCaptor.getValue();
+    assertNotNull(handler);
+    handler.handle(factory.completedFuture());
+  }
+
+  @Test
+  public void test_start_success_multipleEventServers() throws Exception {
+    when(context.config()).thenReturn(new JsonObject()
+        .put(HttpServerConfiguration.ConfigurationVariable.HTTP_INSTANCES.name(), 4)
+        .put(HttpServerConfiguration.ConfigurationVariable.EVENT_INSTANCES.name(), 3));
+    server.start(voidFuture);
+
+    deployWithOptionsSuccess(ResponseDeliveryVerticle.class);
+    for (int i = 1; i <= 3; i++) {
+      verify(vertx, times(i)).deployVerticle(isA(EventServerVerticle.class),
+          any(DeploymentOptions.class), startCaptor.capture());
+      startCaptor.getValue().handle(factory.completedFuture());
+    }
+    deployWithSuccess(HelpSlackerExecutor.class);
+    deployHttpWithSuccess();
+
+    verify(voidFuture, times(1)).complete();
+    verify(voidFuture, never()).fail(anyString());
+    verify(voidFuture, never()).fail(any(Throwable.class));
+  }
+
   @Test
   public void test_stop_success() throws Exception {
+    server.start(voidFuture);
+    deployWithOptionsSuccess(ResponseDeliveryVerticle.class);
+    deployWithOptionsSuccess(EventServerVerticle.class);
+    deployWithSuccess(HelpSlackerExecutor.class);
+    deployHttpWithSuccess();
+    final String rendered = metrics.render().toString();
+    assertTrue(rendered.contains(SlackerServer.EXECUTORS_GAUGE + " 0\n"));
+    assertTrue(rendered.contains(SlackerServer.INSTANCES_GAUGE + " 0\n"));
+
     server.stop(voidFuture);
 
     verify(vertx, times(1)).undeploy(any(), stopCaptor.capture());
@@ -182,9 +281,15 @@ public class SlackerServerTest {
     assertNotNull(handler);
     handler.handle(factory.completedFuture());
 
+    verify(vertx, times(3)).undeploy(any(), stopCaptor.capture());
+    handler = stopCaptor.getValue();
+    assertNotNull(handler);
+    handler.handle(factory.completedFuture());
+
     verify(vertx, times(1)).undeploy(any());
+    assertFalse(metrics.render().toString().contains("slacker_registry"));
 
-    verify(voidFuture, times(1)).complete();
+    verify(voidFuture, times(2)).complete();
     verify(voidFuture, never()).fail(anyString());
     verify(voidFuture, never()).fail(any(Throwable.class));
   }
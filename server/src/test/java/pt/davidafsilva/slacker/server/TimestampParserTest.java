@@ -0,0 +1,133 @@
+package pt.davidafsilva.slacker.server;
+
+/*
+ * #%L
+ * slacker-server
+ * %%
+ * Copyright (C) 2015 David Silva
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.Random;
+
+import static java.time.temporal.ChronoField.INSTANT_SECONDS;
+import static java.time.temporal.ChronoField.NANO_OF_SECOND;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for the {@link TimestampParser} object.
+ *
+ * @author david
+ */
+public class TimestampParserTest {
+
+  // the reference timestamp formatter
+  private static final DateTimeFormatter TIMESTAMP_FORMATTER = new DateTimeFormatterBuilder()
+      .appendValue(INSTANT_SECONDS, 10)
+      .appendLiteral('.')
+      .appendFraction(NANO_OF_SECOND, 0, 9, false)
+      .toFormatter();
+
+  // the characters of the generated timestamps
+  private static final String ALPHABET = "0123456789.0123456789.-+ e١";
+
+  // the number of generated timestamps
+  private static final int SAMPLES = 100_000;
+
+  @Test(expected = InvocationTargetException.class)
+  public void test_constructor() throws Exception {
+    final Constructor<TimestampParser> c = TimestampParser.class.getDeclaredConstructor();
+    c.setAccessible(true);
+    c.newInstance();
+  }
+
+  @Test
+  public void test_valid() {
+    assertEquals(Optional.of(Instant.ofEpochSecond(1355517523L, 5000)),
+        TimestampParser.parse("1355517523.000005"));
+    assertEquals(Optional.of(Instant.ofEpochSecond(1355517523L, 500_000_000)),
+        TimestampParser.parse("1355517523.5"));
+    assertEquals(Optional.of(Instant.ofEpochSecond(1355517523L, 123456789)),
+        TimestampParser.parse("1355517523.123456789"));
+    assertEquals(Optional.of(Instant.ofEpochSecond(1355517523L)),
+        TimestampParser.parse("1355517523."));
+    assertEquals(Optional.of(Instant.ofEpochSecond(0)), TimestampParser.parse("0000000000.0"));
+    assertEquals(Optional.of(Instant.ofEpochSecond(9999999999L, 999999999)),
+        TimestampParser.parse("9999999999.999999999"));
+  }
+
+  @Test
+  public void test_malformed() {
+    for (final String timestamp : new String[]{"", ".", "1355517523", "135551752.3",
+        "13555175233.0", "1355517523.1234567890", "1355517523,0", "-355517523.0",
+        "+355517523.0", "135551752a.0", "1355517523.00a", "1355517523.-1", " 1355517523.0"}) {
+      assertEquals(timestamp, Optional.empty(), TimestampParser.parse(timestamp));
+    }
+  }
+
+  @Test
+  public void test_sameAsFormatter_valid() {
+    final Random random = new Random(1355517523L);
+    for (int i = 0; i < SAMPLES; i++) {
+      final StringBuilder timestamp = new StringBuilder(20);
+      timestamp.append(String.format("%010d", (long) (random.nextDouble() * 10_000_000_000L)));
+      timestamp.append('.');
+      final int fractionDigits = random.nextInt(10);
+      for (int d = 0; d < fractionDigits; d++) {
+        timestamp.append((char) ('0' + random.nextInt(10)));
+      }
+      assertSameAsFormatter(timestamp.toString());
+    }
+  }
+
+  @Test
+  public void test_sameAsFormatter_random() {
+    final Random random = new Random(5000L);
+    for (int i = 0; i < SAMPLES; i++) {
+      final StringBuilder timestamp = new StringBuilder(22);
+      final int length = 8 + random.nextInt(14);
+      for (int c = 0; c < length; c++) {
+        timestamp.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+      }
+      assertSameAsFormatter(timestamp.toString());
+    }
+  }
+
+  // asserts that the given timestamp is parsed the same way by the reference formatter
+  private static void assertSameAsFormatter(final String timestamp) {
+    Optional<Instant> expected;
+    try {
+      expected = Optional.of(Instant.from(TIMESTAMP_FORMATTER.parse(timestamp)));
+    } catch (final DateTimeParseException e) {
+      expected = Optional.empty();
+    }
+    assertEquals(timestamp, expected, TimestampParser.parse(timestamp));
+  }
+}